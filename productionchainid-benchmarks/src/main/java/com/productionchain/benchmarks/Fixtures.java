@@ -0,0 +1,78 @@
+package com.productionchain.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.productionchain.buildings.BuildingTypeRegistry;
+import com.productionchain.buildings.ProductionBuildingInstance;
+import com.productionchain.buildings.ProductionBuildingType;
+import com.productionchain.constants.BuildingConstants;
+import com.productionchain.constants.ItemConstants;
+import com.productionchain.enginedatatypes.IngredientPair;
+import com.productionchain.enginedatatypes.IngredientsList;
+import com.productionchain.enginedatatypes.Recipe;
+import com.productionchain.enginedatatypes.RecipeRegistry;
+import com.productionchain.mechanics.RecipeHandler;
+import com.productionchain.world.World;
+
+
+/**
+ * Objects shared by the benchmarks: a kiln type, recipes and worlds of a given size.
+ * Nothing here touches the disk; registries are filled in memory.
+ */
+final class Fixtures {
+
+    static final String CATEGORY = "Benchmark kiln";
+
+    private Fixtures() {}
+
+
+    /** Kiln running recipes of CATEGORY, operations times per turn */
+    static ProductionBuildingType kiln(int operations) {
+        return new ProductionBuildingType(BuildingConstants.BUILDING_KILN, "-", BuildingConstants.BUILDING_KILN, 1, 0,
+            new ArrayList<>(), 0, null, new RecipeHandler(operations, new ArrayList<>(List.of(CATEGORY))));
+    }
+
+    static Recipe recipe(String name, String category, String input, double inputCount, String output, double outputCount) {
+        return new Recipe(name, category, "--", 1, 1,
+            new IngredientsList(new ArrayList<>(List.of(new IngredientPair(input, inputCount)))),
+            new IngredientsList(new ArrayList<>(List.of(new IngredientPair(output, outputCount)))), 1.0, true);
+    }
+
+    /** 2 Wood -> 3 Coal */
+    static Recipe charcoal() {
+        return recipe("Charcoal", CATEGORY, ItemConstants.WOOD, 2, ItemConstants.COAL, 3);
+    }
+
+    /** 2 Wood -> 2 Wood: takes the oldest wood and adds fresh wood, so a world running it stays the same size every turn */
+    static Recipe seasonWood() {
+        return recipe("Season wood", CATEGORY, ItemConstants.WOOD, 2, ItemConstants.WOOD, 2);
+    }
+
+    /** Replaces the recipe registry with count recipes spread over count / 10 categories (CATEGORY included) */
+    static void fillRecipeRegistry(int count) {
+        RecipeRegistry.clear();
+        int categories = Math.max(1, count / 10);
+        for (int i = 0; i < count; i++) {
+            String category = (i % categories == 0) ? CATEGORY : "Category " + (i % categories);
+            RecipeRegistry.addRecipe(recipe("Recipe " + i, category, ItemConstants.WOOD, 1 + i % 3, ItemConstants.COAL, 1));
+        }
+    }
+
+    /** World of kilns with wood in storage and seasonWood active. The kiln type is also put in
+     *  BuildingTypeRegistry, so loading these buildings resolves to it (and not to the bundled JSON) */
+    static World world(int buildings) {
+        ProductionBuildingType kiln = kiln(2);
+        BuildingTypeRegistry.setBuildingTypes(List.of(kiln));
+        Recipe recipe = seasonWood();
+        World world = new World();
+        for (int i = 0; i < buildings; i++) {
+            ProductionBuildingInstance building = new ProductionBuildingInstance(kiln, "Player" + (i % 8), i % 1000, i / 1000, 1000);
+            building.getStorage().addItem(ItemConstants.WOOD, 20, 10_000);
+            building.getStorage().addItem(ItemConstants.COAL, 5 + i % 7, 10_000);
+            building.setActiveRecipe(recipe);
+            world.addBuilding(building);
+        }
+        return world;
+    }
+}
@@ -0,0 +1,61 @@
+package com.productionchain.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.productionchain.world.TurnEngine;
+import com.productionchain.world.TurnReport;
+import com.productionchain.world.WorldGenerator;
+
+
+/**
+ * TurnEngine turns over a WorldGenerator world: many building types, a layered recipe graph and
+ * `batches` batches per storage, so recipes mostly miss ingredients and batches spoil as in a real game.
+ * The world is generated again (same seed) for every iteration.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@State(Scope.Thread)
+public class GeneratedWorldBenchmark {
+
+    @Param({ "10000", "100000", "1000000" })
+    public int buildings;
+
+    @Param({ "8" })
+    public int batches;
+
+    @Param({ "PARALLEL" })
+    public TurnEngine.ExecutionMode mode;
+
+    private TurnEngine engine;
+
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        WorldGenerator generator = new WorldGenerator(42);
+        generator.setBuildingCount(buildings);
+        generator.setBatchesPerStorage(batches);
+        engine = new TurnEngine(generator.generate(), mode);
+    }
+
+
+    @Benchmark
+    public TurnReport runTurn() {
+        return engine.runTurn();
+    }
+}
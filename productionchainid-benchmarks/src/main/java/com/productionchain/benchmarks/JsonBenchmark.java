@@ -0,0 +1,102 @@
+package com.productionchain.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.productionchain.enginedatatypes.RecipeRegistry;
+import com.productionchain.world.World;
+import com.productionchain.world.WorldSerializer;
+
+
+/**
+ * JSON save and load of building instances (a world of `buildings` kilns, in memory) and of the
+ * recipe registry (`buildings` / 10 recipes, through a temp file as the registry only reads files).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Thread)
+public class JsonBenchmark {
+
+    @Param({ "1000", "100000" })
+    public int buildings;
+
+    private World world;
+    private byte[] worldJson;
+    private File recipeFile;
+
+
+    @Setup
+    public void setUp() throws IOException {
+        world = Fixtures.world(buildings);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        WorldSerializer.save(world, out);
+        worldJson = out.toByteArray();
+
+        Fixtures.fillRecipeRegistry(Math.max(10, buildings / 10));
+        recipeFile = File.createTempFile("recipes", ".json");
+        RecipeRegistry.saveToJson(recipeFile.getPath());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(recipeFile.toPath());
+    }
+
+
+    @Benchmark
+    public void saveWorld(Blackhole blackhole) throws IOException {
+        WorldSerializer.save(world, new BlackholeOutputStream(blackhole));
+    }
+
+    @Benchmark
+    public long loadWorld(Blackhole blackhole) throws IOException {
+        return WorldSerializer.load(new ByteArrayInputStream(worldJson), blackhole::consume);
+    }
+
+    @Benchmark
+    public void saveRecipeRegistry() throws IOException {
+        RecipeRegistry.saveToJson(recipeFile.getPath());
+    }
+
+    @Benchmark
+    public int loadRecipeRegistry() {
+        RecipeRegistry.loadFromJson(recipeFile.getPath());
+        return RecipeRegistry.getRecipes().size();
+    }
+
+
+    /** Sink that hands every byte count to the blackhole, so saving isn't measured against a growing buffer */
+    private static final class BlackholeOutputStream extends OutputStream {
+        private final Blackhole blackhole;
+
+        BlackholeOutputStream(Blackhole blackhole) { this.blackhole = blackhole; }
+
+        @Override
+        public void write(int b) { blackhole.consume(b); }
+
+        @Override
+        public void write(byte[] b, int off, int len) { blackhole.consume(len); }
+    }
+}
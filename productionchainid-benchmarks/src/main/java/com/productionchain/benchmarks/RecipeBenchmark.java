@@ -0,0 +1,82 @@
+package com.productionchain.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.productionchain.buildings.ProductionBuildingInstance;
+import com.productionchain.constants.ItemConstants;
+import com.productionchain.enginedatatypes.Recipe;
+import com.productionchain.enginedatatypes.RecipeRegistry;
+import com.productionchain.mechanics.RecipeHandler;
+
+
+/**
+ * Recipe lookups against a registry of `recipes` recipes, and one recipe run on a kiln.
+ * performRecipe puts the wood back and takes the coal out every call so the storage doesn't grow.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RecipeBenchmark {
+
+    @Param({ "100", "10000" })
+    public int recipes;
+
+    private String lookupName;
+    private String lookupCategory;
+    private RecipeHandler handler;
+    private ProductionBuildingInstance building;
+    private Recipe charcoal;
+
+
+    @Setup
+    public void setUp() {
+        Fixtures.fillRecipeRegistry(recipes);
+        lookupName = "Recipe " + (recipes - 1);
+        lookupCategory = "Category " + (Math.max(1, recipes / 10) - 1);
+        handler = Fixtures.kiln(1).getRecipeHandler();
+
+        charcoal = Fixtures.charcoal();
+        building = new ProductionBuildingInstance(Fixtures.kiln(1), "Player1", 0, 0, 1000);
+    }
+
+
+    @Benchmark
+    public Recipe getRecipeByName() {
+        return RecipeRegistry.getRecipeByName(lookupName);
+    }
+
+    @Benchmark
+    public List<Recipe> getRecipesByCategory() {
+        return RecipeRegistry.getRecipesByCategory(lookupCategory);
+    }
+
+    @Benchmark
+    public List<Recipe> getAvailableRecipes() {
+        return handler.getAvailableRecipes();
+    }
+
+    @Benchmark
+    public double performRecipe() {
+        building.getStorage().addItem(ItemConstants.WOOD, 2, 50);
+        building.setActiveRecipe(charcoal);
+        building.performRecipe();
+        building.getStorage().removeItem(ItemConstants.COAL, 3);
+        return building.getStorage().getUsedCapacity();
+    }
+}
@@ -0,0 +1,55 @@
+package com.productionchain.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.productionchain.world.TurnEngine;
+import com.productionchain.world.TurnReport;
+import com.productionchain.world.World;
+
+
+/**
+ * One TurnEngine turn over a world of `buildings` kilns (recipes, storage degradation), in both
+ * execution modes. The world is rebuilt for every iteration so each one starts from the same state.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Thread)
+public class TurnBenchmark {
+
+    @Param({ "1000", "100000" })
+    public int buildings;
+
+    @Param({ "SEQUENTIAL", "PARALLEL" })
+    public TurnEngine.ExecutionMode mode;
+
+    private TurnEngine engine;
+
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        World world = Fixtures.world(buildings);
+        engine = new TurnEngine(world, mode);
+    }
+
+
+    @Benchmark
+    public TurnReport runTurn() {
+        return engine.runTurn();
+    }
+}
@@ -6,8 +6,6 @@ import java.util.ArrayList;
 import java.util.List;
 
 import com.productionchain.enginedatatypes.IngredientPair;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
 import com.productionchain.buildings.BuildingTypeList;
 import com.productionchain.buildings.ProductionBuildingInstance;
 import com.productionchain.buildings.ProductionBuildingType;
@@ -18,6 +16,7 @@ import com.productionchain.enginedatatypes.IngredientsList;
 import com.productionchain.enginedatatypes.RecipeRegistry;
 import com.productionchain.enginedatatypes.ResourceLoader;
 import com.productionchain.mechanics.RecipeHandler;
+import com.productionchain.persistence.JsonPersistence;
 import com.productionchain.constants.ItemConstants;
 import com.productionchain.constants.RecipeConstants;
 import com.productionchain.constants.BuildingConstants;
@@ -157,11 +156,8 @@ public class Main {
         // Save to file
         instanceB.setActiveRecipe(RecipeRegistry.getRecipeByName("Chop wood"));
 
-        ObjectMapper mapper = new ObjectMapper();
-        mapper.enable(SerializationFeature.INDENT_OUTPUT);
-
         List<ProductionBuildingInstance> instances = List.of(instanceA, instanceB);
-        mapper.writeValue(new File("BuildingInstances_teste.json"), instances);
+        JsonPersistence.write(new File("BuildingInstances_teste.json"), instances);
         System.out.println("Written to JSON!");
 
 
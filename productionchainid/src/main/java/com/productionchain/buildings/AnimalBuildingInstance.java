@@ -5,14 +5,13 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.DoubleSummaryStatistics;
 import java.util.List;
+import java.util.Objects;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.core.exc.StreamWriteException;
 import com.fasterxml.jackson.databind.DatabindException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
 import com.productionchain.enginedatatypes.IngredientPair;
 import com.productionchain.enginedatatypes.IngredientsList;
 import com.productionchain.enginedatatypes.ItemType;
@@ -20,11 +19,16 @@ import com.productionchain.enginedatatypes.Recipe;
 import com.productionchain.mechanics.AnimalInstance;
 import com.productionchain.mechanics.AnimalType;
 import com.productionchain.mechanics.RecipeHandler;
+import com.productionchain.persistence.JsonPersistence;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 
 
 
 public class AnimalBuildingInstance extends BuildingInstance{
+
+    private static final Logger LOG = LoggerFactory.getLogger(AnimalBuildingInstance.class);
     
     ArrayList<AnimalInstance> housedAnimals;
     double cleanliness;
@@ -68,9 +72,9 @@ public class AnimalBuildingInstance extends BuildingInstance{
 
     
     // SETTERS / ADDERS
-    public void addHousedAnimal(AnimalInstance animal){ this.housedAnimals.add(animal);}
-    public void setHousedAnimals(ArrayList<AnimalInstance> housedAnimals) { this.housedAnimals = housedAnimals; }
-    public void setCleanliness(double cleanliness) { this.cleanliness = cleanliness; }
+    public void addHousedAnimal(AnimalInstance animal){ this.housedAnimals.add(animal); this.dirty = true; }
+    public void setHousedAnimals(ArrayList<AnimalInstance> housedAnimals) { this.housedAnimals = housedAnimals; this.dirty = true; }
+    public void setCleanliness(double cleanliness) { this.cleanliness = cleanliness; this.dirty = true; }
 
 
 
@@ -103,7 +107,7 @@ public class AnimalBuildingInstance extends BuildingInstance{
             case "productivity":    return housedAnimals.stream().mapToDouble(AnimalInstance::getProductivity).summaryStatistics();
             case "health":          return housedAnimals.stream().mapToDouble(AnimalInstance::getHealth).summaryStatistics();
             default:
-                System.out.println("[ERROR]: Invalid/not implemented parameter request!");
+                LOG.warn("Invalid/not implemented parameter request! ({})", parameter);
                 return null;
         }
     }
@@ -111,15 +115,41 @@ public class AnimalBuildingInstance extends BuildingInstance{
 
 
 
+    /** Ages every housed animal by one turn. Returns how many animals were updated.
+     *  Aging alone doesn't make the building dirty (a save can add the turns back), an animal dying does */
+    public int ageHousedAnimals() {
+        if (housedAnimals == null) return 0;
+        for (AnimalInstance animal : housedAnimals) {
+            String state = animal.getState();
+            animal.advanceAge(1);
+            if (!Objects.equals(state, animal.getState())) this.dirty = true;
+        }
+        return housedAnimals.size();
+    }
+
+
     @Override
     public void updateNextTurn() {
-        throw new UnsupportedOperationException("Not supported yet.");
+        // ITEMS EXPIRE
+        degradeStorage();
 
         // UPDATE AGES
+        ageHousedAnimals();
 
         // UPDATE CONDITION ( call a function defined in building instance)
     }
 
+    /** Animals age (and can die) turn by turn, so every turn is stepped, in TurnEngine's phase order */
+    @Override
+    public long fastForward(long turns) {
+        for (long i = 0; i < turns; i++) {
+            runActiveRecipe();
+            degradeStorage();
+            ageHousedAnimals();
+        }
+        return turns;
+    }
+
 
 
 
@@ -153,10 +183,8 @@ public class AnimalBuildingInstance extends BuildingInstance{
         
 
         // Save to file
-        ObjectMapper mapper = new ObjectMapper();
-        mapper.enable(SerializationFeature.INDENT_OUTPUT);
         List<BuildingInstance> instances = List.of(vacariaInstance);
-        mapper.writeValue(new File("AnimalBuildingInstances_teste.json"), instances);
+        JsonPersistence.write(new File("AnimalBuildingInstances_teste.json"), instances);
         System.out.println("Written to JSON!");
         
     }
@@ -13,8 +13,12 @@ import com.productionchain.enginedatatypes.Recipe;
 import com.productionchain.enginedatatypes.RecipeRegistry;
 import com.productionchain.enginedatatypes.ResourceLoader;
 import com.productionchain.mechanics.RecipeHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class AnimalBuildingType extends BuildingType{
+
+    private static final Logger LOG = LoggerFactory.getLogger(AnimalBuildingType.class);
     
     double optimalHousingSpace;
     double maximumHousingSpace;
@@ -24,7 +28,7 @@ public class AnimalBuildingType extends BuildingType{
 
     public AnimalBuildingType(){
         super();
-        System.out.println("[EMPTY CONSTRUCTOR]");
+        LOG.trace("[EMPTY CONSTRUCTOR]");
     }
 
     public AnimalBuildingType(double optimalHousingSpace){
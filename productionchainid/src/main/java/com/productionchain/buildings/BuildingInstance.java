@@ -15,14 +15,16 @@ import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import com.fasterxml.jackson.core.exc.StreamWriteException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DatabindException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
 import com.productionchain.enginedatatypes.IngredientPair;
 import com.productionchain.enginedatatypes.Recipe;
 import com.productionchain.enginedatatypes.ResourceLoader;
 import com.productionchain.mechanics.AdvancedStorage;
 import com.productionchain.mechanics.RecipeHandler;
 import com.productionchain.mechanics.RecipeSystem;
+import com.productionchain.metrics.Metrics;
+import com.productionchain.persistence.JsonPersistence;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 // import com.productionchain.mechanics.Storage;
 
 
@@ -33,6 +35,8 @@ import com.productionchain.mechanics.RecipeSystem;
 })
 public abstract class BuildingInstance {
 
+    private static final Logger LOG = LoggerFactory.getLogger(BuildingInstance.class);
+
     @JsonIgnore
     BuildingType type; // Reference to the immutable BuildingType
     String typeName;
@@ -46,6 +50,23 @@ public abstract class BuildingInstance {
     @JsonInclude(JsonInclude.Include.ALWAYS)
     Recipe activeRecipe;
 
+    /** Id given by the World the building is placed in (-1 = not placed yet). Kept across saves */
+    long instanceId = -1;
+    /** Set by the setters (storage changes are tracked by the storage itself). New buildings start dirty */
+    boolean dirty = true;
+
+    /** Durability of the batches a recipe outputs */
+    public static final int OUTPUT_DURABILITY = 10;
+
+    /** Advances fastForward() remembers when looking for a repeating storage state */
+    private static final int CYCLE_WINDOW = 2 * OUTPUT_DURABILITY;
+
+    /** Why a building didn't use all its recipe operations in a turn */
+    public enum Stall { NONE, NO_RECIPE, MISSING_INGREDIENTS, STORAGE_FULL }
+    /** Outcome of the last runActiveRecipe(), not saved */
+    transient Stall lastStall = Stall.NONE;
+    transient int lastMissingItemId = -1;
+
     
     public BuildingInstance() {} // Default constructor required for Jackson
 
@@ -66,20 +87,14 @@ public abstract class BuildingInstance {
 
     @JsonCreator
     public BuildingInstance(String typeName, String owner, int x, int y, double storageCap, Recipe activeRecipe) throws IOException {
-        System.out.println(">>> BuildingInstance(String typeName)");
-        /// LOAD BUILDING TYPE REGISTRY
-        BuildingTypeList<ProductionBuildingType> prodBuildingTypeList = new BuildingTypeList<>(ProductionBuildingType.class);
-        prodBuildingTypeList.loadFromJson(ResourceLoader.getResourcePath("buildingtypes/ProductionBuildings.json"));
-        
-        if( prodBuildingTypeList.getBuildingByName(typeName) == null){
-            System.out.println("[ERROR]: building '" + typeName + "' doesn't exist in registry!");
+        LOG.trace(">>> BuildingInstance(String typeName) {}", typeName);
+        /// RESOLVE FROM THE SHARED BUILDING TYPE REGISTRY (loaded once per process)
+        this.type = BuildingTypeRegistry.getBuildingByName(typeName);
+        if( this.type == null){
+            LOG.error("Building '{}' doesn't exist in registry!", typeName);
         }
-        this.type = prodBuildingTypeList.getBuildingByName(typeName);
 
-        System.out.println("&&& teste: " + prodBuildingTypeList);
-        System.out.println("&&& teste: " + prodBuildingTypeList.getBuildingByName(typeName));
-
-        this.typeName = type.getName();
+        this.typeName = typeName;
         this.owner = owner;
         this.x = x;
         this.y = y;
@@ -92,18 +107,32 @@ public abstract class BuildingInstance {
     @JsonSetter("typeName") // Called when JSON assigns this field
     public void settypeName(String typeName) throws IOException {
         this.typeName = typeName;
+        this.dirty = true;
         this.resolveType(); // Reconstruct type from registry
     }
 
     public void resolveType() throws IOException {
-        BuildingTypeList<ProductionBuildingType> prodBuildingTypeList = new BuildingTypeList<>(ProductionBuildingType.class);
-        prodBuildingTypeList.loadFromJson(ResourceLoader.getResourcePath("buildingtypes/ProductionBuildings.json"));
-        this.type = prodBuildingTypeList.getBuildingByName(this.typeName);
+        this.type = BuildingTypeRegistry.getBuildingByName(this.typeName);
     }
 
 
         
     
+    /** Id given by the World (-1 = not placed yet) */
+    @JsonIgnore
+    public long getInstanceId() { return instanceId; }
+    @JsonIgnore
+    public void setInstanceId(long instanceId) { this.instanceId = instanceId; }
+
+    /** True if the building or its storage changed since the last clearDirty() (for incremental saves) */
+    @JsonIgnore
+    public boolean isDirty() { return dirty || (storage != null && storage.isDirty()); }
+    public void markDirty() { this.dirty = true; }
+    public void clearDirty() {
+        this.dirty = false;
+        if (storage != null) storage.clearDirty();
+    }
+
     /** Returns ProductionBuildingInstance or the respective class */
     public String getInstanceType() { 
         //System.out.println("[TESTE]: " + this.getClass().getSimpleName() );
@@ -134,14 +163,15 @@ public abstract class BuildingInstance {
 
     // SETTERS
     //public void setType(BuildingType type)   { this.type = type; }
-    public void setType(BuildingType type)   { this.type = type; this.typeName = type.getName(); }
-    public void setOwner(String owner)  { this.owner = owner; }
-    public void setXcoord(int x) { this.x = x; }
-    public void setYcoord(int y) { this.y = y; }
+    public void setType(BuildingType type)   { this.type = type; this.typeName = type.getName(); this.dirty = true; }
+    public void setOwner(String owner)  { this.owner = owner; this.dirty = true; }
+    public void setStorage(AdvancedStorage storage) { this.storage = storage; this.dirty = true; }
+    public void setXcoord(int x) { this.x = x; this.dirty = true; }
+    public void setYcoord(int y) { this.y = y; this.dirty = true; }
 
     // CONDITION
-    public void setCondition(double condition){ this.condition = condition;}
-    public void addCondition(double conditionToAdd){ this.condition += condition;}
+    public void setCondition(double condition){ this.condition = condition; this.dirty = true; }
+    public void addCondition(double conditionToAdd){ this.condition += condition; this.dirty = true; }
 
     // STORAGE (DO CASE BY CASE)
     public void addItem(String itemName, double amount, double durability){
@@ -167,24 +197,30 @@ public abstract class BuildingInstance {
     }
     
     public void setActiveRecipe(Recipe recipe) {
-        if(recipe == null) {this.activeRecipe = null;}
+        if(recipe == null) {
+            if (this.activeRecipe != null) this.dirty = true;
+            this.activeRecipe = null;
+        }
         else {
-            if(canRunRecipe(recipe)){ this.activeRecipe = recipe; }
-            else { System.out.println("Building cannot run recipe! (" + recipe.getName() + ")"); }
+            if(canRunRecipe(recipe)){ this.activeRecipe = recipe; this.dirty = true; }
+            else { LOG.warn("Building cannot run recipe! ({})", recipe.getName()); }
         }
     }
 
 
     public boolean hasAllIngredientsForRecipe(){ return hasAllIngredientsForRecipe(this.activeRecipe); }
     public boolean hasAllIngredientsForRecipe(Recipe recipe){
-        boolean hasAllIngredients = true;
-        // FIRST CHECK IF HAS ALL ITEMS 
+        return findMissingIngredient(recipe) < 0;
+    }
+
+    /** Item id of the first ingredient the storage doesn't have enough of, or -1 if it has them all */
+    public int findMissingIngredient(Recipe recipe){
         if (recipe.getIngredientslist() != null){
             for (IngredientPair ingredientPair : recipe.getIngredientslist().getIngredientslist()) {
-                if(!this.getStorage().hasItem(ingredientPair.getItem_name(), ingredientPair.getCount())){hasAllIngredients = false;}
+                if(!this.getStorage().hasItem(ingredientPair.getItemId(), ingredientPair.getCount())){ return ingredientPair.getItemId(); }
             }
         }
-        return hasAllIngredients;
+        return -1;
     }
 
 
@@ -193,10 +229,12 @@ public abstract class BuildingInstance {
         double neededStorageSpace = this.getStorage().getUsedCapacity();
         
         // FIRST CHECK IF HAS ALL SPACE FOR MORE
-        for (IngredientPair ingredientPair : this.activeRecipe.getIngredientslist().getIngredientslist()) {
-            neededStorageSpace -= ingredientPair.getCount();
+        if (recipe.getIngredientslist() != null){
+            for (IngredientPair ingredientPair : recipe.getIngredientslist().getIngredientslist()) {
+                neededStorageSpace -= ingredientPair.getCount();
+            }
         }
-        for (IngredientPair outputPair : this.activeRecipe.getOutputslist().getIngredientslist()) {
+        for (IngredientPair outputPair : recipe.getOutputslist().getIngredientslist()) {
             neededStorageSpace += outputPair.getCount();
         }
         return (this.getStorage().getCapacity() >= neededStorageSpace);
@@ -205,6 +243,7 @@ public abstract class BuildingInstance {
 
     /** Perform recipe by converting ingredients into outputs. Checks if has all ingredients and space for outputs */
     public void performRecipe(){
+        long start = Metrics.start();
         if(this.getActiveRecipe() != null){
             boolean hasAllIngredients = hasAllIngredientsForRecipe();
             boolean hasStorageSpace   = hasStorageSpaceForRecipe();
@@ -212,20 +251,262 @@ public abstract class BuildingInstance {
             // ACTUALLY REMOVES INGREDIENTS AND ADDS OUTPUTS
             if(hasAllIngredients){
                 if (hasStorageSpace) {
-                    for (IngredientPair ingredientPair : this.activeRecipe.getIngredientslist().getIngredientslist()) {
-                        this.storage.removeItem(ingredientPair.getItem_name(), ingredientPair.getCount());
-                    }
-                    for (IngredientPair outputPair : this.activeRecipe.getOutputslist().getIngredientslist()) {
-                        this.storage.addItem(outputPair.getItem_name(), outputPair.getCount(), 10);
-                    }
-                } else {System.out.println("[ERROR]: No storage space to perform recipe");}
-            } else {System.out.println("[ERROR]: Missing some ingredients");}
+                    applyRecipe(this.activeRecipe, 1);
+                } else {LOG.warn("No storage space to perform recipe {}", this.activeRecipe.getName());}
+            } else {LOG.warn("Missing some ingredients for recipe {}", this.activeRecipe.getName());}
 
         } else {
-            System.out.println("No selected recipe!");
+            LOG.warn("No selected recipe!");
         }
         // DEACTIVATE RECIPE
         this.setActiveRecipe(null);
+        Metrics.RECIPE_PERFORM.record(start);
+    }
+
+    /** Runs the active recipe up to the building's number of operations, keeping it active for the next turn.
+     *  Stops early (silently) when ingredients or space run out, see getLastStall(). Returns how many times it ran */
+    public int runActiveRecipe(){ return runActiveRecipe(getNumOperations()); }
+
+    /** Runs the active recipe up to maxRuns times in one go (a catch-up over several turns, say), keeping it active.
+     *  Works out how many runs the stock and free space allow, then removes and adds everything at once:
+     *  one removal per ingredient and one merged batch per output, whatever the number of runs */
+    public int runActiveRecipe(int maxRuns){
+        if (this.activeRecipe == null) {
+            this.lastStall = Stall.NO_RECIPE;
+            return 0;
+        }
+        Recipe recipe = this.activeRecipe;
+        Stall stall = Stall.NONE;
+        int runs = Math.max(0, maxRuns);
+        int ingredientRuns = getIngredientRuns(recipe);
+        if (ingredientRuns < runs) { runs = ingredientRuns; stall = Stall.MISSING_INGREDIENTS; }
+        int spaceRuns = getStorageSpaceRuns(recipe);
+        if (spaceRuns < runs) { runs = spaceRuns; stall = Stall.STORAGE_FULL; }  // ties go to the ingredients, checked first
+
+        if (runs > 0) applyRecipe(recipe, runs);
+        if (stall == Stall.MISSING_INGREDIENTS) this.lastMissingItemId = findMissingIngredient(recipe);
+        this.lastStall = stall;
+        return runs;
+    }
+
+    /** Times the recipe could run back to back on the current stock and free space (Integer.MAX_VALUE = no limit) */
+    public int getMaxRuns(Recipe recipe){
+        return Math.min(getIngredientRuns(recipe), getStorageSpaceRuns(recipe));
+    }
+
+    /** Runs the stock allows, each ingredient checked on its own like findMissingIngredient() */
+    private int getIngredientRuns(Recipe recipe){
+        long runs = Integer.MAX_VALUE;
+        if (recipe.getIngredientslist() != null){
+            for (IngredientPair ingredientPair : recipe.getIngredientslist().getIngredientslist()) {
+                double count = ingredientPair.getCount();
+                if (count <= 0) continue;
+                double stock = this.storage.getItemQuantity(ingredientPair.getItemId());
+                long fits = (long) (stock / count);
+                while (fits > 0 && fits * count > stock) fits--;   // rounding in the division
+                runs = Math.min(runs, fits);
+            }
+        }
+        return (int) runs;
+    }
+
+    /** Runs the free space allows. Same rule as hasStorageSpaceForRecipe(), applied to every run in turn */
+    private int getStorageSpaceRuns(Recipe recipe){
+        double growth = getGrowthPerRun(recipe);
+        double used = this.storage.getUsedCapacity();
+        double capacity = this.storage.getCapacity();
+        if (used + growth > capacity) return 0;
+        if (growth <= 0) return Integer.MAX_VALUE;   // every run frees space
+        long runs = (long) ((capacity - used) / growth);
+        while (runs > 1 && used + runs * growth > capacity) runs--;
+        return (int) Math.min(runs, Integer.MAX_VALUE);
+    }
+
+    /** Used capacity one run adds (outputs minus ingredients) */
+    private static double getGrowthPerRun(Recipe recipe){
+        double growth = 0;
+        if (recipe.getIngredientslist() != null){
+            for (IngredientPair ingredientPair : recipe.getIngredientslist().getIngredientslist()) {
+                growth -= ingredientPair.getCount();
+            }
+        }
+        for (IngredientPair outputPair : recipe.getOutputslist().getIngredientslist()) {
+            growth += outputPair.getCount();
+        }
+        return growth;
+    }
+
+    /** Why the last runActiveRecipe() stopped before using all its operations (NONE if it didn't) */
+    @JsonIgnore
+    public Stall getLastStall() { return lastStall; }
+    /** Ingredient that was missing when the last stall was MISSING_INGREDIENTS */
+    @JsonIgnore
+    public int getLastMissingItemId() { return lastMissingItemId; }
+
+    /** Recipe runs allowed per turn, from the building type (at least one) */
+    @JsonIgnore
+    public int getNumOperations(){
+        if (this.type == null || this.type.getRecipeHandler() == null) return 1;
+        return Math.max(1, this.type.getRecipeHandler().getBaseNumOperations());
+    }
+
+    /** Removes the ingredients and adds the outputs of the recipe, runs times over. Callers check ingredients and space first */
+    void applyRecipe(Recipe recipe, int runs){
+        Metrics.RECIPE_APPLIED.add(runs);
+        if (recipe.getIngredientslist() != null){
+            for (IngredientPair ingredientPair : recipe.getIngredientslist().getIngredientslist()) {
+                this.storage.removeItem(ingredientPair.getItemId(), ingredientPair.getCount() * runs);
+            }
+        }
+        for (IngredientPair outputPair : recipe.getOutputslist().getIngredientslist()) {
+            this.storage.addItem(outputPair.getItemId(), outputPair.getCount() * runs, OUTPUT_DURABILITY);
+        }
+    }
+
+    /// FAST FORWARD ================================================
+    /** Advances the building by this many turns, each one a recipe run followed by storage aging as in
+     *  TurnEngine, without stepping through every turn:
+     *   - stretches where every turn does the same thing (the recipe runs fully on stock that lasts, or the
+     *     building sits idle) are applied in one go, see skipSteadyTurns;
+     *   - once the storage comes back to a state it was in a few turns ago (a full storage that runs again
+     *     each time a batch spoils, say), whole repeats of that cycle are skipped by moving the clock;
+     *   - whatever is left is stepped.
+     *  Returns the turns stepped */
+    public long fastForward(long turns){
+        long stepped = 0;
+        double[][] states = null;   // storage state after each of the last CYCLE_WINDOW advances (ring)
+        long[] advanced = null;     // turns and recipe runs each of them covered
+        long[] ran = null;
+        int recorded = 0;
+        while (turns > 0) {
+            long skipped = skipSteadyTurns(turns);
+            long runs;
+            if (skipped > 0) {
+                runs = (this.lastStall == Stall.NONE) ? skipped * getNumOperations() : 0;
+            } else {
+                runs = runActiveRecipe();
+                degradeStorage();
+                skipped = 1;
+                stepped++;
+            }
+            turns -= skipped;
+            if (turns == 0) break;
+
+            if (states == null) {
+                states = new double[CYCLE_WINDOW][];
+                advanced = new long[CYCLE_WINDOW];
+                ran = new long[CYCLE_WINDOW];
+            }
+            double[] state = this.storage.getBatchState();
+            long period = skipped, periodRuns = runs;
+            for (int back = 1; back <= Math.min(recorded, CYCLE_WINDOW); back++) {
+                int slot = (recorded - back) % CYCLE_WINDOW;
+                if (Arrays.equals(states[slot], state)) {
+                    long repeats = turns / period;
+                    if (repeats > 0) {
+                        this.storage.shiftTurn(repeats * period);
+                        Metrics.RECIPE_APPLIED.add(repeats * periodRuns);
+                        turns -= repeats * period;
+                    }
+                    recorded = 0;
+                    state = null;
+                    break;
+                }
+                period += advanced[slot];
+                periodRuns += ran[slot];
+            }
+            if (state != null) {
+                int slot = recorded++ % CYCLE_WINDOW;
+                states[slot] = state;
+                advanced[slot] = skipped;
+                ran[slot] = runs;
+            }
+        }
+        return stepped;
+    }
+
+    /** Applies up to limit turns in closed form if the building is in a steady state, and returns how many
+     *  (0 = the next turn has to be stepped).
+     *  Idle buildings (no recipe, an ingredient gone, storage full) only age their storage: nothing comes in
+     *  from outside, so they stay idle for good, or until a batch spoils when the storage is full.
+     *  A building running its recipe fully keeps doing so while every ingredient lasts, none of its
+     *  batches spoils, and the space left holds OUTPUT_DURABILITY turns of output (older output batches
+     *  spoil as new ones come in). Over such a stretch the ingredients are taken in one removal and only
+     *  the output batches that haven't spoiled by the end are added */
+    private long skipSteadyTurns(long limit){
+        Recipe recipe = this.activeRecipe;
+        if (recipe == null) {
+            this.lastStall = Stall.NO_RECIPE;
+            this.storage.degradeItems(limit);
+            return limit;
+        }
+        int operations = getNumOperations();
+        int ingredientRuns = getIngredientRuns(recipe);
+        if (ingredientRuns == 0) {
+            this.lastStall = Stall.MISSING_INGREDIENTS;
+            this.lastMissingItemId = findMissingIngredient(recipe);
+            this.storage.degradeItems(limit);
+            return limit;
+        }
+        if (ingredientRuns < operations) return 0;
+        int spaceRuns = getStorageSpaceRuns(recipe);
+        if (spaceRuns == 0) {
+            long idle = Math.min(limit, this.storage.getNextSpoilTurn() - this.storage.getTurn());
+            this.lastStall = Stall.STORAGE_FULL;
+            this.storage.degradeItems(idle);
+            return idle;
+        }
+        List<IngredientPair> ingredients = (recipe.getIngredientslist() != null) ? recipe.getIngredientslist().getIngredientslist() : new ArrayList<>();
+        if (spaceRuns < operations || feedsItself(ingredients, recipe.getOutputslist().getIngredientslist())) return 0;
+
+        // turns with full runs; the last turn the stock or space allows is left to be stepped (rounding)
+        long steady = limit;
+        for (IngredientPair ingredientPair : ingredients) {
+            double perTurn = ingredientPair.getCount() * operations;
+            if (perTurn <= 0) continue;
+            double stock = this.storage.getItemQuantity(ingredientPair.getItemId());
+            steady = Math.min(steady, (long) (stock / perTurn) - 1);
+            steady = Math.min(steady, this.storage.getNextSpoilTurn(ingredientPair.getItemId()) - this.storage.getTurn());
+        }
+        double growthPerTurn = getGrowthPerRun(recipe) * operations;
+        double room = this.storage.getCapacity() - this.storage.getUsedCapacity();
+        if (growthPerTurn > 0 && OUTPUT_DURABILITY * growthPerTurn > room) {
+            steady = Math.min(steady, (long) (room / growthPerTurn) - 1);
+        }
+        if (steady <= 0) return 0;
+
+        int runs = (int) Math.min(steady * operations, Integer.MAX_VALUE);
+        for (IngredientPair ingredientPair : ingredients) {
+            this.storage.removeItem(ingredientPair.getItemId(), ingredientPair.getCount() * operations * steady);
+        }
+        for (long turn = Math.max(0, steady - OUTPUT_DURABILITY + 1); turn < steady; turn++) {
+            for (IngredientPair outputPair : recipe.getOutputslist().getIngredientslist()) {
+                this.storage.addItem(outputPair.getItemId(), outputPair.getCount() * operations, OUTPUT_DURABILITY + turn);
+            }
+        }
+        this.storage.degradeItems(steady);
+        Metrics.RECIPE_APPLIED.add(runs);
+        this.lastStall = Stall.NONE;
+        return steady;
+    }
+
+    /** True if an item shows up twice among the ingredients or as both ingredient and output */
+    private static boolean feedsItself(List<IngredientPair> ingredients, List<IngredientPair> outputs){
+        for (int i = 0; i < ingredients.size(); i++) {
+            int itemId = ingredients.get(i).getItemId();
+            for (int j = i + 1; j < ingredients.size(); j++) {
+                if (ingredients.get(j).getItemId() == itemId) return true;
+            }
+            for (IngredientPair outputPair : outputs) {
+                if (outputPair.getItemId() == itemId) return true;
+            }
+        }
+        return false;
+    }
+
+    /** Ages every stored batch by one turn, dropping the spoiled ones */
+    public void degradeStorage(){
+        this.storage.degradeItems();
     }
 
 
@@ -248,9 +529,6 @@ public abstract class BuildingInstance {
 
 
     public static void main(String[] args) throws StreamWriteException, DatabindException, IOException {
-        ObjectMapper mapper = new ObjectMapper();
-        mapper.enable(SerializationFeature.INDENT_OUTPUT);
-
         ArrayList<IngredientPair> buildingCost = new ArrayList<>();
         buildingCost.add(new IngredientPair("Wood", 1));
         ProductionBuildingType buildingTest = new ProductionBuildingType("teste", "desc", "Hut", 1, 1, buildingCost, 0, new ArrayList<>(), new RecipeHandler());
@@ -268,12 +546,12 @@ public abstract class BuildingInstance {
 
         // Save to file
         List<ProductionBuildingInstance> instances = List.of((ProductionBuildingInstance) instanceA, (ProductionBuildingInstance) workshop);
-        mapper.writeValue(new File("teste_building_.json"), instances);
+        JsonPersistence.write(new File("teste_building_.json"), instances);
         System.out.println("Written to JSON!");
 
         // Load from file
         //List<BuildingInstance> loadedInstances = mapper.readValue(
-        List<ProductionBuildingInstance> loadedInstances = mapper.readValue(
+        List<ProductionBuildingInstance> loadedInstances = JsonPersistence.read(
             new File("teste_building_.json"), 
             //new TypeReference<List<BuildingInstance>>() {}
             new TypeReference<List<ProductionBuildingInstance>>() {}
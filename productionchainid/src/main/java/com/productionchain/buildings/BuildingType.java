@@ -13,6 +13,8 @@ import com.productionchain.enginedatatypes.IngredientPair;
 import com.productionchain.enginedatatypes.Recipe;
 import com.productionchain.enginedatatypes.RecipeRegistry;
 import com.productionchain.mechanics.RecipeHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 
 
@@ -23,6 +25,8 @@ import com.productionchain.mechanics.RecipeHandler;
     //@JsonSubTypes.Type(value = com.productionchain.buildingtypes.ProductionBuildingType.class, name = "Production22")
 })
 public abstract class BuildingType {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BuildingType.class);
     
     String name;
     String BuildingClass; // MAKE THIS ENUM
@@ -107,7 +111,7 @@ public abstract class BuildingType {
 
     // WAS UNCOMMENTED
     public String getType() {
-        System.out.println("[## @building type list] " + this.getClass().getSimpleName());
+        LOG.trace("[## @building type list] {}", this.getClass().getSimpleName());
         return this.getClass().getSimpleName();
     }
 
@@ -3,11 +3,11 @@ package com.productionchain.buildings;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
 import com.productionchain.enginedatatypes.IngredientPair;
 // import com.productionchain.enginedatatypes.ItemRegistry;
 // import com.productionchain.enginedatatypes.RecipeRegistry;
@@ -15,6 +15,7 @@ import com.productionchain.enginedatatypes.ItemRegistry;
 import com.productionchain.enginedatatypes.RecipeRegistry;
 import com.productionchain.enginedatatypes.ResourceLoader;
 import com.productionchain.mechanics.RecipeHandler;
+import com.productionchain.persistence.JsonPersistence;
 
 
 
@@ -22,6 +23,10 @@ public class BuildingTypeList<T extends BuildingType> {
     private List<T> buildings = new ArrayList<>();
     private final Class<T> type;
 
+    /** Lookup indexes, kept in step with buildings by every method that changes the list */
+    private final Map<String, T> buildingsByName = new HashMap<>();           // first building added under a name wins
+    private final Map<String, List<T>> buildingsByCategory = new HashMap<>();
+
     public BuildingTypeList(Class<T> type) {
         this.type = type;
         this.buildings = new ArrayList<>();
@@ -29,43 +34,56 @@ public class BuildingTypeList<T extends BuildingType> {
 
 
     // SETTERS
-    public void setBuildings(List<T> buildings) { this.buildings = buildings; }
+    /** Replaces the list with a copy of the given one */
+    public void setBuildings(List<T> buildings) {
+        this.buildings = new ArrayList<>(buildings);
+        rebuildIndexes();
+    }
 
     public void addBuilding(BuildingType building){
-        this.buildings.add((T) building);
+        T typed = (T) building;
+        this.buildings.add(typed);
+        index(typed);
     }
 
 
     // GETTERS
-    public List<T> getBuildings() { return buildings; }
+    /** All buildings, in the order they were added. Read only (use addBuilding/setBuildings) */
+    public List<T> getBuildings() { return Collections.unmodifiableList(buildings); }
 
+    /** Buildings of a category, in the order they were added. Read only view */
     public List<T> getBuildingsByCategory(String category){
-        return buildings.stream()
-                    .filter(building -> building.getCategory().equals(category))
-                    .collect(Collectors.toList());
+        List<T> inCategory = buildingsByCategory.get(category);
+        return (inCategory == null) ? Collections.emptyList() : Collections.unmodifiableList(inCategory);
     }
 
     public T getBuildingByName(String name){
-        return buildings.stream()
-        .filter(building -> building.getName().equals(name)) // Match name
-        .findFirst() // Get the first match
-        .orElse(null);
+        return buildingsByName.get(name);
+    }
+
+
+    private void index(T building) {
+        buildingsByName.putIfAbsent(building.getName(), building);
+        buildingsByCategory.computeIfAbsent(building.getCategory(), k -> new ArrayList<>()).add(building);
+    }
+
+    private void rebuildIndexes() {
+        buildingsByName.clear();
+        buildingsByCategory.clear();
+        for (T building : buildings) index(building);
     }
 
 
     // Read from JSON file
     public void loadFromJson(String filePath) throws IOException {
-        ObjectMapper mapper = new ObjectMapper();
-        this.buildings = mapper.readValue(new File(filePath), 
-            mapper.getTypeFactory().constructCollectionType(List.class, type));
+        this.buildings = JsonPersistence.read(new File(filePath), JsonPersistence.listOf(type));
+        rebuildIndexes();
     }
 
     // Write to JSON file
     public void saveToJson(String filePath) throws IOException {
-        ObjectMapper mapper = new ObjectMapper();
-        mapper.enable(SerializationFeature.INDENT_OUTPUT);
         //mapper.activateDefaultTyping(mapper.getPolymorphicTypeValidator(), ObjectMapper.DefaultTyping.NON_FINAL);
-        mapper.writeValue(new File(filePath), this.buildings); //writerWithDefaultPrettyPrinter()
+        JsonPersistence.write(new File(filePath), this.buildings); // pretty printed
     }
 
 
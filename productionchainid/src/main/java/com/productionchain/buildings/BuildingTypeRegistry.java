@@ -0,0 +1,163 @@
+package com.productionchain.buildings;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.productionchain.enginedatatypes.ResourceLoader;
+import com.productionchain.metrics.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Process-wide registry of building types, indexed by name.
+ *
+ * The registry holds an immutable snapshot that is swapped atomically on every
+ * load, reload or registration, so lookups never lock and never see a half-built
+ * map. Each swap bumps the version number, which callers can use to invalidate
+ * anything they derived from an older snapshot.
+ *
+ * If nothing was loaded explicitly, the first lookup or register() loads the default
+ * production building resource (buildingtypes/ProductionBuildings.json) once.
+ */
+public class BuildingTypeRegistry {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BuildingTypeRegistry.class);
+
+    public static final String DEFAULT_RESOURCE = "buildingtypes/ProductionBuildings.json";
+
+    private static volatile Snapshot current = new Snapshot(Collections.emptyMap(), 0, null);
+    private static volatile boolean loaded = false;
+
+
+    // GETTERS
+    /** Returns the building type with this name, or null if it isn't registered */
+    public static BuildingType getBuildingByName(String name) {
+        ensureLoaded();
+        return current.types.get(name);
+    }
+
+    public static boolean buildingExists(String name) {
+        return getBuildingByName(name) != null;
+    }
+
+    /** Read-only view of every registered building type, in load order */
+    public static Map<String, BuildingType> getBuildingTypes() {
+        ensureLoaded();
+        return current.types;
+    }
+
+    /** Incremented every time the registry contents change */
+    public static long getVersion() {
+        return current.version;
+    }
+
+    /** File the current snapshot was loaded from, or null if it was built in code */
+    public static String getSourcePath() {
+        return current.sourcePath;
+    }
+
+    public static int size() {
+        ensureLoaded();
+        return current.types.size();
+    }
+
+
+    // LOADING
+    /** Replaces the registry with the production building types in this JSON file */
+    public static synchronized void loadFromJson(String filePath) throws IOException {
+        long start = Metrics.start();
+        BuildingTypeList<ProductionBuildingType> list = new BuildingTypeList<>(ProductionBuildingType.class);
+        list.loadFromJson(filePath);
+        publish(index(list.getBuildings()), filePath);
+        Metrics.REGISTRY_LOAD.record(start);
+    }
+
+    /** Loads the default production building resource from the classpath */
+    public static synchronized void loadDefault() throws IOException {
+        loadFromJson(ResourceLoader.getResourcePath(DEFAULT_RESOURCE));
+    }
+
+    /** Re-reads the file the current snapshot came from (or the default resource) */
+    public static synchronized void reload() throws IOException {
+        if (current.sourcePath != null) { loadFromJson(current.sourcePath); }
+        else { loadDefault(); }
+    }
+
+    /** Replaces the registry with these building types */
+    public static synchronized void setBuildingTypes(Collection<? extends BuildingType> buildingTypes) {
+        publish(index(buildingTypes), null);
+    }
+
+    /** Adds (or replaces) the given building types on top of the current snapshot (loading the default
+     *  resource first if nothing was loaded yet) */
+    public static synchronized void register(Collection<? extends BuildingType> buildingTypes) {
+        ensureLoaded();
+        Map<String, BuildingType> merged = new LinkedHashMap<>(current.types);
+        merged.putAll(index(buildingTypes));
+        publish(merged, current.sourcePath);
+    }
+
+    public static void register(BuildingType buildingType) {
+        register(Collections.singletonList(buildingType));
+    }
+
+    /** Empties the registry. The next lookup will not reload the default resource */
+    public static synchronized void clear() {
+        publish(Collections.emptyMap(), null);
+    }
+
+
+    // INTERNALS
+    private static void ensureLoaded() {
+        if (loaded) return;
+        synchronized (BuildingTypeRegistry.class) {
+            if (loaded) return;
+            try {
+                loadDefault();
+            } catch (IOException e) {
+                LOG.error("Failed to load default building types: {}", e.getMessage());
+                loaded = true; // don't retry the parse on every lookup
+            }
+        }
+    }
+
+    private static Map<String, BuildingType> index(Collection<? extends BuildingType> buildingTypes) {
+        Map<String, BuildingType> byName = new LinkedHashMap<>();
+        for (BuildingType buildingType : buildingTypes) {
+            byName.put(buildingType.getName(), buildingType);
+        }
+        return byName;
+    }
+
+    private static void publish(Map<String, BuildingType> types, String sourcePath) {
+        current = new Snapshot(Collections.unmodifiableMap(new LinkedHashMap<>(types)), current.version + 1, sourcePath);
+        loaded = true;
+    }
+
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+        result.append(String.format("BuildingTypeRegistry[version=%d, types=%d]", current.version, current.types.size()));
+        current.types.forEach((name, type) -> result.append("\n  - ").append(name).append(" | ").append(type.getCategory()));
+        return result.toString();
+    }
+
+
+    /** Immutable registry contents plus the version they were published under */
+    private static final class Snapshot {
+        final Map<String, BuildingType> types;
+        final long version;
+        final String sourcePath;
+
+        Snapshot(Map<String, BuildingType> types, long version, String sourcePath) {
+            this.types = types;
+            this.version = version;
+            this.sourcePath = sourcePath;
+        }
+    }
+}
@@ -12,14 +12,13 @@ import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.core.exc.StreamWriteException;
 import com.fasterxml.jackson.databind.DatabindException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
 import com.productionchain.enginedatatypes.IngredientPair;
 import com.productionchain.enginedatatypes.IngredientsList;
 import com.productionchain.enginedatatypes.ItemRegistry;
 import com.productionchain.enginedatatypes.Recipe;
 import com.productionchain.enginedatatypes.RecipeRegistry;
 import com.productionchain.mechanics.RecipeHandler;
+import com.productionchain.persistence.JsonPersistence;
 
 
 //@JsonTypeName("ProductionBuildingInstance__")
@@ -63,14 +62,11 @@ public class ProductionBuildingInstance extends BuildingInstance {
 
     @Override
     public void updateNextTurn() {
-        System.out.println("Processing production for " + this.type.getName());
-        // Logic for consuming input, producing output
-
-        // CHECKS??
-
-        // RUN RECIPE
+        // RUN RECIPE (stays active between turns)
+        runActiveRecipe();
 
         // ITEMS EXPIRE
+        degradeStorage();
 
         // DEGRADE BUILDING CONDITION
         
@@ -123,10 +119,8 @@ public class ProductionBuildingInstance extends BuildingInstance {
 
         
         // Save to file
-        ObjectMapper mapper = new ObjectMapper();
-        mapper.enable(SerializationFeature.INDENT_OUTPUT);
         List<BuildingInstance> instances = List.of(buildingA, buildingB);
-        mapper.writeValue(new File("teste_building_2.json"), instances);
+        JsonPersistence.write(new File("teste_building_2.json"), instances);
         System.out.println("Written to JSON!");
 
     }
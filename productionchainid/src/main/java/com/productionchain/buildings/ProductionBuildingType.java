@@ -12,6 +12,7 @@ import javax.swing.filechooser.FileNameExtensionFilter;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonTypeName;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.productionchain.persistence.JsonPersistence;
 import com.productionchain.enginedatatypes.IngredientPair;
 import com.productionchain.enginedatatypes.Recipe;
 import com.productionchain.enginedatatypes.RecipeRegistry;
@@ -56,8 +57,7 @@ public class ProductionBuildingType extends BuildingType{
     // READ JSON
     ///* 
     public static List<ProductionBuildingType> loadProductionBuildingTypes(String filePath) throws IOException {
-        ObjectMapper objectMapper = new ObjectMapper();
-        ProductionBuildingConfig1 config = objectMapper.readValue(new File(filePath), ProductionBuildingConfig1.class);
+        ProductionBuildingConfig1 config = JsonPersistence.read(new File(filePath), ProductionBuildingConfig1.class);
         return config.getBuildings(); // Assuming the StagedBuildingConfig class maps correctly
     }
     // */
@@ -74,8 +74,7 @@ public class ProductionBuildingType extends BuildingType{
 
     // WRITE JSON
     public static void saveProductionBuildingTypes(ProductionBuildingConfig1 config, String filePath) throws IOException {
-        ObjectMapper objectMapper = new ObjectMapper();
-        objectMapper.writerWithDefaultPrettyPrinter().writeValue(new File(filePath), config);
+        JsonPersistence.write(new File(filePath), config);
     }
 
 
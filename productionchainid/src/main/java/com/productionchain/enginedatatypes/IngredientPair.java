@@ -1,16 +1,22 @@
 package com.productionchain.enginedatatypes;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class IngredientPair {
+    private static final Logger LOG = LoggerFactory.getLogger(IngredientPair.class);
+
     String item_name;
     double count;
     double probability;
+    int itemId = -1; // resolved from item_name on first use
 
 
     public IngredientPair(){
-        System.out.println("||||| fui acionado");
+        LOG.trace("||||| fui acionado");
         this.item_name = "";
         this.count = 1;
         this.probability = 1;
@@ -43,6 +49,17 @@ public class IngredientPair {
         return item_name;
     }
 
+    /** ItemRegistry id of the item, looked up once and cached */
+    @JsonIgnore
+    public int getItemId() {
+        int id = itemId;
+        if (id < 0) {
+            id = ItemRegistry.getItemId(item_name);
+            itemId = id;
+        }
+        return id;
+    }
+
     public double getCount() {
         return count;
     }
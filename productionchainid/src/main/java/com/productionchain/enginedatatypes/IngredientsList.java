@@ -5,13 +5,11 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
-import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonValue;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.util.DefaultIndenter;
-import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.productionchain.persistence.JsonPersistence;
 
 public class IngredientsList {
     //@JsonProperty("ingredient_list") // ALERTA REMOVI ISTO
@@ -76,29 +74,18 @@ public class IngredientsList {
     // PROLLY NOT USED
     public void SaveIngredientList(String FILENAME){ 
         
-        // DEFINE MAPPER AND PRINTER
-        ObjectMapper om = new ObjectMapper();
-        //om.setVisibility(PropertyAccessor.FIELD, Visibility.ANY);
-        DefaultPrettyPrinter printer = new DefaultPrettyPrinter();
-        printer.indentArraysWith(new DefaultIndenter("  ", "\n"));
-        printer.withObjectIndenter(new DefaultIndenter("  ", "\n"));
-        
-        om.setVisibility(om.getSerializationConfig().getDefaultVisibilityChecker()
-                .withFieldVisibility(Visibility.ANY)
-                .withGetterVisibility(Visibility.NONE)
-                .withSetterVisibility(Visibility.NONE)
-                .withCreatorVisibility(Visibility.NONE));
-
+        // FIELDS-ONLY WRITER (shared, see JsonPersistence)
+        ObjectWriter writer = JsonPersistence.fieldWriter();
 
         System.out.println("[ATTEMPTING TO WRITE EVERYTHING]");
         try {
             // covert Java object to JSON strings
-            String json = om.writer(printer).writeValueAsString(this);
+            String json = writer.writeValueAsString(this);
             //String json = om.writer(printer).writeValue(itemlist);
 
             System.out.println(json);
 
-            om.writeValue(new File(FILENAME), this);
+            writer.writeValue(new File(FILENAME), this);
 
         } catch (JsonProcessingException e) {
             throw new RuntimeException(e);
@@ -110,17 +97,11 @@ public class IngredientsList {
 
 
     public IngredientsList LoadFromFile(String FILENAME){
-        // DEFINE MAPPER AND PRINTER
-        ObjectMapper om = new ObjectMapper();
-        DefaultPrettyPrinter printer = new DefaultPrettyPrinter();
-        printer.indentArraysWith(new DefaultIndenter("  ", "\n"));
-        printer.withObjectIndenter(new DefaultIndenter("  ", "\n"));
-        
         IngredientsList READLIST_;
 
         try {
             // read JSON from a file and convert it to Java object
-            READLIST_ = om.readValue(new File(FILENAME), IngredientsList.class);
+            READLIST_ = JsonPersistence.read(new File(FILENAME), IngredientsList.class);
             System.out.println("ItemList read from JSON:");
             System.out.println(READLIST_);
 
@@ -3,18 +3,33 @@ package com.productionchain.enginedatatypes;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
+import com.productionchain.metrics.Metrics;
+import com.productionchain.persistence.JsonPersistence;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 
 public class ItemRegistry {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ItemRegistry.class);
     private static final Map<String, ItemType> itemTypes = new HashMap<>();
 
+    /** Dense int id per item name (0, 1, 2, ...), so storages and recipes can index arrays instead of hashing names.
+     *  Ids are handed out on first use and never reused or reset, not even by clear(), so ids cached in
+     *  recipes and storages stay valid. Names that are not registered item types also get an id */
+    private static final Map<String, Integer> itemIds = new ConcurrentHashMap<>();
+    /** Names by id in the first itemIdCount slots; grows by doubling so registering n items costs O(n) */
+    private static volatile String[] itemNames = new String[16];
+    private static volatile int itemIdCount = 0;
+    private static volatile ItemType[] itemTypesById = new ItemType[0];
+
 
 
     // GETTERS
@@ -40,6 +55,58 @@ public class ItemRegistry {
         return isValidItem(name);
     }
 
+    /** Id of the item name, assigning the next free id the first time a name is seen */
+    public static int getItemId(String name) {
+        Integer id = itemIds.get(name);
+        return (id != null) ? id : assignItemId(name);
+    }
+
+    /** Id of the item name, or -1 if the name was never seen (doesn't assign one) */
+    public static int findItemId(String name) {
+        Integer id = itemIds.get(name);
+        return (id != null) ? id : -1;
+    }
+
+    /** Name for an id handed out by getItemId() */
+    public static String getItemName(int id) {
+        if (id >= itemIdCount) throw new ArrayIndexOutOfBoundsException(id);
+        return itemNames[id];
+    }
+
+    /** Item type by id, or null if that name isn't a registered item type */
+    public static ItemType getItemType(int id) {
+        ItemType[] types = itemTypesById;
+        return (id >= 0 && id < types.length) ? types[id] : null;
+    }
+
+    /** Number of ids handed out so far (every id is below this) */
+    public static int getItemIdCount() {
+        return itemIdCount;
+    }
+
+    private static synchronized int assignItemId(String name) {
+        Integer id = itemIds.get(name);
+        if (id != null) return id;  // another thread got here first
+        int newId = itemIdCount;
+        if (newId == itemNames.length) {
+            itemNames = Arrays.copyOf(itemNames, newId * 2);
+        }
+        itemNames[newId] = name;
+        itemIdCount = newId + 1;
+        itemIds.put(name, newId); // published after the name so getItemName never misses
+        return newId;
+    }
+
+    /** Rebuilds the id -> type table after itemTypes changed */
+    private static synchronized void indexItemTypes() {
+        for (String name : itemTypes.keySet()) {
+            getItemId(name);
+        }
+        ItemType[] types = new ItemType[itemIdCount];
+        itemTypes.forEach((name, itemType) -> types[itemIds.get(name)] = itemType);
+        itemTypesById = types;
+    }
+
     /** Returns a list of all the item names of the chosen category  */
     public ArrayList<String> getItemsByCategory(String category){
         ArrayList<String> itemNames = new ArrayList<>();
@@ -56,34 +123,41 @@ public class ItemRegistry {
     // SETTERS
     public static void addItem(ItemType itemType){
         ItemRegistry.itemTypes.put(itemType.getName(), itemType);
+        indexItemTypes();
+    }
+
+    /** Adds many item types with one re-index */
+    public static void addItems(Collection<? extends ItemType> newItemTypes){
+        for (ItemType itemType : newItemTypes) ItemRegistry.itemTypes.put(itemType.getName(), itemType);
+        indexItemTypes();
     }
 
-    /** Clears all items from the registry - useful for testing */
+    /** Clears all items from the registry - useful for testing. Item ids are kept */
     public static void clear() {
         itemTypes.clear();
+        indexItemTypes();
     }
 
 
 
     // LOAD FROM JSON file
     public static void loadFromJson(String filePath) {
-        ObjectMapper mapper = new ObjectMapper();
+        long start = Metrics.start();
         try {
-            Map<String, ItemType> items = mapper.readValue(new File(filePath), new TypeReference<Map<String, ItemType>>() {});
+            Map<String, ItemType> items = JsonPersistence.read(new File(filePath), JsonPersistence.mapOf(String.class, ItemType.class));
             itemTypes.clear();  // Clear existing items before loading
             itemTypes.putAll(items);
-            System.out.println("ItemRegistry successfully loaded from JSON.");
+            indexItemTypes();
+            LOG.info("ItemRegistry loaded {} items from {}", items.size(), filePath);
         } catch (IOException e) {
-            e.printStackTrace();
-            System.err.println("Failed to load ItemRegistry from JSON.");
+            LOG.error("Failed to load ItemRegistry from {}", filePath, e);
         }
+        Metrics.REGISTRY_LOAD.record(start);
     }
 
     // Write to JSON file
     public static void saveToJson(String filePath) throws IOException {
-        ObjectMapper mapper = new ObjectMapper();
-        mapper.enable(SerializationFeature.INDENT_OUTPUT);
-        mapper.writeValue(new File(filePath), ItemRegistry.itemTypes); //writerWithDefaultPrettyPrinter()
+        JsonPersistence.write(new File(filePath), ItemRegistry.itemTypes); // pretty printed
     }
 
 
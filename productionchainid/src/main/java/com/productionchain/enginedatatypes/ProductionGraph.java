@@ -0,0 +1,359 @@
+package com.productionchain.enginedatatypes;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+
+
+/**
+ * Immutable graph of which recipes produce and consume each item, compiled from a list of recipes.
+ *
+ * Items are the ItemRegistry ids. Both directions are kept in CSR form (one offsets array per
+ * direction plus one flat array of recipe indexes), so "what produces X" is a slice of an array:
+ * O(number of producers), no scan over all recipes and no per-item lists.
+ *
+ * The item -> item order (ingredients before what they are made into) and the cycles (charcoal
+ * loops, seeds that give back seeds...) are worked out the first time they are asked for.
+ *
+ * Get the registry's graph with RecipeRegistry.getProductionGraph(); when recipes are only added,
+ * it is extended with withRecipes() instead of compiled again.
+ */
+public final class ProductionGraph {
+
+    private static final int[] NO_INTS = new int[0];
+
+    private final Recipe[] recipes;
+    /** Item ids the graph has slots for (ids at or above this have no recipes) */
+    private final int itemCount;
+
+    /** Recipe indexes producing item i: producers[producerOffsets[i] .. producerOffsets[i + 1]) */
+    private final int[] producerOffsets;
+    private final int[] producers;
+    /** Recipe indexes consuming item i, same layout */
+    private final int[] consumerOffsets;
+    private final int[] consumers;
+
+    /** Output item ids of recipe r: outputs[outputOffsets[r] .. outputOffsets[r + 1]) */
+    private final int[] outputOffsets;
+    private final int[] outputs;
+
+    /** Registry version the graph was compiled at (-1 when not built from the registry) */
+    private final long version;
+
+    /** Topological order and cycles, worked out on first use */
+    private volatile Order order;
+
+
+    private ProductionGraph(Recipe[] recipes, int itemCount, int[] producerOffsets, int[] producers,
+                            int[] consumerOffsets, int[] consumers, int[] outputOffsets, int[] outputs, long version) {
+        this.recipes = recipes;
+        this.itemCount = itemCount;
+        this.producerOffsets = producerOffsets;
+        this.producers = producers;
+        this.consumerOffsets = consumerOffsets;
+        this.consumers = consumers;
+        this.outputOffsets = outputOffsets;
+        this.outputs = outputs;
+        this.version = version;
+    }
+
+    static final ProductionGraph EMPTY = new ProductionGraph(new Recipe[0], 0,
+        new int[1], NO_INTS, new int[1], NO_INTS, new int[1], NO_INTS, -1);
+
+    /** Compiles the graph of these recipes */
+    public static ProductionGraph of(Collection<? extends Recipe> recipes) {
+        return EMPTY.withRecipes(recipes, -1);
+    }
+
+
+    /** This graph plus the added recipes. Only the new recipes are resolved; existing edges are copied across */
+    public ProductionGraph withRecipes(Collection<? extends Recipe> added) {
+        return withRecipes(added, -1);
+    }
+
+    ProductionGraph withRecipes(Collection<? extends Recipe> added, long newVersion) {
+        int base = recipes.length;
+        Recipe[] allRecipes = Arrays.copyOf(recipes, base + added.size());
+        int[][] newInputs = new int[added.size()][];
+        int[][] newOutputs = new int[added.size()][];
+        int k = 0;
+        for (Recipe recipe : added) {
+            allRecipes[base + k] = recipe;
+            newInputs[k] = itemIds(recipe.getIngredientslist());
+            newOutputs[k] = itemIds(recipe.getOutputslist());
+            k++;
+        }
+        int items = Math.max(itemCount, ItemRegistry.getItemIdCount());
+
+        int[] newOutputOffsets = Arrays.copyOf(outputOffsets, allRecipes.length + 1);
+        int outputTotal = outputs.length;
+        for (int r = 0; r < newOutputs.length; r++) {
+            outputTotal += newOutputs[r].length;
+            newOutputOffsets[base + r + 1] = outputTotal;
+        }
+        int[] allOutputs = Arrays.copyOf(outputs, outputTotal);
+        for (int r = 0; r < newOutputs.length; r++) {
+            System.arraycopy(newOutputs[r], 0, allOutputs, newOutputOffsets[base + r], newOutputs[r].length);
+        }
+
+        int[][] producerSide = merge(producerOffsets, producers, newOutputs, base, items);
+        int[][] consumerSide = merge(consumerOffsets, consumers, newInputs, base, items);
+        return new ProductionGraph(allRecipes, items, producerSide[0], producerSide[1],
+            consumerSide[0], consumerSide[1], newOutputOffsets, allOutputs, newVersion);
+    }
+
+    /** Distinct item ids of an ingredient/output list */
+    private static int[] itemIds(IngredientsList list) {
+        if (list == null || list.getIngredientslist() == null) return NO_INTS;
+        List<IngredientPair> pairs = list.getIngredientslist();
+        int[] ids = new int[pairs.size()];
+        int n = 0;
+        for (IngredientPair pair : pairs) {
+            int id = pair.getItemId();
+            boolean seen = false;
+            for (int i = 0; i < n && !seen; i++) seen = ids[i] == id;  // lists are a handful of items
+            if (!seen) ids[n++] = id;
+        }
+        return (n == ids.length) ? ids : Arrays.copyOf(ids, n);
+    }
+
+    /** CSR of the old edges plus one edge (item -> base + r) per id in newEdges[r]. Returns {offsets, values} */
+    private static int[][] merge(int[] offsets, int[] values, int[][] newEdges, int base, int items) {
+        int oldItems = offsets.length - 1;
+        int[] counts = new int[items + 1];
+        for (int[] ids : newEdges) {
+            for (int id : ids) counts[id + 1]++;
+        }
+        int[] newOffsets = new int[items + 1];
+        for (int i = 0; i < items; i++) {
+            int oldDegree = (i < oldItems) ? offsets[i + 1] - offsets[i] : 0;
+            newOffsets[i + 1] = newOffsets[i] + oldDegree + counts[i + 1];
+        }
+        int[] newValues = new int[newOffsets[items]];
+        int[] fill = new int[items];
+        for (int i = 0; i < items; i++) {
+            int oldDegree = (i < oldItems) ? offsets[i + 1] - offsets[i] : 0;
+            if (oldDegree > 0) System.arraycopy(values, offsets[i], newValues, newOffsets[i], oldDegree);
+            fill[i] = newOffsets[i] + oldDegree;
+        }
+        for (int r = 0; r < newEdges.length; r++) {   // in recipe order, so slices stay in registry order
+            for (int id : newEdges[r]) newValues[fill[id]++] = base + r;
+        }
+        return new int[][] { newOffsets, newValues };
+    }
+
+
+    // QUERIES
+    public int getRecipeCount() { return recipes.length; }
+    public int getItemCount() { return itemCount; }
+    long getVersion() { return version; }
+
+    /** Recipes that output the item, in registry order. Read only view, no copy */
+    public List<Recipe> getProducers(int itemId) { return slice(producerOffsets, producers, itemId); }
+    public List<Recipe> getProducers(String itemName) { return getProducers(ItemRegistry.findItemId(itemName)); }
+
+    /** Recipes that take the item as an ingredient, in registry order. Read only view, no copy */
+    public List<Recipe> getConsumers(int itemId) { return slice(consumerOffsets, consumers, itemId); }
+    public List<Recipe> getConsumers(String itemName) { return getConsumers(ItemRegistry.findItemId(itemName)); }
+
+    public int getProducerCount(int itemId) { return degree(producerOffsets, itemId); }
+    public int getConsumerCount(int itemId) { return degree(consumerOffsets, itemId); }
+
+    /** Used by some recipe but made by none (has to be gathered or bought) */
+    public boolean isRawMaterial(int itemId) {
+        return degree(producerOffsets, itemId) == 0 && degree(consumerOffsets, itemId) > 0;
+    }
+
+    private int degree(int[] offsets, int itemId) {
+        return (itemId >= 0 && itemId < itemCount) ? offsets[itemId + 1] - offsets[itemId] : 0;
+    }
+
+    private List<Recipe> slice(int[] offsets, int[] values, int itemId) {
+        if (itemId < 0 || itemId >= itemCount) return Collections.emptyList();
+        int from = offsets[itemId];
+        int size = offsets[itemId + 1] - from;
+        if (size == 0) return Collections.emptyList();
+        return new RecipeSlice(values, from, size);
+    }
+
+    private final class RecipeSlice extends AbstractList<Recipe> implements RandomAccess {
+        private final int[] values;
+        private final int from;
+        private final int size;
+
+        RecipeSlice(int[] values, int from, int size) {
+            this.values = values;
+            this.from = from;
+            this.size = size;
+        }
+
+        @Override
+        public Recipe get(int index) {
+            if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            return recipes[values[from + index]];
+        }
+
+        @Override
+        public int size() { return size; }
+    }
+
+
+    // ORDER AND CYCLES
+
+    /** Item ids used by any recipe, ingredients before the items made from them.
+     *  The items of a cycle come out next to each other, in no particular order. Returns a copy */
+    public int[] getTopologicalOrder() { return order().topological.clone(); }
+
+    /** True if some item can (directly or through other recipes) be made from itself */
+    public boolean hasCycles() { return !order().cycles.isEmpty(); }
+
+    /** True if the item is part of a production loop */
+    public boolean isInCycle(int itemId) {
+        Order o = order();
+        return itemId >= 0 && itemId < o.inCycle.length && o.inCycle[itemId];
+    }
+
+    /** Item names of each production loop, in topological order of the loops */
+    public List<List<String>> getCycles() {
+        List<List<String>> names = new ArrayList<>();
+        for (int[] cycle : order().cycles) {
+            List<String> cycleNames = new ArrayList<>(cycle.length);
+            for (int id : cycle) cycleNames.add(ItemRegistry.getItemName(id));
+            names.add(Collections.unmodifiableList(cycleNames));
+        }
+        return Collections.unmodifiableList(names);
+    }
+
+    private Order order() {
+        Order o = order;
+        if (o == null) {
+            o = computeOrder();
+            order = o;   // racing threads compute the same thing
+        }
+        return o;
+    }
+
+    private static final class Order {
+        final int[] topological;
+        final boolean[] inCycle;
+        final List<int[]> cycles;
+
+        Order(int[] topological, boolean[] inCycle, List<int[]> cycles) {
+            this.topological = topological;
+            this.inCycle = inCycle;
+            this.cycles = cycles;
+        }
+    }
+
+    /** Tarjan's strongly connected components over item -> item edges (ingredient -> output of the same recipe),
+     *  iterative so long chains don't overflow the stack. Components come out sinks first, so the reverse is a topological order */
+    private Order computeOrder() {
+        int n = itemCount;
+        // item -> item adjacency, through the recipes consuming each item
+        int[] edgeOffsets = new int[n + 1];
+        for (int u = 0; u < n; u++) {
+            int count = 0;
+            for (int c = consumerOffsets[u]; c < consumerOffsets[u + 1]; c++) {
+                int r = consumers[c];
+                count += outputOffsets[r + 1] - outputOffsets[r];
+            }
+            edgeOffsets[u + 1] = edgeOffsets[u] + count;
+        }
+        int[] edges = new int[edgeOffsets[n]];
+        for (int u = 0, e = 0; u < n; u++) {
+            for (int c = consumerOffsets[u]; c < consumerOffsets[u + 1]; c++) {
+                int r = consumers[c];
+                for (int o = outputOffsets[r]; o < outputOffsets[r + 1]; o++) edges[e++] = outputs[o];
+            }
+        }
+
+        int[] index = new int[n];
+        int[] low = new int[n];
+        int[] next = new int[n];        // next edge to visit per node
+        boolean[] onStack = new boolean[n];
+        int[] stack = new int[n];
+        int[] calls = new int[n];
+        Arrays.fill(index, -1);
+        int counter = 0;
+        int stackTop = 0;
+
+        int[] reversed = new int[n];    // nodes, sinks first
+        int written = 0;
+        boolean[] inCycle = new boolean[n];
+        List<int[]> cycles = new ArrayList<>();
+
+        for (int root = 0; root < n; root++) {
+            if (index[root] >= 0 || !usedByRecipes(root)) continue;
+            int callTop = 0;
+            calls[callTop++] = root;
+            index[root] = low[root] = counter++;
+            next[root] = edgeOffsets[root];
+            stack[stackTop++] = root;
+            onStack[root] = true;
+
+            while (callTop > 0) {
+                int v = calls[callTop - 1];
+                if (next[v] < edgeOffsets[v + 1]) {
+                    int w = edges[next[v]++];
+                    if (index[w] < 0) {
+                        index[w] = low[w] = counter++;
+                        next[w] = edgeOffsets[w];
+                        stack[stackTop++] = w;
+                        onStack[w] = true;
+                        calls[callTop++] = w;
+                    } else if (onStack[w]) {
+                        low[v] = Math.min(low[v], index[w]);
+                    }
+                    continue;
+                }
+                callTop--;
+                if (callTop > 0) {
+                    int parent = calls[callTop - 1];
+                    low[parent] = Math.min(low[parent], low[v]);
+                }
+                if (low[v] != index[v]) continue;
+
+                // v is the root of a component: pop it
+                int start = written;
+                int w;
+                do {
+                    w = stack[--stackTop];
+                    onStack[w] = false;
+                    reversed[written++] = w;
+                } while (w != v);
+                if (written - start > 1 || hasSelfLoop(edgeOffsets, edges, v)) {
+                    int[] cycle = Arrays.copyOfRange(reversed, start, written);
+                    for (int id : cycle) inCycle[id] = true;
+                    cycles.add(cycle);
+                }
+            }
+        }
+
+        int[] topological = new int[written];
+        for (int i = 0; i < written; i++) topological[i] = reversed[written - 1 - i];
+        Collections.reverse(cycles);
+        return new Order(topological, inCycle, Collections.unmodifiableList(cycles));
+    }
+
+    private boolean usedByRecipes(int itemId) {
+        return degree(producerOffsets, itemId) > 0 || degree(consumerOffsets, itemId) > 0;
+    }
+
+    private static boolean hasSelfLoop(int[] edgeOffsets, int[] edges, int v) {
+        for (int e = edgeOffsets[v]; e < edgeOffsets[v + 1]; e++) {
+            if (edges[e] == v) return true;
+        }
+        return false;
+    }
+
+
+    @Override
+    public String toString() {
+        return "ProductionGraph{recipes=" + recipes.length + ", items=" + itemCount + ", producerEdges=" + producers.length
+            + ", consumerEdges=" + consumers.length + "}";
+    }
+}
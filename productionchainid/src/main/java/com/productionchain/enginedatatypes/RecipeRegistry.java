@@ -3,38 +3,70 @@ package com.productionchain.enginedatatypes;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
+import com.productionchain.metrics.Metrics;
+import com.productionchain.persistence.JsonPersistence;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class RecipeRegistry {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RecipeRegistry.class);
     //private static final List<Recipe> recipes = new ArrayList<>();
     private static final List<Recipe> recipes = new ArrayList<>();
 
+    /** Read-only copy of recipes and lookup indexes over it, rebuilt on every change. Replaced as a whole so
+     *  readers never see half of one, and can read them without the lock */
+    private static volatile List<Recipe> recipesSnapshot = Collections.emptyList();
+    private static volatile Map<String, Recipe> recipesByName = Collections.emptyMap();
+    private static volatile Map<String, List<Recipe>> recipesByCategory = Collections.emptyMap();
+
+    /** Bumped on every change, so callers can cache what they derive from the registry */
+    private static volatile long version = 0;
+    /** Version of the last change that wasn't an append (clear, load). Graphs built since can be extended */
+    private static long resetVersion = 0;
+
+    /** Compiled on first use after a change, see getProductionGraph() */
+    private static volatile ProductionGraph productionGraph;
 
-    public static void addRecipe(Recipe recipe){
+
+    public static synchronized void addRecipe(Recipe recipe){
         RecipeRegistry.recipes.add(recipe);
+        rebuildIndexes();
+    }
+
+    /** Adds many recipes with one index rebuild */
+    public static synchronized void addRecipes(Collection<? extends Recipe> newRecipes){
+        RecipeRegistry.recipes.addAll(newRecipes);
+        rebuildIndexes();
     }
 
     /** Clears all recipes from the registry - useful for testing */
-    public static void clear() {
+    public static synchronized void clear() {
         recipes.clear();
+        rebuildIndexes();
+        resetVersion = version;
     }
 
 
+    /** All recipes, in the order they were added. A read-only snapshot: later changes don't show up in it */
     public static List<Recipe> getRecipes(){
-        return recipes;
+        return recipesSnapshot;
+    }
+
+    public static long getVersion() {
+        return version;
     }
 
 
+    /** First recipe added with this name, or null */
     public static Recipe getRecipeByName(String name) {
-        return recipes.stream()
-        .filter(recipe -> recipe.getName().equals(name)) // Match name
-        .findFirst() // Get the first match
-        .orElse(null);
+        return recipesByName.get(name);
     }
 
     /** Checks if a recipe with the given name exists */
@@ -43,37 +75,71 @@ public class RecipeRegistry {
     }
 
 
+    /** Recipes of a category, in the order they were added. The list is shared and read only */
     public static List<Recipe> getRecipesByCategory(String category) {
-        return recipes.stream()
-            .filter(recipe -> recipe.getCategory().equals(category))
-            .collect(Collectors.toList());
+        return recipesByCategory.getOrDefault(category, Collections.emptyList());
+    }
+
+
+    /** Producers/consumers of every item, for the current recipes. Cached until the next change; if recipes
+     *  were only added since the last graph, that graph is extended with the new ones instead of compiled again */
+    public static ProductionGraph getProductionGraph() {
+        ProductionGraph graph = productionGraph;
+        if (graph != null && graph.getVersion() == version) return graph;
+        synchronized (RecipeRegistry.class) {
+            graph = productionGraph;
+            if (graph == null || graph.getVersion() != version) {
+                if (graph != null && graph.getVersion() >= resetVersion) {
+                    graph = graph.withRecipes(recipes.subList(graph.getRecipeCount(), recipes.size()), version);
+                } else {
+                    graph = ProductionGraph.EMPTY.withRecipes(recipes, version);
+                }
+                productionGraph = graph;
+            }
+            return graph;
+        }
+    }
+
+
+    private static void rebuildIndexes() {
+        Map<String, Recipe> byName = new HashMap<>();
+        Map<String, List<Recipe>> byCategory = new HashMap<>();
+        for (Recipe recipe : recipes) {
+            byName.putIfAbsent(recipe.getName(), recipe); // keep the first, as the old linear scan did
+            byCategory.computeIfAbsent(recipe.getCategory(), k -> new ArrayList<>()).add(recipe);
+        }
+        byCategory.replaceAll((category, list) -> Collections.unmodifiableList(list));
+        recipesSnapshot = Collections.unmodifiableList(new ArrayList<>(recipes));
+        recipesByName = byName;
+        recipesByCategory = byCategory;
+        version++;
     }
 
 
 
 
     // LOAD FROM JSON file
-    public static void loadFromJson(String filePath) {
-        ObjectMapper mapper = new ObjectMapper();
+    public static synchronized void loadFromJson(String filePath) {
+        long start = Metrics.start();
         recipes.clear(); // to avoid duplicates
         try {
-            List<Recipe> read_recipes = mapper.readValue(new File(filePath), new TypeReference<List<Recipe>>() {});
+            List<Recipe> read_recipes = JsonPersistence.read(new File(filePath), JsonPersistence.listOf(Recipe.class));
             for (Recipe recipe : read_recipes) {
                 //this.recipes.put(recipe.getName(), recipe);
                 recipes.add(recipe);
             }
-            System.out.println("RecipeRegistry successfully loaded from JSON.");
+            LOG.info("RecipeRegistry loaded {} recipes from {}", read_recipes.size(), filePath);
         } catch (IOException e) {
-            e.printStackTrace();
-            System.err.println("Failed to load RecipeRegistry from JSON.");
+            LOG.error("Failed to load RecipeRegistry from {}", filePath, e);
         }
+        rebuildIndexes();
+        resetVersion = version;
+        Metrics.REGISTRY_LOAD.record(start);
     }
 
     // Write to JSON file
     public static void saveToJson(String filePath) throws IOException {
-        ObjectMapper mapper = new ObjectMapper();
-        mapper.enable(SerializationFeature.INDENT_OUTPUT);
-        mapper.writeValue(new File(filePath), RecipeRegistry.recipes); //writerWithDefaultPrettyPrinter()
+        JsonPersistence.write(new File(filePath), RecipeRegistry.recipes); // pretty printed
     }
 
 
@@ -5,34 +5,72 @@ import java.io.File;
 import java.io.IOException;
 import java.util.*;
 
-import com.fasterxml.jackson.annotation.JsonAutoDetect;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
+import com.productionchain.enginedatatypes.ItemRegistry;
+import com.productionchain.metrics.Metrics;
+import com.productionchain.persistence.JsonPersistence;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 
 // DOESNT EXTEND STORAGE. IS A CLASS ON INTS OWN
+@JsonIgnoreProperties(value = {"availableCapacity"}, allowGetters = true) // derived, written for readability only
 public class AdvancedStorage { // extends Storage 
 
-    /** Map of item -> list of batches (FIFO queue) */
+    private static final Logger LOG = LoggerFactory.getLogger(AdvancedStorage.class);
+
     double capacity;
 
+    /** Batches per item id (FIFO queue, each queue keeps its own total). Index = ItemRegistry item id, null = none stored.
+     *  JSON still sees a Map of item name -> batches through getItems/setItems */
     //@JsonTypeInfo(use = JsonTypeInfo.Id.CLASS, property = "@class")
-    private Map<String, List<ItemBatch>> items = new HashMap<>();;
+    @JsonIgnore
+    private BatchQueue[] queues = new BatchQueue[0];
     //private Map<String, Queue<ItemBatch>> items; // 🔹 Add Type Info
 
+    /** Number of non-null queues */
+    @JsonIgnore
+    private int itemCount = 0;
+    /** Ids of the non-null queues in the first itemCount slots, in no particular order */
+    @JsonIgnore
+    private int[] storedIds = new int[0];
+
     private ArrayList<String> allowedItems; // Optional: Allowed item types
+    @JsonIgnore
+    private BitSet allowedItemIds;          // allowedItems resolved to ids (null = anything allowed)
+
+    /** Running total over all queues, kept in step with the batches so capacity queries don't re-sum them */
+    @JsonIgnore
+    private double usedCapacity = 0;
+
+    /** Storage clock: number of degradeItems calls so far. Batches store their expiry turn against it */
+    @JsonIgnore
+    private long turn = 0;
+
+    /** Set by every change that isn't just time passing (adds, removes, spoiled batches, setters).
+     *  A degradeItems call that spoils nothing leaves it alone: the batches are the same, only the clock moved */
+    @JsonIgnore
+    private boolean dirty = false;
+
+    /** Expiry turns of the batches, so a turn only visits the batches that spoil on it */
+    @JsonIgnore
+    private final SpoilageSchedule spoilage = new SpoilageSchedule();
+
+    /** When on, every mutation re-sums the batches and fails fast if the running totals drifted.
+     *  Enable with -Dproductionchain.storage.verify=true or setVerifyTotals(true) */
+    private static volatile boolean verifyTotals = Boolean.getBoolean("productionchain.storage.verify");
+    private static final double TOTALS_TOLERANCE = 1e-6;
 
     public AdvancedStorage() {
         this.capacity = -1.0;
-        this.items = new HashMap<>();
     }
 
     public AdvancedStorage(Double capacity, ArrayList<String> allowedItems) {
         this();
         this.capacity = capacity;
-        this.allowedItems = allowedItems;
+        setAllowedItems(allowedItems);
     }
 
     // public AdvancedStorage(double capacity, Map<String, Queue<ItemBatch>> items) {
@@ -54,103 +92,240 @@ public class AdvancedStorage { // extends Storage
 
     public void setCapacity(double capacity) {
         this.capacity = capacity;
+        this.dirty = true;
     }
 
     //@JsonIgnore //???
-    public Map<String, List<ItemBatch>> getItems() {
+    /** Batches per item name, in item id order. Built on each call: changing the map has no effect, and changing
+     *  the queues directly bypasses the running totals (use setItems) */
+    public Map<String, BatchQueue> getItems() {
+        Map<String, BatchQueue> items = new LinkedHashMap<>();
+        for (int id = 0; id < queues.length; id++) {
+            if (queues[id] != null) items.put(ItemRegistry.getItemName(id), queues[id]);
+        }
         return items;
     }
 
-    public void setItems(Map<String, List<ItemBatch>> items) {
-        this.items = items;
+    public void setItems(Map<String, BatchQueue> items) {
+        this.queues = new BatchQueue[0];
+        this.itemCount = 0;
+        if (items != null) {
+            items.forEach((itemName, batches) -> {
+                if (batches != null && !batches.isEmpty()) putQueue(ItemRegistry.getItemId(itemName), batches);
+            });
+        }
+        recomputeTotals();
+        rebuildSpoilage();
+        this.dirty = true;
+    }
+
+    /** Ids of the stored items, ascending. Costs the number of items stored, not the registry size */
+    @JsonIgnore
+    public int[] getStoredItemIds() {
+        int[] ids = Arrays.copyOf(storedIds, itemCount);
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    /** Batches of one item, or null if none are stored */
+    public BatchQueue getBatches(int itemId) {
+        return (itemId >= 0 && itemId < queues.length) ? queues[itemId] : null;
+    }
+
+    /** Items addItemCheckCapacity accepts (null = anything) */
+    public ArrayList<String> getAllowedItems() {
+        return allowedItems;
+    }
+
+    /** Resolves the allowed item names to ids once, so the check on each add is a bit lookup */
+    public void setAllowedItems(ArrayList<String> allowedItems) {
+        this.allowedItems = allowedItems;
+        this.dirty = true;
+        if (allowedItems == null) {
+            this.allowedItemIds = null;
+        } else {
+            this.allowedItemIds = new BitSet();
+            for (String itemName : allowedItems) allowedItemIds.set(ItemRegistry.getItemId(itemName));
+        }
+    }
+
+    /** Turns this storage has degraded through. Durability of a batch = its expiry - this */
+    @JsonIgnore
+    public long getTurn() {
+        return turn;
     }
 
+    /** Moves the storage clock without spoiling anything: every durability shifts by the difference.
+     *  Used when a saved storage has to catch up with turns that passed after it was written */
+    @JsonIgnore
+    public void setTurn(long turn) {
+        this.turn = turn;
+    }
+
+    /** Moves the clock and every expiry forward together: the batches and their durabilities stay as they are.
+     *  For turns known to leave the storage as it was (see getBatchState) */
+    public void shiftTurn(long turns) {
+        for (BatchQueue batches : queues) {
+            if (batches != null) batches.shiftExpiries(turns);
+        }
+        turn += turns;
+        rebuildSpoilage();
+    }
+
+    /** Live batches as (item id, quantity, durability) triples, item by item and oldest first. Two storages
+     *  holding the same batches give equal arrays whatever their clocks */
+    @JsonIgnore
+    public double[] getBatchState() {
+        int live = 0;
+        for (BatchQueue batches : queues) {
+            if (batches != null) live += batches.size();
+        }
+        double[] state = new double[3 * live];
+        int n = 0;
+        for (int itemId = 0; itemId < queues.length; itemId++) {
+            BatchQueue batches = queues[itemId];
+            if (batches == null) continue;
+            for (int i = 0; i < batches.slotCount(); i++) {
+                if (!batches.isLive(i)) continue;
+                state[n++] = itemId;
+                state[n++] = batches.quantityAt(i);
+                state[n++] = batches.expiryAt(i) - turn;
+            }
+        }
+        return state;
+    }
+
+    /** True if the storage changed since the last clearDirty() (see the dirty field) */
+    @JsonIgnore
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    public void markDirty() {
+        this.dirty = true;
+    }
+
+    public void clearDirty() {
+        this.dirty = false;
+    }
+
+    public static boolean isVerifyTotals() { return verifyTotals; }
+    public static void setVerifyTotals(boolean verify) { verifyTotals = verify; }
+
 
     // ADD ITEMS
     /** Adds an item batch with specific durability */
     public boolean addItem(String itemName, double quantity, double durability) {
-        items.putIfAbsent(itemName, new LinkedList<>()); // Ensure queue exists
-        //items.get(itemName).offer(new ItemBatch(quantity, durability));
-        items.get(itemName).add(new ItemBatch(quantity, durability));
+        return addItem(ItemRegistry.getItemId(itemName), quantity, durability);
+    }
+
+    public boolean addItem(int itemId, double quantity, double durability) {
+        addBatch(itemId, quantity, durability);
+        usedCapacity += quantity;
+        checkTotals();
         return true;
     }
 
     /** Add an item to storage. CHECK IS HAS ENOUGH SPACE */
     public void addItemCheckCapacity(String itemName, double quantity, double durability) {
-        if (this.allowedItems != null && !this.allowedItems.contains(itemName)){ // check if allowed item
-            System.out.println("[WARNING]: CANNOT STORE -" + itemName + "- HERE!");
+        int itemId = ItemRegistry.getItemId(itemName);
+        if (this.allowedItemIds != null && !this.allowedItemIds.get(itemId)){ // check if allowed item
+            LOG.warn("Cannot store -{}- here", itemName);
         } else if (this.getUsedCapacity() + quantity > this.capacity){           // check if enough storage
-            System.out.println("[WARNING]: NOT ENOUGH SPACE TO ADD ITEM! (" + itemName + ", " + quantity + ")");
+            LOG.warn("Not enough space to add item ({}, {})", itemName, quantity);
         } else {
             //items.put(itemName, items.getOrDefault(itemName, 0.0) + quantity);
-            items.putIfAbsent(itemName, new LinkedList<>()); // Ensure queue exists
-            // items.get(itemName).offer(new ItemBatch(quantity, durability));
-            items.get(itemName).add(new ItemBatch(quantity, durability));
+            addBatch(itemId, quantity, durability);
+            usedCapacity += quantity;
+            checkTotals();
         }
     }
 
+    /** Appends the batch to its item queue and schedules its spoilage */
+    private void addBatch(int itemId, double quantity, double durability) {
+        BatchQueue batches = getBatches(itemId);
+        if (batches == null) { // Ensure queue exists
+            batches = new BatchQueue();
+            batches.owner = this;
+            putQueue(itemId, batches);
+        }
+        double expiry = turn + durability;
+        long seq = batches.addLast(quantity, expiry);
+        spoilage.push(spoilTurn(expiry), batches, seq, itemId);
+        dirty = true;
+        Metrics.STORAGE_ADD.increment();
+    }
+
+    private void putQueue(int itemId, BatchQueue batches) {
+        if (itemId >= queues.length) {
+            queues = Arrays.copyOf(queues, Math.max(itemId + 1, ItemRegistry.getItemIdCount()));
+        }
+        if (queues[itemId] == null) {
+            if (itemCount == storedIds.length) storedIds = Arrays.copyOf(storedIds, Math.max(4, itemCount * 2));
+            storedIds[itemCount++] = itemId;
+        }
+        queues[itemId] = batches;
+    }
+
 
     /** Removes items, using the oldest batch first (FIFO) */
     public boolean removeItem(String itemName, double quantity) {
-        if (!items.containsKey(itemName)) return false;
+        return removeItem(ItemRegistry.findItemId(itemName), quantity);
+    }
+
+    public boolean removeItem(int itemId, double quantity) {
+        BatchQueue batches = getBatches(itemId);
+        if (batches == null) return false;
 
         // Check if we have enough total quantity (atomic operation - all or nothing)
-        if (!hasItem(itemName, quantity)) {
+        if (batches.getTotal() < quantity) {
             return false;
         }
 
-        //Queue<ItemBatch> batches = items.get(itemName);
-        List<ItemBatch> batches = items.get(itemName);
-        double remainingToRemove = quantity;
-
-        while (!batches.isEmpty() && remainingToRemove > 0) {
-            //ItemBatch batch = batches.peek();
-            ItemBatch batch = batches.get(0); // equivalent to peek || batches.isEmpty() ? null : batches.get(0);
-            if (batch.quantity > remainingToRemove) {
-                batch.quantity -= remainingToRemove;
-                remainingToRemove = 0;
-            } else {
-                remainingToRemove -= batch.quantity;
-                batches.remove(0);  // Remove expired batch for lists
-                // batches.poll(); // Remove expired batch
-            }
-        }
+        int before = batches.size();
+        double removed = batches.take(quantity); // oldest batches first
+        spoilage.markStale(before - batches.size());
+        double remainingToRemove = quantity - removed;
+        usedCapacity -= removed;
+        dirty = true;
+        Metrics.STORAGE_REMOVE.increment();
 
         // If all batches are removed, clean up the entry
         if (batches.isEmpty()) {
-            items.remove(itemName);
+            removeEntry(itemId);
         }
 
+        checkTotals();
         return remainingToRemove == 0;
     }
 
 
-    /** Sums over total capacity */
+    /** Total quantity held, across all items. Constant time */
     @JsonIgnore
     public double getUsedCapacity() {
-        double sum = 0;
-        for (List<ItemBatch> batch_list : this.items.values()) {
-            //sum += batch_.element().quantity;
-            for (ItemBatch batch_ : batch_list) {
-                sum += batch_.quantity;
-            }
-            //sum += batch_.get(0).quantity;
-        }
-        return sum;
+        return usedCapacity;
     }
 
 
     /** Check if enough quantity exists */
     public boolean hasItem(String itemName, double quantity) {
-        if (!items.containsKey(itemName)) return false;
-        double totalAvailable = items.get(itemName).stream().mapToDouble(b -> b.quantity).sum();
-        return totalAvailable >= quantity;
+        return hasItem(ItemRegistry.findItemId(itemName), quantity);
+    }
+
+    public boolean hasItem(int itemId, double quantity) {
+        BatchQueue batches = getBatches(itemId);
+        if (batches == null) return false;
+        return batches.getTotal() >= quantity;
     }
 
     /** Get total quantity of an item across all batches */
     public double getItemQuantity(String itemName) {
-        if (!items.containsKey(itemName)) return 0.0;
-        return items.get(itemName).stream().mapToDouble(b -> b.quantity).sum();
+        return getItemQuantity(ItemRegistry.findItemId(itemName));
+    }
+
+    public double getItemQuantity(int itemId) {
+        BatchQueue batches = getBatches(itemId);
+        return (batches == null) ? 0.0 : batches.getTotal();
     }
 
     /** Get available capacity */
@@ -161,50 +336,151 @@ public class AdvancedStorage { // extends Storage
 
 
 
-    /** Decreases durability of all batches, removing spoiled ones */
+    /** Advances the storage one turn (every durability goes down by 1), removing spoiled batches.
+     *  A batch spoils on the turn its durability would have dropped to 0 or below, i.e. the turn it
+     *  starts with durability <= 1. Only the batches due this turn are visited */
     public void degradeItems() {
-        for (String item : new HashSet<>(items.keySet())) {
-            List<ItemBatch> batches = items.get(item);
-            while (!batches.isEmpty() && batches.get(0).durability <= 1) {
-                //batches.poll();
-                batches.remove(0);
-                System.out.println("X " + item + " batch has spoiled.");
+        degradeItems(1);
+    }
+
+    /** Advances the storage this many turns at once: same batches left as calling degradeItems() that many
+     *  times, but only the batches that spoil on the way are visited */
+    public void degradeItems(long turns) {
+        long start = Metrics.start();
+        turn += turns;
+        while (spoilage.peekTick() <= turn) {
+            BatchQueue batches = spoilage.peekQueue();
+            int itemId = spoilage.peekItemId();
+            double spoiled = batches.spoil(spoilage.peekSeq());
+            if (spoiled < 0) {  // already used up
+                spoilage.popStale();
+                continue;
             }
+            spoilage.pop();
+
+            usedCapacity -= spoiled;
+            dirty = true;
+            Metrics.BATCHES_SPOILED.increment();
+            if (LOG.isDebugEnabled()) LOG.debug("X {} batch has spoiled.", ItemRegistry.getItemName(itemId));
+            if (batches.isEmpty() && getBatches(itemId) == batches) {
+                removeEntry(itemId);
+            }
+        }
+        checkTotals();
+        Metrics.STORAGE_DEGRADE.record(start);
+    }
+
+    /** Earliest storage turn on which a batch may spoil (Long.MAX_VALUE = none). Can be early: batches used up
+     *  before they spoil stay in the schedule until their turn comes or it is compacted */
+    @JsonIgnore
+    public long getNextSpoilTurn() {
+        return spoilage.peekTick();
+    }
+
+    /** Entries in the spoilage schedule, including those of batches used up since they were added */
+    @JsonIgnore
+    public int getScheduledBatchCount() {
+        return spoilage.size();
+    }
+
+    /** Storage turn on which the first batch of this item spoils (Long.MAX_VALUE = none stored) */
+    public long getNextSpoilTurn(int itemId) {
+        BatchQueue batches = getBatches(itemId);
+        if (batches == null) return Long.MAX_VALUE;
+        long next = Long.MAX_VALUE;
+        for (int i = 0; i < batches.slotCount(); i++) {
+            if (batches.isLive(i)) next = Math.min(next, spoilTurn(batches.expiryAt(i)));
+        }
+        return next;
+    }
 
-            for (ItemBatch batch : batches) {
-                batch.durability--;
+    /** Turn on which a batch with this expiry spoils (never the current turn or earlier) */
+    private long spoilTurn(double expiry) {
+        return Math.max(turn + 1, (long) Math.ceil(expiry));
+    }
+
+
+
+    // RUNNING TOTALS ===============================================================================
+    /** Drops an emptied item. Resets the total when the storage is empty so rounding can't accumulate */
+    private void removeEntry(int itemId) {
+        queues[itemId] = null;
+        for (int i = 0; i < itemCount; i++) {
+            if (storedIds[i] == itemId) {
+                storedIds[i] = storedIds[--itemCount];
+                break;
             }
+        }
+        if (itemCount == 0) usedCapacity = 0;
+    }
+
+    /** Rebuilds the running total from the queues (after loading or replacing the item map) */
+    private void recomputeTotals() {
+        usedCapacity = 0;
+        for (BatchQueue batches : queues) {
+            if (batches != null) usedCapacity += batches.getTotal();
+        }
+    }
 
-            if (batches.isEmpty()) {
-                items.remove(item);
+    /** Moves the queues onto this storage's clock and reschedules every batch (after loading or replacing the item map).
+     *  Queues read from JSON count from turn 0, so their expiries are just the saved durabilities */
+    private void rebuildSpoilage() {
+        spoilage.clear();
+        for (int itemId = 0; itemId < queues.length; itemId++) {
+            BatchQueue batches = queues[itemId];
+            if (batches == null) continue;
+            if (batches.owner != this) {
+                long previousTurn = (batches.owner == null) ? 0 : batches.owner.getTurn();
+                batches.shiftExpiries(turn - previousTurn);
+                batches.owner = this;
+            }
+            for (int i = 0; i < batches.slotCount(); i++) {
+                if (batches.isLive(i)) {
+                    spoilage.push(spoilTurn(batches.expiryAt(i)), batches, batches.sequenceAt(i), itemId);
+                }
             }
         }
     }
 
+    /** Re-sums every batch and compares with the running totals. Returns true when they agree */
+    public boolean verifyTotals() {
+        double recomputedUsed = 0;
+        for (BatchQueue batches : queues) {
+            if (batches == null) continue;
+            double total = batches.recomputeTotal();
+            recomputedUsed += total;
+            if (Math.abs(total - batches.getTotal()) > TOTALS_TOLERANCE) return false;
+        }
+        return Math.abs(recomputedUsed - usedCapacity) <= TOTALS_TOLERANCE;
+    }
+
+    private void checkTotals() {
+        if (verifyTotals && !verifyTotals()) {
+            throw new IllegalStateException("AdvancedStorage running totals out of sync with batches: " + this);
+        }
+    }
+
 
 
 
     // FILE HANDLING NEW ============================================================================
     // Read from JSON file
     public void loadFromJson(String filePath) throws IOException {
-        ObjectMapper mapper = new ObjectMapper();
-        AdvancedStorage loadedStorage = mapper.readValue(new File(filePath), //,
+        AdvancedStorage loadedStorage = JsonPersistence.read(new File(filePath), //,
             //RecipeList.class);
             //mapper.getTypeFactory().constructCollectionType(List.class, IngredientPair.class));
             //mapper.getTypeFactory().constructMapType(Map.class, String.class, List.class));
             AdvancedStorage.class);
-        this.allowedItems = loadedStorage.allowedItems;
+        setAllowedItems(loadedStorage.allowedItems);
         this.capacity     = loadedStorage.capacity;
-        this.items        = loadedStorage.items;
+        setItems(loadedStorage.getItems());
     }
 
     // Write to JSON file
     public void saveToJson(String filePath) throws IOException {
-        ObjectMapper mapper = new ObjectMapper();
-        mapper.enable(SerializationFeature.INDENT_OUTPUT);
         //mapper.activateDefaultTyping(mapper.getPolymorphicTypeValidator(), ObjectMapper.DefaultTyping.NON_FINAL);
         //mapper.writeValue(new File(filePath), this.items); //writerWithDefaultPrettyPrinter()
-        mapper.writeValue(new File(filePath), this); //writerWithDefaultPrettyPrinter()
+        JsonPersistence.write(new File(filePath), this); // pretty printed
     }
 
 
@@ -214,7 +490,8 @@ public class AdvancedStorage { // extends Storage
     public String toString() {
         double used = this.getUsedCapacity();
         double available = this.getAvailableCapacity();
-        int totalBatches = items.values().stream().mapToInt(List::size).sum();
+        Map<String, BatchQueue> items = getItems();
+        int totalBatches = items.values().stream().mapToInt(BatchQueue::size).sum();
 
         StringBuilder result = new StringBuilder();
         result.append(String.format("AdvancedStorage[capacity=%.1f, used=%.1f, available=%.1f, items=%d, batches=%d]",
@@ -227,13 +504,14 @@ public class AdvancedStorage { // extends Storage
         if (!items.isEmpty()) {
             result.append("\n  Storage Contents:");
             items.forEach((item, batches) -> {
-                double totalQty = batches.stream().mapToDouble(b -> b.quantity).sum();
+                double totalQty = getItemQuantity(item);
                 result.append(String.format("\n    - %s: %d batch(es), total=%.1f units",
                     item, batches.size(), totalQty));
-                for (int i = 0; i < batches.size(); i++) {
-                    ItemBatch batch = batches.get(i);
+                int index = 0;
+                for (int i = 0; i < batches.slotCount(); i++) {
+                    if (!batches.isLive(i)) continue; // spoiled slot waiting to reach the head
                     result.append(String.format("\n      * Batch[%d]: quantity=%.1f units, durability=%.0f turns",
-                        i, batch.quantity, batch.durability));
+                        index++, batches.quantityAt(i), batches.durabilityAt(i)));
                 }
             });
         } else {
@@ -245,30 +523,6 @@ public class AdvancedStorage { // extends Storage
 
 
 
-    /** Inner class to store item batches */
-    //@JsonTypeInfo(use = JsonTypeInfo.Id.CLASS, property = "@class")
-    @JsonAutoDetect(fieldVisibility = JsonAutoDetect.Visibility.ANY)
-    private static class ItemBatch {
-        double quantity;
-        double durability;
-
-        public ItemBatch() {} // default
-
-        public ItemBatch(double quantity, double durability) {
-            this.quantity = quantity;
-            this.durability = durability;
-        }
-
-        public double getQuantity(){
-            return quantity;
-        }
-        public double getDurability(){
-            return durability;
-        }
-    }
-
-
-
     public static void main(String[] args) throws IOException {
         ArrayList<String> allowedItems = new ArrayList<>(Arrays.asList("Wood", "Coal", "Stick"));
         AdvancedStorage advStorage = new AdvancedStorage(10.0, allowedItems);
@@ -8,12 +8,16 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonSetter;
 import com.productionchain.enginedatatypes.IngredientPair;
 import com.productionchain.enginedatatypes.IngredientsList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 
 
 
 public class AnimalInstance {
 
+    private static final Logger LOG = LoggerFactory.getLogger(AnimalInstance.class);
+
     @JsonIgnore
     AnimalType type;
     String typeName;
@@ -48,15 +52,15 @@ public class AnimalInstance {
 
     @JsonCreator
     public AnimalInstance(String typeName, String gender, String state, double age, double satisfaction, double productivity, double health) throws IOException {
-        System.out.println(">>> BuildingInstance(String typeName)");
+        LOG.trace(">>> AnimalInstance(String typeName) {}", typeName);
         /// LOAD BUILDING TYPE REGISTRY
         
         if( AnimalTypeRegistry.getAnimalByName(typeName) == null){
-            System.out.println("[ERROR]: building '" + typeName + "' doesn't exist in registry!");
+            LOG.error("Animal '{}' doesn't exist in registry!", typeName);
         }
         this.type = AnimalTypeRegistry.getAnimalByName(typeName);
 
-        System.out.println("&&& teste: " + AnimalTypeRegistry.getAnimalByName(typeName));
+        LOG.trace("&&& teste: {}", this.type);
 
         this.typeName = type.getName();
         this.gender = gender;
@@ -78,6 +82,7 @@ public class AnimalInstance {
     }
 
     public AnimalType getType() { return type; }
+    public String gettypeName() { return typeName; }
     public String getGender() { return gender; }
     public String getState() { return state; }
     public double getAge() { return age; }
@@ -92,6 +97,15 @@ public class AnimalInstance {
     public void setProductivity(double productivity) { this.productivity = productivity; }
     public void setHealth(double health) { this.health = health; }
 
+    /** Ages the animal. Animals past their type's life span are marked dead and stop aging */
+    public void advanceAge(double turns) {
+        if ("dead".equals(state)) return;
+        this.age += turns;
+        if (type != null && type.getLifeSpan() > 0 && age >= type.getLifeSpan()) {
+            this.state = "dead";
+        }
+    }
+
 
     @Override
     public String toString() {
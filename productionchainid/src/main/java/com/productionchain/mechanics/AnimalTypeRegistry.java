@@ -3,18 +3,27 @@ package com.productionchain.mechanics;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
 import com.productionchain.enginedatatypes.IngredientsList;
+import com.productionchain.metrics.Metrics;
+import com.productionchain.persistence.JsonPersistence;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 
 
 public class AnimalTypeRegistry{
+
+    private static final Logger LOG = LoggerFactory.getLogger(AnimalTypeRegistry.class);
     private static final List<AnimalType> animalTypes = new ArrayList<>();
 
+    /** Name -> type, kept in step with animalTypes (first type added under a name wins) */
+    private static final Map<String, AnimalType> animalsByName = new ConcurrentHashMap<>();
+
 
 
     public AnimalTypeRegistry() {}
@@ -24,21 +33,26 @@ public class AnimalTypeRegistry{
     // }
 
 
-    public static void addAnimal(AnimalType animal){
+    public static synchronized void addAnimal(AnimalType animal){
         AnimalTypeRegistry.animalTypes.add(animal);
+        if (animal.getName() != null) animalsByName.putIfAbsent(animal.getName(), animal);
+    }
+
+    /** Clears all animal types from the registry - useful for testing */
+    public static synchronized void clear() {
+        animalTypes.clear();
+        animalsByName.clear();
     }
 
 
+    /** All animal types, in the order they were added. Read only (use addAnimal so the index stays in step) */
     public static List<AnimalType> getAnimalTypes(){
-        return animalTypes;
+        return Collections.unmodifiableList(animalTypes);
     }
 
 
     public static AnimalType getAnimalByName(String name) {
-        return animalTypes.stream()
-        .filter(animal -> animal.getName().equals(name)) // Match name
-        .findFirst() // Get the first match
-        .orElse(null);
+        return (name == null) ? null : animalsByName.get(name);
     }
 
 
@@ -52,26 +66,25 @@ public class AnimalTypeRegistry{
 
 
     // LOAD FROM JSON file
-    public static void loadFromJson(String filePath) {
-        ObjectMapper mapper = new ObjectMapper();
-        animalTypes.clear(); // to avoid duplicates
+    public static synchronized void loadFromJson(String filePath) {
+        long start = Metrics.start();
+        clear(); // to avoid duplicates
         try {
-            List<AnimalType> read_animals = mapper.readValue(new File(filePath), new TypeReference<List<AnimalType>>() {});
+            List<AnimalType> read_animals = JsonPersistence.read(new File(filePath), JsonPersistence.listOf(AnimalType.class));
             for (AnimalType animal : read_animals) {
                 //this.recipes.put(recipe.getName(), recipe);
-                animalTypes.add(animal);
+                addAnimal(animal);
             }
-            System.out.println("RecipeRegistry successfully loaded from JSON.");
+            LOG.info("AnimalTypeRegistry loaded {} animal types from {}", read_animals.size(), filePath);
         } catch (IOException e) {
-            System.err.println("Failed to load RecipeRegistry from JSON.");
+            LOG.error("Failed to load AnimalTypeRegistry from {}", filePath, e);
         }
+        Metrics.REGISTRY_LOAD.record(start);
     }
 
     // Write to JSON file
     public static void saveToJson(String filePath) throws IOException {
-        ObjectMapper mapper = new ObjectMapper();
-        mapper.enable(SerializationFeature.INDENT_OUTPUT);
-        mapper.writeValue(new File(filePath), AnimalTypeRegistry.animalTypes); //writerWithDefaultPrettyPrinter()
+        JsonPersistence.write(new File(filePath), AnimalTypeRegistry.animalTypes); // pretty printed
     }
 
 
@@ -0,0 +1,268 @@
+package com.productionchain.mechanics;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+
+/**
+ * FIFO queue of item batches for one item, used by AdvancedStorage.
+ *
+ * Batches are stored as two parallel double arrays (quantity, expiry turn) in a
+ * growable ring buffer, so there is no node or object per batch and removing
+ * the oldest batch is O(1). The queue also keeps the running total quantity.
+ *
+ * Durability is not stored: it is derived as expiry - current turn of the
+ * owning storage. Every batch gets a sequence number when it is added, so the
+ * storage's spoilage schedule can spoil a batch in the middle of the queue
+ * later on. A spoiled batch stays behind as an empty slot until it reaches the
+ * head; size() and the JSON output only count live batches.
+ *
+ * In JSON a queue is written exactly like the old List of batches:
+ * [ { "quantity" : 3.0, "durability" : 1.0 }, ... ] oldest first.
+ */
+@JsonSerialize(using = BatchQueue.Serializer.class)
+@JsonDeserialize(using = BatchQueue.Deserializer.class)
+public class BatchQueue {
+
+    private static final int DEFAULT_CAPACITY = 4;
+    private static final double SPOILED = Double.NaN; // expiry marker of an empty slot
+
+    private double[] quantities;
+    private double[] expiries;
+    private int head;      // slot of the oldest batch
+    private int slots;     // used slots, including spoiled ones
+    private int live;      // batches that are still there
+    private long headSeq;  // sequence number of the batch in the head slot
+    private double total;
+    AdvancedStorage owner; // clock used to derive durability (null = turn 0)
+
+
+    public BatchQueue() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public BatchQueue(int initialCapacity) {
+        int capacity = Math.max(1, initialCapacity);
+        this.quantities = new double[capacity];
+        this.expiries = new double[capacity];
+    }
+
+
+    // SIZE
+    /** Number of live batches */
+    public int size() { return live; }
+    public boolean isEmpty() { return live == 0; }
+
+    /** Number of slots from oldest to newest, including spoiled ones (see isLive) */
+    public int slotCount() { return slots; }
+
+    /** Sum of the quantities of every live batch */
+    public double getTotal() { return total; }
+
+
+    // QUEUE OPERATIONS
+    /** Appends a batch at the tail (newest). Returns its sequence number */
+    public long addLast(double quantity, double expiry) {
+        if (slots == quantities.length) grow();
+        int tail = physical(slots);
+        quantities[tail] = quantity;
+        expiries[tail] = expiry;
+        long seq = headSeq + slots;
+        slots++;
+        live++;
+        total += quantity;
+        return seq;
+    }
+
+    public double peekQuantity() { checkNotEmpty(); return quantities[head]; }
+    public double peekExpiry() { checkNotEmpty(); return expiries[head]; }
+    public double peekDurability() { return peekExpiry() - currentTurn(); }
+
+    /** Removes the oldest batch and returns its quantity */
+    public double removeFirst() {
+        checkNotEmpty();
+        double quantity = quantities[head];
+        dropHead();
+        live--;
+        total = (live == 0) ? 0 : total - quantity;
+        trimHead();
+        return quantity;
+    }
+
+    /** Takes up to this amount from the oldest batches first. Returns how much was actually taken */
+    public double take(double amount) {
+        double remaining = amount;
+        while (live > 0 && remaining > 0) {
+            double quantity = quantities[head];
+            if (quantity > remaining) {
+                quantities[head] = quantity - remaining;
+                total -= remaining;
+                remaining = 0;
+            } else {
+                remaining -= quantity;
+                removeFirst();
+            }
+        }
+        return amount - remaining;
+    }
+
+    /** Spoils the batch with this sequence number, wherever it is in the queue.
+     *  Returns its remaining quantity, or -1 if it was already used up or spoiled */
+    public double spoil(long seq) {
+        long offset = seq - headSeq;
+        if (offset < 0 || offset >= slots) return -1;
+        int p = physical((int) offset);
+        if (Double.isNaN(expiries[p])) return -1;
+        double quantity = quantities[p];
+        quantities[p] = 0;
+        expiries[p] = SPOILED;
+        live--;
+        total = (live == 0) ? 0 : total - quantity;
+        trimHead();
+        return quantity;
+    }
+
+    /** True while the batch with this sequence number is still in the queue (not used up or spoiled) */
+    boolean holds(long seq) {
+        long offset = seq - headSeq;
+        return offset >= 0 && offset < slots && !Double.isNaN(expiries[physical((int) offset)]);
+    }
+
+    /** Moves every expiry by this many turns (used when the queue changes clock) */
+    void shiftExpiries(double turns) {
+        for (int i = 0; i < slots; i++) {
+            expiries[physical(i)] += turns;
+        }
+    }
+
+
+    // SLOT ACCESS (0 = oldest)
+    public boolean isLive(int slot) { checkSlot(slot); return !Double.isNaN(expiries[physical(slot)]); }
+    public double quantityAt(int slot) { checkSlot(slot); return quantities[physical(slot)]; }
+    public double expiryAt(int slot) { checkSlot(slot); return expiries[physical(slot)]; }
+    public double durabilityAt(int slot) { return expiryAt(slot) - currentTurn(); }
+    public long sequenceAt(int slot) { checkSlot(slot); return headSeq + slot; }
+
+
+    /** Re-sums the live quantities, for consistency checks */
+    double recomputeTotal() {
+        double sum = 0;
+        for (int i = 0; i < slots; i++) {
+            int p = physical(i);
+            if (!Double.isNaN(expiries[p])) sum += quantities[p];
+        }
+        return sum;
+    }
+
+
+    // INTERNALS
+    private long currentTurn() {
+        return (owner == null) ? 0 : owner.getTurn();
+    }
+
+    private int physical(int index) {
+        int i = head + index;
+        return (i >= quantities.length) ? i - quantities.length : i;
+    }
+
+    private void dropHead() {
+        head = (head + 1) % quantities.length;
+        headSeq++;
+        slots--;
+    }
+
+    /** Drops spoiled slots from the head so the head is always a live batch */
+    private void trimHead() {
+        while (slots > 0 && Double.isNaN(expiries[head])) {
+            dropHead();
+        }
+    }
+
+    /** Doubles the arrays and unwraps the ring so the oldest slot is at 0 */
+    private void grow() {
+        int newCapacity = quantities.length * 2;
+        double[] newQuantities = new double[newCapacity];
+        double[] newExpiries = new double[newCapacity];
+        int firstPart = Math.min(slots, quantities.length - head);
+        System.arraycopy(quantities, head, newQuantities, 0, firstPart);
+        System.arraycopy(expiries, head, newExpiries, 0, firstPart);
+        System.arraycopy(quantities, 0, newQuantities, firstPart, slots - firstPart);
+        System.arraycopy(expiries, 0, newExpiries, firstPart, slots - firstPart);
+        quantities = newQuantities;
+        expiries = newExpiries;
+        head = 0;
+    }
+
+    private void checkNotEmpty() {
+        if (live == 0) throw new IllegalStateException("BatchQueue is empty");
+    }
+
+    private void checkSlot(int slot) {
+        if (slot < 0 || slot >= slots) throw new IndexOutOfBoundsException("Slot " + slot + " of " + slots);
+    }
+
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+        result.append(String.format("BatchQueue[batches=%d, total=%.1f]", live, total));
+        for (int i = 0; i < slots; i++) {
+            if (!isLive(i)) continue;
+            result.append(String.format(" (%.1f, %.0f)", quantityAt(i), durabilityAt(i)));
+        }
+        return result.toString();
+    }
+
+
+
+    /** Writes the live batches as a JSON array of { quantity, durability } objects, oldest first */
+    public static class Serializer extends JsonSerializer<BatchQueue> {
+        @Override
+        public void serialize(BatchQueue queue, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            long turn = queue.currentTurn();
+            gen.writeStartArray();
+            for (int i = 0; i < queue.slots; i++) {
+                int p = queue.physical(i);
+                if (Double.isNaN(queue.expiries[p])) continue;
+                gen.writeStartObject();
+                gen.writeNumberField("quantity", queue.quantities[p]);
+                gen.writeNumberField("durability", queue.expiries[p] - turn);
+                gen.writeEndObject();
+            }
+            gen.writeEndArray();
+        }
+    }
+
+    /** Reads the array written by Serializer (unknown batch fields are skipped).
+     *  Expiries are relative to turn 0 until the queue is attached to a storage */
+    public static class Deserializer extends JsonDeserializer<BatchQueue> {
+        @Override
+        public BatchQueue deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            if (p.currentToken() != JsonToken.START_ARRAY) {
+                return (BatchQueue) ctxt.handleUnexpectedToken(BatchQueue.class, p);
+            }
+            BatchQueue queue = new BatchQueue();
+            while (p.nextToken() == JsonToken.START_OBJECT) {
+                double quantity = 0, durability = 0;
+                while (p.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = p.currentName();
+                    p.nextToken();
+                    if ("quantity".equals(field)) { quantity = p.getValueAsDouble(); }
+                    else if ("durability".equals(field)) { durability = p.getValueAsDouble(); }
+                    else { p.skipChildren(); }
+                }
+                queue.addLast(quantity, durability);
+            }
+            return queue;
+        }
+    }
+}
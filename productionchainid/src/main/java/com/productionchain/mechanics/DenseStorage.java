@@ -0,0 +1,234 @@
+package com.productionchain.mechanics;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.productionchain.enginedatatypes.IngredientPair;
+import com.productionchain.enginedatatypes.ItemRegistry;
+import com.productionchain.enginedatatypes.Recipe;
+import com.productionchain.persistence.JsonPersistence;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Storage without batches, over a plain double[] of quantities and a running total.
+ * Same operations as Storage (ItemStorage); ItemStorage.create() picks it for small allowed-item sets.
+ *
+ * Two layouts:
+ *  - no allowed items: one slot per ItemRegistry item id (grows when a new id shows up)
+ *  - allowed items given: one slot per allowed item only, found by a short scan of their ids.
+ *    For the handful of items a building usually accepts this is smaller and faster than hashing.
+ *
+ * Once the slots exist, adding, removing and checking don't allocate anything.
+ */
+public class DenseStorage implements ItemStorage {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DenseStorage.class);
+
+    double capacity;
+    private int[] slotItemIds;      // item id in each slot (compact layout), null = slot index is the item id
+    private double[] quantities;    // quantity per slot
+    private double usedCapacity;    // sum of quantities
+    private ArrayList<String> allowedItems;
+
+
+    // CONSTRUCTORS
+    public DenseStorage() {
+        this.capacity = -1.0;
+        this.quantities = new double[ItemRegistry.getItemIdCount()];
+    }
+
+    public DenseStorage(Double capacity) {
+        this();
+        this.capacity = capacity;
+    }
+
+    /** Storage that only accepts these items (compact layout, one slot per allowed item) */
+    public DenseStorage(Double capacity, ArrayList<String> allowedItems) {
+        this.capacity = capacity;
+        this.allowedItems = allowedItems;
+        this.slotItemIds = new int[allowedItems.size()];
+        for (int i = 0; i < slotItemIds.length; i++) {
+            slotItemIds[i] = ItemRegistry.getItemId(allowedItems.get(i));
+        }
+        this.quantities = new double[slotItemIds.length];
+    }
+
+
+    // SETTERS
+    @Override
+    public void setCapacity(Double new_capacity){
+        this.capacity = new_capacity;
+    }
+
+    /** Add an item to storage (no capacity check). Returns false if the item isn't allowed here */
+    @Override
+    public boolean addItem(String itemName, double quantity) {
+        return addItem(ItemRegistry.getItemId(itemName), quantity);
+    }
+
+    @Override
+    public boolean addItem(int itemId, double quantity) {
+        int slot = slotFor(itemId);
+        if (slot < 0) return false;
+        quantities[slot] += quantity;
+        usedCapacity += quantity;
+        return true;
+    }
+
+    /** Add an item to storage. CHECK IS HAS ENOUGH SPACE */
+    @Override
+    public void addItemCheckCapacity(String itemName, double quantity) {
+        int itemId = ItemRegistry.getItemId(itemName);
+        if (slotFor(itemId) < 0){                                    // check if allowed item
+            LOG.warn("Cannot store -{}- here", itemName);
+        } else if (usedCapacity + quantity > this.capacity){         // check if enough storage
+            LOG.warn("Not enough space to add item ({}, {})", itemName, quantity);
+        } else {
+            addItem(itemId, quantity);
+        }
+    }
+
+    /** Remove an item (only if enough stock exists) */
+    @Override
+    public boolean removeItem(String itemName, double quantity) {
+        return removeItem(ItemRegistry.findItemId(itemName), quantity);
+    }
+
+    @Override
+    public boolean removeItem(int itemId, double quantity) {
+        int slot = findSlot(itemId);
+        if (slot < 0 || quantities[slot] < quantity) return false; // Not enough stock
+        quantities[slot] -= quantity;
+        usedCapacity -= quantity;
+        if (quantities[slot] <= 0) {
+            usedCapacity -= quantities[slot];  // drop any rounding left in the slot
+            quantities[slot] = 0;
+        }
+        return true;
+    }
+
+
+
+    // GETTERS
+    @Override
+    public double getCapacity() {
+        return capacity;
+    }
+
+    /** Total held, kept up to date on every change. Constant time */
+    @Override
+    public double getUsedCapacity() {
+        return usedCapacity;
+    }
+
+    public double getAvailableCapacity() {
+        return capacity - usedCapacity;
+    }
+
+    /** Check if storage has enough of an item */
+    @Override
+    public boolean hasItem(String itemName, double quantity) {
+        return getItemQuantity(ItemRegistry.findItemId(itemName)) >= quantity;
+    }
+
+    @Override
+    public boolean hasItem(int itemId, double quantity) {
+        return getItemQuantity(itemId) >= quantity;
+    }
+
+    /** Quantity stored of an item (0 if none) */
+    @Override
+    public double getItemQuantity(String itemName) {
+        return getItemQuantity(ItemRegistry.findItemId(itemName));
+    }
+
+    @Override
+    public double getItemQuantity(int itemId) {
+        int slot = findSlot(itemId);
+        return (slot < 0) ? 0.0 : quantities[slot];
+    }
+
+    /** Check if all ingredients for a recipe are available */
+    @Override
+    public boolean hasIngredients(Recipe recipe) {
+        if (recipe.getIngredientslist() == null) return true;
+        List<IngredientPair> ingredients = recipe.getIngredientslist().getIngredientslist();
+        for (int i = 0; i < ingredients.size(); i++) { // indexed, no iterator
+            IngredientPair ingredient = ingredients.get(i);
+            if (!hasItem(ingredient.getItemId(), ingredient.getCount())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Stored items by name (items with a quantity above 0). Built on each call */
+    @Override
+    public Map<String, Double> getItems() {
+        Map<String, Double> items = new LinkedHashMap<>();
+        for (int slot = 0; slot < quantities.length; slot++) {
+            if (quantities[slot] > 0) items.put(ItemRegistry.getItemName(itemIdAt(slot)), quantities[slot]);
+        }
+        return items;
+    }
+
+    public ArrayList<String> getAllowedItems() {
+        return allowedItems;
+    }
+
+
+
+    // SLOTS
+    /** Slot holding the item, or -1 if it has none (doesn't grow) */
+    private int findSlot(int itemId) {
+        if (itemId < 0) return -1;
+        if (slotItemIds == null) return (itemId < quantities.length) ? itemId : -1;
+        for (int slot = 0; slot < slotItemIds.length; slot++) {
+            if (slotItemIds[slot] == itemId) return slot;
+        }
+        return -1;
+    }
+
+    /** Slot for adding the item, growing the id-indexed layout if needed. -1 if the item isn't allowed */
+    private int slotFor(int itemId) {
+        if (slotItemIds == null && itemId >= quantities.length) {
+            quantities = Arrays.copyOf(quantities, Math.max(itemId + 1, ItemRegistry.getItemIdCount()));
+        }
+        return findSlot(itemId);
+    }
+
+    private int itemIdAt(int slot) {
+        return (slotItemIds == null) ? slot : slotItemIds[slot];
+    }
+
+
+
+    // FILE HANDLING ================================================================================
+    // Read from JSON file (same format as Storage: item name -> quantity)
+    @Override
+    public void loadFromJson(String filePath) throws IOException {
+        Map<String, Double> items = JsonPersistence.read(new File(filePath), JsonPersistence.mapOf(String.class, Double.class));
+        Arrays.fill(quantities, 0);
+        usedCapacity = 0;
+        items.forEach(this::addItem);
+    }
+
+    // Write to JSON file
+    @Override
+    public void saveToJson(String filePath) throws IOException {
+        JsonPersistence.write(new File(filePath), this.getItems());
+    }
+
+
+    @Override
+    public String toString() {
+        return String.format("DenseStorage[capacity=%.1f, used=%.1f]: ", capacity, usedCapacity) + getItems();
+    }
+}
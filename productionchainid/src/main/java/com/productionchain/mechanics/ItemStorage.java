@@ -0,0 +1,59 @@
+package com.productionchain.mechanics;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Map;
+
+import com.productionchain.enginedatatypes.Recipe;
+
+
+/**
+ * Storage of plain item quantities (no batches), implemented by Storage and DenseStorage.
+ * Both follow the same contract: items outside the allowed set (when there is one) are refused by
+ * every add, and getItems() leaves out items at 0. They read and write the same JSON
+ * (item name -> quantity), so one can replace the other.
+ */
+public interface ItemStorage {
+
+    /** Allowed-item sets up to this size get a DenseStorage from create() */
+    int SMALL_ALLOWED_SET = 8;
+
+    /** DenseStorage for a small allowed-item set (one slot per item), Storage otherwise */
+    static ItemStorage create(Double capacity, ArrayList<String> allowedItems) {
+        if (allowedItems != null && allowedItems.size() <= SMALL_ALLOWED_SET) {
+            return new DenseStorage(capacity, allowedItems);
+        }
+        return (allowedItems == null) ? new Storage(capacity) : new Storage(capacity, allowedItems);
+    }
+
+
+    void setCapacity(Double capacity);
+
+    /** Add an item (no capacity check). Returns false if the item isn't allowed here */
+    boolean addItem(String itemName, double quantity);
+    boolean addItem(int itemId, double quantity);
+
+    /** Add an item only if it is allowed and fits */
+    void addItemCheckCapacity(String itemName, double quantity);
+
+    /** Remove an item (only if enough stock exists) */
+    boolean removeItem(String itemName, double quantity);
+    boolean removeItem(int itemId, double quantity);
+
+    double getCapacity();
+    double getUsedCapacity();
+
+    boolean hasItem(String itemName, double quantity);
+    boolean hasItem(int itemId, double quantity);
+    double getItemQuantity(String itemName);
+    double getItemQuantity(int itemId);
+
+    /** Check if all ingredients for a recipe are available */
+    boolean hasIngredients(Recipe recipe);
+
+    /** Stored items by name (items with a quantity above 0). Built on each call, changing it has no effect */
+    Map<String, Double> getItems();
+
+    void loadFromJson(String filePath) throws IOException;
+    void saveToJson(String filePath) throws IOException;
+}
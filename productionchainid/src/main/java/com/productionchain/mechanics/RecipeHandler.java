@@ -3,8 +3,9 @@ package com.productionchain.mechanics;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.stream.Collectors;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
@@ -18,6 +19,10 @@ public class RecipeHandler {
     int baseNumOperations;
     ArrayList<String> baseRecipeCategories;
 
+    /** getAvailableRecipes() result, valid while RecipeRegistry.getVersion() is unchanged */
+    @JsonIgnore
+    private volatile AvailableRecipes availableRecipes;
+
 
     public RecipeHandler(){
         this.baseNumOperations = 0;
@@ -59,21 +64,41 @@ public class RecipeHandler {
     public List<String> getBaseRecipeCategories() {return baseRecipeCategories;}
 
     public void setBaseNumOperations(int baseNumOperations) {this.baseNumOperations = baseNumOperations;}
-    public void setBaseRecipeCategories(ArrayList<String> baseRecipeCategories) {this.baseRecipeCategories = baseRecipeCategories;}
+    public void setBaseRecipeCategories(ArrayList<String> baseRecipeCategories) {
+        this.baseRecipeCategories = baseRecipeCategories;
+        this.availableRecipes = null;
+    }
 
 
     public boolean canRunRecipe(Recipe recipe) {
         return baseRecipeCategories.contains(recipe.getCategory());
     }
 
+    /** Registry recipes in this handler's categories, category by category (registry order within each), from
+     *  the registry's category index. Cached until the registry changes (or setBaseRecipeCategories is called);
+     *  the list is shared and read only */
     @JsonIgnore
     public List<Recipe> getAvailableRecipes() {
-        return RecipeRegistry.getRecipes().stream()
-            .filter(recipe -> this.baseRecipeCategories.contains(recipe.getCategory()))
-            .collect(Collectors.toList());
-        // return baseRecipeCategories.stream()
-        //     .flatMap(cat -> RecipeRegistry.getRecipesByCategory(category).stream()) // both were "category"
-        //     .collect(Collectors.toList());
+        long registryVersion = RecipeRegistry.getVersion();
+        AvailableRecipes cached = this.availableRecipes;
+        if (cached != null && cached.registryVersion == registryVersion) return cached.recipes;
+
+        List<Recipe> recipes = new ArrayList<>();
+        for (String category : new LinkedHashSet<>(this.baseRecipeCategories)) {
+            recipes.addAll(RecipeRegistry.getRecipesByCategory(category));
+        }
+        this.availableRecipes = new AvailableRecipes(registryVersion, Collections.unmodifiableList(recipes));
+        return this.availableRecipes.recipes;
+    }
+
+    private static final class AvailableRecipes {
+        final long registryVersion;
+        final List<Recipe> recipes;
+
+        AvailableRecipes(long registryVersion, List<Recipe> recipes) {
+            this.registryVersion = registryVersion;
+            this.recipes = recipes;
+        }
     }
 
     @Override
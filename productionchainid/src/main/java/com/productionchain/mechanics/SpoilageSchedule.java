@@ -0,0 +1,127 @@
+package com.productionchain.mechanics;
+
+import java.util.Arrays;
+
+
+/**
+ * Bucket queue of batch expiries for one AdvancedStorage: a binary min-heap on
+ * the turn each batch is due to spoil, kept in parallel arrays.
+ *
+ * A turn only has to pop the entries that are due, so degradation costs
+ * O(expired batches) instead of touching every batch. Entries for batches that
+ * were used up before they spoiled are left in place (BatchQueue.spoil ignores
+ * them when they come up) but counted, and once they outnumber the live entries
+ * the heap is rebuilt without them, so a storage that keeps using up long-lived
+ * batches doesn't grow its schedule without bound.
+ */
+class SpoilageSchedule {
+
+    private long[] ticks = new long[8];
+    private long[] seqs = new long[8];
+    private BatchQueue[] queues = new BatchQueue[8];
+    private int[] itemIds = new int[8];
+    private int size;
+    private int stale;      // entries whose batch was used up (an estimate, exact again after compact)
+
+    private static final int MIN_COMPACT_SIZE = 16;
+
+
+    int size() { return size; }
+    boolean isEmpty() { return size == 0; }
+
+    /** Turn of the earliest entry, or Long.MAX_VALUE when empty */
+    long peekTick() { return (size == 0) ? Long.MAX_VALUE : ticks[0]; }
+    long peekSeq() { return seqs[0]; }
+    BatchQueue peekQueue() { return queues[0]; }
+    int peekItemId() { return itemIds[0]; }
+
+
+    void push(long tick, BatchQueue queue, long seq, int itemId) {
+        if (size == ticks.length) grow();
+        int i = size++;
+        // sift up
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (ticks[parent] <= tick) break;
+            move(parent, i);
+            i = parent;
+        }
+        set(i, tick, queue, seq, itemId);
+    }
+
+    /** Removes the earliest entry (read it with the peek methods first) */
+    void pop() {
+        size--;
+        if (size == 0) { queues[0] = null; return; }
+        long tick = ticks[size];
+        BatchQueue queue = queues[size];
+        long seq = seqs[size];
+        int itemId = itemIds[size];
+        queues[size] = null;
+        siftDown(0, tick, queue, seq, itemId);
+    }
+
+    /** Removes the earliest entry, whose batch turned out to be used up already */
+    void popStale() {
+        pop();
+        if (stale > 0) stale--;
+    }
+
+    /** Records batches used up before they spoiled. Compacts when stale entries outnumber live ones */
+    void markStale(int count) {
+        stale += count;
+        if (size >= MIN_COMPACT_SIZE && 2 * stale > size) compact();
+    }
+
+    /** Drops the entries of batches that are gone and rebuilds the heap */
+    void compact() {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (queues[i].holds(seqs[i])) move(i, kept++);
+        }
+        Arrays.fill(queues, kept, size, null);
+        size = kept;
+        stale = 0;
+        for (int i = (size >>> 1) - 1; i >= 0; i--) {
+            siftDown(i, ticks[i], queues[i], seqs[i], itemIds[i]);
+        }
+    }
+
+    void clear() {
+        Arrays.fill(queues, 0, size, null);
+        size = 0;
+        stale = 0;
+    }
+
+
+    private void siftDown(int i, long tick, BatchQueue queue, long seq, int itemId) {
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && ticks[child + 1] < ticks[child]) child++;
+            if (tick <= ticks[child]) break;
+            move(child, i);
+            i = child;
+        }
+        set(i, tick, queue, seq, itemId);
+    }
+
+    private void set(int i, long tick, BatchQueue queue, long seq, int itemId) {
+        ticks[i] = tick;
+        queues[i] = queue;
+        seqs[i] = seq;
+        itemIds[i] = itemId;
+    }
+
+    private void move(int from, int to) {
+        set(to, ticks[from], queues[from], seqs[from], itemIds[from]);
+    }
+
+    private void grow() {
+        int newCapacity = ticks.length * 2;
+        ticks = Arrays.copyOf(ticks, newCapacity);
+        seqs = Arrays.copyOf(seqs, newCapacity);
+        queues = Arrays.copyOf(queues, newCapacity);
+        itemIds = Arrays.copyOf(itemIds, newCapacity);
+    }
+}
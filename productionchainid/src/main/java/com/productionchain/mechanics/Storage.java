@@ -3,75 +3,109 @@ package com.productionchain.mechanics;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
 import com.productionchain.enginedatatypes.IngredientPair;
+import com.productionchain.enginedatatypes.ItemRegistry;
 import com.productionchain.enginedatatypes.Recipe;
+import com.productionchain.persistence.JsonPersistence;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 
 
 
 @JsonIgnoreProperties(ignoreUnknown = true)
-public class Storage {
+public class Storage implements ItemStorage {
+
+    private static final Logger LOG = LoggerFactory.getLogger(Storage.class);
     
     double capacity;
-    Map<String, Double> storedItems;
+    double[] storedItems;     // quantity per ItemRegistry item id
+    BitSet storedItemIds;     // ids with an entry (an item can be stored with quantity 0)
     ArrayList<String> allowedItems;
+    BitSet allowedItemIds;    // allowedItems resolved to ids
 
 
     // CONSTRUCTORS
     public Storage() {
         this.capacity = -1.0;
-        this.storedItems = new HashMap<>();
+        this.storedItems = new double[0];
+        this.storedItemIds = new BitSet();
         //this.allowedItems = new AbstractSet<String>(); // DONT EVEN INITIALIZE
     }
 
     public Storage(Double capacity) {
+        this();
         this.capacity = capacity;
-        this.storedItems = new HashMap<>();
     }
 
     public Storage(Double capacity, ArrayList<String> allowedItems) {
-        this.capacity = capacity;
-        this.storedItems = new HashMap<>();
+        this(capacity);
         this.allowedItems = allowedItems;
+        this.allowedItemIds = new BitSet();
+        for (String itemName : allowedItems) allowedItemIds.set(ItemRegistry.getItemId(itemName));
     }
 
 
     // SETTERS
+    @Override
     public void setCapacity(Double new_capacity){
         this.capacity = new_capacity;
     }
 
-    /** Add an item to storage */
-    public void addItem(String itemName, double quantity) {
-        storedItems.put(itemName, storedItems.getOrDefault(itemName, 0.0) + quantity);
+    /** Add an item to storage (no capacity check). Returns false if the item isn't allowed here */
+    @Override
+    public boolean addItem(String itemName, double quantity) {
+        return addItem(ItemRegistry.getItemId(itemName), quantity);
+    }
+
+    @Override
+    public boolean addItem(int itemId, double quantity) {
+        if (allowedItemIds != null && !allowedItemIds.get(itemId)) return false;
+        if (itemId >= storedItems.length) {
+            storedItems = Arrays.copyOf(storedItems, Math.max(itemId + 1, ItemRegistry.getItemIdCount()));
+        }
+        storedItems[itemId] += quantity;
+        storedItemIds.set(itemId);
+        return true;
     }
 
     /** Add an item to storage. CHECK IS HAS ENOUGH SPACE */
+    @Override
     public void addItemCheckCapacity(String itemName, double quantity) {
-        if (this.allowedItems != null && !this.allowedItems.contains(itemName)){ // check if allowed item
-            System.out.println("[WARNING]: CANNOT STORE -" + itemName + "- HERE!");
+        int itemId = ItemRegistry.getItemId(itemName);
+        if (this.allowedItemIds != null && !this.allowedItemIds.get(itemId)){ // check if allowed item
+            LOG.warn("Cannot store -{}- here", itemName);
         } else if (this.getUsedCapacity() + quantity > this.capacity){           // check if enough storage
-            System.out.println("[WARNING]: NOT ENOUGH SPACE TO ADD ITEM! (" + itemName + ", " + quantity + ")");
+            LOG.warn("Not enough space to add item ({}, {})", itemName, quantity);
         } else {
-            storedItems.put(itemName, storedItems.getOrDefault(itemName, 0.0) + quantity);
+            addItem(itemId, quantity);
         }
     }
 
     /** Remove an item (only if enough stock exists) */
+    @Override
     public boolean removeItem(String itemName, double quantity) {
-        if (storedItems.getOrDefault(itemName, 0.0) >= quantity) {
-            storedItems.put(itemName, storedItems.get(itemName) - quantity);
-            if (storedItems.get(itemName) <= 0) {
-                storedItems.remove(itemName); // Remove empty storedItems
+        return removeItem(ItemRegistry.findItemId(itemName), quantity);
+    }
+
+    @Override
+    public boolean removeItem(int itemId, double quantity) {
+        if (itemId < 0 || !storedItemIds.get(itemId)) return false;
+        if (storedItems[itemId] >= quantity) {
+            storedItems[itemId] -= quantity;
+            if (storedItems[itemId] <= 0) {
+                storedItems[itemId] = 0;
+                storedItemIds.clear(itemId); // Remove empty storedItems
             }
             return true;
         }
@@ -82,64 +116,91 @@ public class Storage {
 
     // GETTERS  
     @JsonIgnore
+    @Override
     public double getCapacity() {
         return capacity;
     }
 
     /** Sums over total capacity */
     @JsonIgnore
+    @Override
     public double getUsedCapacity() {
         double sum = 0;
-        for (Double value : this.storedItems.values()) {
-            sum += value;
+        for (int id = storedItemIds.nextSetBit(0); id >= 0; id = storedItemIds.nextSetBit(id + 1)) {
+            sum += storedItems[id];
         }
         return sum;
     }
 
     /** Check if storage has enough of an item */
+    @Override
     public boolean hasItem(String itemName, double quantity) {
-        return storedItems.getOrDefault(itemName, 0.0) >= quantity;
+        return getItemQuantity(ItemRegistry.findItemId(itemName)) >= quantity;
+    }
+
+    @Override
+    public boolean hasItem(int itemId, double quantity) {
+        return getItemQuantity(itemId) >= quantity;
+    }
+
+    /** Quantity stored of an item (0 if none) */
+    @Override
+    public double getItemQuantity(String itemName) {
+        return getItemQuantity(ItemRegistry.findItemId(itemName));
+    }
+
+    @Override
+    public double getItemQuantity(int itemId) {
+        return (itemId >= 0 && itemId < storedItems.length) ? storedItems[itemId] : 0.0;
     }
 
     /** Check if all ingredients for a recipe are available */
+    @Override
     public boolean hasIngredients(Recipe recipe) {
         for (IngredientPair ingredient : recipe.getIngredientslist().getIngredientslist()) {
-            if (!hasItem(ingredient.getItem_name(), ingredient.getCount())) {
+            if (!hasItem(ingredient.getItemId(), ingredient.getCount())) {
                 return false;
             }
         }
         return true;
     }
 
-    /** Get current stored storedItems */
+    /** Stored items by name (items with a quantity above 0). Built on each call, changing it has no effect */
+    @Override
     public Map<String, Double> getItems() {
-        return storedItems;
+        Map<String, Double> items = new LinkedHashMap<>();
+        for (int id = storedItemIds.nextSetBit(0); id >= 0; id = storedItemIds.nextSetBit(id + 1)) {
+            if (storedItems[id] > 0) items.put(ItemRegistry.getItemName(id), storedItems[id]);
+        }
+        return items;
     }
 
 
 
     // FILE HANDLING NEW ============================================================================
     // Read from JSON file
+    @Override
     public void loadFromJson(String filePath) throws IOException {
-        ObjectMapper mapper = new ObjectMapper();
-        this.storedItems = mapper.readValue(new File(filePath), //,
+        Map<String, Double> items = JsonPersistence.read(new File(filePath), //,
             //RecipeList.class);
             //mapper.getTypeFactory().constructCollectionType(List.class, IngredientPair.class));
-            mapper.getTypeFactory().constructMapType(Map.class, String.class, Double.class));
+            JsonPersistence.mapOf(String.class, Double.class));
+        this.storedItems = new double[0];
+        this.storedItemIds = new BitSet();
+        items.forEach(this::addItem);
     }
 
     // Write to JSON file
+    @Override
     public void saveToJson(String filePath) throws IOException {
-        ObjectMapper mapper = new ObjectMapper();
-        mapper.enable(SerializationFeature.INDENT_OUTPUT);
         //mapper.activateDefaultTyping(mapper.getPolymorphicTypeValidator(), ObjectMapper.DefaultTyping.NON_FINAL);
-        mapper.writeValue(new File(filePath), this.storedItems); //writerWithDefaultPrettyPrinter()
+        JsonPersistence.write(new File(filePath), this.getItems()); // pretty printed
     }
 
 
     @Override
     public String toString() {
-        return "Storage: " + storedItems.toString();
+        return "Storage: " + getItems().toString();
     }
 
 
@@ -0,0 +1,38 @@
+package com.productionchain.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * Event counter backed by a LongAdder, so threads of a parallel turn don't fight over one value.
+ * Counts nothing while metrics are disabled (one volatile read per call).
+ */
+public final class Counter {
+
+    private final String name;
+    private final LongAdder count = new LongAdder();
+
+
+    Counter(String name) {
+        this.name = name;
+    }
+
+
+    public String getName() { return name; }
+
+    public void increment() {
+        if (Metrics.isEnabled()) count.increment();
+    }
+
+    public void add(long amount) {
+        if (Metrics.isEnabled()) count.add(amount);
+    }
+
+    public long get() {
+        return count.sum();
+    }
+
+    void reset() {
+        count.reset();
+    }
+}
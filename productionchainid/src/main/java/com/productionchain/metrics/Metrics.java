@@ -0,0 +1,92 @@
+package com.productionchain.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * Process-wide registry of counters and latency timers for the engine hot paths.
+ *
+ * Off by default. Turn it on with -Dproductionchain.metrics=true or setEnabled(true). While off every
+ * instrumented call costs one volatile read: Metrics.start() returns 0 without reading the clock and
+ * counters and timers ignore the call.
+ *
+ * The metrics the engine records are the constants below; other code can add its own with
+ * counter(name) / timer(name). snapshot() copies them all, e.g. at the end of a turn
+ * (TurnEngine.setMetricsSink), and the snapshot prints as text or JSON.
+ */
+public final class Metrics {
+
+    private static volatile boolean enabled = Boolean.getBoolean("productionchain.metrics");
+
+    private static final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private static final Map<String, LatencyHistogram> timers = new ConcurrentHashMap<>();
+
+    // TURNS AND RECIPES
+    public static final LatencyHistogram TURN            = timer("turn");
+    public static final LatencyHistogram RECIPE_PERFORM  = timer("recipe.perform");
+    public static final Counter          RECIPE_APPLIED  = counter("recipe.applied");
+
+    // STORAGE
+    public static final Counter          STORAGE_ADD     = counter("storage.add");
+    public static final Counter          STORAGE_REMOVE  = counter("storage.remove");
+    public static final LatencyHistogram STORAGE_DEGRADE = timer("storage.degrade");
+    public static final Counter          BATCHES_SPOILED = counter("storage.spoiled");
+
+    // LOADING AND SAVING
+    public static final LatencyHistogram REGISTRY_LOAD   = timer("registry.load");
+    public static final LatencyHistogram JSON_READ       = timer("persistence.json.read");
+    public static final LatencyHistogram JSON_WRITE      = timer("persistence.json.write");
+    public static final LatencyHistogram WORLD_SAVE      = timer("persistence.world.save");
+    public static final LatencyHistogram WORLD_LOAD      = timer("persistence.world.load");
+    public static final LatencyHistogram SNAPSHOT_SAVE   = timer("persistence.snapshot.save");
+    public static final LatencyHistogram SNAPSHOT_LOAD   = timer("persistence.snapshot.load");
+    public static final LatencyHistogram AUTOSAVE        = timer("persistence.autosave");
+    public static final LatencyHistogram JOURNAL_FLUSH   = timer("persistence.journal.flush");
+
+
+    private Metrics() {}
+
+
+    public static boolean isEnabled() { return enabled; }
+    public static void setEnabled(boolean enable) { enabled = enable; }
+
+    /** Start time for LatencyHistogram.record, or 0 (nothing recorded) when metrics are off */
+    public static long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+
+    // REGISTRY
+    /** The counter with this name, created on first use */
+    public static Counter counter(String name) {
+        return counters.computeIfAbsent(name, Counter::new);
+    }
+
+    /** The timer with this name, created on first use */
+    public static LatencyHistogram timer(String name) {
+        return timers.computeIfAbsent(name, LatencyHistogram::new);
+    }
+
+
+    // SNAPSHOTS
+    public static MetricsSnapshot snapshot() {
+        return snapshot(-1);
+    }
+
+    /** Copies every metric. Values recorded while copying may or may not be included */
+    public static MetricsSnapshot snapshot(long turn) {
+        Map<String, Long> counterValues = new TreeMap<>();
+        counters.forEach((name, counter) -> counterValues.put(name, counter.get()));
+        Map<String, MetricsSnapshot.TimerStats> timerStats = new TreeMap<>();
+        timers.forEach((name, timer) -> timerStats.put(name, timer.stats()));
+        return new MetricsSnapshot(turn, System.currentTimeMillis(), counterValues, timerStats);
+    }
+
+    /** Sets every counter and timer back to zero (e.g. after a snapshot, to get per-turn values) */
+    public static void reset() {
+        counters.values().forEach(Counter::reset);
+        timers.values().forEach(LatencyHistogram::reset);
+    }
+}
@@ -0,0 +1,131 @@
+package com.productionchain.metrics;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.productionchain.persistence.JsonPersistence;
+
+
+/**
+ * Values of every metric at one moment (usually the end of a turn), by name in alphabetical order.
+ * Counters are totals since the last Metrics.reset(); timers give count, total and percentiles in ns.
+ */
+public final class MetricsSnapshot {
+
+    private final long turn;
+    private final long timestampMillis;
+    private final Map<String, Long> counters;
+    private final Map<String, TimerStats> timers;
+
+
+    @JsonCreator
+    public MetricsSnapshot(@JsonProperty("turn") long turn,
+                           @JsonProperty("timestampMillis") long timestampMillis,
+                           @JsonProperty("counters") Map<String, Long> counters,
+                           @JsonProperty("timers") Map<String, TimerStats> timers) {
+        this.turn = turn;
+        this.timestampMillis = timestampMillis;
+        this.counters = Collections.unmodifiableMap(counters);
+        this.timers = Collections.unmodifiableMap(timers);
+    }
+
+
+    /** World turn the snapshot was taken at, or -1 when taken outside a turn */
+    public long getTurn() { return turn; }
+    public long getTimestampMillis() { return timestampMillis; }
+    public Map<String, Long> getCounters() { return counters; }
+    public Map<String, TimerStats> getTimers() { return timers; }
+
+    public long getCounter(String name) {
+        return counters.getOrDefault(name, 0L);
+    }
+
+    public TimerStats getTimer(String name) {
+        return timers.get(name);
+    }
+
+
+    // OUTPUT
+    public String toJson() {
+        try {
+            return JsonPersistence.writer().writeValueAsString(this);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** One line per metric that recorded something */
+    public String toText() {
+        StringBuilder result = new StringBuilder("Metrics");
+        if (turn >= 0) result.append(" (turn ").append(turn).append(")");
+        result.append(":\n");
+        counters.forEach((name, value) -> {
+            if (value != 0) result.append(String.format("  %-32s %d%n", name, value));
+        });
+        timers.forEach((name, stats) -> {
+            if (stats.getCount() != 0) result.append(String.format("  %-32s %s%n", name, stats));
+        });
+        return result.toString();
+    }
+
+    @Override
+    public String toString() {
+        return toText();
+    }
+
+
+
+    /** Count, total and percentiles of one timer, in nanoseconds */
+    @JsonIgnoreProperties(value = "meanNanos", allowGetters = true)
+    public static final class TimerStats {
+        private final long count;
+        private final long totalNanos;
+        private final long maxNanos;
+        private final long p50Nanos;
+        private final long p90Nanos;
+        private final long p99Nanos;
+
+        @JsonCreator
+        public TimerStats(@JsonProperty("count") long count,
+                          @JsonProperty("totalNanos") long totalNanos,
+                          @JsonProperty("maxNanos") long maxNanos,
+                          @JsonProperty("p50Nanos") long p50Nanos,
+                          @JsonProperty("p90Nanos") long p90Nanos,
+                          @JsonProperty("p99Nanos") long p99Nanos) {
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+            this.p50Nanos = p50Nanos;
+            this.p90Nanos = p90Nanos;
+            this.p99Nanos = p99Nanos;
+        }
+
+        public long getCount() { return count; }
+        public long getTotalNanos() { return totalNanos; }
+        public long getMaxNanos() { return maxNanos; }
+        public long getP50Nanos() { return p50Nanos; }
+        public long getP90Nanos() { return p90Nanos; }
+        public long getP99Nanos() { return p99Nanos; }
+
+        public long getMeanNanos() {
+            return (count == 0) ? 0 : totalNanos / count;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("n=%d total=%.3f ms mean=%s p50=%s p90=%s p99=%s max=%s", count, totalNanos / 1e6,
+                format(getMeanNanos()), format(p50Nanos), format(p90Nanos), format(p99Nanos), format(maxNanos));
+        }
+
+        private static String format(long nanos) {
+            if (nanos < 10_000) return nanos + " ns";
+            if (nanos < 10_000_000) return String.format("%.1f us", nanos / 1e3);
+            return String.format("%.1f ms", nanos / 1e6);
+        }
+    }
+}
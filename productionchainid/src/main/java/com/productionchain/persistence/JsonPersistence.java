@@ -0,0 +1,170 @@
+package com.productionchain.persistence;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.core.util.DefaultIndenter;
+import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import com.productionchain.metrics.Metrics;
+
+
+/**
+ * Shared Jackson setup for every JSON load/save in the game.
+ *
+ * One ObjectMapper is configured once. The ObjectReader/ObjectWriter for each type is built on first
+ * use and kept, so the serializer and deserializer caches Jackson builds for a type are reused
+ * instead of being thrown away with a new ObjectMapper on every call. Readers and writers are
+ * immutable and thread-safe.
+ *
+ * Usage:
+ *   JsonPersistence.write(new File(path), storage);                        // pretty printed
+ *   AdvancedStorage s = JsonPersistence.read(new File(path), AdvancedStorage.class);
+ *   List<Recipe> r = JsonPersistence.read(new File(path), JsonPersistence.listOf(Recipe.class));
+ */
+public final class JsonPersistence {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /** Pretty printed output, same as SerializationFeature.INDENT_OUTPUT */
+    private static final ObjectWriter PRETTY_WRITER = MAPPER.writerWithDefaultPrettyPrinter();
+
+    /** Fields only, no getters or setters (IngredientsList.SaveIngredientList format) */
+    private static final ObjectWriter FIELD_WRITER = fieldMapper().writer(fieldPrinter());
+
+    private static final Map<JavaType, ObjectReader> readers = new ConcurrentHashMap<>();
+    private static final Map<JavaType, ObjectWriter> writers = new ConcurrentHashMap<>();
+    private static final Map<JavaType, ObjectWriter> compactWriters = new ConcurrentHashMap<>();
+
+
+    private JsonPersistence() {}
+
+
+    // TYPES
+    public static TypeFactory typeFactory() {
+        return MAPPER.getTypeFactory();
+    }
+
+    public static JavaType listOf(Class<?> elementType) {
+        return typeFactory().constructCollectionType(List.class, elementType);
+    }
+
+    public static JavaType mapOf(Class<?> keyType, Class<?> valueType) {
+        return typeFactory().constructMapType(Map.class, keyType, valueType);
+    }
+
+
+    // READERS / WRITERS
+    public static ObjectReader reader(Class<?> type) {
+        return reader(typeFactory().constructType(type));
+    }
+
+    public static ObjectReader reader(TypeReference<?> type) {
+        return reader(typeFactory().constructType(type));
+    }
+
+    public static ObjectReader reader(JavaType type) {
+        return readers.computeIfAbsent(type, MAPPER::readerFor);
+    }
+
+    /** Pretty printing writer for this declared type (e.g. a List of a base class keeps its type info) */
+    public static ObjectWriter writer(JavaType type) {
+        return writers.computeIfAbsent(type, t -> PRETTY_WRITER.forType(t));
+    }
+
+    public static ObjectWriter writer(Class<?> type) {
+        return writer(typeFactory().constructType(type));
+    }
+
+    /** Pretty printing writer that looks at the runtime type of each value */
+    public static ObjectWriter writer() {
+        return PRETTY_WRITER;
+    }
+
+    /** Writer without indentation, for JSON embedded in other files */
+    public static ObjectWriter compactWriter(Class<?> type) {
+        return compactWriters.computeIfAbsent(typeFactory().constructType(type), MAPPER::writerFor);
+    }
+
+    public static ObjectWriter fieldWriter() {
+        return FIELD_WRITER;
+    }
+
+
+    // STREAMING
+    /** Generator that can also write whole objects (writeObject) with the shared mapper */
+    public static JsonGenerator createGenerator(OutputStream out) throws IOException {
+        return MAPPER.getFactory().createGenerator(out);
+    }
+
+    /** Parser that can also read whole objects (readValueAs) with the shared mapper */
+    public static JsonParser createParser(InputStream in) throws IOException {
+        return MAPPER.getFactory().createParser(in);
+    }
+
+
+    // FILES
+    public static <T> T read(File file, Class<T> type) throws IOException {
+        return read(file, reader(type));
+    }
+
+    public static <T> T read(File file, JavaType type) throws IOException {
+        return read(file, reader(type));
+    }
+
+    public static <T> T read(File file, TypeReference<T> type) throws IOException {
+        return read(file, reader(type));
+    }
+
+    /** Every file read goes through here, so JSON_READ counts all of them */
+    private static <T> T read(File file, ObjectReader reader) throws IOException {
+        long start = Metrics.start();
+        T value = reader.readValue(file);
+        Metrics.JSON_READ.record(start);
+        return value;
+    }
+
+    public static void write(File file, Object value) throws IOException {
+        long start = Metrics.start();
+        PRETTY_WRITER.writeValue(file, value);
+        Metrics.JSON_WRITE.record(start);
+    }
+
+    public static void write(File file, Object value, JavaType type) throws IOException {
+        long start = Metrics.start();
+        writer(type).writeValue(file, value);
+        Metrics.JSON_WRITE.record(start);
+    }
+
+
+
+    private static ObjectMapper fieldMapper() {
+        ObjectMapper om = new ObjectMapper();
+        om.setVisibility(om.getSerializationConfig().getDefaultVisibilityChecker()
+                .withFieldVisibility(Visibility.ANY)
+                .withGetterVisibility(Visibility.NONE)
+                .withSetterVisibility(Visibility.NONE)
+                .withCreatorVisibility(Visibility.NONE));
+        return om;
+    }
+
+    private static DefaultPrettyPrinter fieldPrinter() {
+        DefaultPrettyPrinter printer = new DefaultPrettyPrinter();
+        printer.indentArraysWith(new DefaultIndenter("  ", "\n"));
+        printer.indentObjectsWith(new DefaultIndenter("  ", "\n"));
+        return printer;
+    }
+}
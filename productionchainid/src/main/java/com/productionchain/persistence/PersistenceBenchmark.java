@@ -0,0 +1,58 @@
+package com.productionchain.persistence;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.productionchain.mechanics.AdvancedStorage;
+
+
+/**
+ * Saves many storages the old way (new ObjectMapper per save) and through JsonPersistence's shared
+ * writer, and prints the time of each. Output goes to memory so disk speed doesn't hide the difference.
+ *
+ * Run: PersistenceBenchmark [storages] [rounds]   (defaults 5000, 5)
+ */
+public class PersistenceBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int numStorages = (args.length > 0) ? Integer.parseInt(args[0]) : 5000;
+        int rounds      = (args.length > 1) ? Integer.parseInt(args[1]) : 5;
+
+        List<AdvancedStorage> storages = new ArrayList<>();
+        for (int i = 0; i < numStorages; i++) {
+            AdvancedStorage storage = new AdvancedStorage(100.0, new ArrayList<>(Arrays.asList("Wood", "Coal", "Stone")));
+            storage.addItem("Wood", 1 + i % 7, 5 + i % 3);
+            storage.addItem("Wood", 2, 8);
+            storage.addItem("Coal", 3 + i % 5, 10);
+            storages.add(storage);
+        }
+
+        System.out.println(String.format("Saving %d storages, %d rounds", numStorages, rounds));
+        for (int round = 1; round <= rounds; round++) {
+            long bytesFresh = 0, bytesShared = 0;
+
+            long start = System.nanoTime();
+            for (AdvancedStorage storage : storages) {
+                ObjectMapper mapper = new ObjectMapper();
+                mapper.enable(SerializationFeature.INDENT_OUTPUT);
+                bytesFresh += mapper.writeValueAsBytes(storage).length;
+            }
+            long freshNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (AdvancedStorage storage : storages) {
+                bytesShared += JsonPersistence.writer().writeValueAsBytes(storage).length;
+            }
+            long sharedNanos = System.nanoTime() - start;
+
+            if (bytesFresh != bytesShared) {
+                throw new IllegalStateException("Outputs differ: " + bytesFresh + " vs " + bytesShared + " bytes");
+            }
+            System.out.println(String.format("  round %d: new mapper %.1f ms | shared writer %.1f ms | %.1fx",
+                round, freshNanos / 1e6, sharedNanos / 1e6, (double) freshNanos / Math.max(1, sharedNanos)));
+        }
+    }
+}
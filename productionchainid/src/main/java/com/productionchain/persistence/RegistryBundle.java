@@ -0,0 +1,441 @@
+package com.productionchain.persistence;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+import com.fasterxml.jackson.core.PrettyPrinter;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.productionchain.buildings.BuildingType;
+import com.productionchain.buildings.BuildingTypeRegistry;
+import com.productionchain.enginedatatypes.IngredientsList;
+import com.productionchain.enginedatatypes.ItemRegistry;
+import com.productionchain.enginedatatypes.ItemType;
+import com.productionchain.enginedatatypes.Recipe;
+import com.productionchain.enginedatatypes.RecipeRegistry;
+import com.productionchain.mechanics.AnimalType;
+import com.productionchain.mechanics.AnimalTypeRegistry;
+
+
+/**
+ * Every registry (items, recipes, animal types, building types) compiled into one read-only file
+ * that is memory mapped at startup instead of parsing four JSON files.
+ *
+ * Opening a bundle only maps the file and reads a fixed header, so it costs the same however many
+ * entries there are. An entry is decoded the first time it is asked for and kept; the rest of the
+ * file is never touched. Names are found by binary search over a sorted index and categories through
+ * a precomputed category -> entries table, both read straight from the mapped buffer.
+ *
+ * Each section keeps the registry's load order: an entry's id is its position in that order.
+ * Those are bundle ids only; they are not ItemRegistry item ids, so map names through
+ * ItemRegistry.getItemId before indexing storages or recipes with them.
+ *
+ * The bundle is a separate, read-only lookup API. It does not fill ItemRegistry, RecipeRegistry,
+ * AnimalTypeRegistry or BuildingTypeRegistry, which still load their JSON at startup; code that
+ * only needs lookups (tools, servers answering queries) can open a bundle instead of the registries.
+ *
+ * Layout (big endian, offsets are ints from the start of the file):
+ *   header  : "PCRB", version, section count, offset of each section, string table, blob area
+ *   section : count
+ *             entries      count x [nameOff, nameLen, categoryOff (-1 = none), categoryLen, blobOff, blobLen]
+ *             byName       count x id, sorted by the UTF-8 bytes of the name
+ *             categories   n, then n x [categoryOff, categoryLen, first, size] sorted by category
+ *             members      ids grouped by category (load order inside each category)
+ *   strings : every name and category once, UTF-8
+ *   blobs   : each entry as compact JSON (item types field by field, see ITEM_WRITER)
+ *
+ * Build step: RegistryBundle <out.bundle> <items.json> <recipes.json> <animals.json> <buildings.json>
+ * Runtime:    RegistryBundle bundle = RegistryBundle.open(file); bundle.getRecipeByName("Charcoal");
+ */
+public final class RegistryBundle {
+
+    static final byte[] MAGIC = { 'P', 'C', 'R', 'B' };
+    public static final int FORMAT_VERSION = 1;
+
+    private static final int SECTION_ITEMS     = 0;
+    private static final int SECTION_RECIPES   = 1;
+    private static final int SECTION_ANIMALS   = 2;
+    private static final int SECTION_BUILDINGS = 3;
+    private static final int SECTION_COUNT     = 4;
+
+    private static final int ENTRY_INTS = 6;
+    private static final int CATEGORY_INTS = 4;
+
+    /** ItemType getters don't use the names its creator reads (storage_space, how_long_to_go_bad...),
+     *  so item types are written field by field to come back unchanged */
+    private static final ObjectWriter ITEM_WRITER = JsonPersistence.fieldWriter().with((PrettyPrinter) null);
+
+    private final ByteBuffer buffer;
+    private final int stringsOffset;
+    private final int blobsOffset;
+    private final Section<ItemType> items;
+    private final Section<Recipe> recipes;
+    private final Section<AnimalType> animals;
+    private final Section<BuildingType> buildings;
+
+
+    private RegistryBundle(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (buffer.get(i) != MAGIC[i]) throw new IOException("Not a registry bundle");
+        }
+        int version = buffer.getInt(4);
+        if (version > FORMAT_VERSION) {
+            throw new IOException("Registry bundle format " + version + " is newer than this reader (" + FORMAT_VERSION + ")");
+        }
+        if (buffer.getInt(8) != SECTION_COUNT) throw new IOException("Unexpected section count " + buffer.getInt(8));
+        int sectionTable = 12;
+        this.stringsOffset = buffer.getInt(sectionTable + 4 * SECTION_COUNT);
+        this.blobsOffset   = buffer.getInt(sectionTable + 4 * SECTION_COUNT + 4);
+        this.items     = new Section<>(buffer.getInt(sectionTable + 4 * SECTION_ITEMS), ItemType.class);
+        this.recipes   = new Section<>(buffer.getInt(sectionTable + 4 * SECTION_RECIPES), Recipe.class);
+        this.animals   = new Section<>(buffer.getInt(sectionTable + 4 * SECTION_ANIMALS), AnimalType.class);
+        this.buildings = new Section<>(buffer.getInt(sectionTable + 4 * SECTION_BUILDINGS), BuildingType.class);
+    }
+
+    /** Maps the bundle read-only. Nothing is decoded until it is looked up */
+    public static RegistryBundle open(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new RegistryBundle(mapped);   // the mapping stays valid after the channel is closed
+        }
+    }
+
+
+    // LOOKUPS (same names as the registries)
+    public Section<ItemType> items() { return items; }
+    public Section<Recipe> recipes() { return recipes; }
+    public Section<AnimalType> animals() { return animals; }
+    public Section<BuildingType> buildings() { return buildings; }
+
+    public ItemType getItemByName(String name) { return items.get(name); }
+    public Recipe getRecipeByName(String name) { return recipes.get(name); }
+    public List<Recipe> getRecipesByCategory(String category) { return recipes.getByCategory(category); }
+    public AnimalType getAnimalByName(String name) { return animals.get(name); }
+    public BuildingType getBuildingByName(String name) { return buildings.get(name); }
+
+
+
+    /**
+     * One registry inside the bundle. Ids are positions in the registry's load order.
+     * Decoded entries are cached, so every lookup of the same entry returns the same object.
+     */
+    public final class Section<T> {
+        private final Class<T> type;
+        private final int count;
+        private final int entries;      // offset of the entry table
+        private final int byName;       // offset of the sorted id list
+        private final int categoryCount;
+        private final int categories;   // offset of the category table
+        private final int members;      // offset of the grouped id list
+        private final AtomicReferenceArray<T> decoded;
+
+        private Section(int offset, Class<T> type) {
+            this.type = type;
+            this.count = buffer.getInt(offset);
+            this.entries = offset + 4;
+            this.byName = entries + 4 * ENTRY_INTS * count;
+            this.categoryCount = buffer.getInt(byName + 4 * count);
+            this.categories = byName + 4 * count + 4;
+            this.members = categories + 4 * CATEGORY_INTS * categoryCount;
+            this.decoded = new AtomicReferenceArray<>(count);
+        }
+
+        public int size() {
+            return count;
+        }
+
+        public String getName(int id) {
+            return string(entryInt(id, 0), entryInt(id, 1));
+        }
+
+        /** Category of the entry, or null if it has none */
+        public String getCategory(int id) {
+            int off = entryInt(id, 2);
+            return (off < 0) ? null : string(off, entryInt(id, 3));
+        }
+
+        /** Id of the entry with this name, or -1 */
+        public int indexOf(String name) {
+            if (name == null) return -1;
+            byte[] key = name.getBytes(StandardCharsets.UTF_8);
+            int low = 0, high = count - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int id = buffer.getInt(byName + 4 * mid);
+                int cmp = compare(entryInt(id, 0), entryInt(id, 1), key);
+                if (cmp < 0) low = mid + 1;
+                else if (cmp > 0) high = mid - 1;
+                else return id;
+            }
+            return -1;
+        }
+
+        public boolean contains(String name) {
+            return indexOf(name) >= 0;
+        }
+
+        /** Entry with this name, or null */
+        public T get(String name) {
+            int id = indexOf(name);
+            return (id < 0) ? null : get(id);
+        }
+
+        /** Entry with this id, decoded on first use */
+        public T get(int id) {
+            T value = decoded.get(id);
+            if (value == null) {
+                value = decode(id);
+                if (!decoded.compareAndSet(id, null, value)) value = decoded.get(id);
+            }
+            return value;
+        }
+
+        /** Entries of this category in load order (empty list if none) */
+        public List<T> getByCategory(String category) {
+            if (category == null) return Collections.emptyList();
+            byte[] key = category.getBytes(StandardCharsets.UTF_8);
+            int low = 0, high = categoryCount - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int record = categories + 4 * CATEGORY_INTS * mid;
+                int cmp = compare(buffer.getInt(record), buffer.getInt(record + 4), key);
+                if (cmp < 0) low = mid + 1;
+                else if (cmp > 0) high = mid - 1;
+                else {
+                    int first = buffer.getInt(record + 8), size = buffer.getInt(record + 12);
+                    List<T> result = new ArrayList<>(size);
+                    for (int i = 0; i < size; i++) result.add(get(buffer.getInt(members + 4 * (first + i))));
+                    return Collections.unmodifiableList(result);
+                }
+            }
+            return Collections.emptyList();
+        }
+
+        /** Every entry in load order (decodes them all) */
+        public List<T> getAll() {
+            List<T> result = new ArrayList<>(count);
+            for (int id = 0; id < count; id++) result.add(get(id));
+            return Collections.unmodifiableList(result);
+        }
+
+        private T decode(int id) {
+            byte[] json = bytes(blobsOffset + entryInt(id, 4), entryInt(id, 5));
+            try {
+                return JsonPersistence.reader(type).readValue(json);
+            } catch (IOException e) {
+                throw new IllegalStateException("Corrupt " + type.getSimpleName() + " '" + getName(id) + "' in registry bundle", e);
+            }
+        }
+
+        private int entryInt(int id, int field) {
+            if (id < 0 || id >= count) throw new IndexOutOfBoundsException("id " + id + ", size " + count);
+            return buffer.getInt(entries + 4 * (ENTRY_INTS * id + field));
+        }
+    }
+
+
+    private String string(int off, int len) {
+        return new String(bytes(stringsOffset + off, len), StandardCharsets.UTF_8);
+    }
+
+    private byte[] bytes(int position, int len) {
+        byte[] result = new byte[len];
+        ByteBuffer view = buffer.duplicate();   // own position, so concurrent readers don't interfere
+        view.position(position);
+        view.get(result);
+        return result;
+    }
+
+    /** Unsigned byte order of a string in the table against key (same order the index was sorted in) */
+    private int compare(int off, int len, byte[] key) {
+        int base = stringsOffset + off;
+        int n = Math.min(len, key.length);
+        for (int i = 0; i < n; i++) {
+            int cmp = (buffer.get(base + i) & 0xFF) - (key[i] & 0xFF);
+            if (cmp != 0) return cmp;
+        }
+        return len - key.length;
+    }
+
+
+
+    // COMPILING ====================================================================================
+    /** Writes the current contents of the four registries to a bundle */
+    public static void compile(File file) throws IOException {
+        compile(file, ItemRegistry.getItemTypes().values(), RecipeRegistry.getRecipes(),
+            AnimalTypeRegistry.getAnimalTypes(), BuildingTypeRegistry.getBuildingTypes().values());
+    }
+
+    public static void compile(File file, Collection<ItemType> itemTypes, Collection<Recipe> recipes,
+                               Collection<AnimalType> animalTypes, Collection<? extends BuildingType> buildingTypes) throws IOException {
+        Compiler compiler = new Compiler();
+        List<byte[]> sections = new ArrayList<>();
+        sections.add(compiler.section(itemTypes, ITEM_WRITER, ItemType::getName, ItemType::getCategory));
+        sections.add(compiler.section(recipes, JsonPersistence.compactWriter(Recipe.class), Recipe::getName, Recipe::getCategory));
+        sections.add(compiler.section(animalTypes, JsonPersistence.compactWriter(AnimalType.class), AnimalType::getName, a -> null));
+        sections.add(compiler.section(new ArrayList<BuildingType>(buildingTypes), JsonPersistence.compactWriter(BuildingType.class),
+            BuildingType::getName, BuildingType::getCategory));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.write(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(SECTION_COUNT);
+        int offset = 12 + 4 * SECTION_COUNT + 8;
+        for (byte[] section : sections) {
+            out.writeInt(offset);
+            offset += section.length;
+        }
+        out.writeInt(offset);                               // strings
+        out.writeInt(offset + compiler.strings.size());     // blobs
+        for (byte[] section : sections) out.write(section);
+        compiler.strings.writeTo(out);
+        compiler.blobs.writeTo(out);
+        out.flush();
+        Files.write(file.toPath(), bytes.toByteArray());
+    }
+
+    private static final class Compiler {
+        final ByteArrayOutputStream strings = new ByteArrayOutputStream();
+        final ByteArrayOutputStream blobs = new ByteArrayOutputStream();
+        private final Map<String, Integer> stringOffsets = new LinkedHashMap<>();
+
+        <T> byte[] section(Collection<? extends T> values, ObjectWriter writer, Function<T, String> name, Function<T, String> category) throws IOException {
+            List<T> list = new ArrayList<>(values);
+            int count = list.size();
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+
+            out.writeInt(count);
+            Map<String, List<Integer>> byCategory = new LinkedHashMap<>();
+            for (int id = 0; id < count; id++) {
+                T value = list.get(id);
+                byte[] nameBytes = utf8(name.apply(value));
+                out.writeInt(string(name.apply(value)));
+                out.writeInt(nameBytes.length);
+                String cat = category.apply(value);
+                out.writeInt(cat == null ? -1 : string(cat));
+                out.writeInt(cat == null ? 0 : utf8(cat).length);
+                byte[] json = writer.writeValueAsBytes(value);
+                out.writeInt(blobs.size());
+                out.writeInt(json.length);
+                blobs.write(json);
+                if (cat != null) byCategory.computeIfAbsent(cat, c -> new ArrayList<>()).add(id);
+            }
+
+            Integer[] sorted = new Integer[count];
+            for (int id = 0; id < count; id++) sorted[id] = id;
+            Comparator<byte[]> utf8Order = RegistryBundle::compareBytes;
+            Arrays.sort(sorted, Comparator.comparing((Integer id) -> utf8(name.apply(list.get(id))), utf8Order));
+            for (int id : sorted) out.writeInt(id);
+
+            List<String> categoryNames = new ArrayList<>(byCategory.keySet());
+            categoryNames.sort(Comparator.comparing(RegistryBundle::utf8, utf8Order));
+            out.writeInt(categoryNames.size());
+            int first = 0;
+            for (String cat : categoryNames) {
+                out.writeInt(string(cat));
+                out.writeInt(utf8(cat).length);
+                out.writeInt(first);
+                out.writeInt(byCategory.get(cat).size());
+                first += byCategory.get(cat).size();
+            }
+            for (String cat : categoryNames) {
+                for (int id : byCategory.get(cat)) out.writeInt(id);
+            }
+            out.flush();
+            return bytes.toByteArray();
+        }
+
+        /** Offset of the string in the table, adding it the first time */
+        private int string(String value) {
+            Integer off = stringOffsets.get(value);
+            if (off == null) {
+                off = strings.size();
+                byte[] b = utf8(value);
+                strings.write(b, 0, b.length);
+                stringOffsets.put(value, off);
+            }
+            return off;
+        }
+    }
+
+    private static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int compareBytes(byte[] a, byte[] b) {
+        int n = Math.min(a.length, b.length);
+        for (int i = 0; i < n; i++) {
+            int cmp = (a[i] & 0xFF) - (b[i] & 0xFF);
+            if (cmp != 0) return cmp;
+        }
+        return a.length - b.length;
+    }
+
+
+
+    /**
+     * With 5 arguments: compiles the four registry JSON files into a bundle.
+     *   RegistryBundle <out.bundle> <items.json> <recipes.json> <animals.json> <buildings.json>
+     * Otherwise: builds a synthetic mod-sized data set and compares loading the JSON against
+     * opening the bundle and looking one recipe up.
+     *   RegistryBundle [recipes]   (default 50000)
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 5) {
+            ItemRegistry.loadFromJson(args[1]);
+            RecipeRegistry.loadFromJson(args[2]);
+            AnimalTypeRegistry.loadFromJson(args[3]);
+            BuildingTypeRegistry.loadFromJson(args[4]);
+            compile(new File(args[0]));
+            System.out.println("Registry bundle written to " + args[0]);
+            return;
+        }
+
+        int entries = (args.length > 0) ? Integer.parseInt(args[0]) : 50_000;
+        List<Recipe> recipeList = new ArrayList<>();
+        for (int i = 0; i < entries; i++) {
+            recipeList.add(new Recipe("Recipe" + i, "Category" + (i % 50), "--", 1, 1, new IngredientsList(), new IngredientsList(), 1.0, true));
+        }
+        File recipesJson = File.createTempFile("recipes", ".json");
+        File bundleFile = File.createTempFile("registries", ".bundle");
+        JsonPersistence.write(recipesJson, recipeList);
+        compile(bundleFile, Collections.emptyList(), recipeList, Collections.emptyList(), Collections.emptyList());
+
+        for (int round = 1; round <= 3; round++) {
+            long start = System.nanoTime();
+            List<Recipe> parsed = JsonPersistence.read(recipesJson, JsonPersistence.listOf(Recipe.class));
+            long jsonNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            RegistryBundle bundle = open(bundleFile);
+            Recipe recipe = bundle.getRecipeByName("Recipe" + (entries / 2));
+            long bundleNanos = System.nanoTime() - start;
+
+            System.out.println(String.format("  round %d: parse %d recipes from JSON %.1f ms | open bundle + lookup %.3f ms (%s)",
+                round, parsed.size(), jsonNanos / 1e6, bundleNanos / 1e6, recipe.getName()));
+        }
+        System.out.println(String.format("JSON %.1f MB, bundle %.1f MB", recipesJson.length() / 1e6, bundleFile.length() / 1e6));
+        recipesJson.delete();
+        bundleFile.delete();
+    }
+}
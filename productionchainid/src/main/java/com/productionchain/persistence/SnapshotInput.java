@@ -0,0 +1,111 @@
+package com.productionchain.persistence;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+
+/**
+ * Buffered binary reader over a channel (usually a FileChannel), the counterpart of SnapshotOutput.
+ *
+ * Reads into one direct ByteBuffer and refills it from the channel when a value doesn't fit in
+ * what is left. A file that ends in the middle of a value throws EOFException.
+ *
+ * The channel belongs to the caller.
+ */
+public final class SnapshotInput {
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer;
+    private long read;      // bytes read from the channel so far
+
+
+    public SnapshotInput(ReadableByteChannel channel) {
+        this(channel, SnapshotOutput.DEFAULT_BUFFER_SIZE);
+    }
+
+    public SnapshotInput(ReadableByteChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(Math.max(16, bufferSize));
+        this.buffer.limit(0);
+    }
+
+
+    // VALUES
+    public int readByte() throws IOException {
+        require(1);
+        return buffer.get() & 0xFF;
+    }
+
+    public long readLong() throws IOException {
+        require(8);
+        return buffer.getLong();
+    }
+
+    public double readDouble() throws IOException {
+        require(8);
+        return buffer.getDouble();
+    }
+
+    public long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    public int readVarInt() throws IOException {
+        long value = readVarLong();
+        if (value > 0xFFFFFFFFL) throw new IOException("Varint too large for an int: " + value);
+        return (int) value;
+    }
+
+    public long readZigZag() throws IOException {
+        long value = readVarLong();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    public byte[] readBytes() throws IOException {
+        int length = readVarInt();
+        if (length < 0) throw new IOException("Negative length: " + length);
+        byte[] bytes = new byte[length];
+        int offset = 0;
+        while (offset < length) {
+            if (!buffer.hasRemaining()) require(1);
+            int n = Math.min(buffer.remaining(), length - offset);
+            buffer.get(bytes, offset, n);
+            offset += n;
+        }
+        return bytes;
+    }
+
+    public String readString() throws IOException {
+        return new String(readBytes(), StandardCharsets.UTF_8);
+    }
+
+
+    /** Bytes consumed so far (read from the channel minus what is still buffered) */
+    public long position() {
+        return read - buffer.remaining();
+    }
+
+    /** Makes sure at least this many bytes are buffered */
+    private void require(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) return;
+        buffer.compact();
+        while (buffer.position() < bytes) {
+            int n = channel.read(buffer);
+            if (n < 0) {
+                buffer.flip();
+                throw new EOFException("Snapshot ended early");
+            }
+            read += n;
+        }
+        buffer.flip();
+    }
+}
@@ -0,0 +1,119 @@
+package com.productionchain.persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+
+/**
+ * Buffered binary writer over a channel (usually a FileChannel), for snapshot and journal files.
+ *
+ * Values go into one direct ByteBuffer that is written to the channel whenever it fills up, so
+ * there is no stream layer or byte[] copy in between. Counts, ids and lengths are written as
+ * unsigned LEB128 varints (1 byte below 128), signed values as zigzag varints, doubles as 8 raw
+ * bytes and strings as a varint length followed by their UTF-8 bytes.
+ *
+ * The channel belongs to the caller: flush() before closing it. writeLongAt needs a FileChannel.
+ */
+public final class SnapshotOutput {
+
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+    private long flushed;   // bytes already written to the channel
+
+
+    public SnapshotOutput(WritableByteChannel channel) {
+        this(channel, DEFAULT_BUFFER_SIZE);
+    }
+
+    public SnapshotOutput(WritableByteChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(Math.max(16, bufferSize));
+    }
+
+
+    // VALUES
+    public void writeByte(int value) throws IOException {
+        ensure(1);
+        buffer.put((byte) value);
+    }
+
+    /** Fixed 8 bytes, so it can be patched later with writeLongAt */
+    public void writeLong(long value) throws IOException {
+        ensure(8);
+        buffer.putLong(value);
+    }
+
+    public void writeDouble(double value) throws IOException {
+        ensure(8);
+        buffer.putDouble(value);
+    }
+
+    /** Unsigned varint (value must be >= 0 to stay short) */
+    public void writeVarLong(long value) throws IOException {
+        ensure(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    public void writeVarInt(int value) throws IOException {
+        writeVarLong(value & 0xFFFFFFFFL);
+    }
+
+    /** Signed varint: small negative numbers stay short too */
+    public void writeZigZag(long value) throws IOException {
+        writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    public void writeBytes(byte[] bytes) throws IOException {
+        writeVarInt(bytes.length);
+        int offset = 0;
+        while (offset < bytes.length) {
+            if (!buffer.hasRemaining()) flush();
+            int n = Math.min(buffer.remaining(), bytes.length - offset);
+            buffer.put(bytes, offset, n);
+            offset += n;
+        }
+    }
+
+    public void writeString(String value) throws IOException {
+        writeBytes(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+
+    // POSITION
+    /** Bytes written so far, buffered ones included */
+    public long position() {
+        return flushed + buffer.position();
+    }
+
+    /** Overwrites 8 bytes written earlier with writeLong (e.g. a header field only known at the end) */
+    public void writeLongAt(long position, long value) throws IOException {
+        flush();
+        if (!(channel instanceof FileChannel)) throw new IOException("Can only patch bytes in a file");
+        ByteBuffer patch = ByteBuffer.allocate(8).putLong(value);
+        patch.flip();
+        while (patch.hasRemaining()) {
+            ((FileChannel) channel).write(patch, position + patch.position());
+        }
+    }
+
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            flushed += channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) flush();
+    }
+}
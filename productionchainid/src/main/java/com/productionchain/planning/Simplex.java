@@ -0,0 +1,115 @@
+package com.productionchain.planning;
+
+
+/**
+ * Small dense simplex for the throughput solver: minimises c.x subject to A x = b, x >= 0.
+ *
+ * The caller passes a starting basis that is already feasible (one identity column per row and
+ * b >= 0), so there is no phase one. Pricing is Dantzig's (most negative reduced cost); after a run
+ * of pivots that don't move the solution it switches to Bland's rule so degenerate problems can't cycle.
+ * Pivots skip the zero entries of the pivot row and column, which is most of them for recipe matrices.
+ */
+final class Simplex {
+
+    private static final double EPS = 1e-9;
+    /** Degenerate pivots in a row before switching to Bland's rule */
+    private static final int STALL_LIMIT = 50;
+
+    private Simplex() {}
+
+    /**
+     * @param a     m x n constraint matrix (not modified)
+     * @param b     right-hand side, all >= 0
+     * @param c     cost per column
+     * @param basis basis[i] = a column that is the i-th unit vector. Updated to the optimal basis
+     * @return optimal x (length n)
+     * @throws IllegalStateException if the problem is unbounded or doesn't converge
+     */
+    static double[] minimize(double[][] a, double[] b, double[] c, int[] basis) {
+        int m = b.length;
+        int n = c.length;
+        double[][] t = new double[m + 1][];
+        for (int i = 0; i < m; i++) {
+            t[i] = new double[n + 1];
+            System.arraycopy(a[i], 0, t[i], 0, n);
+            t[i][n] = b[i];
+        }
+        // objective row: reduced costs c_j - c_B B^-1 A_j (B = I at the start), last entry -c_B x_B
+        double[] z = new double[n + 1];
+        System.arraycopy(c, 0, z, 0, n);
+        for (int i = 0; i < m; i++) {
+            double cb = c[basis[i]];
+            if (cb == 0) continue;
+            for (int j = 0; j <= n; j++) z[j] -= cb * t[i][j];
+        }
+        t[m] = z;
+
+        int[] nonZero = new int[n + 1];
+        int maxPivots = 50 * (m + n) + 1000;
+        boolean bland = false;
+        int stalled = 0;
+        for (int pivots = 0; ; pivots++) {
+            if (pivots > maxPivots) throw new IllegalStateException("Simplex did not converge after " + maxPivots + " pivots");
+
+            int enter = -1;
+            double best = -EPS;
+            for (int j = 0; j < n; j++) {
+                if (z[j] < best) {
+                    enter = j;
+                    if (bland) break;
+                    best = z[j];
+                }
+            }
+            if (enter < 0) break;   // optimal
+
+            int leave = -1;
+            double ratio = Double.POSITIVE_INFINITY;
+            for (int i = 0; i < m; i++) {
+                double aij = t[i][enter];
+                if (aij <= EPS) continue;
+                double r = t[i][n] / aij;
+                if (r < ratio - EPS || (r <= ratio + EPS && leave >= 0 && basis[i] < basis[leave])) {
+                    ratio = r;
+                    leave = i;
+                }
+            }
+            if (leave < 0) throw new IllegalStateException("Unbounded: column " + enter + " can grow without limit");
+
+            stalled = (ratio <= EPS) ? stalled + 1 : 0;
+            if (stalled > STALL_LIMIT) bland = true;
+            pivot(t, leave, enter, nonZero);
+            basis[leave] = enter;
+        }
+
+        double[] x = new double[n];
+        for (int i = 0; i < m; i++) {
+            double value = t[i][n];
+            x[basis[i]] = (value > EPS) ? value : 0;
+        }
+        return x;
+    }
+
+    private static void pivot(double[][] t, int row, int col, int[] nonZero) {
+        double[] pivotRow = t[row];
+        int width = pivotRow.length;
+        double inverse = 1.0 / pivotRow[col];
+        int count = 0;
+        for (int j = 0; j < width; j++) {
+            if (pivotRow[j] == 0) continue;
+            pivotRow[j] *= inverse;
+            nonZero[count++] = j;
+        }
+        pivotRow[col] = 1.0;
+        for (int i = 0; i < t.length; i++) {
+            if (i == row) continue;
+            double[] target = t[i];
+            double factor = target[col];
+            if (factor == 0) continue;
+            for (int k = 0; k < count; k++) {
+                int j = nonZero[k];
+                target[j] -= factor * pivotRow[j];
+            }
+            target[col] = 0.0;
+        }
+    }
+}
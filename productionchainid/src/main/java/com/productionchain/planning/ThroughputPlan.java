@@ -0,0 +1,179 @@
+package com.productionchain.planning;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.productionchain.buildings.BuildingType;
+import com.productionchain.enginedatatypes.IngredientPair;
+import com.productionchain.enginedatatypes.Recipe;
+
+
+/**
+ * What ThroughputSolver worked out for a set of target rates: how often each recipe has to run per
+ * turn and on how many buildings, what has to come in from outside (items no recipe makes), what
+ * is left over, and any shortfall the recipes couldn't cover.
+ *
+ * Rates are items per turn. Building counts are rounded up per recipe; getBuildings() on each
+ * recipe has the exact fraction.
+ */
+public class ThroughputPlan {
+
+    private static final double EPS = 1e-9;
+
+    private final Map<String, Double> targets;
+    private final List<RecipeRate> recipes;
+    private final Map<String, Double> inputs;
+    private final Map<String, Double> byproducts;
+    private final Map<String, Double> shortfalls;
+    private final long solveNanos;
+
+
+    ThroughputPlan(Map<String, Double> targets, List<RecipeRate> recipes, Map<String, Double> inputs,
+                   Map<String, Double> byproducts, Map<String, Double> shortfalls, long solveNanos) {
+        this.targets = Collections.unmodifiableMap(targets);
+        this.recipes = Collections.unmodifiableList(recipes);
+        this.inputs = Collections.unmodifiableMap(inputs);
+        this.byproducts = Collections.unmodifiableMap(byproducts);
+        this.shortfalls = Collections.unmodifiableMap(shortfalls);
+        this.solveNanos = solveNanos;
+    }
+
+
+    /** Target item -> rate asked for */
+    public Map<String, Double> getTargets() { return targets; }
+    /** Recipes that run, each with the building type chosen for it */
+    public List<RecipeRate> getRecipes() { return recipes; }
+    /** Items no usable recipe makes -> rate they have to be brought in at */
+    public Map<String, Double> getInputs() { return inputs; }
+    /** Items made beyond what is needed -> surplus rate */
+    public Map<String, Double> getByproducts() { return byproducts; }
+    /** Items recipes could make but not in the amounts needed (a loop that loses more than it makes) -> missing rate */
+    public Map<String, Double> getShortfalls() { return shortfalls; }
+    /** True if the recipes cover the targets with only raw inputs brought in */
+    public boolean isFeasible() { return shortfalls.isEmpty(); }
+    public long getSolveNanos() { return solveNanos; }
+
+    /** Recipe runs per turn of a recipe in the plan (0 if it doesn't run) */
+    public double getRunsPerTurn(String recipeName) {
+        for (RecipeRate rate : recipes) {
+            if (rate.getRecipe().getName().equals(recipeName)) return rate.getRunsPerTurn();
+        }
+        return 0;
+    }
+
+    /** Buildings needed per building type name (whole buildings, recipes rounded up separately) */
+    public Map<String, Integer> getBuildingCounts() {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (RecipeRate rate : recipes) counts.merge(rate.getBuildingType().getName(), rate.getBuildingCount(), Integer::sum);
+        return counts;
+    }
+
+    public int getTotalBuildings() {
+        int total = 0;
+        for (RecipeRate rate : recipes) total += rate.getBuildingCount();
+        return total;
+    }
+
+
+    /** One recipe of the plan */
+    public static class RecipeRate {
+        private final Recipe recipe;
+        private final BuildingType buildingType;
+        private final double runsPerTurn;
+        private final double buildings;
+
+        RecipeRate(Recipe recipe, BuildingType buildingType, double runsPerTurn, double buildings) {
+            this.recipe = recipe;
+            this.buildingType = buildingType;
+            this.runsPerTurn = runsPerTurn;
+            this.buildings = buildings;
+        }
+
+        public Recipe getRecipe() { return recipe; }
+        public BuildingType getBuildingType() { return buildingType; }
+        public double getRunsPerTurn() { return runsPerTurn; }
+        /** Exact number of buildings (fractional) */
+        public double getBuildings() { return buildings; }
+        public int getBuildingCount() { return (int) Math.ceil(buildings - EPS); }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %.3f runs/turn on %d x %s", recipe.getName(), runsPerTurn, getBuildingCount(), buildingType.getName());
+        }
+    }
+
+
+    // PRINTING
+
+    /** Requirement tree from each target down to the inputs, then the totals */
+    public String toText() {
+        Map<String, List<RecipeRate>> producers = new LinkedHashMap<>();
+        Map<String, Double> produced = new LinkedHashMap<>();
+        for (RecipeRate rate : recipes) {
+            for (IngredientPair output : rate.getRecipe().getOutputslist().getIngredientslist()) {
+                producers.computeIfAbsent(output.getItem_name(), k -> new ArrayList<>()).add(rate);
+                produced.merge(output.getItem_name(), rate.getRunsPerTurn() * expected(output), Double::sum);
+            }
+        }
+
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<String, Double> target : targets.entrySet()) {
+            appendItem(text, target.getKey(), target.getValue(), 0, producers, produced, new HashSet<>());
+        }
+        text.append(String.format("Buildings: %d %s%n", getTotalBuildings(), getBuildingCounts()));
+        appendRates(text, "Inputs", inputs);
+        appendRates(text, "Byproducts", byproducts);
+        appendRates(text, "Shortfalls", shortfalls);
+        return text.toString();
+    }
+
+    private static void appendItem(StringBuilder text, String item, double rate, int depth,
+                                   Map<String, List<RecipeRate>> producers, Map<String, Double> produced, Set<String> path) {
+        indent(text, depth).append(String.format("%s %.3f/turn", item, rate));
+        List<RecipeRate> made = producers.get(item);
+        if (made == null) { text.append(" (input)\n"); return; }
+        if (!path.add(item)) { text.append(" (loop)\n"); return; }
+        text.append('\n');
+        double total = produced.get(item);
+        double scale = (total > EPS) ? rate / total : 0;   // this branch's share of everything made of the item
+        for (RecipeRate producer : made) {
+            double runs = producer.getRunsPerTurn() * scale;
+            if (runs <= EPS) continue;
+            indent(text, depth + 1).append(String.format("<- %s, %.3f runs/turn (%.2f x %s)%n", producer.getRecipe().getName(), runs,
+                producer.getBuildings() * scale, producer.getBuildingType().getName()));
+            if (producer.getRecipe().getIngredientslist() == null) continue;
+            for (IngredientPair ingredient : producer.getRecipe().getIngredientslist().getIngredientslist()) {
+                appendItem(text, ingredient.getItem_name(), runs * ingredient.getCount(), depth + 2, producers, produced, path);
+            }
+        }
+        path.remove(item);
+    }
+
+    private static void appendRates(StringBuilder text, String label, Map<String, Double> rates) {
+        if (rates.isEmpty()) return;
+        text.append(label).append(':');
+        rates.forEach((item, rate) -> text.append(String.format(" %s %.3f/turn", item, rate)));
+        text.append('\n');
+    }
+
+    private static StringBuilder indent(StringBuilder text, int depth) {
+        for (int i = 0; i < depth; i++) text.append("  ");
+        return text;
+    }
+
+    /** Expected amount of an output per run (count x probability) */
+    static double expected(IngredientPair output) {
+        return output.getCount() * output.getProbability();
+    }
+
+    @Override
+    public String toString() {
+        return "ThroughputPlan{targets=" + targets + ", buildings=" + getBuildingCounts() + ", inputs=" + inputs
+            + (shortfalls.isEmpty() ? "" : ", shortfalls=" + shortfalls) + "}";
+    }
+}
@@ -0,0 +1,335 @@
+package com.productionchain.planning;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.productionchain.buildings.BuildingType;
+import com.productionchain.buildings.BuildingTypeRegistry;
+import com.productionchain.enginedatatypes.IngredientPair;
+import com.productionchain.enginedatatypes.ItemRegistry;
+import com.productionchain.enginedatatypes.ProductionGraph;
+import com.productionchain.enginedatatypes.Recipe;
+import com.productionchain.enginedatatypes.RecipeRegistry;
+import com.productionchain.mechanics.RecipeHandler;
+
+
+/**
+ * Works out how many buildings, and which raw inputs, it takes to make target items at a given
+ * rate per turn ("how many Kilns and Huts for 10 Coal per turn?").
+ *
+ * Only the recipes upstream of the targets are looked at (walked through the ProductionGraph). A
+ * recipe runs on the building type that can run its category fastest:
+ *   runs per turn per building = baseNumOperations x baseEfficiency / duration
+ * (an unset efficiency or duration counts as 1). Outputs count as count x probability per run.
+ *
+ * When every item has one recipe and nothing loops, the rates are pushed back from the targets in
+ * topological order. Otherwise (alternative recipes, loops such as charcoal feeding its own kiln)
+ * it solves a linear program: run rates x >= 0 with, for every made item,
+ *   made - used + brought in - surplus = target
+ * minimising buildings (plus a tiny weight on raw inputs, to break ties). Bringing in an item that
+ * recipes could make costs far more than any building count, so it only happens when the recipes
+ * can't cover the need; the plan lists those as shortfalls.
+ *
+ * The solver keeps no state between calls, so one instance can be shared.
+ */
+public class ThroughputSolver {
+
+    private static final double EPS = 1e-9;
+    /** Balance left over below this is rounding */
+    private static final double TOLERANCE = 1e-6;
+    /** LP cost per unit of a makeable item that has to be brought in */
+    private static final double SHORTFALL_COST = 1e6;
+
+    private final ProductionGraph graph;
+    /** Fastest building type per recipe category */
+    private final Map<String, BuildingType> buildingByCategory = new HashMap<>();
+    private double inputWeight = 1e-6;
+
+
+    public ThroughputSolver(ProductionGraph graph, Collection<? extends BuildingType> buildingTypes) {
+        this.graph = graph;
+        for (BuildingType type : buildingTypes) {
+            RecipeHandler handler = type.getRecipeHandler();
+            if (handler == null || handler.getBaseRecipeCategories() == null) continue;
+            for (String category : handler.getBaseRecipeCategories()) {
+                BuildingType best = buildingByCategory.get(category);
+                if (best == null || runsPerTurn(type, 1) > runsPerTurn(best, 1)) buildingByCategory.put(category, type);
+            }
+        }
+    }
+
+    /** Solver over the current RecipeRegistry and BuildingTypeRegistry */
+    public static ThroughputSolver fromRegistries() {
+        return new ThroughputSolver(RecipeRegistry.getProductionGraph(), BuildingTypeRegistry.getBuildingTypes().values());
+    }
+
+    /** Weight of one raw input per turn against one building, used to choose between otherwise equal plans */
+    public void setInputWeight(double inputWeight) { this.inputWeight = inputWeight; }
+    public double getInputWeight() { return inputWeight; }
+
+
+    /** Recipe runs per turn of one building of this type */
+    public static double runsPerTurn(BuildingType type, Recipe recipe) {
+        return runsPerTurn(type, recipe.getDuration());
+    }
+
+    private static double runsPerTurn(BuildingType type, double duration) {
+        double operations = Math.max(1, type.getRecipeHandler().getBaseNumOperations());
+        double efficiency = (type.getbaseEfficiency() > 0) ? type.getbaseEfficiency() : 1;
+        return operations * efficiency / ((duration > 0) ? duration : 1);
+    }
+
+    /** Building type the recipe would run on, or null if no building can run it */
+    public BuildingType getBuildingFor(Recipe recipe) {
+        return buildingByCategory.get(recipe.getCategory());
+    }
+
+
+    // SOLVING
+
+    public ThroughputPlan solve(String itemName, double perTurn) {
+        return solve(Collections.singletonMap(itemName, perTurn));
+    }
+
+    /** Plan for several targets at once (item name -> rate per turn), sharing intermediate production.
+     *  Throws IllegalArgumentException for a rate that is negative or not finite, or an item no registry
+     *  or recipe knows */
+    public ThroughputPlan solve(Map<String, Double> targets) {
+        long start = System.nanoTime();
+        Subgraph sub = new Subgraph();
+        for (Map.Entry<String, Double> target : targets.entrySet()) {
+            Double rate = target.getValue();
+            if (rate == null || !Double.isFinite(rate) || rate < 0) {
+                throw new IllegalArgumentException("Target rate for " + target.getKey() + " must be finite and >= 0, was " + rate);
+            }
+            int itemId = ItemRegistry.findItemId(target.getKey());
+            if (itemId < 0) throw new IllegalArgumentException("Unknown target item " + target.getKey());
+            int row = sub.row(itemId);
+            sub.target[row] += target.getValue();
+            sub.explore(row);
+        }
+        sub.walk();
+
+        double[] runs = null;
+        if (!sub.hasChoices) runs = pushBack(sub);
+        if (runs == null) runs = linearProgram(sub);
+        return plan(sub, new LinkedHashMap<>(targets), runs, System.nanoTime() - start);
+    }
+
+
+    /** The items and usable recipes upstream of the targets. Rows are items, columns recipes */
+    private final class Subgraph {
+        final Map<Integer, Integer> rowOf = new HashMap<>();
+        final List<Integer> items = new ArrayList<>();
+        double[] target = new double[16];
+        boolean[] explored = new boolean[16];
+        boolean[] makeable = new boolean[16];
+        final ArrayDeque<Integer> queue = new ArrayDeque<>();
+
+        final Map<Recipe, Integer> columnOf = new IdentityHashMap<>();
+        final List<Recipe> recipes = new ArrayList<>();
+        final List<BuildingType> buildings = new ArrayList<>();
+        /** Per column: ingredient rows and amounts, output rows and expected amounts */
+        final List<int[]> inRows = new ArrayList<>();
+        final List<double[]> inAmounts = new ArrayList<>();
+        final List<int[]> outRows = new ArrayList<>();
+        final List<double[]> outAmounts = new ArrayList<>();
+        boolean hasChoices;
+
+        int row(int itemId) {
+            Integer row = rowOf.get(itemId);
+            if (row != null) return row;
+            int newRow = items.size();
+            rowOf.put(itemId, newRow);
+            items.add(itemId);
+            if (newRow == target.length) {
+                target = Arrays.copyOf(target, newRow * 2);
+                explored = Arrays.copyOf(explored, newRow * 2);
+                makeable = Arrays.copyOf(makeable, newRow * 2);
+            }
+            return newRow;
+        }
+
+        void explore(int row) {
+            if (explored[row]) return;
+            explored[row] = true;
+            queue.add(row);
+        }
+
+        void walk() {
+            while (!queue.isEmpty()) {
+                int row = queue.poll();
+                int producers = 0;
+                for (Recipe recipe : graph.getProducers(items.get(row))) {
+                    BuildingType building = getBuildingFor(recipe);
+                    if (building == null) continue;
+                    producers++;
+                    if (columnOf.containsKey(recipe)) continue;
+                    columnOf.put(recipe, recipes.size());
+                    recipes.add(recipe);
+                    buildings.add(building);
+                    List<IngredientPair> ingredients = (recipe.getIngredientslist() == null)
+                        ? Collections.emptyList() : recipe.getIngredientslist().getIngredientslist();
+                    addSide(ingredients, false, inRows, inAmounts);
+                    addSide(recipe.getOutputslist().getIngredientslist(), true, outRows, outAmounts);
+                    for (int in : inRows.get(inRows.size() - 1)) explore(in);
+                    for (int out : outRows.get(outRows.size() - 1)) makeable[out] = true;
+                }
+                if (producers > 1) hasChoices = true;
+            }
+        }
+
+        /** Rows and amounts of one side of a recipe, an item listed twice merged into one entry */
+        private void addSide(List<IngredientPair> pairs, boolean outputs, List<int[]> rowLists, List<double[]> amountLists) {
+            int[] rows = new int[pairs.size()];
+            double[] amounts = new double[pairs.size()];
+            int n = 0;
+            for (IngredientPair pair : pairs) {
+                int row = row(pair.getItemId());
+                double amount = outputs ? ThroughputPlan.expected(pair) : pair.getCount();
+                int k = 0;
+                while (k < n && rows[k] != row) k++;
+                if (k == n) rows[n++] = row;
+                amounts[k] += amount;
+            }
+            rowLists.add(Arrays.copyOf(rows, n));
+            amountLists.add(Arrays.copyOf(amounts, n));
+        }
+
+        double rate(int column) {
+            return runsPerTurn(buildings.get(column), recipes.get(column));
+        }
+    }
+
+
+    /** One recipe per item and no loops: walk back from the targets in reverse topological order.
+     *  Returns null if the subgraph has a loop */
+    private double[] pushBack(Subgraph sub) {
+        int m = sub.items.size();
+        int n = sub.recipes.size();
+        int[] producerOf = new int[m];
+        Arrays.fill(producerOf, -1);
+        List<List<Integer>> consumersOf = new ArrayList<>(m);
+        for (int i = 0; i < m; i++) consumersOf.add(new ArrayList<>(2));
+        int[] indegree = new int[m];
+        for (int r = 0; r < n; r++) {
+            for (int out : sub.outRows.get(r)) producerOf[out] = r;
+            for (int in : sub.inRows.get(r)) consumersOf.get(in).add(r);
+            for (int out : sub.outRows.get(r)) indegree[out] += sub.inRows.get(r).length;
+        }
+
+        // Kahn over item -> item edges (ingredient -> output of the same recipe)
+        int[] order = new int[m];
+        int head = 0, tail = 0;
+        for (int i = 0; i < m; i++) if (indegree[i] == 0) order[tail++] = i;
+        while (head < tail) {
+            int item = order[head++];
+            for (int r : consumersOf.get(item)) {
+                for (int out : sub.outRows.get(r)) {
+                    if (--indegree[out] == 0) order[tail++] = out;
+                }
+            }
+        }
+        if (tail < m) return null;   // loop
+
+        double[] runs = new double[n];
+        for (int k = m - 1; k >= 0; k--) {
+            int item = order[k];
+            double need = sub.target[item];
+            for (int r : consumersOf.get(item)) need += runs[r] * amount(sub.inRows.get(r), sub.inAmounts.get(r), item);
+            int producer = producerOf[item];
+            if (producer < 0 || need <= EPS) continue;
+            double perRun = amount(sub.outRows.get(producer), sub.outAmounts.get(producer), item);
+            if (perRun > EPS) runs[producer] = Math.max(runs[producer], need / perRun);
+        }
+        return runs;
+    }
+
+    private static double amount(int[] rows, double[] amounts, int row) {
+        double total = 0;
+        for (int k = 0; k < rows.length; k++) if (rows[k] == row) total += amounts[k];
+        return total;
+    }
+
+
+    /** General case. Only makeable items that something needs get a constraint row: raw inputs are free
+     *  to bring in (their weight goes into the recipe cost) and pure byproducts can always be left over */
+    private double[] linearProgram(Subgraph sub) {
+        int m = sub.items.size();
+        int n = sub.recipes.size();
+        boolean[] needed = new boolean[m];
+        for (int i = 0; i < m; i++) needed[i] = sub.target[i] > 0;
+        for (int r = 0; r < n; r++) for (int in : sub.inRows.get(r)) needed[in] = true;
+
+        int[] lpRow = new int[m];
+        int rows = 0;
+        for (int i = 0; i < m; i++) lpRow[i] = (sub.makeable[i] && needed[i]) ? rows++ : -1;
+
+        int columns = n + 2 * rows;
+        double[][] a = new double[rows][columns];
+        double[] b = new double[rows];
+        double[] c = new double[columns];
+        int[] basis = new int[rows];
+        for (int r = 0; r < n; r++) {
+            c[r] = 1.0 / sub.rate(r);
+            int[] ins = sub.inRows.get(r);
+            double[] inAmount = sub.inAmounts.get(r);
+            for (int k = 0; k < ins.length; k++) {
+                if (lpRow[ins[k]] >= 0) a[lpRow[ins[k]]][r] -= inAmount[k];
+                else c[r] += inputWeight * inAmount[k];
+            }
+            int[] outs = sub.outRows.get(r);
+            double[] outAmount = sub.outAmounts.get(r);
+            for (int k = 0; k < outs.length; k++) {
+                if (lpRow[outs[k]] >= 0) a[lpRow[outs[k]]][r] += outAmount[k];
+            }
+        }
+        for (int i = 0; i < m; i++) {
+            int row = lpRow[i];
+            if (row < 0) continue;
+            b[row] = sub.target[i];
+            a[row][n + row] = 1;            // brought in
+            c[n + row] = SHORTFALL_COST;
+            a[row][n + rows + row] = -1;    // left over
+            basis[row] = n + row;
+        }
+
+        double[] x = Simplex.minimize(a, b, c, basis);
+        return Arrays.copyOf(x, n);
+    }
+
+
+    private ThroughputPlan plan(Subgraph sub, Map<String, Double> targets, double[] runs, long solveNanos) {
+        int m = sub.items.size();
+        double[] balance = new double[m];
+        List<ThroughputPlan.RecipeRate> rates = new ArrayList<>();
+        for (int r = 0; r < runs.length; r++) {
+            if (runs[r] <= EPS) continue;
+            rates.add(new ThroughputPlan.RecipeRate(sub.recipes.get(r), sub.buildings.get(r), runs[r], runs[r] / sub.rate(r)));
+            int[] ins = sub.inRows.get(r);
+            for (int k = 0; k < ins.length; k++) balance[ins[k]] -= runs[r] * sub.inAmounts.get(r)[k];
+            int[] outs = sub.outRows.get(r);
+            for (int k = 0; k < outs.length; k++) balance[outs[k]] += runs[r] * sub.outAmounts.get(r)[k];
+        }
+
+        Map<String, Double> inputs = new LinkedHashMap<>();
+        Map<String, Double> byproducts = new LinkedHashMap<>();
+        Map<String, Double> shortfalls = new LinkedHashMap<>();
+        for (int i = 0; i < m; i++) {
+            double left = balance[i] - sub.target[i];
+            String name = ItemRegistry.getItemName(sub.items.get(i));
+            double tolerance = TOLERANCE * Math.max(1, sub.target[i]);
+            if (left < -tolerance) (sub.makeable[i] ? shortfalls : inputs).put(name, -left);
+            else if (left > tolerance) byproducts.put(name, left);
+        }
+        return new ThroughputPlan(targets, rates, inputs, byproducts, shortfalls, solveNanos);
+    }
+}
@@ -0,0 +1,210 @@
+package com.productionchain.world;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.productionchain.buildings.BuildingInstance;
+import com.productionchain.enginedatatypes.ItemRegistry;
+import com.productionchain.enginedatatypes.Recipe;
+
+
+/**
+ * Finds which production is held back, and by what: buildings that ran fewer recipe operations
+ * than they could because an ingredient was missing (starved) or their storage had no room for the
+ * outputs (blocked). Tallied per missing item and per recipe, and ranked by operations lost.
+ *
+ * It doesn't look at buildings itself. Attach it with TurnEngine.setBottleneckAnalyzer(); during
+ * the recipe phase the engine hands it only the buildings whose runActiveRecipe() stalled, with
+ * the reason the building already found while running. Buildings that ran fully cost one branch.
+ * At the end of the turn the per-turn tallies are folded into totals (work per recipe and item
+ * seen, not per building).
+ *
+ * record() may be called from several threads (PARALLEL turns); endTurn() and the queries are
+ * meant for the thread that runs the turns.
+ */
+public class BottleneckAnalyzer {
+
+    private final ConcurrentHashMap<Recipe, Tally> starvedRecipes = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Recipe, Tally> blockedRecipes = new ConcurrentHashMap<>();
+    /** Per missing item id, grown as ids show up */
+    private volatile Tally[] starvedItems = new Tally[0];
+    private final LongAdder withoutRecipe = new LongAdder();
+
+    private long turn = -1;
+    private long turnsAnalyzed;
+    private long lastWithoutRecipe;
+
+
+    /** Called by the engine for a building whose runActiveRecipe() returned fewer runs than its operations */
+    public void record(BuildingInstance building, int runs) {
+        switch (building.getLastStall()) {
+            case MISSING_INGREDIENTS:
+                int lost = building.getNumOperations() - runs;
+                tally(starvedRecipes, building.getActiveRecipe()).add(lost);
+                if (building.getLastMissingItemId() >= 0) itemTally(building.getLastMissingItemId()).add(lost);
+                break;
+            case STORAGE_FULL:
+                tally(blockedRecipes, building.getActiveRecipe()).add(building.getNumOperations() - runs);
+                break;
+            case NO_RECIPE:
+                withoutRecipe.increment();
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static Tally tally(ConcurrentHashMap<Recipe, Tally> tallies, Recipe recipe) {
+        Tally tally = tallies.get(recipe);
+        return (tally != null) ? tally : tallies.computeIfAbsent(recipe, r -> new Tally());
+    }
+
+    private Tally itemTally(int itemId) {
+        Tally[] tallies = starvedItems;
+        if (itemId < tallies.length && tallies[itemId] != null) return tallies[itemId];
+        synchronized (this) {
+            tallies = starvedItems;
+            if (itemId >= tallies.length) tallies = Arrays.copyOf(tallies, Math.max(itemId + 1, ItemRegistry.getItemIdCount()));
+            if (tallies[itemId] == null) tallies[itemId] = new Tally();
+            starvedItems = tallies;
+            return tallies[itemId];
+        }
+    }
+
+    /** Closes the turn: what was recorded since the last call becomes the last turn's numbers and is added to the totals */
+    public void endTurn(long turn) {
+        this.turn = turn;
+        this.turnsAnalyzed++;
+        for (Tally tally : starvedRecipes.values()) tally.fold();
+        for (Tally tally : blockedRecipes.values()) tally.fold();
+        for (Tally tally : starvedItems) if (tally != null) tally.fold();
+        lastWithoutRecipe = withoutRecipe.sumThenReset();
+    }
+
+    /** Forgets everything recorded so far */
+    public synchronized void reset() {
+        starvedRecipes.clear();
+        blockedRecipes.clear();
+        starvedItems = new Tally[0];
+        withoutRecipe.reset();
+        lastWithoutRecipe = 0;
+        turnsAnalyzed = 0;
+        turn = -1;
+    }
+
+
+    // QUERIES
+    public long getTurn() { return turn; }
+    public long getTurnsAnalyzed() { return turnsAnalyzed; }
+    /** Buildings with no active recipe in the last turn */
+    public long getBuildingsWithoutRecipe() { return lastWithoutRecipe; }
+
+    /** Missing ingredients, most operations lost in the last turn first */
+    public List<Bottleneck> getTopMissingItems(int limit) {
+        List<Bottleneck> ranking = new ArrayList<>();
+        Tally[] tallies = starvedItems;
+        for (int id = 0; id < tallies.length; id++) {
+            if (tallies[id] != null && tallies[id].totalLost > 0) {
+                ranking.add(tallies[id].toBottleneck(Cause.MISSING_INGREDIENT, ItemRegistry.getItemName(id), null));
+            }
+        }
+        return top(ranking, limit);
+    }
+
+    /** Recipes held back, starved and blocked counted separately, most operations lost in the last turn first */
+    public List<Bottleneck> getTopRecipes(int limit) {
+        List<Bottleneck> ranking = new ArrayList<>();
+        starvedRecipes.forEach((recipe, tally) -> ranking.add(tally.toBottleneck(Cause.MISSING_INGREDIENT, null, recipe.getName())));
+        blockedRecipes.forEach((recipe, tally) -> ranking.add(tally.toBottleneck(Cause.STORAGE_FULL, null, recipe.getName())));
+        return top(ranking, limit);
+    }
+
+    private static List<Bottleneck> top(List<Bottleneck> ranking, int limit) {
+        ranking.sort(Comparator.comparingLong(Bottleneck::getLostRuns).reversed()
+            .thenComparing(Comparator.comparingLong(Bottleneck::getTotalLostRuns).reversed()));
+        return (ranking.size() > limit) ? new ArrayList<>(ranking.subList(0, limit)) : ranking;
+    }
+
+    /** Top entries of both rankings as text */
+    public String toText(int limit) {
+        StringBuilder text = new StringBuilder();
+        text.append(String.format("Bottlenecks after turn %d (%d turns analyzed, %d buildings without a recipe)%n",
+            turn, turnsAnalyzed, lastWithoutRecipe));
+        text.append("Missing items:\n");
+        for (Bottleneck bottleneck : getTopMissingItems(limit)) text.append("  ").append(bottleneck).append('\n');
+        text.append("Recipes:\n");
+        for (Bottleneck bottleneck : getTopRecipes(limit)) text.append("  ").append(bottleneck).append('\n');
+        return text.toString();
+    }
+
+
+    public enum Cause { MISSING_INGREDIENT, STORAGE_FULL }
+
+    /** One ranked entry: an item that was missing, or a recipe that was starved or blocked */
+    public static class Bottleneck {
+        private final Cause cause;
+        private final String itemName;
+        private final String recipeName;
+        private final long buildings;
+        private final long lostRuns;
+        private final long totalBuildingTurns;
+        private final long totalLostRuns;
+
+        Bottleneck(Cause cause, String itemName, String recipeName, long buildings, long lostRuns, long totalBuildingTurns, long totalLostRuns) {
+            this.cause = cause;
+            this.itemName = itemName;
+            this.recipeName = recipeName;
+            this.buildings = buildings;
+            this.lostRuns = lostRuns;
+            this.totalBuildingTurns = totalBuildingTurns;
+            this.totalLostRuns = totalLostRuns;
+        }
+
+        public Cause getCause() { return cause; }
+        /** Missing item (item entries), null for recipe entries */
+        public String getItemName() { return itemName; }
+        /** Recipe (recipe entries), null for item entries */
+        public String getRecipeName() { return recipeName; }
+        /** Buildings held back in the last turn */
+        public long getBuildings() { return buildings; }
+        /** Recipe operations lost in the last turn */
+        public long getLostRuns() { return lostRuns; }
+        /** Sum over all analyzed turns of the buildings held back */
+        public long getTotalBuildingTurns() { return totalBuildingTurns; }
+        public long getTotalLostRuns() { return totalLostRuns; }
+
+        @Override
+        public String toString() {
+            return String.format("%-18s %-24s buildings=%d lost=%d (total: %d building-turns, %d lost)",
+                cause, (itemName != null) ? itemName : recipeName, buildings, lostRuns, totalBuildingTurns, totalLostRuns);
+        }
+    }
+
+
+    /** Counts for one item or recipe: adders for the turn in progress, plain totals folded in at endTurn */
+    private static final class Tally {
+        final LongAdder buildings = new LongAdder();
+        final LongAdder lost = new LongAdder();
+        long lastBuildings, lastLost, totalBuildings, totalLost;
+
+        void add(int lostRuns) {
+            buildings.increment();
+            lost.add(lostRuns);
+        }
+
+        void fold() {
+            lastBuildings = buildings.sumThenReset();
+            lastLost = lost.sumThenReset();
+            totalBuildings += lastBuildings;
+            totalLost += lastLost;
+        }
+
+        Bottleneck toBottleneck(Cause cause, String itemName, String recipeName) {
+            return new Bottleneck(cause, itemName, recipeName, lastBuildings, lastLost, totalBuildings, totalLost);
+        }
+    }
+}
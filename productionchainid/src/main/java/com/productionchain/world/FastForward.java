@@ -0,0 +1,65 @@
+package com.productionchain.world;
+
+import java.util.List;
+
+import com.productionchain.buildings.BuildingInstance;
+
+
+/**
+ * Catches a World up by many turns at once, e.g. for a player who was away for 10,000 turns, without
+ * running each of them through the TurnEngine.
+ *
+ * Buildings don't exchange items, so each one is advanced on its own with
+ * BuildingInstance.fastForward(): stretches of turns where the building is in a steady state (the
+ * same recipe runs fully on stock that lasts, or the building sits idle) are applied in closed form,
+ * and only the turns where something changes (an ingredient runs out, the storage fills up, an
+ * ingredient batch spoils) are stepped. Animal buildings are always stepped.
+ *
+ * The world ends up as TurnEngine.runTurns() would leave it, up to floating point rounding in the
+ * stored quantities. BottleneckAnalyzer and the per-turn metrics snapshots don't see skipped turns.
+ */
+public class FastForward {
+
+    private final World world;
+    private long lastTurns;
+    private long lastSteppedTurns;
+    private long lastNanos;
+
+
+    public FastForward(World world) {
+        this.world = world;
+    }
+
+
+    /** Advances the world by this many turns. Returns the building-turns that had to be stepped one at a time */
+    public long advance(long turns) {
+        long start = System.nanoTime();
+        long stepped = 0;
+        if (turns > 0) {
+            List<BuildingInstance> buildings = world.getBuildings();
+            for (BuildingInstance building : buildings) {
+                stepped += building.fastForward(turns);
+            }
+            world.setTurn(world.getTurn() + turns);
+        }
+        lastTurns = Math.max(0, turns);
+        lastSteppedTurns = stepped;
+        lastNanos = System.nanoTime() - start;
+        return stepped;
+    }
+
+
+    public World getWorld() { return world; }
+    /** Turns the last advance() moved the world */
+    public long getLastTurns() { return lastTurns; }
+    /** Building-turns the last advance() stepped (the rest were skipped in closed form) */
+    public long getLastSteppedTurns() { return lastSteppedTurns; }
+    public long getLastNanos() { return lastNanos; }
+
+    @Override
+    public String toString() {
+        long buildingTurns = lastTurns * world.size();
+        return String.format("FastForward[turns=%d, buildings=%d, stepped=%d of %d building-turns, %.2f ms]",
+            lastTurns, world.size(), lastSteppedTurns, buildingTurns, lastNanos / 1e6);
+    }
+}
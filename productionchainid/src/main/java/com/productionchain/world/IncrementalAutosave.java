@@ -0,0 +1,274 @@
+package com.productionchain.world;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import com.productionchain.buildings.AnimalBuildingInstance;
+import com.productionchain.buildings.BuildingInstance;
+import com.productionchain.mechanics.AnimalInstance;
+import com.productionchain.metrics.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Autosave that only writes what changed since the previous save.
+ *
+ * Two files in the save directory:
+ *   world.pcws  - full WorldSnapshot (the base), rewritten on compaction. A trailer after the
+ *                 snapshot ("PCWG" + generation, 8 bytes) numbers the bases one after the other
+ *   world.delta - append-only log. Every save() adds one WorldSnapshot segment holding the dirty
+ *                 buildings (written whole, storage included) and removal records for the buildings
+ *                 removed since the last save. Each segment is framed as
+ *                 [generation of its base][length][CRC32 of the segment][segment]
+ * After compactEvery delta saves the next save writes a new base and empties the log. The first
+ * save after creating the autosave is always a compaction, unless the world came from load().
+ * Loading reads the base and replays the segments in order. A segment cut short or failing its
+ * CRC (a crash while appending) ends the log there. So does a segment written against another
+ * base: a crash between moving a new base into place and deleting the log leaves the old
+ * segments behind, and they must not be replayed over the newer base.
+ *
+ * Time passing is not a change: a storage that only degraded keeps its batches and an animal that
+ * only got older keeps its state, so they stay clean. A record written at turn T is brought to the
+ * loaded turn by moving its storage clock and adding the missing turns to the animals' ages. This
+ * relies on every building's storage degrading and animals aging once per world turn (TurnEngine).
+ * Changes made on AnimalInstance objects directly are not seen: use the building's setters.
+ */
+public class IncrementalAutosave {
+
+    private static final Logger LOG = LoggerFactory.getLogger(IncrementalAutosave.class);
+
+    public static final String BASE_FILE = "world.pcws";
+    public static final String DELTA_FILE = "world.delta";
+    public static final int DEFAULT_COMPACT_EVERY = 20;
+
+    private static final byte[] GENERATION_MAGIC = { 'P', 'C', 'W', 'G' };
+    private static final int TRAILER_SIZE = GENERATION_MAGIC.length + 8;
+    private static final int FRAME_HEADER_SIZE = 8 + 4 + 4;
+
+    private final File base;
+    private final File delta;
+    private int compactEvery = DEFAULT_COMPACT_EVERY;
+    private int deltaSaves;
+    private boolean synced;     // the files on disk match the world this autosave saved or loaded
+    private long generation;    // generation of the base on disk (0 = none, or written without a trailer)
+
+
+    public IncrementalAutosave(File directory) {
+        this.base = new File(directory, BASE_FILE);
+        this.delta = new File(directory, DELTA_FILE);
+    }
+
+
+    public int getCompactEvery() { return compactEvery; }
+    public void setCompactEvery(int compactEvery) { this.compactEvery = Math.max(1, compactEvery); }
+
+    /** Delta segments written since the last compaction */
+    public int getDeltaSaves() { return deltaSaves; }
+
+
+    // SAVE =========================================================================================
+    /** Appends the changes since the last save (or compacts). Returns how many buildings were written */
+    public int save(World world) throws IOException {
+        long start = Metrics.start();
+        int written = (!synced || deltaSaves >= compactEvery) ? compact(world) : appendChanges(world);
+        Metrics.AUTOSAVE.record(start);
+        return written;
+    }
+
+    /** Writes the removed ids and dirty buildings as one delta segment */
+    private int appendChanges(World world) throws IOException {
+        List<Long> removedIds = world.drainRemovedIds();
+        List<BuildingInstance> dirty = new ArrayList<>();
+        for (BuildingInstance building : world.getBuildings()) {
+            if (building.isDirty()) dirty.add(building);
+        }
+
+        try (FileChannel channel = FileChannel.open(delta.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long frameStart = channel.size();
+            long segmentStart = frameStart + FRAME_HEADER_SIZE;
+            channel.position(segmentStart);
+            try (WorldSnapshot.Writer writer = new WorldSnapshot.Writer(channel)) {
+                writer.setTurn(world.getTurn());
+                for (long id : removedIds) writer.writeRemoved(id);
+                for (BuildingInstance building : dirty) writer.write(building);
+            }
+            int length = (int) (channel.position() - segmentStart);
+            ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER_SIZE);
+            header.putLong(generation).putInt(length).putInt(crc(channel, segmentStart, length)).flip();
+            writeFully(channel, header, frameStart);
+            channel.force(false);
+        }
+        for (BuildingInstance building : dirty) building.clearDirty();
+        deltaSaves++;
+        return dirty.size();
+    }
+
+    /** Writes the whole world as the new base and empties the delta log. Returns the number of buildings */
+    public int compact(World world) throws IOException {
+        long nextGeneration = Math.max(generation, readGeneration(base)) + 1;
+        File tmp = new File(base.getPath() + ".tmp");
+        WorldSnapshot.save(world, tmp);
+        try (FileChannel channel = FileChannel.open(tmp.toPath(), StandardOpenOption.WRITE)) {
+            ByteBuffer trailer = ByteBuffer.allocate(TRAILER_SIZE);
+            trailer.put(GENERATION_MAGIC).putLong(nextGeneration).flip();
+            writeFully(channel, trailer, channel.size());
+            channel.force(true);
+        }
+        Files.move(tmp.toPath(), base.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        // a crash here leaves the old log behind; its segments carry the old generation and are skipped
+        Files.deleteIfExists(delta.toPath());
+
+        generation = nextGeneration;
+        world.drainRemovedIds();
+        for (BuildingInstance building : world.getBuildings()) building.clearDirty();
+        deltaSaves = 0;
+        synced = true;
+        return world.size();
+    }
+
+
+
+    // LOAD =========================================================================================
+    /** Rebuilds the world from the base and the delta log. Every loaded building starts clean */
+    public World load() throws IOException {
+        Map<Long, BuildingInstance> buildings = new LinkedHashMap<>();  // placement order, replaced in place
+        Map<Long, Long> writtenAt = new HashMap<>();                     // id -> turn its record was written
+
+        long turn;
+        try (WorldSnapshot.Reader reader = new WorldSnapshot.Reader(base)) {
+            turn = reader.getTurn();
+            long baseTurn = turn;
+            reader.forEach(building -> {
+                buildings.put(building.getInstanceId(), building);
+                writtenAt.put(building.getInstanceId(), baseTurn);
+            });
+        }
+
+        generation = readGeneration(base);
+        int segments = 0;
+        long cutAt = -1;   // where dropped segments start, cut once the channel is closed
+        if (delta.exists()) {
+            try (FileChannel channel = FileChannel.open(delta.toPath(), StandardOpenOption.READ)) {
+                long frameStart = 0;
+                while (frameStart < channel.size()) {
+                    String dropped = checkFrame(channel, frameStart);
+                    if (dropped != null) {
+                        LOG.warn("Autosave segments from {} on dropped: {} ({})", frameStart, dropped, delta);
+                        cutAt = frameStart;
+                        break;
+                    }
+                    List<BuildingInstance> changed = new ArrayList<>();
+                    List<Long> removed = new ArrayList<>();
+                    long segmentTurn;
+                    channel.position(frameStart + FRAME_HEADER_SIZE);
+                    try (WorldSnapshot.Reader reader = new WorldSnapshot.Reader(channel)) {
+                        segmentTurn = reader.getTurn();
+                        reader.forEach(changed::add, removed::add);
+                    }
+                    frameStart += FRAME_HEADER_SIZE + segmentLength(channel, frameStart);
+                    for (long id : removed) {
+                        buildings.remove(id);
+                        writtenAt.remove(id);
+                    }
+                    for (BuildingInstance building : changed) {
+                        buildings.put(building.getInstanceId(), building);
+                        writtenAt.put(building.getInstanceId(), segmentTurn);
+                    }
+                    turn = segmentTurn;
+                    segments++;
+                }
+            }
+            if (cutAt >= 0) truncate(delta, cutAt);  // so the next segment isn't appended after them
+        }
+
+        World world = new World();
+        for (BuildingInstance building : buildings.values()) {
+            catchUp(building, turn - writtenAt.get(building.getInstanceId()));
+            building.clearDirty();
+            world.addBuilding(building);
+        }
+        world.setTurn(turn);
+        deltaSaves = segments;
+        synced = true;
+        return world;
+    }
+
+    /** Null if the frame at this position holds a complete segment of the current base, else why it doesn't */
+    private String checkFrame(FileChannel channel, long frameStart) throws IOException {
+        if (channel.size() - frameStart < FRAME_HEADER_SIZE) return "incomplete frame header";
+        ByteBuffer header = readFully(channel, frameStart, FRAME_HEADER_SIZE);
+        long segmentGeneration = header.getLong();
+        int length = header.getInt();
+        int expectedCrc = header.getInt();
+        if (length <= 0 || channel.size() - frameStart - FRAME_HEADER_SIZE < length) return "incomplete segment";
+        if (crc(channel, frameStart + FRAME_HEADER_SIZE, length) != expectedCrc) return "checksum mismatch";
+        if (segmentGeneration != generation) return "written against an older base (generation " + segmentGeneration + ")";
+        return null;
+    }
+
+    private static int segmentLength(FileChannel channel, long frameStart) throws IOException {
+        return readFully(channel, frameStart + 8, 4).getInt();
+    }
+
+    /** Generation in the base's trailer, 0 if there is no base or it has no trailer */
+    private static long readGeneration(File file) throws IOException {
+        if (!file.exists() || file.length() < TRAILER_SIZE) return 0;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer trailer = readFully(channel, channel.size() - TRAILER_SIZE, TRAILER_SIZE);
+            for (byte b : GENERATION_MAGIC) {
+                if (trailer.get() != b) return 0;
+            }
+            return trailer.getLong();
+        }
+    }
+
+    private static int crc(FileChannel channel, long position, int length) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(readFully(channel, position, length));
+        return (int) crc.getValue();
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) throw new EOFException();
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static void truncate(File file, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+            channel.truncate(size);
+        }
+    }
+
+    /** Adds the turns that passed since the building's record was written */
+    private static void catchUp(BuildingInstance building, long turns) {
+        if (turns <= 0) return;
+        building.getStorage().setTurn(building.getStorage().getTurn() + turns);
+        if (building instanceof AnimalBuildingInstance) {
+            List<AnimalInstance> animals = ((AnimalBuildingInstance) building).getHousedAnimals();
+            for (AnimalInstance animal : animals) animal.advanceAge(turns);
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.productionchain.world;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+
+import com.productionchain.buildings.AnimalBuildingInstance;
+import com.productionchain.buildings.BuildingInstance;
+import com.productionchain.buildings.ProductionBuildingInstance;
+import com.productionchain.buildings.ProductionBuildingType;
+import com.productionchain.constants.BuildingConstants;
+import com.productionchain.constants.ItemConstants;
+import com.productionchain.constants.RecipeConstants;
+import com.productionchain.enginedatatypes.IngredientPair;
+import com.productionchain.enginedatatypes.IngredientsList;
+import com.productionchain.enginedatatypes.Recipe;
+import com.productionchain.mechanics.RecipeHandler;
+import com.productionchain.metrics.Metrics;
+import com.productionchain.metrics.MetricsSnapshot;
+
+
+/**
+ * Advances a World one turn at a time.
+ *
+ * A turn runs in phases, each over the whole world before the next starts:
+ *   1. recipes     - every building runs its active recipe (it stays active)
+ *   2. degradation - every building's storage ages by one turn
+ *   3. animals     - every animal building ages its housed animals
+ * Each phase is timed separately and the result is returned as a TurnReport.
+ *
+ * Every phase only touches the building's own storage and animals, so in
+ * PARALLEL mode a phase is split into contiguous chunks of the building list
+ * and run on a ForkJoinPool. Per-chunk results are merged left to right, in
+ * building order, so both modes give identical worlds and identical reports
+ * (apart from the timings).
+ *
+ * To catch a world up by thousands of turns, FastForward gives the same world
+ * without running every turn.
+ */
+public class TurnEngine {
+
+    public enum ExecutionMode { SEQUENTIAL, PARALLEL }
+
+    public static final int DEFAULT_CHUNK_SIZE = 1024;
+
+    private final World world;
+    private final ExecutionMode mode;
+    private final ForkJoinPool pool;
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+    private TurnReport lastReport;
+    private Consumer<MetricsSnapshot> metricsSink;
+    private BottleneckAnalyzer bottleneckAnalyzer;
+
+
+    public TurnEngine(World world) {
+        this(world, ExecutionMode.SEQUENTIAL, null);
+    }
+
+    /** PARALLEL mode without a pool runs on the common ForkJoinPool */
+    public TurnEngine(World world, ExecutionMode mode) {
+        this(world, mode, null);
+    }
+
+    public TurnEngine(World world, ExecutionMode mode, ForkJoinPool pool) {
+        this.world = world;
+        this.mode = mode;
+        this.pool = (mode == ExecutionMode.PARALLEL && pool == null) ? ForkJoinPool.commonPool() : pool;
+    }
+
+
+    public World getWorld() { return world; }
+    public ExecutionMode getMode() { return mode; }
+    public TurnReport getLastReport() { return lastReport; }
+
+    public int getChunkSize() { return chunkSize; }
+    /** Buildings handled by one parallel task before it stops splitting */
+    public void setChunkSize(int chunkSize) { this.chunkSize = Math.max(1, chunkSize); }
+
+    public Consumer<MetricsSnapshot> getMetricsSink() { return metricsSink; }
+    /** Gets a Metrics snapshot at the end of every turn while metrics are enabled (null = none) */
+    public void setMetricsSink(Consumer<MetricsSnapshot> metricsSink) { this.metricsSink = metricsSink; }
+
+    public BottleneckAnalyzer getBottleneckAnalyzer() { return bottleneckAnalyzer; }
+    /** Gets the buildings that stalled in the recipe phase, and endTurn() after every turn (null = none) */
+    public void setBottleneckAnalyzer(BottleneckAnalyzer bottleneckAnalyzer) { this.bottleneckAnalyzer = bottleneckAnalyzer; }
+
+
+    /** Runs one full turn over the world and returns its timings */
+    public TurnReport runTurn() {
+        List<BuildingInstance> buildings = world.getBuildings();
+        List<AnimalBuildingInstance> animalBuildings = world.getAnimalBuildings();
+        long start = System.nanoTime();
+
+        // 1. RECIPES
+        BottleneckAnalyzer analyzer = bottleneckAnalyzer;
+        int recipesRun = (analyzer == null)
+            ? runPhase(buildings, BuildingInstance::runActiveRecipe)
+            : runPhase(buildings, building -> {
+                int runs = building.runActiveRecipe();
+                if (building.getLastStall() != BuildingInstance.Stall.NONE) analyzer.record(building, runs);
+                return runs;
+            });
+        long afterRecipes = System.nanoTime();
+
+        // 2. STORAGE DEGRADATION
+        runPhase(buildings, building -> { building.degradeStorage(); return 0; });
+        long afterDegradation = System.nanoTime();
+
+        // 3. ANIMAL AGING
+        int animalsAged = runPhase(animalBuildings, AnimalBuildingInstance::ageHousedAnimals);
+        long end = System.nanoTime();
+
+        world.advanceTurn();
+        if (analyzer != null) analyzer.endTurn(world.getTurn());
+        lastReport = new TurnReport(world.getTurn(), mode, buildings.size(), recipesRun, animalsAged,
+            afterRecipes - start, afterDegradation - afterRecipes, end - afterDegradation, end - start);
+
+        Metrics.TURN.recordNanos(end - start);
+        if (metricsSink != null && Metrics.isEnabled()) metricsSink.accept(Metrics.snapshot(world.getTurn()));
+        return lastReport;
+    }
+
+    /** Applies the step to every building and sums what it returns */
+    private <T> int runPhase(List<T> buildings, ToIntFunction<T> step) {
+        if (mode == ExecutionMode.SEQUENTIAL || buildings.size() <= chunkSize) {
+            int total = 0;
+            for (T building : buildings) {
+                total += step.applyAsInt(building);
+            }
+            return total;
+        }
+        return pool.invoke(new PhaseTask<>(buildings, step, 0, buildings.size(), chunkSize));
+    }
+
+    /** Runs several turns back to back and returns their reports in order */
+    public List<TurnReport> runTurns(int turns) {
+        List<TurnReport> reports = new ArrayList<>(turns);
+        for (int i = 0; i < turns; i++) {
+            reports.add(runTurn());
+        }
+        return reports;
+    }
+
+
+
+    /** Splits a range of the building list in halves until it fits in one chunk */
+    private static final class PhaseTask<T> extends RecursiveTask<Integer> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<T> buildings;
+        private final ToIntFunction<T> step;
+        private final int from, to, chunkSize;
+
+        PhaseTask(List<T> buildings, ToIntFunction<T> step, int from, int to, int chunkSize) {
+            this.buildings = buildings;
+            this.step = step;
+            this.from = from;
+            this.to = to;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        protected Integer compute() {
+            if (to - from <= chunkSize) {
+                int total = 0;
+                for (int i = from; i < to; i++) {
+                    total += step.applyAsInt(buildings.get(i));
+                }
+                return total;
+            }
+            int mid = (from + to) >>> 1;
+            PhaseTask<T> left  = new PhaseTask<>(buildings, step, from, mid, chunkSize);
+            PhaseTask<T> right = new PhaseTask<>(buildings, step, mid, to, chunkSize);
+            right.fork();
+            int leftTotal = left.compute();
+            return leftTotal + right.join(); // merge in building order
+        }
+    }
+
+
+
+    /// HEADLESS SIMULATION: java ... TurnEngine [buildings] [turns] [SEQUENTIAL|PARALLEL]
+    public static void main(String[] args) {
+        int numBuildings = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int numTurns     = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        ExecutionMode mode = args.length > 2 ? ExecutionMode.valueOf(args[2]) : ExecutionMode.SEQUENTIAL;
+
+        ProductionBuildingType kiln = new ProductionBuildingType(BuildingConstants.BUILDING_KILN, "-", BuildingConstants.BUILDING_KILN, 1, 0,
+            new ArrayList<>(), 0, null, new RecipeHandler(1, new ArrayList<>(List.of(RecipeConstants.CATEGORY_BASIC_KILN))));
+        Recipe charcoal = new Recipe(RecipeConstants.RECIPE_CHARCOAL, RecipeConstants.CATEGORY_BASIC_KILN, "--", 1, 1,
+            new IngredientsList(new ArrayList<>(List.of(new IngredientPair(ItemConstants.WOOD, 2)))),
+            new IngredientsList(new ArrayList<>(List.of(new IngredientPair(ItemConstants.COAL, 3)))), 1.0, true);
+
+        World world = new World();
+        for (int i = 0; i < numBuildings; i++) {
+            ProductionBuildingInstance building = new ProductionBuildingInstance(kiln, "Player" + (i % 8), i % 1000, i / 1000, 100);
+            building.getStorage().addItem(ItemConstants.WOOD, 40, 20);
+            building.setActiveRecipe(charcoal);
+            world.addBuilding(building);
+        }
+
+        TurnEngine engine = new TurnEngine(world, mode);
+        for (TurnReport report : engine.runTurns(numTurns)) {
+            System.out.println(report);
+        }
+    }
+}
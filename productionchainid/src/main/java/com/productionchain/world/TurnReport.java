@@ -0,0 +1,60 @@
+package com.productionchain.world;
+
+
+/**
+ * Timings and counters for one turn, as measured by the TurnEngine.
+ * All durations are in nanoseconds.
+ */
+public class TurnReport {
+
+    final long turn;
+    final TurnEngine.ExecutionMode mode;
+    final int buildingsProcessed;
+    final int recipesRun;
+    final int animalsAged;
+    final long recipeNanos;
+    final long degradationNanos;
+    final long animalNanos;
+    final long totalNanos;
+
+
+    public TurnReport(long turn, TurnEngine.ExecutionMode mode, int buildingsProcessed, int recipesRun, int animalsAged,
+                      long recipeNanos, long degradationNanos, long animalNanos, long totalNanos) {
+        this.turn = turn;
+        this.mode = mode;
+        this.buildingsProcessed = buildingsProcessed;
+        this.recipesRun = recipesRun;
+        this.animalsAged = animalsAged;
+        this.recipeNanos = recipeNanos;
+        this.degradationNanos = degradationNanos;
+        this.animalNanos = animalNanos;
+        this.totalNanos = totalNanos;
+    }
+
+
+    // GETTERS
+    public long getTurn() { return turn; }
+    public TurnEngine.ExecutionMode getMode() { return mode; }
+    public int getBuildingsProcessed() { return buildingsProcessed; }
+    public int getRecipesRun() { return recipesRun; }
+    public int getAnimalsAged() { return animalsAged; }
+    public long getRecipeNanos() { return recipeNanos; }
+    public long getDegradationNanos() { return degradationNanos; }
+    public long getAnimalNanos() { return animalNanos; }
+    public long getTotalNanos() { return totalNanos; }
+
+    /** Whole-turn throughput. Returns 0 for an empty or unmeasurably fast turn */
+    public double getBuildingsPerSecond() {
+        if (totalNanos <= 0) return 0;
+        return buildingsProcessed * 1_000_000_000.0 / totalNanos;
+    }
+
+
+    @Override
+    public String toString() {
+        return String.format("TurnReport[turn=%d, mode=%s, buildings=%d, recipes=%d, animals=%d, total=%.3f ms, %.0f buildings/s]"
+                + "\n  Phases: recipes=%.3f ms, degradation=%.3f ms, animals=%.3f ms",
+            turn, mode, buildingsProcessed, recipesRun, animalsAged, totalNanos / 1e6, getBuildingsPerSecond(),
+            recipeNanos / 1e6, degradationNanos / 1e6, animalNanos / 1e6);
+    }
+}
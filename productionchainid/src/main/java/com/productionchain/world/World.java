@@ -0,0 +1,96 @@
+package com.productionchain.world;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.productionchain.buildings.AnimalBuildingInstance;
+import com.productionchain.buildings.BuildingInstance;
+
+
+/**
+ * Owns every building instance placed in the game and the current turn number.
+ * Buildings are kept in placement order so every turn visits them in the same
+ * order. Animal buildings are also kept in their own list so the animal phase
+ * doesn't have to scan the whole world.
+ *
+ * Every building gets an id when it is added (kept if it already has one, e.g.
+ * after loading), and ids of removed buildings are remembered until the next
+ * incremental save picks them up.
+ */
+public class World {
+
+    private final List<BuildingInstance> buildings = new ArrayList<>();
+    private final List<AnimalBuildingInstance> animalBuildings = new ArrayList<>();
+    private long turn;
+    private long nextBuildingId;
+    private final List<Long> removedIds = new ArrayList<>();
+
+
+    public World() {
+        this.turn = 0;
+    }
+
+    public World(List<? extends BuildingInstance> buildings) {
+        this();
+        buildings.forEach(this::addBuilding);
+    }
+
+
+    // BUILDINGS
+    public void addBuilding(BuildingInstance building) {
+        if (building.getInstanceId() < 0) {
+            building.setInstanceId(nextBuildingId++);
+        } else {
+            nextBuildingId = Math.max(nextBuildingId, building.getInstanceId() + 1);
+        }
+        buildings.add(building);
+        if (building instanceof AnimalBuildingInstance) {
+            animalBuildings.add((AnimalBuildingInstance) building);
+        }
+    }
+
+    public boolean removeBuilding(BuildingInstance building) {
+        if (building instanceof AnimalBuildingInstance) {
+            animalBuildings.remove(building);
+        }
+        boolean removed = buildings.remove(building);
+        if (removed) removedIds.add(building.getInstanceId());
+        return removed;
+    }
+
+    /** Ids of the buildings removed since the last call */
+    public List<Long> drainRemovedIds() {
+        List<Long> drained = new ArrayList<>(removedIds);
+        removedIds.clear();
+        return drained;
+    }
+
+    /** Read-only view of every building, in placement order */
+    public List<BuildingInstance> getBuildings() {
+        return Collections.unmodifiableList(buildings);
+    }
+
+    /** Read-only view of the animal buildings, in placement order */
+    public List<AnimalBuildingInstance> getAnimalBuildings() {
+        return Collections.unmodifiableList(animalBuildings);
+    }
+
+    public int size() {
+        return buildings.size();
+    }
+
+
+    // TURNS
+    public long getTurn() { return turn; }
+    public void setTurn(long turn) { this.turn = turn; }
+
+    /** Called by the turn engine once every phase of a turn has run */
+    void advanceTurn() { this.turn++; }
+
+
+    @Override
+    public String toString() {
+        return String.format("World[turn=%d, buildings=%d, animalBuildings=%d]", turn, buildings.size(), animalBuildings.size());
+    }
+}
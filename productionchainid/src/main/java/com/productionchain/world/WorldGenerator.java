@@ -0,0 +1,283 @@
+package com.productionchain.world;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import com.productionchain.buildings.BuildingTypeList;
+import com.productionchain.buildings.BuildingTypeRegistry;
+import com.productionchain.buildings.ProductionBuildingInstance;
+import com.productionchain.buildings.ProductionBuildingType;
+import com.productionchain.enginedatatypes.IngredientPair;
+import com.productionchain.enginedatatypes.IngredientsList;
+import com.productionchain.enginedatatypes.ItemRegistry;
+import com.productionchain.enginedatatypes.ItemType;
+import com.productionchain.enginedatatypes.Recipe;
+import com.productionchain.enginedatatypes.RecipeRegistry;
+import com.productionchain.mechanics.AdvancedStorage;
+import com.productionchain.mechanics.RecipeHandler;
+import com.productionchain.persistence.JsonPersistence;
+
+
+/**
+ * Generates synthetic game data for load tests: items, a layered recipe graph, production building
+ * types and a world of N buildings whose storages hold M batches each.
+ *
+ * Items are split in tiers 0..depth. Tier 0 items are gathered (recipes without ingredients); every
+ * item of tier t > 0 is made by one recipe taking fanIn different items of lower tiers, at least one of
+ * them from tier t-1. Recipes of a tier share the category "Tier t"; each tier gets buildingTypesPerTier
+ * building types running it. Buildings get a random type, an active recipe of that type and batches of
+ * the items their recipes use.
+ *
+ * Everything comes from one Random seeded with the seed, in a fixed order, so the same seed and
+ * settings give the same data (and the same JSON) every time.
+ *
+ * Usage: set the sizes, generate() (or the generateX steps one by one), then register() to put the
+ * types in the registries and/or writeJson(directory) to save them.
+ */
+public class WorldGenerator {
+
+    public static final String ITEMS_FILE = "items.json";
+    public static final String RECIPES_FILE = "recipes.json";
+    public static final String BUILDING_TYPES_FILE = "buildingtypes.json";
+    public static final String WORLD_FILE = "world.json";
+
+    private final long seed;
+    private int itemCount = 200;
+    private int depth = 4;
+    private int fanIn = 3;
+    private int buildingTypesPerTier = 2;
+    private int buildingCount = 10_000;
+    private int batchesPerStorage = 8;
+    private int players = 16;
+    private double storageCapacity = 1000.0;
+
+    private List<ItemType> items = Collections.emptyList();
+    private List<Recipe> recipes = Collections.emptyList();
+    private List<ProductionBuildingType> buildingTypes = Collections.emptyList();
+    private World world;
+
+
+    public WorldGenerator(long seed) {
+        this.seed = seed;
+    }
+
+
+    // SETTINGS
+    public long getSeed() { return seed; }
+    public int getItemCount() { return itemCount; }
+    public int getDepth() { return depth; }
+    public int getFanIn() { return fanIn; }
+    public int getBuildingTypesPerTier() { return buildingTypesPerTier; }
+    public int getBuildingCount() { return buildingCount; }
+    public int getBatchesPerStorage() { return batchesPerStorage; }
+    public int getPlayers() { return players; }
+    public double getStorageCapacity() { return storageCapacity; }
+
+    /** Number of item types, at least one per tier */
+    public void setItemCount(int itemCount) { this.itemCount = Math.max(1, itemCount); }
+    /** Number of tiers above the raw materials (0 = gathering only) */
+    public void setDepth(int depth) { this.depth = Math.max(0, depth); }
+    /** Ingredients per recipe (fewer when the lower tiers don't have that many items) */
+    public void setFanIn(int fanIn) { this.fanIn = Math.max(1, fanIn); }
+    public void setBuildingTypesPerTier(int buildingTypesPerTier) { this.buildingTypesPerTier = Math.max(1, buildingTypesPerTier); }
+    public void setBuildingCount(int buildingCount) { this.buildingCount = Math.max(0, buildingCount); }
+    public void setBatchesPerStorage(int batchesPerStorage) { this.batchesPerStorage = Math.max(0, batchesPerStorage); }
+    public void setPlayers(int players) { this.players = Math.max(1, players); }
+    public void setStorageCapacity(double storageCapacity) { this.storageCapacity = storageCapacity; }
+
+
+    // RESULTS (empty / null until generated)
+    public List<ItemType> getItems() { return items; }
+    public List<Recipe> getRecipes() { return recipes; }
+    public List<ProductionBuildingType> getBuildingTypes() { return buildingTypes; }
+    public World getWorld() { return world; }
+
+
+
+    // GENERATION ===================================================================================
+    /** Generates items, recipes, building types and the world, and registers the types. Returns the world */
+    public World generate() {
+        Random random = new Random(seed);
+        generateItems(random);
+        generateRecipes(random);
+        generateBuildingTypes(random);
+        register();
+        return generateWorld(random);
+    }
+
+    /** "Item t.i" items, spread over tiers 0..depth (the remainder goes to tier 0) */
+    public List<ItemType> generateItems(Random random) {
+        int tiers = depth + 1;
+        int perTier = Math.max(1, itemCount / tiers);
+        items = new ArrayList<>(itemCount);
+        for (int tier = 0; tier < tiers; tier++) {
+            int count = (tier == 0) ? Math.max(1, itemCount - perTier * depth) : perTier;
+            for (int i = 0; i < count; i++) {
+                double spoilsAfter = 5 + random.nextInt(200);
+                items.add(new ItemType(itemName(tier, i), tierName(tier), 0.1 + random.nextInt(20) / 10.0,
+                    0.1 + random.nextInt(50) / 10.0, spoilsAfter, true, true, true));
+            }
+        }
+        return items;
+    }
+
+    /** One recipe per item: gathering for tier 0, fanIn lower-tier ingredients above it */
+    public List<Recipe> generateRecipes(Random random) {
+        List<List<String>> tiers = itemsByTier();
+        recipes = new ArrayList<>(items.size());
+        for (int tier = 0; tier < tiers.size(); tier++) {
+            List<String> lower = new ArrayList<>();
+            for (int t = 0; t < tier; t++) lower.addAll(tiers.get(t));
+
+            for (String output : tiers.get(tier)) {
+                List<IngredientPair> ingredients = new ArrayList<>();
+                if (tier > 0) {
+                    List<String> previous = tiers.get(tier - 1);
+                    List<String> picked = new ArrayList<>();
+                    picked.add(previous.get(random.nextInt(previous.size())));
+                    while (picked.size() < Math.min(fanIn, lower.size())) {
+                        String candidate = lower.get(random.nextInt(lower.size()));
+                        if (!picked.contains(candidate)) picked.add(candidate);
+                    }
+                    for (String input : picked) ingredients.add(new IngredientPair(input, 1 + random.nextInt(4)));
+                }
+                List<IngredientPair> outputs = new ArrayList<>(List.of(new IngredientPair(output, 1 + random.nextInt(3))));
+                recipes.add(new Recipe("Make " + output, tierName(tier), "--", ingredients.size(), 1,
+                    new IngredientsList(new ArrayList<>(ingredients)), new IngredientsList(new ArrayList<>(outputs)), 1.0, true));
+            }
+        }
+        return recipes;
+    }
+
+    /** buildingTypesPerTier "Workshop t.k" types per tier, each running that tier's recipes */
+    public List<ProductionBuildingType> generateBuildingTypes(Random random) {
+        buildingTypes = new ArrayList<>();
+        for (int tier = 0; tier <= depth; tier++) {
+            for (int k = 0; k < buildingTypesPerTier; k++) {
+                String name = "Workshop " + tier + "." + k;
+                List<IngredientPair> cost = new ArrayList<>(List.of(new IngredientPair(itemName(0, 0), 5 + random.nextInt(20))));
+                buildingTypes.add(new ProductionBuildingType(name, "-", tierName(tier), 1, 0, new ArrayList<>(cost), 0, null,
+                    new RecipeHandler(1 + random.nextInt(3), new ArrayList<>(List.of(tierName(tier))))));
+            }
+        }
+        return buildingTypes;
+    }
+
+    /** Puts the generated items, recipes and building types in the registries (added to what is already there) */
+    public void register() {
+        ItemRegistry.addItems(items);
+        RecipeRegistry.addRecipes(recipes);
+        BuildingTypeRegistry.register(buildingTypes);
+    }
+
+    /** buildingCount buildings of random types, each with an active recipe and batchesPerStorage batches */
+    public World generateWorld(Random random) {
+        List<List<Recipe>> recipesByTier = new ArrayList<>();
+        for (int tier = 0; tier <= depth; tier++) recipesByTier.add(new ArrayList<>());
+        for (Recipe recipe : recipes) recipesByTier.get(tierOf(recipe.getCategory())).add(recipe);
+        Map<String, Double> spoilsAfter = new HashMap<>();
+        for (ItemType item : items) spoilsAfter.put(item.getName(), item.getHowLongToGoBad());
+
+        int width = Math.max(1, (int) Math.sqrt(buildingCount));
+        world = new World();
+        for (int i = 0; i < buildingCount; i++) {
+            ProductionBuildingType type = buildingTypes.get(random.nextInt(buildingTypes.size()));
+            List<Recipe> typeRecipes = recipesByTier.get(tierOf(type.getCategory()));
+            Recipe active = typeRecipes.get(random.nextInt(typeRecipes.size()));
+
+            ProductionBuildingInstance building = new ProductionBuildingInstance(type, "Player" + random.nextInt(players), i % width, i / width, storageCapacity);
+            AdvancedStorage storage = building.getStorage();
+            for (int b = 0; b < batchesPerStorage; b++) {
+                List<IngredientPair> stocked = stockedItems(typeRecipes.get(random.nextInt(typeRecipes.size())));
+                IngredientPair item = stocked.get(random.nextInt(stocked.size()));
+                int maxDurability = spoilsAfter.get(item.getItem_name()).intValue();
+                storage.addItem(item.getItemId(), 1 + random.nextInt(10), 1 + random.nextInt(maxDurability));
+            }
+            building.setActiveRecipe(active);
+            building.setCondition(50 + random.nextInt(51));
+            world.addBuilding(building);
+        }
+        return world;
+    }
+
+
+
+    // OUTPUT =======================================================================================
+    /** Writes items.json, recipes.json, buildingtypes.json and world.json (whatever was generated) to the
+     *  directory, in the formats ItemRegistry, RecipeRegistry, BuildingTypeRegistry and WorldSerializer load.
+     *  Items are written field by field, as ItemType's getters don't round trip */
+    public void writeJson(File directory) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create " + directory);
+        }
+        Map<String, ItemType> itemsByName = new LinkedHashMap<>();
+        for (ItemType item : items) itemsByName.put(item.getName(), item);
+        JsonPersistence.fieldWriter().writeValue(new File(directory, ITEMS_FILE), itemsByName);
+        JsonPersistence.write(new File(directory, RECIPES_FILE), recipes);
+        BuildingTypeList<ProductionBuildingType> types = new BuildingTypeList<>(ProductionBuildingType.class);
+        types.setBuildings(buildingTypes);
+        types.saveToJson(new File(directory, BUILDING_TYPES_FILE).getPath());
+        if (world != null) WorldSerializer.save(world, new File(directory, WORLD_FILE));
+    }
+
+
+
+    // HELPERS
+    private static String tierName(int tier) { return "Tier " + tier; }
+    private static String itemName(int tier, int i) { return "Item " + tier + "." + i; }
+
+    private static int tierOf(String category) {
+        return Integer.parseInt(category.substring("Tier ".length()));
+    }
+
+    private List<List<String>> itemsByTier() {
+        List<List<String>> tiers = new ArrayList<>();
+        for (int tier = 0; tier <= depth; tier++) tiers.add(new ArrayList<>());
+        for (ItemType item : items) tiers.get(tierOf(item.getCategory())).add(item.getName());
+        return tiers;
+    }
+
+    /** Items a building running this recipe keeps around: its ingredients, or its output for gathering */
+    private static List<IngredientPair> stockedItems(Recipe recipe) {
+        List<IngredientPair> ingredients = recipe.getIngredientslist().getIngredientslist();
+        return ingredients.isEmpty() ? recipe.getOutputslist().getIngredientslist() : ingredients;
+    }
+
+
+
+    /**
+     * Generates a data set and writes it as JSON.
+     * Run: WorldGenerator outputDir [buildings] [batchesPerStorage] [seed] [items] [depth] [fanIn]
+     *      (defaults 10000, 8, 42, 200, 4, 3)
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: WorldGenerator outputDir [buildings] [batchesPerStorage] [seed] [items] [depth] [fanIn]");
+            return;
+        }
+        File directory = new File(args[0]);
+        WorldGenerator generator = new WorldGenerator((args.length > 3) ? Long.parseLong(args[3]) : 42);
+        if (args.length > 1) generator.setBuildingCount(Integer.parseInt(args[1]));
+        if (args.length > 2) generator.setBatchesPerStorage(Integer.parseInt(args[2]));
+        if (args.length > 4) generator.setItemCount(Integer.parseInt(args[4]));
+        if (args.length > 5) generator.setDepth(Integer.parseInt(args[5]));
+        if (args.length > 6) generator.setFanIn(Integer.parseInt(args[6]));
+
+        long start = System.nanoTime();
+        World world = generator.generate();
+        long generated = System.nanoTime();
+        generator.writeJson(directory);
+        long written = System.nanoTime();
+
+        System.out.println(String.format("Generated %d items, %d recipes, %d building types, %d buildings in %.1f ms; wrote %s in %.1f ms (world.json %.1f MB)",
+            generator.getItems().size(), generator.getRecipes().size(), generator.getBuildingTypes().size(), world.size(),
+            (generated - start) / 1e6, directory, (written - generated) / 1e6, new File(directory, WORLD_FILE).length() / 1e6));
+    }
+}
@@ -0,0 +1,487 @@
+package com.productionchain.world;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.zip.CRC32;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.productionchain.buildings.BuildingInstance;
+import com.productionchain.buildings.ProductionBuildingInstance;
+import com.productionchain.enginedatatypes.Recipe;
+import com.productionchain.mechanics.AdvancedStorage;
+import com.productionchain.metrics.Metrics;
+import com.productionchain.persistence.JsonPersistence;
+import com.productionchain.persistence.SnapshotInput;
+import com.productionchain.persistence.SnapshotOutput;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Write-ahead journal of the changes made to a World since its last save, so a crash loses at most
+ * the turn in progress.
+ *
+ * Changes go through the journal's methods (placeBuilding, addItem, setActiveRecipe, runTurn...),
+ * which apply them to the world and append a record. A turn is recorded as a single "turn ran"
+ * record: TurnEngine is deterministic, so replaying it redoes every recipe run, spoiled batch and
+ * aged animal without journaling them one by one.
+ *
+ * Records are collected in memory and committed as one frame per turn (runTurn commits, or call
+ * commit()). Frames are written and fsynced by the journal's own thread: the simulation thread only
+ * hands the bytes over. Frames waiting together are written with one fsync (group commit).
+ *
+ * File: "PCWJ", version (1 byte), turn of the save it follows (8 bytes), then frames of
+ * [payload length][CRC32 of payload][payload = record count + records]. A frame that is cut short
+ * or fails its CRC ends the journal; replay() stops there and the next open drops it.
+ *
+ * Startup: load the last save, replay(journal, world, engine), then open a WorldJournal on the same
+ * file to keep appending. After every full or incremental save, call checkpoint().
+ * A journal is used from one simulation thread.
+ */
+public class WorldJournal implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(WorldJournal.class);
+
+    static final byte[] MAGIC = { 'P', 'C', 'W', 'J' };
+    public static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = MAGIC.length + 1 + 8;
+    private static final int FRAME_HEADER_SIZE = 8;
+
+    private static final int TAG_PLACE          = 1;
+    private static final int TAG_REMOVE         = 2;
+    private static final int TAG_ADD_ITEM       = 3;
+    private static final int TAG_REMOVE_ITEM    = 4;
+    private static final int TAG_SET_RECIPE     = 5;
+    private static final int TAG_PERFORM_RECIPE = 6;
+    private static final int TAG_TURN           = 7;
+
+    private static final byte[] STOP = new byte[0];
+
+    private final World world;
+    private final FileChannel channel;
+
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private final SnapshotOutput out = new SnapshotOutput(Channels.newChannel(pending), 4096);
+    private int pendingRecords;
+
+    private final BlockingQueue<byte[]> frames = new LinkedBlockingQueue<>();
+    private final Thread writerThread;
+    private final Object lock = new Object();
+    private long committedFrames;   // guarded by lock
+    private long durableFrames;     // guarded by lock
+    private volatile IOException failure;
+
+
+    /** Opens (or creates) the journal and appends after its last complete frame */
+    public WorldJournal(File file, World world) throws IOException {
+        this.world = world;
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() < HEADER_SIZE) {
+            writeHeader(world.getTurn());
+        } else {
+            readHeader(channel);
+            channel.truncate(scanFrames(channel));   // drop a frame cut short by a crash
+            channel.position(channel.size());
+        }
+        this.writerThread = new Thread(this::writeFrames, "world-journal");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+
+    // JOURNALED CHANGES ============================================================================
+    public void placeBuilding(BuildingInstance building) {
+        world.addBuilding(building);
+        record(TAG_PLACE, building);
+        bytes(buildingJson(building));
+    }
+
+    public boolean removeBuilding(BuildingInstance building) {
+        boolean removed = world.removeBuilding(building);
+        if (removed) record(TAG_REMOVE, building);
+        return removed;
+    }
+
+    public void addItem(BuildingInstance building, String itemName, double amount, double durability) {
+        building.getStorage().addItem(itemName, amount, durability);
+        record(TAG_ADD_ITEM, building);
+        string(itemName);
+        number(amount);
+        number(durability);
+    }
+
+    public void removeItem(BuildingInstance building, String itemName, double amount) {
+        building.getStorage().removeItem(itemName, amount);
+        record(TAG_REMOVE_ITEM, building);
+        string(itemName);
+        number(amount);
+    }
+
+    public void setActiveRecipe(BuildingInstance building, Recipe recipe) {
+        building.setActiveRecipe(recipe);
+        record(TAG_SET_RECIPE, building);
+        bytes(recipe == null ? new byte[0] : recipeJson(recipe));
+    }
+
+    public void performRecipe(BuildingInstance building) {
+        building.performRecipe();
+        record(TAG_PERFORM_RECIPE, building);
+    }
+
+    /** Runs one turn, records it and commits everything recorded since the last commit */
+    public TurnReport runTurn(TurnEngine engine) throws IOException {
+        TurnReport report = engine.runTurn();
+        record(TAG_TURN, null);
+        commit();
+        return report;
+    }
+
+
+
+    // COMMITS ======================================================================================
+    /** Hands the records collected so far to the writer thread. Doesn't wait for the disk */
+    public void commit() throws IOException {
+        throwIfFailed();
+        if (pendingRecords == 0) return;
+        out.flush();
+        byte[] records = pending.toByteArray();
+        byte[] payload = ByteBuffer.allocate(4 + records.length).putInt(pendingRecords).put(records).array();
+        pending.reset();
+        pendingRecords = 0;
+        synchronized (lock) { committedFrames++; }
+        frames.add(payload);
+    }
+
+    /** Waits until every committed frame is on disk */
+    public void sync() throws IOException {
+        synchronized (lock) {
+            while (durableFrames < committedFrames && failure == null) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for the journal", e);
+                }
+            }
+        }
+        throwIfFailed();
+    }
+
+    /** The world was just saved: everything journaled so far is in the save, so start over from its turn */
+    public void checkpoint() throws IOException {
+        out.flush();    // buffered records go to pending, then are dropped with it
+        pending.reset();
+        pendingRecords = 0;
+        sync();
+        channel.truncate(0);
+        channel.position(0);
+        writeHeader(world.getTurn());
+    }
+
+    /** Commits, waits for the disk and stops the writer thread */
+    @Override
+    public void close() throws IOException {
+        try {
+            commit();
+            sync();
+        } finally {
+            frames.add(STOP);
+            try {
+                writerThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            channel.close();
+        }
+    }
+
+    /** Writer thread: writes every frame waiting, then fsyncs once for all of them */
+    private void writeFrames() {
+        List<byte[]> batch = new ArrayList<>();
+        CRC32 crc = new CRC32();
+        ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER_SIZE);
+        while (true) {
+            try {
+                batch.add(frames.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            frames.drainTo(batch);
+            boolean stop = batch.remove(STOP);
+            try {
+                long start = Metrics.start();
+                for (byte[] payload : batch) {
+                    crc.reset();
+                    crc.update(payload, 0, payload.length);
+                    header.clear();
+                    header.putInt(payload.length).putInt((int) crc.getValue()).flip();
+                    writeFully(header);
+                    writeFully(ByteBuffer.wrap(payload));
+                }
+                if (!batch.isEmpty()) channel.force(false);
+                Metrics.JOURNAL_FLUSH.record(start);
+            } catch (IOException e) {
+                failure = e;
+            }
+            synchronized (lock) {
+                durableFrames += batch.size();
+                lock.notifyAll();
+            }
+            batch.clear();
+            if (stop) return;
+        }
+    }
+
+
+
+    // REPLAY =======================================================================================
+    /**
+     * Applies the journal to a world loaded from the save it follows. Turns are re-run with the
+     * engine. Returns how many records were applied (0 if there is no journal, or it is older than
+     * the save).
+     */
+    public static int replay(File file, World world, TurnEngine engine) throws IOException {
+        if (!file.exists()) return 0;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) return 0;
+            long baseTurn = readHeader(channel);
+            if (baseTurn < world.getTurn()) {
+                LOG.warn("Journal starts at turn {}, before the save (turn {}). Ignored", baseTurn, world.getTurn());
+                return 0;
+            }
+            if (baseTurn > world.getTurn()) {
+                throw new IOException("Journal starts at turn " + baseTurn + " but the world was saved at turn " + world.getTurn());
+            }
+
+            Map<Long, BuildingInstance> byId = new HashMap<>();
+            for (BuildingInstance building : world.getBuildings()) byId.put(building.getInstanceId(), building);
+
+            int applied = 0;
+            for (byte[] payload = nextFrame(channel); payload != null; payload = nextFrame(channel)) {
+                ByteBuffer frame = ByteBuffer.wrap(payload);
+                int records = frame.getInt();
+                SnapshotInput in = new SnapshotInput(Channels.newChannel(new ByteArrayInputStream(payload, 4, payload.length - 4)), 4096);
+                for (int i = 0; i < records; i++) {
+                    apply(in, world, engine, byId);
+                    applied++;
+                }
+            }
+            return applied;
+        }
+    }
+
+    private static void apply(SnapshotInput in, World world, TurnEngine engine, Map<Long, BuildingInstance> byId) throws IOException {
+        int tag = in.readByte();
+        if (tag == TAG_TURN) {
+            engine.runTurn();
+            return;
+        }
+        long id = in.readVarLong() - 1;
+        if (tag == TAG_PLACE) {
+            BuildingInstance building = readBuildingJson(in.readBytes());
+            building.setInstanceId(id);
+            world.addBuilding(building);
+            byId.put(id, building);
+            return;
+        }
+
+        BuildingInstance building = byId.get(id);
+        if (building == null) throw new IOException("Journal refers to unknown building " + id);
+        switch (tag) {
+            case TAG_REMOVE:
+                world.removeBuilding(building);
+                byId.remove(id);
+                break;
+            case TAG_ADD_ITEM:
+                building.getStorage().addItem(in.readString(), in.readDouble(), in.readDouble());
+                break;
+            case TAG_REMOVE_ITEM:
+                building.getStorage().removeItem(in.readString(), in.readDouble());
+                break;
+            case TAG_SET_RECIPE:
+                byte[] json = in.readBytes();
+                building.setActiveRecipe(json.length == 0 ? null : JsonPersistence.reader(Recipe.class).readValue(json));
+                break;
+            case TAG_PERFORM_RECIPE:
+                building.performRecipe();
+                break;
+            default:
+                throw new IOException("Unknown journal record " + tag);
+        }
+    }
+
+
+
+    // ENCODING =====================================================================================
+    private void record(int tag, BuildingInstance building) {
+        try {
+            out.writeByte(tag);
+            if (building != null) out.writeVarLong(building.getInstanceId() + 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        pendingRecords++;
+    }
+
+    private void string(String value) {
+        try { out.writeString(value); } catch (IOException e) { throw new UncheckedIOException(e); }
+    }
+
+    private void number(double value) {
+        try { out.writeDouble(value); } catch (IOException e) { throw new UncheckedIOException(e); }
+    }
+
+    private void bytes(byte[] value) {
+        try { out.writeBytes(value); } catch (IOException e) { throw new UncheckedIOException(e); }
+    }
+
+    private static byte[] buildingJson(BuildingInstance building) {
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+        try (JsonGenerator gen = JsonPersistence.createGenerator(json)) {
+            WorldSerializer.writeBuilding(gen, building);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return json.toByteArray();
+    }
+
+    private static BuildingInstance readBuildingJson(byte[] json) throws IOException {
+        try (JsonParser parser = JsonPersistence.createParser(new ByteArrayInputStream(json))) {
+            parser.nextToken();
+            return WorldSerializer.readBuilding(parser);
+        }
+    }
+
+    private static byte[] recipeJson(Recipe recipe) {
+        try {
+            return JsonPersistence.compactWriter(Recipe.class).writeValueAsBytes(recipe);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeHeader(long turn) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.put(MAGIC).put((byte) FORMAT_VERSION).putLong(turn).flip();
+        writeFully(header);
+        channel.force(false);
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) channel.write(buffer);
+    }
+
+    /** Reads the header at the start of the channel and returns the turn it follows */
+    private static long readHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        channel.position(0);
+        while (header.hasRemaining() && channel.read(header) >= 0) {}
+        header.flip();
+        for (byte b : MAGIC) {
+            if (header.get() != b) throw new IOException("Not a world journal");
+        }
+        int version = header.get();
+        if (version > FORMAT_VERSION) {
+            throw new IOException("Journal format " + version + " is newer than this reader (" + FORMAT_VERSION + ")");
+        }
+        return header.getLong();
+    }
+
+    /** Payload of the next complete frame, or null at the end (or at a torn/corrupt frame) */
+    private static byte[] nextFrame(FileChannel channel) throws IOException {
+        long start = channel.position();
+        if (channel.size() - start < FRAME_HEADER_SIZE) return null;
+        ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER_SIZE);
+        while (header.hasRemaining() && channel.read(header) >= 0) {}
+        header.flip();
+        int length = header.getInt();
+        int expectedCrc = header.getInt();
+        if (length < 4 || channel.size() - channel.position() < length) {
+            channel.position(start);
+            return null;
+        }
+        ByteBuffer payload = ByteBuffer.allocate(length);
+        while (payload.hasRemaining() && channel.read(payload) >= 0) {}
+        CRC32 crc = new CRC32();
+        crc.update(payload.array(), 0, length);
+        if ((int) crc.getValue() != expectedCrc) {
+            channel.position(start);
+            return null;
+        }
+        return payload.array();
+    }
+
+    /** End of the last complete frame */
+    private static long scanFrames(FileChannel channel) throws IOException {
+        channel.position(HEADER_SIZE);
+        while (nextFrame(channel) != null) {}
+        return channel.position();
+    }
+
+    private void throwIfFailed() throws IOException {
+        if (failure != null) throw new IOException("Journal write failed", failure);
+    }
+
+
+
+    /**
+     * Journals a busy world (every building gets items added and removed every turn) and prints
+     * how many records per second the simulation thread gets through.
+     * Run: WorldJournal [buildings] [turns]   (defaults 10000, 50)
+     */
+    public static void main(String[] args) throws IOException {
+        int numBuildings = (args.length > 0) ? Integer.parseInt(args[0]) : 10_000;
+        int turns        = (args.length > 1) ? Integer.parseInt(args[1]) : 50;
+
+        File file = File.createTempFile("world", ".journal");
+        World world = new World();
+        TurnEngine engine = new TurnEngine(world);
+        try (WorldJournal journal = new WorldJournal(file, world)) {
+            for (int i = 0; i < numBuildings; i++) {
+                ProductionBuildingInstance building = new ProductionBuildingInstance();
+                building.settypeName("Hut");
+                building.setStorage(new AdvancedStorage(1000.0, null));
+                journal.placeBuilding(building);
+            }
+            journal.commit();
+
+            long start = System.nanoTime();
+            for (int turn = 0; turn < turns; turn++) {
+                for (BuildingInstance building : world.getBuildings()) {
+                    journal.addItem(building, "Wood", 2, 1000);
+                    journal.removeItem(building, "Wood", 1);
+                }
+                journal.runTurn(engine);
+            }
+            long simNanos = System.nanoTime() - start;
+            journal.sync();
+            long totalNanos = System.nanoTime() - start;
+
+            long records = 2L * numBuildings * turns + turns;
+            System.out.println(String.format("%d records over %d turns: simulation thread %.1f ms (%.0f records/s), on disk after %.1f ms, %.1f MB",
+                records, turns, simNanos / 1e6, records / (simNanos / 1e9), totalNanos / 1e6, file.length() / 1e6));
+        }
+
+        World replayed = new World();
+        long start = System.nanoTime();
+        int applied = replay(file, replayed, new TurnEngine(replayed));
+        System.out.println(String.format("Replayed %d records in %.1f ms (%d buildings, turn %d)",
+            applied, (System.nanoTime() - start) / 1e6, replayed.size(), replayed.getTurn()));
+        file.delete();
+    }
+}
@@ -0,0 +1,340 @@
+package com.productionchain.world;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.productionchain.buildings.AnimalBuildingInstance;
+import com.productionchain.buildings.BuildingInstance;
+import com.productionchain.buildings.ProductionBuildingInstance;
+import com.productionchain.enginedatatypes.Recipe;
+import com.productionchain.mechanics.AdvancedStorage;
+import com.productionchain.mechanics.AnimalInstance;
+import com.productionchain.metrics.Metrics;
+import com.productionchain.persistence.JsonPersistence;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Saves and loads a World one building at a time with Jackson's streaming JsonGenerator/JsonParser.
+ *
+ * Nothing the size of the whole world is built in memory: the save writes each building (with its
+ * storage and animals) straight to the output, and the load hands each building to a callback as
+ * soon as its object is closed. Only the small objects inside a building (storage, active recipe)
+ * go through databind, with the shared JsonPersistence mapper.
+ *
+ * Format:
+ *   {
+ *     "turn": 12,
+ *     "buildings": [
+ *       { "instanceType": "ProductionBuildingInstance", "instanceId": 7, "typeName": "Kiln", "owner": "Pedro",
+ *         "x": 0, "y": 3, "condition": 100.0, "activeRecipe": {...} | null, "storage": {...} },
+ *       { "instanceType": "AnimalBuildingInstance", ..., "cleanliness": 100.0,
+ *         "housedAnimals": [ { "typeName": "Cow", "gender": "female", "state": "alive", "age": 2.0,
+ *                              "satisfaction": 100.0, "productivity": 100.0, "health": 100.0 } ] }
+ *     ]
+ *   }
+ * "instanceId" is the id the World gave the building (left out when it has none); WorldJournal
+ * finds buildings by it when replaying on a loaded save. Unknown fields are skipped, so older
+ * readers can load newer files.
+ *
+ * Building and animal types are resolved by name from their registries while loading.
+ */
+public final class WorldSerializer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(WorldSerializer.class);
+
+    public static final String PRODUCTION_INSTANCE = ProductionBuildingInstance.class.getSimpleName();
+    public static final String ANIMAL_INSTANCE     = AnimalBuildingInstance.class.getSimpleName();
+
+
+    private WorldSerializer() {}
+
+
+    // SAVE =========================================================================================
+    public static void save(World world, File file) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+            save(world, out);
+        }
+    }
+
+    /** Writes the world to the stream (the stream is left open) */
+    public static void save(World world, OutputStream out) throws IOException {
+        long start = Metrics.start();
+        try (Writer writer = new Writer(out, world.getTurn())) {
+            for (BuildingInstance building : world.getBuildings()) {
+                writer.write(building);
+            }
+        }
+        Metrics.WORLD_SAVE.record(start);
+    }
+
+    /**
+     * Writes buildings as they come (e.g. straight from a loader callback). close() ends the file
+     * and leaves the stream open.
+     */
+    public static final class Writer implements Consumer<BuildingInstance>, Closeable {
+        private final JsonGenerator gen;
+
+        public Writer(OutputStream out, long turn) throws IOException {
+            this.gen = JsonPersistence.createGenerator(out);
+            gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            gen.writeStartObject();
+            gen.writeNumberField("turn", turn);
+            gen.writeArrayFieldStart("buildings");
+        }
+
+        public void write(BuildingInstance building) throws IOException {
+            writeBuilding(gen, building);
+        }
+
+        @Override
+        public void accept(BuildingInstance building) {
+            try {
+                write(building);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            gen.writeEndArray();
+            gen.writeEndObject();
+            gen.close();
+        }
+    }
+
+    static void writeBuilding(JsonGenerator gen, BuildingInstance building) throws IOException {
+        gen.writeStartObject();
+        gen.writeStringField("instanceType", building.getInstanceType());
+        if (building.getInstanceId() >= 0) gen.writeNumberField("instanceId", building.getInstanceId());
+        gen.writeStringField("typeName", building.gettypeName());
+        gen.writeStringField("owner", building.getOwner());
+        gen.writeNumberField("x", building.getXcoord());
+        gen.writeNumberField("y", building.getYcoord());
+        gen.writeNumberField("condition", building.getCondition());
+        gen.writeFieldName("activeRecipe");
+        gen.writeObject(building.getActiveRecipe());
+        gen.writeFieldName("storage");
+        gen.writeObject(building.getStorage());
+
+        if (building instanceof AnimalBuildingInstance) {
+            AnimalBuildingInstance animalBuilding = (AnimalBuildingInstance) building;
+            gen.writeNumberField("cleanliness", animalBuilding.getCleanliness());
+            gen.writeArrayFieldStart("housedAnimals");
+            if (animalBuilding.getHousedAnimals() != null) {
+                for (AnimalInstance animal : animalBuilding.getHousedAnimals()) {
+                    writeAnimal(gen, animal);
+                }
+            }
+            gen.writeEndArray();
+        }
+        gen.writeEndObject();
+    }
+
+    private static void writeAnimal(JsonGenerator gen, AnimalInstance animal) throws IOException {
+        gen.writeStartObject();
+        gen.writeStringField("typeName", animal.gettypeName());
+        gen.writeStringField("gender", animal.getGender());
+        gen.writeStringField("state", animal.getState());
+        gen.writeNumberField("age", animal.getAge());
+        gen.writeNumberField("satisfaction", animal.getSatisfaction());
+        gen.writeNumberField("productivity", animal.getProductivity());
+        gen.writeNumberField("health", animal.getHealth());
+        gen.writeEndObject();
+    }
+
+
+
+    // LOAD =========================================================================================
+    /** Reads a whole World back (every building is added in file order) */
+    public static World loadWorld(File file) throws IOException {
+        World world = new World();
+        long turn = load(file, world::addBuilding);
+        world.setTurn(turn);
+        return world;
+    }
+
+    /** Hands each building to the callback as it is read. Returns the saved turn */
+    public static long load(File file, Consumer<BuildingInstance> callback) throws IOException {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            return load(in, callback);
+        }
+    }
+
+    public static long load(InputStream in, Consumer<BuildingInstance> callback) throws IOException {
+        long start = Metrics.start();
+        long turn = 0;
+        try (JsonParser parser = JsonPersistence.createParser(in)) {
+            expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "turn":
+                        turn = parser.getLongValue();
+                        break;
+                    case "buildings":
+                        expect(parser, value, JsonToken.START_ARRAY);
+                        while (parser.nextToken() == JsonToken.START_OBJECT) {
+                            callback.accept(readBuilding(parser));
+                        }
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+        }
+        Metrics.WORLD_LOAD.record(start);
+        return turn;
+    }
+
+    /** Reads one building object. The parser is on its START_OBJECT and is left on its END_OBJECT */
+    static BuildingInstance readBuilding(JsonParser parser) throws IOException {
+        String instanceType = null, typeName = null, owner = null;
+        long instanceId = -1;
+        int x = 0, y = 0;
+        double condition = 100, cleanliness = 100;
+        Recipe activeRecipe = null;
+        AdvancedStorage storage = null;
+        ArrayList<AnimalInstance> housedAnimals = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "instanceType": instanceType = parser.getValueAsString(); break;
+                case "instanceId":   instanceId = parser.getLongValue(); break;
+                case "typeName":     typeName = parser.getValueAsString(); break;
+                case "owner":        owner = parser.getValueAsString(); break;
+                case "x":            x = parser.getIntValue(); break;
+                case "y":            y = parser.getIntValue(); break;
+                case "condition":    condition = parser.getDoubleValue(); break;
+                case "cleanliness":  cleanliness = parser.getDoubleValue(); break;
+                case "activeRecipe": activeRecipe = (value == JsonToken.VALUE_NULL) ? null : parser.readValueAs(Recipe.class); break;
+                case "storage":      storage = (value == JsonToken.VALUE_NULL) ? null : parser.readValueAs(AdvancedStorage.class); break;
+                case "housedAnimals":
+                    expect(parser, value, JsonToken.START_ARRAY);
+                    housedAnimals = new ArrayList<>();
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        housedAnimals.add(readAnimal(parser));
+                    }
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+
+        BuildingInstance building;
+        if (ANIMAL_INSTANCE.equals(instanceType)) {
+            AnimalBuildingInstance animalBuilding = new AnimalBuildingInstance();
+            animalBuilding.setHousedAnimals(housedAnimals != null ? housedAnimals : new ArrayList<>());
+            animalBuilding.setCleanliness(cleanliness);
+            building = animalBuilding;
+        } else if (PRODUCTION_INSTANCE.equals(instanceType)) {
+            building = new ProductionBuildingInstance();
+        } else {
+            throw new IOException("Unknown building instanceType '" + instanceType + "' at " + parser.currentLocation());
+        }
+
+        building.setInstanceId(instanceId);
+        building.settypeName(typeName);
+        if (building.getType() == null) {
+            LOG.error("Building '{}' doesn't exist in registry!", typeName);
+        }
+        building.setOwner(owner);
+        building.setXcoord(x);
+        building.setYcoord(y);
+        building.setCondition(condition);
+        building.setStorage(storage != null ? storage : new AdvancedStorage(0.0, new ArrayList<>()));
+        if (activeRecipe != null && building.getType() != null) {
+            building.setActiveRecipe(activeRecipe);   // still checked against the building type
+        }
+        return building;
+    }
+
+    private static AnimalInstance readAnimal(JsonParser parser) throws IOException {
+        AnimalInstance animal = new AnimalInstance();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "typeName":     animal.settypeName(parser.getValueAsString()); break;
+                case "gender":       animal.setGender(parser.getValueAsString()); break;
+                case "state":        animal.setState(parser.getValueAsString()); break;
+                case "age":          animal.setAge(parser.getDoubleValue()); break;
+                case "satisfaction": animal.setSatisfaction(parser.getDoubleValue()); break;
+                case "productivity": animal.setProductivity(parser.getDoubleValue()); break;
+                case "health":       animal.setHealth(parser.getDoubleValue()); break;
+                default:             parser.skipChildren();
+            }
+        }
+        return animal;
+    }
+
+    private static void expect(JsonParser parser, JsonToken actual, JsonToken expected) throws IOException {
+        if (actual != expected) {
+            throw new IOException("Expected " + expected + " but found " + actual + " at " + parser.currentLocation());
+        }
+    }
+
+
+
+    /**
+     * Saves and streams back a world of N buildings and prints the time and the heap in use.
+     * Run: WorldSerializer [buildings] [file]   (defaults 1000000, a temp file)
+     */
+    public static void main(String[] args) throws IOException {
+        int numBuildings = (args.length > 0) ? Integer.parseInt(args[0]) : 1_000_000;
+        File file = (args.length > 1) ? new File(args[1]) : File.createTempFile("world", ".json");
+        Runtime rt = Runtime.getRuntime();
+
+        World world = new World();
+        for (int i = 0; i < numBuildings; i++) {
+            ProductionBuildingInstance building = new ProductionBuildingInstance();
+            building.settypeName("Hut");
+            building.setOwner("Pedro");
+            building.setXcoord(i % 1000);
+            building.setYcoord(i / 1000);
+            building.setCondition(100);
+            building.setStorage(new AdvancedStorage(100.0, new ArrayList<>(Arrays.asList("Wood", "Coal"))));
+            building.getStorage().addItem("Wood", 1 + i % 7, 5);
+            world.addBuilding(building);
+        }
+
+        System.gc();
+        long heapBefore = rt.totalMemory() - rt.freeMemory();
+        long start = System.nanoTime();
+        save(world, file);
+        long saveNanos = System.nanoTime() - start;
+        System.out.println(String.format("Saved %d buildings in %.1f ms (%.1f MB on disk, heap %.1f MB -> %.1f MB)",
+            numBuildings, saveNanos / 1e6, file.length() / 1e6, heapBefore / 1e6, (rt.totalMemory() - rt.freeMemory()) / 1e6));
+
+        world = null;
+        System.gc();
+        heapBefore = rt.totalMemory() - rt.freeMemory();
+        long[] count = new long[1];
+        start = System.nanoTime();
+        load(file, building -> count[0]++);   // nothing kept: only the building being read is alive
+        long loadNanos = System.nanoTime() - start;
+        System.out.println(String.format("Streamed %d buildings in %.1f ms (heap %.1f MB -> %.1f MB)",
+            count[0], loadNanos / 1e6, heapBefore / 1e6, (rt.totalMemory() - rt.freeMemory()) / 1e6));
+
+        if (args.length < 2) file.delete();
+    }
+}
@@ -0,0 +1,554 @@
+package com.productionchain.world;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+import com.productionchain.buildings.AnimalBuildingInstance;
+import com.productionchain.buildings.BuildingInstance;
+import com.productionchain.buildings.ProductionBuildingInstance;
+import com.productionchain.enginedatatypes.ItemRegistry;
+import com.productionchain.enginedatatypes.Recipe;
+import com.productionchain.mechanics.AdvancedStorage;
+import com.productionchain.mechanics.AnimalInstance;
+import com.productionchain.mechanics.BatchQueue;
+import com.productionchain.metrics.Metrics;
+import com.productionchain.persistence.JsonPersistence;
+import com.productionchain.persistence.SnapshotInput;
+import com.productionchain.persistence.SnapshotOutput;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Compact binary snapshot of a World, for autosaves. Holds the same data as the WorldSerializer
+ * JSON, building instance ids included, and converts both ways (jsonToSnapshot / snapshotToJson),
+ * so a WorldJournal replays the same on a save in either format.
+ *
+ * Layout (all through SnapshotOutput/SnapshotInput on a FileChannel):
+ *   header   : "PCWS", format version (1 byte), turn (8 bytes, patched when the writer closes)
+ *   records  : one per building, tag 1 = production, 2 = animal; tag 0 ends the file.
+ *              Tag 3 = building removed (id only), used by incremental saves
+ *   building : id + 1 (0 = no id, version 2 on), typeName, owner (string refs), x, y (zigzag),
+ *              condition, activeRecipe (recipe ref),
+ *              storage, and for animal buildings cleanliness + housed animals
+ *   storage  : capacity, allowed items (item refs), then per stored item:
+ *              item ref, batch count, all quantities, then all durabilities (oldest batch first)
+ *
+ * Repeated values are written once and referred to by index afterwards, with a dictionary that
+ * grows as the file is written, so nothing has to be known up front:
+ *   - item refs  : ItemRegistry ids map to file-local indexes. 0 = new item (name follows), k = index k-1
+ *   - string refs: 0 = null, 1 = new string follows, k = index k-2 (owners, type names, genders...)
+ *   - recipe refs: 0 = none, 1 = new recipe (its JSON follows), k = index k-2. Buildings running the
+ *                  same Recipe object share one copy, also after loading.
+ * Item ids in the file therefore don't depend on the order items were registered in this process.
+ *
+ * A writer and reader can also work on a channel that is already open, starting at its current
+ * position, so several snapshots can follow each other in one file (IncrementalAutosave's delta log).
+ */
+public final class WorldSnapshot {
+
+    private static final Logger LOG = LoggerFactory.getLogger(WorldSnapshot.class);
+
+    static final byte[] MAGIC = { 'P', 'C', 'W', 'S' };
+    public static final int FORMAT_VERSION = 2;
+    private static final long TURN_OFFSET = MAGIC.length + 1;
+
+    private static final int TAG_END        = 0;
+    private static final int TAG_PRODUCTION = 1;
+    private static final int TAG_ANIMAL     = 2;
+    private static final int TAG_REMOVED    = 3;
+
+    private static final int REF_NULL = 0;
+    private static final int REF_NEW  = 1;
+
+
+    private WorldSnapshot() {}
+
+
+    // WHOLE WORLD ==================================================================================
+    public static void save(World world, File file) throws IOException {
+        long start = Metrics.start();
+        try (Writer writer = new Writer(file)) {
+            writer.setTurn(world.getTurn());
+            for (BuildingInstance building : world.getBuildings()) {
+                writer.write(building);
+            }
+        }
+        Metrics.SNAPSHOT_SAVE.record(start);
+    }
+
+    public static World loadWorld(File file) throws IOException {
+        World world = new World();
+        world.setTurn(load(file, world::addBuilding));
+        return world;
+    }
+
+    /** Hands each building to the callback as it is read. Returns the saved turn */
+    public static long load(File file, Consumer<BuildingInstance> callback) throws IOException {
+        long start = Metrics.start();
+        try (Reader reader = new Reader(file)) {
+            reader.forEach(callback);
+            Metrics.SNAPSHOT_LOAD.record(start);
+            return reader.getTurn();
+        }
+    }
+
+
+    // CONVERSION ===================================================================================
+    /** WorldSerializer JSON -> snapshot, one building at a time */
+    public static void jsonToSnapshot(File json, File snapshot) throws IOException {
+        try (Writer writer = new Writer(snapshot)) {
+            writer.setTurn(WorldSerializer.load(json, writer));
+        }
+    }
+
+    /** Snapshot -> WorldSerializer JSON, one building at a time */
+    public static void snapshotToJson(File snapshot, File json) throws IOException {
+        try (Reader reader = new Reader(snapshot);
+             OutputStream out = new BufferedOutputStream(new FileOutputStream(json));
+             WorldSerializer.Writer writer = new WorldSerializer.Writer(out, reader.getTurn())) {
+            reader.forEach(writer);
+        }
+    }
+
+
+
+    // WRITER =======================================================================================
+    /** Writes buildings as they come. The turn can be set any time before close() */
+    public static final class Writer implements Consumer<BuildingInstance>, Closeable {
+        private final FileChannel channel;
+        private final boolean ownsChannel;
+        private final long start;                  // channel position of the header
+        private final SnapshotOutput out;
+        private long turn;
+
+        private int[] itemRefs = new int[0];       // ItemRegistry id -> file index + 1 (0 = not written yet)
+        private int itemCount;
+        private final Map<String, Integer> strings = new HashMap<>();
+        private final Map<Recipe, Integer> recipes = new IdentityHashMap<>();
+
+        public Writer(File file) throws IOException {
+            this(FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING), true);
+        }
+
+        /** Writes from the channel's current position. close() leaves the channel open, positioned after the snapshot */
+        public Writer(FileChannel channel) throws IOException {
+            this(channel, false);
+        }
+
+        private Writer(FileChannel channel, boolean ownsChannel) throws IOException {
+            this.channel = channel;
+            this.ownsChannel = ownsChannel;
+            this.start = channel.position();
+            this.out = new SnapshotOutput(channel);
+            for (byte b : MAGIC) out.writeByte(b);
+            out.writeByte(FORMAT_VERSION);
+            out.writeLong(0);                       // turn, patched in close()
+        }
+
+        public void setTurn(long turn) {
+            this.turn = turn;
+        }
+
+        public void write(BuildingInstance building) throws IOException {
+            boolean animal = building instanceof AnimalBuildingInstance;
+            out.writeByte(animal ? TAG_ANIMAL : TAG_PRODUCTION);
+            out.writeVarLong(building.getInstanceId() + 1);
+            writeStringRef(building.gettypeName());
+            writeStringRef(building.getOwner());
+            out.writeZigZag(building.getXcoord());
+            out.writeZigZag(building.getYcoord());
+            out.writeDouble(building.getCondition());
+            writeRecipeRef(building.getActiveRecipe());
+            writeStorage(building.getStorage());
+
+            if (animal) {
+                AnimalBuildingInstance animalBuilding = (AnimalBuildingInstance) building;
+                out.writeDouble(animalBuilding.getCleanliness());
+                List<AnimalInstance> animals = animalBuilding.getHousedAnimals();
+                int count = (animals == null) ? 0 : animals.size();
+                out.writeVarInt(count);
+                for (int i = 0; i < count; i++) {
+                    writeAnimal(animals.get(i));
+                }
+            }
+        }
+
+        /** Records that the building with this id no longer exists */
+        public void writeRemoved(long instanceId) throws IOException {
+            out.writeByte(TAG_REMOVED);
+            out.writeVarLong(instanceId + 1);
+        }
+
+        @Override
+        public void accept(BuildingInstance building) {
+            try {
+                write(building);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                out.writeByte(TAG_END);
+                out.flush();
+                out.writeLongAt(start + TURN_OFFSET, turn);
+            } finally {
+                if (ownsChannel) channel.close();
+            }
+        }
+
+
+        private void writeStorage(AdvancedStorage storage) throws IOException {
+            if (storage == null) {
+                out.writeByte(0);
+                return;
+            }
+            out.writeByte(1);
+            out.writeDouble(storage.getCapacity());
+
+            List<String> allowedItems = storage.getAllowedItems();
+            out.writeVarInt(allowedItems == null ? 0 : allowedItems.size() + 1);
+            if (allowedItems != null) {
+                for (String itemName : allowedItems) writeItemRef(ItemRegistry.getItemId(itemName));
+            }
+
+            int[] itemIds = storage.getStoredItemIds();
+            int stored = 0;
+            for (int id : itemIds) {
+                if (!storage.getBatches(id).isEmpty()) stored++;
+            }
+            out.writeVarInt(stored);
+            for (int id : itemIds) {
+                BatchQueue batches = storage.getBatches(id);
+                if (batches.isEmpty()) continue;
+                writeItemRef(id);
+                out.writeVarInt(batches.size());
+                for (int slot = 0; slot < batches.slotCount(); slot++) {
+                    if (batches.isLive(slot)) out.writeDouble(batches.quantityAt(slot));
+                }
+                for (int slot = 0; slot < batches.slotCount(); slot++) {
+                    if (batches.isLive(slot)) out.writeDouble(batches.durabilityAt(slot));
+                }
+            }
+        }
+
+        private void writeAnimal(AnimalInstance animal) throws IOException {
+            writeStringRef(animal.gettypeName());
+            writeStringRef(animal.getGender());
+            writeStringRef(animal.getState());
+            out.writeDouble(animal.getAge());
+            out.writeDouble(animal.getSatisfaction());
+            out.writeDouble(animal.getProductivity());
+            out.writeDouble(animal.getHealth());
+        }
+
+        private void writeItemRef(int itemId) throws IOException {
+            if (itemId >= itemRefs.length) {
+                itemRefs = Arrays.copyOf(itemRefs, Math.max(itemId + 1, ItemRegistry.getItemIdCount()));
+            }
+            if (itemRefs[itemId] != 0) {
+                out.writeVarInt(itemRefs[itemId]);
+            } else {
+                itemRefs[itemId] = ++itemCount;
+                out.writeVarInt(0);
+                out.writeString(ItemRegistry.getItemName(itemId));
+            }
+        }
+
+        private void writeStringRef(String value) throws IOException {
+            if (value == null) {
+                out.writeVarInt(REF_NULL);
+                return;
+            }
+            Integer index = strings.get(value);
+            if (index != null) {
+                out.writeVarInt(index + 2);
+            } else {
+                strings.put(value, strings.size());
+                out.writeVarInt(REF_NEW);
+                out.writeString(value);
+            }
+        }
+
+        private void writeRecipeRef(Recipe recipe) throws IOException {
+            if (recipe == null) {
+                out.writeVarInt(REF_NULL);
+                return;
+            }
+            Integer index = recipes.get(recipe);
+            if (index != null) {
+                out.writeVarInt(index + 2);
+            } else {
+                recipes.put(recipe, recipes.size());
+                out.writeVarInt(REF_NEW);
+                out.writeBytes(JsonPersistence.compactWriter(Recipe.class).writeValueAsBytes(recipe));
+            }
+        }
+    }
+
+
+
+    // READER =======================================================================================
+    /** Reads the header on open; buildings are then read one at a time with next() or forEach() */
+    public static final class Reader implements Closeable {
+        private final FileChannel channel;
+        private final boolean ownsChannel;
+        private final long start;                  // channel position of the header
+        private final SnapshotInput in;
+        private final int version;
+        private final long turn;
+        private boolean ended;
+
+        private int[] itemIds = new int[16];        // file index -> ItemRegistry id
+        private int itemCount;
+        private final List<String> strings = new ArrayList<>();
+        private final List<Recipe> recipes = new ArrayList<>();
+
+        public Reader(File file) throws IOException {
+            this(FileChannel.open(file.toPath(), StandardOpenOption.READ), true);
+        }
+
+        /** Reads from the channel's current position. close() leaves the channel open, positioned after the snapshot */
+        public Reader(FileChannel channel) throws IOException {
+            this(channel, false);
+        }
+
+        private Reader(FileChannel channel, boolean ownsChannel) throws IOException {
+            this.channel = channel;
+            this.ownsChannel = ownsChannel;
+            try {
+                this.start = channel.position();
+                this.in = new SnapshotInput(channel);
+                for (byte b : MAGIC) {
+                    if (in.readByte() != b) throw new IOException("Not a world snapshot");
+                }
+                this.version = in.readByte();
+                if (version > FORMAT_VERSION) {
+                    throw new IOException("Snapshot format " + version + " is newer than this reader (" + FORMAT_VERSION + ")");
+                }
+                this.turn = in.readLong();
+            } catch (IOException e) {
+                if (ownsChannel) channel.close();
+                throw e;
+            }
+        }
+
+        public long getTurn() {
+            return turn;
+        }
+
+        /** Next building, or null at the end of the snapshot. Removal records are skipped */
+        public BuildingInstance next() throws IOException {
+            return next(id -> {});
+        }
+
+        /** Next building, or null at the end of the snapshot. Ids of removal records on the way go to removed */
+        public BuildingInstance next(LongConsumer removed) throws IOException {
+            while (!ended) {
+                int tag = in.readByte();
+                switch (tag) {
+                    case TAG_END:        ended = true; break;
+                    case TAG_PRODUCTION: return readBuilding(new ProductionBuildingInstance());
+                    case TAG_ANIMAL:     return readAnimalBuilding();
+                    case TAG_REMOVED:    removed.accept(in.readVarLong() - 1); break;
+                    default:             throw new IOException("Unknown record tag " + tag);
+                }
+            }
+            return null;
+        }
+
+        public void forEach(Consumer<BuildingInstance> callback) throws IOException {
+            forEach(callback, id -> {});
+        }
+
+        public void forEach(Consumer<BuildingInstance> callback, LongConsumer removed) throws IOException {
+            for (BuildingInstance building = next(removed); building != null; building = next(removed)) {
+                callback.accept(building);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (ownsChannel) channel.close();
+            else channel.position(start + in.position());
+        }
+
+
+        private BuildingInstance readBuilding(BuildingInstance building) throws IOException {
+            if (version >= 2) building.setInstanceId(in.readVarLong() - 1);
+            building.settypeName(readStringRef());
+            if (building.getType() == null) {
+                LOG.error("Building '{}' doesn't exist in registry!", building.gettypeName());
+            }
+            building.setOwner(readStringRef());
+            building.setXcoord((int) in.readZigZag());
+            building.setYcoord((int) in.readZigZag());
+            building.setCondition(in.readDouble());
+            Recipe activeRecipe = readRecipeRef();
+            AdvancedStorage storage = readStorage();
+            building.setStorage(storage != null ? storage : new AdvancedStorage(0.0, new ArrayList<>()));
+            if (activeRecipe != null && building.getType() != null) {
+                building.setActiveRecipe(activeRecipe);   // still checked against the building type
+            }
+            return building;
+        }
+
+        private BuildingInstance readAnimalBuilding() throws IOException {
+            AnimalBuildingInstance building = (AnimalBuildingInstance) readBuilding(new AnimalBuildingInstance());
+            building.setCleanliness(in.readDouble());
+            int count = in.readVarInt();
+            ArrayList<AnimalInstance> animals = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                AnimalInstance animal = new AnimalInstance();
+                animal.settypeName(readStringRef());
+                animal.setGender(readStringRef());
+                animal.setState(readStringRef());
+                animal.setAge(in.readDouble());
+                animal.setSatisfaction(in.readDouble());
+                animal.setProductivity(in.readDouble());
+                animal.setHealth(in.readDouble());
+                animals.add(animal);
+            }
+            building.setHousedAnimals(animals);
+            return building;
+        }
+
+        private AdvancedStorage readStorage() throws IOException {
+            if (in.readByte() == 0) return null;
+            double capacity = in.readDouble();
+
+            int allowedRef = in.readVarInt();
+            ArrayList<String> allowedItems = null;
+            if (allowedRef > 0) {
+                allowedItems = new ArrayList<>(allowedRef - 1);
+                for (int i = 0; i < allowedRef - 1; i++) {
+                    allowedItems.add(ItemRegistry.getItemName(readItemRef()));
+                }
+            }
+            AdvancedStorage storage = new AdvancedStorage(capacity, allowedItems);
+
+            int stored = in.readVarInt();
+            double[] quantities = new double[0];
+            for (int i = 0; i < stored; i++) {
+                int itemId = readItemRef();
+                int batches = in.readVarInt();
+                if (quantities.length < batches) quantities = new double[batches];
+                for (int b = 0; b < batches; b++) quantities[b] = in.readDouble();
+                for (int b = 0; b < batches; b++) storage.addItem(itemId, quantities[b], in.readDouble());
+            }
+            return storage;
+        }
+
+        private int readItemRef() throws IOException {
+            int ref = in.readVarInt();
+            if (ref == 0) {
+                if (itemCount == itemIds.length) itemIds = Arrays.copyOf(itemIds, itemCount * 2);
+                int itemId = ItemRegistry.getItemId(in.readString());
+                itemIds[itemCount++] = itemId;
+                return itemId;
+            }
+            if (ref > itemCount) throw new IOException("Unknown item ref " + ref);
+            return itemIds[ref - 1];
+        }
+
+        private String readStringRef() throws IOException {
+            int ref = in.readVarInt();
+            if (ref == REF_NULL) return null;
+            if (ref == REF_NEW) {
+                String value = in.readString();
+                strings.add(value);
+                return value;
+            }
+            if (ref - 2 >= strings.size()) throw new IOException("Unknown string ref " + ref);
+            return strings.get(ref - 2);
+        }
+
+        private Recipe readRecipeRef() throws IOException {
+            int ref = in.readVarInt();
+            if (ref == REF_NULL) return null;
+            if (ref == REF_NEW) {
+                Recipe recipe = JsonPersistence.reader(Recipe.class).readValue(in.readBytes());
+                recipes.add(recipe);
+                return recipe;
+            }
+            if (ref - 2 >= recipes.size()) throw new IOException("Unknown recipe ref " + ref);
+            return recipes.get(ref - 2);
+        }
+    }
+
+
+
+    /**
+     * Saves and loads the same world as JSON (WorldSerializer) and as a snapshot, and prints the
+     * file sizes and times of each.
+     * Run: WorldSnapshot [buildings] [rounds]   (defaults 100000, 3)
+     */
+    public static void main(String[] args) throws IOException {
+        int numBuildings = (args.length > 0) ? Integer.parseInt(args[0]) : 100_000;
+        int rounds       = (args.length > 1) ? Integer.parseInt(args[1]) : 3;
+
+        World world = new World();
+        for (int i = 0; i < numBuildings; i++) {
+            ProductionBuildingInstance building = new ProductionBuildingInstance();
+            building.settypeName("Hut");
+            building.setOwner("Player" + (i % 4));
+            building.setXcoord(i % 1000);
+            building.setYcoord(i / 1000);
+            building.setCondition(100 - i % 30);
+            building.setStorage(new AdvancedStorage(100.0, new ArrayList<>(Arrays.asList("Wood", "Coal", "Stone"))));
+            building.getStorage().addItem("Wood", 1 + i % 7, 5 + i % 3);
+            building.getStorage().addItem("Wood", 2, 8);
+            building.getStorage().addItem("Coal", 3 + i % 5, 10);
+            world.addBuilding(building);
+        }
+        world.setTurn(42);
+
+        File json = File.createTempFile("world", ".json");
+        File snapshot = File.createTempFile("world", ".pcws");
+        System.out.println(String.format("World of %d buildings, %d rounds", numBuildings, rounds));
+        for (int round = 1; round <= rounds; round++) {
+            long start = System.nanoTime();
+            WorldSerializer.save(world, json);
+            long jsonSave = System.nanoTime() - start;
+            start = System.nanoTime();
+            World fromJson = WorldSerializer.loadWorld(json);
+            long jsonLoad = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            save(world, snapshot);
+            long snapSave = System.nanoTime() - start;
+            start = System.nanoTime();
+            World fromSnapshot = loadWorld(snapshot);
+            long snapLoad = System.nanoTime() - start;
+
+            if (fromJson.size() != numBuildings || fromSnapshot.size() != numBuildings) {
+                throw new IllegalStateException("Lost buildings: " + fromJson.size() + " / " + fromSnapshot.size());
+            }
+            System.out.println(String.format(
+                "  round %d: JSON %.1f MB save %.1f ms load %.1f ms | snapshot %.1f MB save %.1f ms load %.1f ms",
+                round, json.length() / 1e6, jsonSave / 1e6, jsonLoad / 1e6,
+                snapshot.length() / 1e6, snapSave / 1e6, snapLoad / 1e6));
+        }
+        json.delete();
+        snapshot.delete();
+    }
+}
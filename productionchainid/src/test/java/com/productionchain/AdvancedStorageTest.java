@@ -4,6 +4,7 @@ import static org.junit.Assert.*;
 import org.junit.Before;
 import org.junit.Test;
 import com.productionchain.mechanics.AdvancedStorage;
+import com.productionchain.enginedatatypes.ItemRegistry;
 import com.productionchain.constants.ItemConstants;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -296,4 +297,184 @@ public class AdvancedStorageTest {
 
         TestLogger.endTest("testToString_ContainsStorageInfo", true);
     }
+
+    @Test
+    public void testRunningTotals_MatchBatchesAfterMixedOperations() {
+        TestLogger.startTest("testRunningTotals_MatchBatchesAfterMixedOperations");
+
+        TestLogger.test("testRunningTotals_MatchBatchesAfterMixedOperations", "ACTION", "Adding, removing and degrading batches");
+        storage.addItemCheckCapacity(ItemConstants.WOOD, 10, 2.0);
+        storage.addItemCheckCapacity(ItemConstants.WOOD, 5, 6.0);
+        storage.addItemCheckCapacity(ItemConstants.STONE, 7.5, 4.0);
+        storage.removeItem(ItemConstants.WOOD, 12);
+        storage.degradeItems();
+        storage.degradeItems();
+        TestLogger.state("After operations", storage.toString());
+
+        TestLogger.test("testRunningTotals_MatchBatchesAfterMixedOperations", "VERIFY", "Running totals should match the batches");
+        boolean consistent = storage.verifyTotals();
+        TestLogger.verify("Totals should match batches", true, consistent, consistent);
+        assertTrue("Totals should match batches", consistent);
+        assertEquals("Wood left after FIFO removal", 3.0, storage.getItemQuantity(ItemConstants.WOOD), 0.001);
+        assertEquals("Used capacity should be wood + stone", 10.5, storage.getUsedCapacity(), 0.001);
+
+        TestLogger.endTest("testRunningTotals_MatchBatchesAfterMixedOperations", true);
+    }
+
+    @Test
+    public void testRunningTotals_RebuiltAfterJsonLoad() throws Exception {
+        TestLogger.startTest("testRunningTotals_RebuiltAfterJsonLoad");
+
+        storage.addItemCheckCapacity(ItemConstants.WOOD, 10, 5.0);
+        storage.addItemCheckCapacity(ItemConstants.STONE, 4, 5.0);
+        java.io.File file = java.io.File.createTempFile("adv_storage", ".json");
+        file.deleteOnExit();
+        storage.saveToJson(file.getPath());
+
+        TestLogger.test("testRunningTotals_RebuiltAfterJsonLoad", "ACTION", "Loading storage from " + file.getName());
+        AdvancedStorage loaded = new AdvancedStorage();
+        loaded.loadFromJson(file.getPath());
+        TestLogger.state("Loaded storage", loaded.toString());
+
+        assertTrue("Totals should match batches after load", loaded.verifyTotals());
+        assertEquals("Used capacity should survive the round trip", 14.0, loaded.getUsedCapacity(), 0.001);
+        assertTrue("Loaded storage should report its wood", loaded.hasItem(ItemConstants.WOOD, 10));
+
+        TestLogger.endTest("testRunningTotals_RebuiltAfterJsonLoad", true);
+    }
+
+    @Test
+    public void testVerifyTotalsMode_ChecksEveryMutation() {
+        TestLogger.startTest("testVerifyTotalsMode_ChecksEveryMutation");
+
+        AdvancedStorage.setVerifyTotals(true);
+        try {
+            storage.addItemCheckCapacity(ItemConstants.WOOD, 10, 3.0);
+            storage.removeItem(ItemConstants.WOOD, 4);
+            storage.degradeItems();
+            assertEquals("Verified operations should keep the right quantity", 6.0, storage.getItemQuantity(ItemConstants.WOOD), 0.001);
+        } finally {
+            AdvancedStorage.setVerifyTotals(false);
+        }
+
+        TestLogger.endTest("testVerifyTotalsMode_ChecksEveryMutation", true);
+    }
+
+    @Test
+    public void testDegradeItems_BatchBehindHeadSpoilsOnTime() {
+        TestLogger.startTest("testDegradeItems_BatchBehindHeadSpoilsOnTime");
+
+        storage.addItemCheckCapacity(ItemConstants.WOOD, 5, 10.0);
+        storage.addItemCheckCapacity(ItemConstants.WOOD, 3, 2.0);  // newer but spoils first
+        storage.addItemCheckCapacity(ItemConstants.WOOD, 4, 10.0);
+
+        storage.degradeItems();
+        assertEquals("Nothing should spoil on the first turn", 12.0, storage.getItemQuantity(ItemConstants.WOOD), 0.001);
+
+        storage.degradeItems();
+        TestLogger.state("AdvancedStorage (after 2 turns)", storage.toString());
+        assertEquals("Middle batch should spoil after 2 turns", 9.0, storage.getItemQuantity(ItemConstants.WOOD), 0.001);
+        assertEquals("Used capacity should drop with it", 9.0, storage.getUsedCapacity(), 0.001);
+        assertEquals("Two batches should be left", 2, storage.getItems().get(ItemConstants.WOOD).size());
+        assertTrue("Totals should match batches", storage.verifyTotals());
+
+        storage.removeItem(ItemConstants.WOOD, 6);
+        assertEquals("Removal should skip the spoiled slot", 3.0, storage.getItemQuantity(ItemConstants.WOOD), 0.001);
+
+        TestLogger.endTest("testDegradeItems_BatchBehindHeadSpoilsOnTime", true);
+    }
+
+    @Test
+    public void testDurability_DerivedFromStorageTurn() throws Exception {
+        TestLogger.startTest("testDurability_DerivedFromStorageTurn");
+
+        storage.addItemCheckCapacity(ItemConstants.STONE, 4, 5.0);
+        storage.degradeItems();
+        storage.degradeItems();
+        storage.addItemCheckCapacity(ItemConstants.STONE, 2, 5.0);
+
+        assertEquals("Storage clock should count the turns", 2, storage.getTurn());
+        assertEquals("Old batch should have lost 2 durability", 3.0, storage.getItems().get(ItemConstants.STONE).durabilityAt(0), 0.001);
+        assertEquals("New batch should keep its durability", 5.0, storage.getItems().get(ItemConstants.STONE).durabilityAt(1), 0.001);
+
+        java.io.File file = java.io.File.createTempFile("adv_storage", ".json");
+        file.deleteOnExit();
+        storage.saveToJson(file.getPath());
+        AdvancedStorage loaded = new AdvancedStorage();
+        loaded.loadFromJson(file.getPath());
+
+        loaded.degradeItems();
+        loaded.degradeItems();
+        loaded.degradeItems();
+        assertEquals("Old batch should spoil on its remaining durability", 2.0, loaded.getItemQuantity(ItemConstants.STONE), 0.001);
+        loaded.degradeItems();
+        loaded.degradeItems();
+        assertFalse("New batch should spoil on its remaining durability", loaded.hasItem(ItemConstants.STONE, 1));
+        assertTrue("Empty item entry should be dropped", loaded.getItems().isEmpty());
+
+        TestLogger.endTest("testDurability_DerivedFromStorageTurn", true);
+    }
+
+    @Test
+    public void testItemIdApi_MatchesNameApi() {
+        TestLogger.startTest("testItemIdApi_MatchesNameApi");
+
+        int woodId = ItemRegistry.getItemId(ItemConstants.WOOD);
+        storage.addItem(woodId, 6, 5.0);
+        storage.addItemCheckCapacity(ItemConstants.WOOD, 4, 5.0);
+        storage.addItemCheckCapacity(ItemConstants.COAL, 4, 5.0); // not allowed here
+
+        assertEquals("Name and id lookups should agree", storage.getItemQuantity(ItemConstants.WOOD), storage.getItemQuantity(woodId), 0.001);
+        assertEquals("Both adds should land in the same queue", 10.0, storage.getItemQuantity(woodId), 0.001);
+        assertTrue("Removal by id should work", storage.removeItem(woodId, 7));
+        assertTrue("Name lookup should see the removal", storage.hasItem(ItemConstants.WOOD, 3));
+        assertFalse("Disallowed item should not be stored", storage.hasItem(ItemConstants.COAL, 1));
+        assertEquals("Map view should be keyed by name", 1, storage.getItems().size());
+        assertTrue("Map view should contain wood", storage.getItems().containsKey(ItemConstants.WOOD));
+
+        TestLogger.endTest("testItemIdApi_MatchesNameApi", true);
+    }
+
+    @Test
+    public void testStoredItemIds_FollowAddsAndRemovals() {
+        TestLogger.startTest("testStoredItemIds_FollowAddsAndRemovals");
+
+        int woodId = ItemRegistry.getItemId(ItemConstants.WOOD);
+        int stoneId = ItemRegistry.getItemId(ItemConstants.STONE);
+        storage.addItemCheckCapacity(ItemConstants.STONE, 4, 1.0);
+        storage.addItemCheckCapacity(ItemConstants.WOOD, 4, 5.0);
+        int[] expected = { Math.min(woodId, stoneId), Math.max(woodId, stoneId) };
+        assertArrayEquals("Ids should come back ascending", expected, storage.getStoredItemIds());
+
+        storage.degradeItems();
+        assertArrayEquals("Spoiled item should be dropped", new int[] { woodId }, storage.getStoredItemIds());
+        storage.removeItem(woodId, 4);
+        assertEquals(0, storage.getStoredItemIds().length);
+
+        TestLogger.endTest("testStoredItemIds_FollowAddsAndRemovals", true);
+    }
+
+    @Test
+    public void testSpoilageSchedule_StaysBoundedWhenBatchesAreUsedUp() {
+        TestLogger.startTest("testSpoilageSchedule_StaysBoundedWhenBatchesAreUsedUp");
+
+        storage.addItemCheckCapacity(ItemConstants.STONE, 5, 100.0);
+        for (int turn = 0; turn < 10_000; turn++) {
+            if (turn == 50) assertTrue("Live batch should survive compactions", storage.hasItem(ItemConstants.STONE, 5));
+            storage.addItemCheckCapacity(ItemConstants.WOOD, 10, 1e9);   // never spoils
+            assertTrue(storage.removeItem(ItemConstants.WOOD, 10));
+            storage.degradeItems();
+            assertTrue("Schedule should not keep every used up batch", storage.getScheduledBatchCount() <= 32);
+        }
+        assertFalse("Stone should still spoil on its turn", storage.hasItem(ItemConstants.STONE, 1));
+        assertEquals(0.0, storage.getUsedCapacity(), 1e-9);
+
+        storage.addItemCheckCapacity(ItemConstants.WOOD, 10, 2.0);
+        storage.addItemCheckCapacity(ItemConstants.WOOD, 10, 1e9);
+        storage.degradeItems();
+        storage.degradeItems();
+        assertEquals("Batch scheduled after a compaction should still spoil", 10.0, storage.getItemQuantity(ItemConstants.WOOD), 0.001);
+
+        TestLogger.endTest("testSpoilageSchedule_StaysBoundedWhenBatchesAreUsedUp", true);
+    }
 }
@@ -0,0 +1,53 @@
+package com.productionchain;
+
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import com.productionchain.enginedatatypes.IngredientsList;
+import com.productionchain.mechanics.AnimalType;
+import com.productionchain.mechanics.AnimalTypeRegistry;
+
+/**
+ * Unit tests for AnimalTypeRegistry.
+ * Tests name lookups staying in step with the registry.
+ */
+public class AnimalTypeRegistryTest {
+
+    @Before
+    public void setUp() {
+        AnimalTypeRegistry.clear();
+    }
+
+    @After
+    public void tearDown() {
+        AnimalTypeRegistry.clear();
+    }
+
+    private AnimalType animal(String name, double lifeSpan) {
+        return new AnimalType(name, "-", 1, 2, 3, lifeSpan, new IngredientsList(), new IngredientsList(), new IngredientsList(),
+            0, 0, 0, new IngredientsList(), new IngredientsList());
+    }
+
+    @Test
+    public void testGetAnimalByName() {
+        AnimalType cow = animal("Cow", 20);
+        AnimalTypeRegistry.addAnimal(cow);
+        AnimalTypeRegistry.addAnimal(animal("Cow", 30));
+        AnimalTypeRegistry.addAnimal(animal("Pig", 10));
+
+        assertSame("Lookup should return the first animal with the name", cow, AnimalTypeRegistry.getAnimalByName("Cow"));
+        assertNotNull("Other animals should be found", AnimalTypeRegistry.getAnimalByName("Pig"));
+        assertNull("Unknown animal should return null", AnimalTypeRegistry.getAnimalByName("Horse"));
+        assertEquals("Registry should keep every animal", 3, AnimalTypeRegistry.getAnimalTypes().size());
+    }
+
+    @Test
+    public void testClear_EmptiesIndex() {
+        AnimalTypeRegistry.addAnimal(animal("Cow", 20));
+        AnimalTypeRegistry.clear();
+
+        assertNull("Cleared animal should not be found", AnimalTypeRegistry.getAnimalByName("Cow"));
+        assertTrue("Registry should be empty", AnimalTypeRegistry.getAnimalTypes().isEmpty());
+    }
+}
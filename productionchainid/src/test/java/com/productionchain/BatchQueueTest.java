@@ -0,0 +1,66 @@
+package com.productionchain;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.productionchain.constants.ItemConstants;
+import com.productionchain.mechanics.AdvancedStorage;
+import com.productionchain.mechanics.BatchQueue;
+
+/**
+ * Unit tests for BatchQueue.
+ * Tests FIFO order across ring buffer wrap-around and the JSON batch format.
+ */
+public class BatchQueueTest {
+
+    @Test
+    public void testFIFO_AcrossWrapAroundAndGrowth() {
+        BatchQueue queue = new BatchQueue(2);
+        int next = 0;
+        int expectedHead = 0;
+
+        // Interleave adds and removals so the head moves around the ring while it grows
+        for (int round = 0; round < 20; round++) {
+            queue.addLast(next, 100 + next); next++;
+            queue.addLast(next, 100 + next); next++;
+            queue.addLast(next, 100 + next); next++;
+            assertEquals("Oldest batch should come out first", expectedHead, queue.removeFirst(), 0.0);
+            expectedHead++;
+        }
+
+        assertEquals("Should keep the batches that were not removed", next - expectedHead, queue.size());
+        for (int i = 0; i < queue.size(); i++) {
+            assertEquals("Batches should stay in insertion order", expectedHead + i, queue.quantityAt(i), 0.0);
+            assertEquals("Durability should stay with its batch", 100 + expectedHead + i, queue.durabilityAt(i), 0.0);
+        }
+    }
+
+    @Test
+    public void testTake_PartialHeadAndTotal() {
+        BatchQueue queue = new BatchQueue();
+        queue.addLast(3, 5);
+        queue.addLast(4, 6);
+
+        double taken = queue.take(5);
+
+        assertEquals("Should take everything asked for", 5.0, taken, 0.001);
+        assertEquals("First batch should be gone", 1, queue.size());
+        assertEquals("Second batch should be partially used", 2.0, queue.peekQuantity(), 0.001);
+        assertEquals("Total should follow the removals", 2.0, queue.getTotal(), 0.001);
+    }
+
+    @Test
+    public void testJson_SameShapeAsBatchList() throws Exception {
+        String json = "{\"capacity\":10.0,\"items\":{\"Wood\":[{\"quantity\":3.0,\"durability\":1.0},"
+            + "{\"quantity\":2.0,\"durability\":2.0}],\"Coal\":[{\"quantity\":3.0,\"durability\":2.0}]}}";
+        ObjectMapper mapper = new ObjectMapper();
+
+        AdvancedStorage storage = mapper.readValue(json, AdvancedStorage.class);
+        assertEquals("Wood batches should be summed", 5.0, storage.getItemQuantity(ItemConstants.WOOD), 0.001);
+        assertEquals("Used capacity should include every item", 8.0, storage.getUsedCapacity(), 0.001);
+
+        String written = mapper.writeValueAsString(storage.getItems().get(ItemConstants.WOOD));
+        assertEquals("Queue should be written as a list of batches",
+            "[{\"quantity\":3.0,\"durability\":1.0},{\"quantity\":2.0,\"durability\":2.0}]", written);
+    }
+}
@@ -0,0 +1,126 @@
+package com.productionchain;
+
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import com.productionchain.buildings.BuildingInstance;
+import com.productionchain.buildings.ProductionBuildingInstance;
+import com.productionchain.buildings.ProductionBuildingType;
+import com.productionchain.constants.BuildingConstants;
+import com.productionchain.constants.ItemConstants;
+import com.productionchain.constants.RecipeConstants;
+import com.productionchain.enginedatatypes.IngredientPair;
+import com.productionchain.enginedatatypes.IngredientsList;
+import com.productionchain.enginedatatypes.ItemRegistry;
+import com.productionchain.enginedatatypes.Recipe;
+import com.productionchain.mechanics.RecipeHandler;
+import com.productionchain.world.BottleneckAnalyzer;
+import com.productionchain.world.BottleneckAnalyzer.Bottleneck;
+import com.productionchain.world.TurnEngine;
+import com.productionchain.world.World;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Unit tests for BottleneckAnalyzer.
+ * Checks starved and blocked buildings are told apart, the rankings, and that parallel turns count the same.
+ */
+public class BottleneckAnalyzerTest {
+
+    private ProductionBuildingType kiln;
+    private Recipe charcoal;
+
+    @Before
+    public void setUp() {
+        kiln = new ProductionBuildingType(BuildingConstants.BUILDING_KILN, "-", BuildingConstants.BUILDING_KILN, 1, 0,
+            new ArrayList<>(), 0, null, new RecipeHandler(2, new ArrayList<>(List.of(RecipeConstants.CATEGORY_BASIC_KILN))));
+        charcoal = new Recipe(RecipeConstants.RECIPE_CHARCOAL, RecipeConstants.CATEGORY_BASIC_KILN, "--", 1, 1,
+            new IngredientsList(new ArrayList<>(List.of(new IngredientPair(ItemConstants.WOOD, 2)))),
+            new IngredientsList(new ArrayList<>(List.of(new IngredientPair(ItemConstants.COAL, 3)))), 1.0, true);
+    }
+
+    /** copies x (running, 1 run short of wood, out of wood, out of room, no recipe) */
+    private World world(int copies) {
+        World world = new World();
+        for (int i = 0; i < copies; i++) {
+            world.addBuilding(kiln(100, 40, true));   // runs fully for 10 turns
+            world.addBuilding(kiln(100, 2, true));    // one run, then starved
+            world.addBuilding(kiln(100, 0, true));    // starved
+            world.addBuilding(kiln(5, 4, true));      // one run (4 - 2 + 3 = 5), then no room
+            world.addBuilding(kiln(100, 0, false));
+        }
+        return world;
+    }
+
+    private BuildingInstance kiln(double capacity, double wood, boolean active) {
+        ProductionBuildingInstance building = new ProductionBuildingInstance(kiln, "Player1", 0, 0, capacity);
+        if (wood > 0) building.getStorage().addItem(ItemConstants.WOOD, wood, 20);
+        if (active) building.setActiveRecipe(charcoal);
+        return building;
+    }
+
+    @Test
+    public void testStalls_StarvedAndBlockedToldApart() {
+        World world = world(1);
+        world.getBuildings().get(0).runActiveRecipe();
+        assertEquals(BuildingInstance.Stall.NONE, world.getBuildings().get(0).getLastStall());
+        world.getBuildings().get(1).runActiveRecipe();
+        assertEquals(BuildingInstance.Stall.MISSING_INGREDIENTS, world.getBuildings().get(1).getLastStall());
+        assertEquals(ItemConstants.WOOD, ItemRegistry.getItemName(world.getBuildings().get(1).getLastMissingItemId()));
+        world.getBuildings().get(3).runActiveRecipe();
+        assertEquals(BuildingInstance.Stall.STORAGE_FULL, world.getBuildings().get(3).getLastStall());
+        world.getBuildings().get(4).runActiveRecipe();
+        assertEquals(BuildingInstance.Stall.NO_RECIPE, world.getBuildings().get(4).getLastStall());
+    }
+
+    @Test
+    public void testRanking_AfterTurns() {
+        TurnEngine engine = new TurnEngine(world(3));
+        BottleneckAnalyzer analyzer = new BottleneckAnalyzer();
+        engine.setBottleneckAnalyzer(analyzer);
+        engine.runTurns(2);
+
+        assertEquals(2, analyzer.getTurnsAnalyzed());
+        assertEquals(3, analyzer.getBuildingsWithoutRecipe());
+
+        List<Bottleneck> items = analyzer.getTopMissingItems(5);
+        assertEquals(1, items.size());
+        assertEquals(ItemConstants.WOOD, items.get(0).getItemName());
+        assertEquals("Both short kilns are starved in turn 2", 6, items.get(0).getBuildings());
+        assertEquals(3 * (2 + 2), items.get(0).getLostRuns());
+        assertEquals("Turn 1: 1 + 2 lost per copy, turn 2: 2 + 2", 3 * (3 + 4), items.get(0).getTotalLostRuns());
+
+        List<Bottleneck> recipes = analyzer.getTopRecipes(5);
+        assertEquals(2, recipes.size());
+        assertEquals("Starved ranks first", BottleneckAnalyzer.Cause.MISSING_INGREDIENT, recipes.get(0).getCause());
+        assertEquals(RecipeConstants.RECIPE_CHARCOAL, recipes.get(0).getRecipeName());
+        assertEquals(BottleneckAnalyzer.Cause.STORAGE_FULL, recipes.get(1).getCause());
+        assertEquals(3 * 2, recipes.get(1).getLostRuns());
+        assertEquals(3 * (1 + 2), recipes.get(1).getTotalLostRuns());
+        assertEquals(1, analyzer.getTopRecipes(1).size());
+        assertTrue(analyzer.toText(3).contains("STORAGE_FULL"));
+    }
+
+    @Test
+    public void testParallel_SameCounts() {
+        BottleneckAnalyzer sequential = new BottleneckAnalyzer();
+        TurnEngine engine = new TurnEngine(world(200));
+        engine.setBottleneckAnalyzer(sequential);
+        engine.runTurns(3);
+
+        BottleneckAnalyzer parallel = new BottleneckAnalyzer();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            TurnEngine parallelEngine = new TurnEngine(world(200), TurnEngine.ExecutionMode.PARALLEL, pool);
+            parallelEngine.setChunkSize(16);
+            parallelEngine.setBottleneckAnalyzer(parallel);
+            parallelEngine.runTurns(3);
+        } finally {
+            pool.shutdown();
+        }
+
+        assertEquals(sequential.toText(10), parallel.toText(10));
+        assertEquals(200 * (3 + 4 + 4), parallel.getTopMissingItems(1).get(0).getTotalLostRuns());
+    }
+}
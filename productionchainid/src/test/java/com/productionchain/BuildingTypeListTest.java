@@ -0,0 +1,60 @@
+package com.productionchain;
+
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import com.productionchain.buildings.BuildingTypeList;
+import com.productionchain.buildings.ProductionBuildingType;
+import com.productionchain.mechanics.RecipeHandler;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Unit tests for BuildingTypeList.
+ * Tests name and category lookups staying in step with the list.
+ */
+public class BuildingTypeListTest {
+
+    private BuildingTypeList<ProductionBuildingType> list;
+
+    @Before
+    public void setUp() {
+        list = new BuildingTypeList<>(ProductionBuildingType.class);
+    }
+
+    private ProductionBuildingType building(String name, String category) {
+        return new ProductionBuildingType(name, "-", category, 1, 0, new ArrayList<>(), 0, null, new RecipeHandler());
+    }
+
+    @Test
+    public void testAddBuilding_IndexedByNameAndCategory() {
+        ProductionBuildingType hut = building("Small hut", "Hut");
+        list.addBuilding(hut);
+        list.addBuilding(building("Big hut", "Hut"));
+        list.addBuilding(building("Deep mine", "Mine"));
+
+        assertSame("Name lookup should find the building", hut, list.getBuildingByName("Small hut"));
+        assertNull("Unknown name should return null", list.getBuildingByName("Castle"));
+        assertEquals("Should have 2 huts", 2, list.getBuildingsByCategory("Hut").size());
+        assertTrue("Unknown category should be empty", list.getBuildingsByCategory("Farm").isEmpty());
+    }
+
+    @Test
+    public void testSetBuildings_RebuildsIndexes() {
+        list.addBuilding(building("Small hut", "Hut"));
+        list.setBuildings(List.of(building("Deep mine", "Mine"), building("Deep mine", "Mine")));
+
+        assertNull("Old buildings should be gone", list.getBuildingByName("Small hut"));
+        assertEquals("Duplicate names should both be in the category", 2, list.getBuildingsByCategory("Mine").size());
+        assertSame("Name lookup should return the first one", list.getBuildings().get(0), list.getBuildingByName("Deep mine"));
+
+        list.addBuilding(building("Other mine", "Mine"));  // list given to setBuildings was immutable
+        assertEquals("Adding after setBuildings should work", 3, list.getBuildings().size());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testGetBuildingsByCategory_ReadOnly() {
+        list.addBuilding(building("Small hut", "Hut"));
+        list.getBuildingsByCategory("Hut").clear();
+    }
+}
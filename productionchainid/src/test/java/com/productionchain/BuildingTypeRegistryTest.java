@@ -0,0 +1,94 @@
+package com.productionchain;
+
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.productionchain.buildings.BuildingTypeRegistry;
+import com.productionchain.buildings.ProductionBuildingInstance;
+import com.productionchain.buildings.ProductionBuildingType;
+import com.productionchain.constants.BuildingConstants;
+import com.productionchain.constants.ItemConstants;
+import com.productionchain.constants.RecipeConstants;
+import com.productionchain.enginedatatypes.IngredientPair;
+import com.productionchain.mechanics.RecipeHandler;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Unit tests for BuildingTypeRegistry.
+ * Tests default loading, versioning, and type resolution during deserialization.
+ */
+public class BuildingTypeRegistryTest {
+
+    private ProductionBuildingType hut;
+
+    @Before
+    public void setUp() {
+        hut = new ProductionBuildingType(BuildingConstants.BUILDING_HUT, "---", BuildingConstants.BUILDING_HUT, 1, 0,
+            new ArrayList<>(List.of(new IngredientPair(ItemConstants.WOOD, 10))), 0, null,
+            new RecipeHandler(1, new ArrayList<>(List.of(RecipeConstants.CATEGORY_BASIC_SILVICULTURE))));
+        BuildingTypeRegistry.setBuildingTypes(List.of(hut));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        BuildingTypeRegistry.loadDefault();
+    }
+
+    @Test
+    public void testLoadDefault_ContainsBundledTypes() throws IOException {
+        BuildingTypeRegistry.loadDefault();
+
+        assertTrue("Hut should be bundled", BuildingTypeRegistry.buildingExists(BuildingConstants.BUILDING_HUT));
+        assertTrue("Kiln should be bundled", BuildingTypeRegistry.buildingExists(BuildingConstants.BUILDING_KILN));
+        assertNotNull("Default resource path should be recorded", BuildingTypeRegistry.getSourcePath());
+    }
+
+    @Test
+    public void testGetBuildingByName_ReturnsSameInstance() {
+        assertSame("Lookups should not re-create types", hut, BuildingTypeRegistry.getBuildingByName(BuildingConstants.BUILDING_HUT));
+        assertSame("Lookups should not re-create types", BuildingTypeRegistry.getBuildingByName(BuildingConstants.BUILDING_HUT),
+                   BuildingTypeRegistry.getBuildingByName(BuildingConstants.BUILDING_HUT));
+        assertNull("Unknown type should return null", BuildingTypeRegistry.getBuildingByName("NonExistent"));
+    }
+
+    @Test
+    public void testRegisterAndReload_BumpVersion() throws IOException {
+        long before = BuildingTypeRegistry.getVersion();
+
+        BuildingTypeRegistry.register(new ProductionBuildingType(BuildingConstants.BUILDING_MINE, "-", BuildingConstants.BUILDING_MINE,
+            1, 0, new ArrayList<>(), 0, null, new RecipeHandler()));
+        assertTrue("Register should bump the version", BuildingTypeRegistry.getVersion() > before);
+        assertEquals("Register should keep existing types", 2, BuildingTypeRegistry.size());
+
+        long afterRegister = BuildingTypeRegistry.getVersion();
+        BuildingTypeRegistry.reload();
+        assertTrue("Reload should bump the version", BuildingTypeRegistry.getVersion() > afterRegister);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testGetBuildingTypes_IsImmutable() {
+        BuildingTypeRegistry.getBuildingTypes().put("Other", hut);
+    }
+
+    @Test
+    public void testDeserializeInstances_ResolveTypeFromRegistry() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        ProductionBuildingInstance instance = new ProductionBuildingInstance(hut, "Player1", 1, 2, 10);
+        instance.getStorage().addItem(ItemConstants.WOOD, 3, 5);
+
+        String json = mapper.writeValueAsString(List.of(instance, instance));
+        long version = BuildingTypeRegistry.getVersion();
+        List<ProductionBuildingInstance> loaded = mapper.readValue(json, new TypeReference<List<ProductionBuildingInstance>>() {});
+
+        assertEquals("Should load both instances", 2, loaded.size());
+        assertSame("Type should come from the registry", hut, loaded.get(0).getType());
+        assertSame("Type should come from the registry", hut, loaded.get(1).getType());
+        assertEquals("Storage should survive the round trip", 3.0, loaded.get(0).getStorage().getItemQuantity(ItemConstants.WOOD), 0.001);
+        assertEquals("Loading instances should not reload the registry", version, BuildingTypeRegistry.getVersion());
+    }
+}
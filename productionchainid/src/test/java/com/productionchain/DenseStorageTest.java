@@ -0,0 +1,101 @@
+package com.productionchain;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+import com.productionchain.constants.ItemConstants;
+import com.productionchain.constants.RecipeConstants;
+import com.productionchain.enginedatatypes.IngredientPair;
+import com.productionchain.enginedatatypes.IngredientsList;
+import com.productionchain.enginedatatypes.ItemRegistry;
+import com.productionchain.enginedatatypes.Recipe;
+import com.productionchain.mechanics.DenseStorage;
+import com.productionchain.mechanics.ItemStorage;
+import com.productionchain.mechanics.Storage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Unit tests for DenseStorage.
+ * Tests both layouts (id-indexed and allowed-items only), the running total, recipe checks and that it
+ * behaves like Storage behind ItemStorage.
+ */
+public class DenseStorageTest {
+
+    @Test
+    public void testAddRemove_KeepsRunningTotal() {
+        DenseStorage storage = new DenseStorage(100.0);
+        storage.addItem(ItemConstants.WOOD, 10);
+        storage.addItem(ItemConstants.STONE, 5);
+        storage.addItem(ItemRegistry.getItemId(ItemConstants.WOOD), 2);
+
+        assertEquals("Wood adds should sum", 12.0, storage.getItemQuantity(ItemConstants.WOOD), 0.001);
+        assertEquals("Used capacity should cover all items", 17.0, storage.getUsedCapacity(), 0.001);
+
+        assertTrue("Should remove available stock", storage.removeItem(ItemConstants.WOOD, 12));
+        assertFalse("Should refuse to remove more than stored", storage.removeItem(ItemConstants.STONE, 6));
+        assertEquals("Used capacity should follow removals", 5.0, storage.getUsedCapacity(), 0.001);
+        assertFalse("Empty item should not show in the map view", storage.getItems().containsKey(ItemConstants.WOOD));
+    }
+
+    @Test
+    public void testAllowedItems_CompactLayout() {
+        DenseStorage storage = new DenseStorage(10.0, new ArrayList<>(Arrays.asList(ItemConstants.WOOD, ItemConstants.COAL)));
+
+        storage.addItemCheckCapacity(ItemConstants.STONE, 1);
+        storage.addItemCheckCapacity(ItemConstants.WOOD, 6);
+        storage.addItemCheckCapacity(ItemConstants.COAL, 6);  // over capacity
+
+        assertFalse("Disallowed item should be refused", storage.hasItem(ItemConstants.STONE, 1));
+        assertFalse("Unchecked add should also refuse it", storage.addItem(ItemConstants.STONE, 1));
+        assertTrue("Allowed item should be stored", storage.hasItem(ItemConstants.WOOD, 6));
+        assertEquals("Add over capacity should be refused", 0.0, storage.getItemQuantity(ItemConstants.COAL), 0.001);
+        assertEquals("Available capacity should be what is left", 4.0, storage.getAvailableCapacity(), 0.001);
+    }
+
+    @Test
+    public void testHasIngredients() {
+        Recipe charcoal = new Recipe(RecipeConstants.RECIPE_CHARCOAL, RecipeConstants.CATEGORY_BASIC_KILN, "--", 1, 1,
+            new IngredientsList(new ArrayList<>(List.of(new IngredientPair(ItemConstants.WOOD, 2)))),
+            new IngredientsList(new ArrayList<>(List.of(new IngredientPair(ItemConstants.COAL, 3)))), 1.0, true);
+        DenseStorage storage = new DenseStorage(100.0);
+
+        storage.addItem(ItemConstants.WOOD, 1);
+        assertFalse("One wood is not enough", storage.hasIngredients(charcoal));
+        storage.addItem(ItemConstants.WOOD, 1);
+        assertTrue("Two wood is enough", storage.hasIngredients(charcoal));
+    }
+
+    @Test
+    public void testCreate_DenseForSmallAllowedSets() {
+        ArrayList<String> few = new ArrayList<>(Arrays.asList(ItemConstants.WOOD, ItemConstants.COAL));
+        ArrayList<String> many = new ArrayList<>(few);
+        for (int i = 0; i < ItemStorage.SMALL_ALLOWED_SET; i++) many.add("Dense test item " + i);
+        assertTrue(ItemStorage.create(10.0, few) instanceof DenseStorage);
+        assertTrue(ItemStorage.create(10.0, many) instanceof Storage);
+        assertTrue(ItemStorage.create(10.0, null) instanceof Storage);
+    }
+
+    @Test
+    public void testCreate_SameBehaviourEitherSide() {
+        ArrayList<String> few = new ArrayList<>(Arrays.asList(ItemConstants.WOOD, ItemConstants.COAL));
+        ArrayList<String> many = new ArrayList<>(few);
+        for (int i = 0; i < ItemStorage.SMALL_ALLOWED_SET; i++) many.add("Dense test item " + i);
+
+        List<ItemStorage> storages = List.of(ItemStorage.create(10.0, few), ItemStorage.create(10.0, many));
+        for (ItemStorage storage : storages) {
+            assertFalse("Unchecked add should refuse a disallowed item", storage.addItem(ItemConstants.STONE, 1));
+            assertTrue(storage.addItem(ItemConstants.COAL, 0));
+            storage.addItemCheckCapacity(ItemConstants.WOOD, 6);
+            storage.addItemCheckCapacity(ItemConstants.STONE, 1);
+            storage.addItemCheckCapacity(ItemConstants.COAL, 6);   // over capacity
+            assertTrue(storage.removeItem(ItemConstants.WOOD, 2));
+            assertFalse(storage.removeItem(ItemConstants.STONE, 1));
+        }
+        ItemStorage dense = storages.get(0), plain = storages.get(1);
+        assertEquals("Both should hold the same items", dense.getItems(), plain.getItems());
+        assertFalse("Items at 0 should be left out", plain.getItems().containsKey(ItemConstants.COAL));
+        assertEquals(0.0, plain.getItemQuantity(ItemConstants.STONE), 0.001);
+        assertEquals(dense.getUsedCapacity(), plain.getUsedCapacity(), 0.001);
+    }
+}
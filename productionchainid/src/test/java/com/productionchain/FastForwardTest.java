@@ -0,0 +1,154 @@
+package com.productionchain;
+
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import com.productionchain.buildings.BuildingInstance;
+import com.productionchain.buildings.ProductionBuildingInstance;
+import com.productionchain.buildings.ProductionBuildingType;
+import com.productionchain.constants.BuildingConstants;
+import com.productionchain.constants.ItemConstants;
+import com.productionchain.constants.RecipeConstants;
+import com.productionchain.enginedatatypes.IngredientPair;
+import com.productionchain.enginedatatypes.IngredientsList;
+import com.productionchain.enginedatatypes.Recipe;
+import com.productionchain.mechanics.AdvancedStorage;
+import com.productionchain.mechanics.BatchQueue;
+import com.productionchain.mechanics.RecipeHandler;
+import com.productionchain.world.FastForward;
+import com.productionchain.world.TurnEngine;
+import com.productionchain.world.World;
+import com.productionchain.world.WorldGenerator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Unit tests for FastForward.
+ * Every case runs the same world through TurnEngine turn by turn and compares storages batch by batch.
+ */
+public class FastForwardTest {
+
+    private ProductionBuildingType kiln;
+    private ProductionBuildingType hut;
+    private Recipe charcoal;
+    private Recipe chop;
+
+    @Before
+    public void setUp() {
+        kiln = new ProductionBuildingType(BuildingConstants.BUILDING_KILN, "-", BuildingConstants.BUILDING_KILN, 1, 0,
+            new ArrayList<>(), 0, null, new RecipeHandler(2, new ArrayList<>(List.of(RecipeConstants.CATEGORY_BASIC_KILN))));
+        hut = new ProductionBuildingType("FF Hut", "-", "FF Hut", 1, 0,
+            new ArrayList<>(), 0, null, new RecipeHandler(1, new ArrayList<>(List.of("FF forestry"))));
+        charcoal = new Recipe(RecipeConstants.RECIPE_CHARCOAL, RecipeConstants.CATEGORY_BASIC_KILN, "--", 1, 1,
+            new IngredientsList(new ArrayList<>(List.of(new IngredientPair(ItemConstants.WOOD, 2)))),
+            new IngredientsList(new ArrayList<>(List.of(new IngredientPair(ItemConstants.COAL, 3)))), 1.0, true);
+        chop = new Recipe("FF chop", "FF forestry", "--", 0, 1, new IngredientsList(new ArrayList<>()),
+            new IngredientsList(new ArrayList<>(List.of(new IngredientPair(ItemConstants.WOOD, 2)))), 1.0, true);
+    }
+
+    /** Gatherer that never stops, kiln that runs out, kiln that fills up and waits for spoilage, idle building,
+     *  gatherer that fills up and then runs whenever a batch spoils */
+    private World world() {
+        World world = new World();
+        world.addBuilding(building(hut, chop, 100, 0, 0));
+        world.addBuilding(building(kiln, charcoal, 1000, 300, 500));
+        world.addBuilding(building(kiln, charcoal, 1000, 60, 25));   // wood spoils half way
+        world.addBuilding(building(kiln, charcoal, 30, 28, 500));
+        world.addBuilding(building(kiln, null, 100, 10, 7));
+        world.addBuilding(building(hut, chop, 7, 0, 0));
+        return world;
+    }
+
+    private BuildingInstance building(ProductionBuildingType type, Recipe recipe, double capacity, double wood, double durability) {
+        ProductionBuildingInstance building = new ProductionBuildingInstance(type, "Player1", 0, 0, capacity);
+        if (wood > 0) building.getStorage().addItem(ItemConstants.WOOD, wood, durability);
+        building.setActiveRecipe(recipe);
+        return building;
+    }
+
+    private static void assertSameWorld(World expected, World actual) {
+        assertEquals(expected.getTurn(), actual.getTurn());
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            AdvancedStorage stepped = expected.getBuildings().get(i).getStorage();
+            AdvancedStorage skipped = actual.getBuildings().get(i).getStorage();
+            String where = "building " + i;
+            assertEquals(where, stepped.getTurn(), skipped.getTurn());
+            assertEquals(where, stepped.getUsedCapacity(), skipped.getUsedCapacity(), 1e-6);
+            Map<String, BatchQueue> steppedItems = stepped.getItems();
+            Map<String, BatchQueue> skippedItems = skipped.getItems();
+            assertEquals(where, steppedItems.keySet(), skippedItems.keySet());
+            for (String item : steppedItems.keySet()) {
+                List<double[]> a = live(steppedItems.get(item));
+                List<double[]> b = live(skippedItems.get(item));
+                assertEquals(where + " " + item + " batches", a.size(), b.size());
+                for (int k = 0; k < a.size(); k++) {
+                    assertEquals(where + " " + item, a.get(k)[0], b.get(k)[0], 1e-6);
+                    assertEquals(where + " " + item, a.get(k)[1], b.get(k)[1], 1e-9);
+                }
+            }
+        }
+    }
+
+    /** Live batches oldest first, as { quantity, durability } */
+    private static List<double[]> live(BatchQueue queue) {
+        List<double[]> batches = new ArrayList<>();
+        for (int i = 0; i < queue.slotCount(); i++) {
+            if (queue.isLive(i)) batches.add(new double[] { queue.quantityAt(i), queue.durabilityAt(i) });
+        }
+        return batches;
+    }
+
+    @Test
+    public void testAdvance_MatchesSteppedTurns() {
+        for (int turns : new int[] { 1, 9, 10, 11, 37, 500 }) {
+            World stepped = world();
+            new TurnEngine(stepped).runTurns(turns);
+            World skipped = world();
+            new FastForward(skipped).advance(turns);
+            assertSameWorld(stepped, skipped);
+        }
+    }
+
+    @Test
+    public void testAdvance_SteadyStateIsNotStepped() {
+        World world = world();
+        FastForward fastForward = new FastForward(world);
+        long stepped = fastForward.advance(10_000);
+
+        assertEquals(10_000, world.getTurn());
+        assertTrue("Stepped " + stepped + " building-turns", stepped < 200);
+        AdvancedStorage gatherer = world.getBuildings().get(0).getStorage();
+        assertEquals("Only the last 9 turns of wood are still good", 9 * 2.0, gatherer.getItemQuantity(ItemConstants.WOOD), 1e-9);
+        assertEquals(BuildingInstance.Stall.MISSING_INGREDIENTS, world.getBuildings().get(1).getLastStall());
+        assertEquals(0.0, world.getBuildings().get(1).getStorage().getUsedCapacity(), 1e-9);
+
+        World turnByTurn = world();
+        new TurnEngine(turnByTurn).runTurns(10_000);
+        assertSameWorld(turnByTurn, world);
+    }
+
+    @Test
+    public void testAdvance_GeneratedWorlds() {
+        WorldGenerator generator = new WorldGenerator(11);
+        generator.setItemCount(60);
+        generator.setDepth(3);
+        generator.setBuildingCount(0);
+        generator.generate();
+        generator.setBuildingCount(400);
+        generator.setBatchesPerStorage(6);
+
+        for (double capacity : new double[] { 25, 1000 }) {
+            generator.setStorageCapacity(capacity);
+            World stepped = generator.generateWorld(new Random(3));
+            new TurnEngine(stepped).runTurns(400);
+            World skipped = generator.generateWorld(new Random(3));
+            FastForward fastForward = new FastForward(skipped);
+            fastForward.advance(250);
+            fastForward.advance(150);
+            assertSameWorld(stepped, skipped);
+        }
+    }
+}
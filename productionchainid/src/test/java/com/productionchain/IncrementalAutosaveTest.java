@@ -0,0 +1,179 @@
+package com.productionchain;
+
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import com.productionchain.buildings.BuildingInstance;
+import com.productionchain.buildings.ProductionBuildingInstance;
+import com.productionchain.buildings.ProductionBuildingType;
+import com.productionchain.constants.BuildingConstants;
+import com.productionchain.constants.ItemConstants;
+import com.productionchain.constants.RecipeConstants;
+import com.productionchain.enginedatatypes.ItemRegistry;
+import com.productionchain.mechanics.RecipeHandler;
+import com.productionchain.world.IncrementalAutosave;
+import com.productionchain.world.TurnEngine;
+import com.productionchain.world.World;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Unit tests for dirty tracking and IncrementalAutosave.
+ * Checks that only changed buildings are written and that base + deltas load back the same world.
+ */
+public class IncrementalAutosaveTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private World world;
+    private TurnEngine engine;
+    private IncrementalAutosave autosave;
+
+    @Before
+    public void setUp() throws Exception {
+        ProductionBuildingType kiln = new ProductionBuildingType(BuildingConstants.BUILDING_KILN, "-", BuildingConstants.BUILDING_KILN, 1, 0,
+            new ArrayList<>(), 0, null, new RecipeHandler(2, new ArrayList<>(List.of(RecipeConstants.CATEGORY_BASIC_KILN))));
+        world = new World();
+        for (int i = 0; i < 3; i++) {
+            ProductionBuildingInstance building = new ProductionBuildingInstance(kiln, "Player1", i, 0, 100);
+            building.getStorage().addItem(ItemConstants.WOOD, 10, 20);
+            world.addBuilding(building);
+        }
+        engine = new TurnEngine(world);
+        autosave = new IncrementalAutosave(folder.newFolder("save"));
+    }
+
+    @Test
+    public void testDirtyFlags_SetByChangesNotByTime() throws Exception {
+        BuildingInstance building = world.getBuildings().get(0);
+        assertTrue("New buildings start dirty", building.isDirty());
+        autosave.save(world);
+        assertFalse("Saving clears the flag", building.isDirty());
+
+        engine.runTurns(3);
+        assertFalse("Degrading without spoiling is not a change", building.isDirty());
+
+        building.getStorage().removeItem(ItemConstants.WOOD, 1);
+        assertTrue("Removing items marks the building", building.isDirty());
+        building.clearDirty();
+        building.setCondition(50);
+        assertTrue("Setters mark the building", building.isDirty());
+    }
+
+    @Test
+    public void testSave_WritesOnlyChangesAndLoadsSameWorld() throws Exception {
+        assertEquals("First save writes everything", 3, autosave.save(world));
+        engine.runTurns(2);
+        assertEquals("Nothing changed", 0, autosave.save(world));
+
+        BuildingInstance changed = world.getBuildings().get(1);
+        changed.getStorage().addItem(ItemConstants.COAL, 4, 5);
+        engine.runTurn();
+        assertEquals("Only the changed building is written", 1, autosave.save(world));
+
+        world.removeBuilding(world.getBuildings().get(2));
+        engine.runTurn();
+        assertEquals(0, autosave.save(world));
+        assertEquals(3, autosave.getDeltaSaves());
+
+        World loaded = new IncrementalAutosave(folder.getRoot().toPath().resolve("save").toFile()).load();
+        assertEquals("Turn of the last save", 4, loaded.getTurn());
+        assertEquals("Removed building should stay removed", 2, loaded.size());
+        assertEquals(world.getBuildings().get(1).getInstanceId(), loaded.getBuildings().get(1).getInstanceId());
+        assertFalse(loaded.getBuildings().get(0).isDirty());
+
+        int wood = ItemRegistry.getItemId(ItemConstants.WOOD);
+        int coal = ItemRegistry.getItemId(ItemConstants.COAL);
+        for (int i = 0; i < 2; i++) {
+            assertEquals("Durability should follow the turns since the record was written",
+                world.getBuildings().get(i).getStorage().getBatches(wood).peekDurability(),
+                loaded.getBuildings().get(i).getStorage().getBatches(wood).peekDurability(), 0.001);
+        }
+        assertEquals(4.0, loaded.getBuildings().get(1).getStorage().getItemQuantity(ItemConstants.COAL), 0.001);
+        assertEquals(3.0, loaded.getBuildings().get(1).getStorage().getBatches(coal).peekDurability(), 0.001);
+    }
+
+    @Test
+    public void testSave_CompactsPeriodically() throws Exception {
+        autosave.setCompactEvery(2);
+        autosave.save(world);
+        world.getBuildings().get(0).setCondition(10);
+        assertEquals(1, autosave.save(world));
+        assertEquals(0, autosave.save(world));
+        assertEquals("Third save compacts", 3, autosave.save(world));
+        assertEquals(0, autosave.getDeltaSaves());
+        assertFalse("Compaction empties the delta log", new File(folder.getRoot(), "save/" + IncrementalAutosave.DELTA_FILE).exists());
+    }
+
+    @Test
+    public void testLoad_DropsIncompleteSegment() throws Exception {
+        autosave.save(world);
+        world.getBuildings().get(0).setCondition(10);
+        autosave.save(world);
+        try (FileOutputStream out = new FileOutputStream(new File(folder.getRoot(), "save/" + IncrementalAutosave.DELTA_FILE), true)) {
+            out.write(new byte[] { 'P', 'C', 'W', 'S', 2, 0, 0 });   // crash in the middle of a header
+        }
+
+        IncrementalAutosave reopened = new IncrementalAutosave(new File(folder.getRoot(), "save"));
+        World loaded = reopened.load();
+        assertEquals(10.0, loaded.getBuildings().get(0).getCondition(), 0.001);
+
+        loaded.getBuildings().get(1).setCondition(20);
+        reopened.save(loaded);
+        World again = new IncrementalAutosave(new File(folder.getRoot(), "save")).load();
+        assertEquals("Segments after the dropped one should load", 20.0, again.getBuildings().get(1).getCondition(), 0.001);
+    }
+
+    @Test
+    public void testLoad_SkipsLogLeftFromBeforeCompaction() throws Exception {
+        File save = new File(folder.getRoot(), "save");
+        File delta = new File(save, IncrementalAutosave.DELTA_FILE);
+        File oldDelta = new File(folder.getRoot(), "old.delta");
+        autosave.save(world);
+        world.getBuildings().get(0).setCondition(10);
+        engine.runTurn();
+        autosave.save(world);
+        Files.copy(delta.toPath(), oldDelta.toPath());
+
+        world.getBuildings().get(0).setCondition(30);
+        engine.runTurns(2);
+        autosave.compact(world);
+        // crash between moving the new base into place and deleting the log
+        Files.copy(oldDelta.toPath(), delta.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+        World loaded = new IncrementalAutosave(save).load();
+        assertEquals("Turn must not go back to the old segment's", 3, loaded.getTurn());
+        assertEquals("Old segment must not overwrite the newer base", 30.0, loaded.getBuildings().get(0).getCondition(), 0.001);
+        assertEquals("The stale log is dropped", 0, delta.length());
+    }
+
+    @Test
+    public void testLoad_DropsCorruptSegment() throws Exception {
+        autosave.save(world);
+        world.getBuildings().get(0).setCondition(10);
+        autosave.save(world);
+        world.getBuildings().get(1).setCondition(20);
+        autosave.save(world);
+
+        File delta = new File(folder.getRoot(), "save/" + IncrementalAutosave.DELTA_FILE);
+        try (RandomAccessFile file = new RandomAccessFile(delta, "rw")) {
+            long last = file.length() - 2;   // inside the last segment
+            file.seek(last);
+            int b = file.read();
+            file.seek(last);
+            file.write(b ^ 0x5a);
+        }
+
+        World loaded = new IncrementalAutosave(new File(folder.getRoot(), "save")).load();
+        assertEquals(10.0, loaded.getBuildings().get(0).getCondition(), 0.001);
+        assertEquals("Corrupt segment is not applied", 100.0, loaded.getBuildings().get(1).getCondition(), 0.001);
+    }
+}
@@ -6,6 +6,8 @@ import org.junit.Test;
 import com.productionchain.enginedatatypes.ItemRegistry;
 import com.productionchain.enginedatatypes.ItemType;
 import com.productionchain.constants.ItemConstants;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Unit tests for ItemRegistry.
@@ -66,4 +68,41 @@ public class ItemRegistryTest {
         assertTrue("Wood should exist", ItemRegistry.itemExists(ItemConstants.WOOD));
         assertFalse("NonExistent should not exist", ItemRegistry.itemExists("NonExistent"));
     }
+
+    @Test
+    public void testItemIds_DenseAndStable() {
+        ItemType wood = new ItemType(ItemConstants.WOOD, ItemConstants.CATEGORY_RAW_MATERIAL,
+                                     1.0, 10.0, 50.0, true, true, true);
+        ItemRegistry.addItem(wood);
+
+        int woodId = ItemRegistry.getItemId(ItemConstants.WOOD);
+        int stoneId = ItemRegistry.getItemId(ItemConstants.STONE);
+        assertNotEquals("Different items should get different ids", woodId, stoneId);
+        assertEquals("Same name should keep its id", woodId, ItemRegistry.getItemId(ItemConstants.WOOD));
+        assertTrue("Ids should be dense", woodId < ItemRegistry.getItemIdCount() && stoneId < ItemRegistry.getItemIdCount());
+        assertEquals("Id should map back to the name", ItemConstants.WOOD, ItemRegistry.getItemName(woodId));
+        assertSame("Id should map to the registered type", wood, ItemRegistry.getItemType(woodId));
+        assertEquals("Unseen names should not get an id", -1, ItemRegistry.findItemId("NeverSeenItem"));
+
+        ItemRegistry.clear();
+        assertEquals("Ids should survive clear()", woodId, ItemRegistry.findItemId(ItemConstants.WOOD));
+        assertNull("Cleared type should be gone", ItemRegistry.getItemType(woodId));
+    }
+
+    @Test
+    public void testItemIds_ManyNewItemsAtOnce() {
+        int before = ItemRegistry.getItemIdCount();
+        List<ItemType> items = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            items.add(new ItemType("Bulk item " + i, ItemConstants.CATEGORY_RAW_MATERIAL, 1.0, 1.0, 10.0, true, true, true));
+        }
+        ItemRegistry.addItems(items);
+
+        assertEquals("Every new item should get one id", before + 1000, ItemRegistry.getItemIdCount());
+        for (ItemType item : items) {
+            int id = ItemRegistry.findItemId(item.getName());
+            assertEquals(item.getName(), ItemRegistry.getItemName(id));
+            assertSame(item, ItemRegistry.getItemType(id));
+        }
+    }
 }
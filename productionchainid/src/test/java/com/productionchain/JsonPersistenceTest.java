@@ -0,0 +1,41 @@
+package com.productionchain;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+import com.productionchain.constants.ItemConstants;
+import com.productionchain.mechanics.AdvancedStorage;
+import com.productionchain.persistence.JsonPersistence;
+import java.io.File;
+import java.util.Map;
+
+/**
+ * Unit tests for JsonPersistence.
+ * Tests that readers/writers are built once per type and that files round trip.
+ */
+public class JsonPersistenceTest {
+
+    @Test
+    public void testReadersAndWriters_BuiltOncePerType() {
+        assertSame("Reader should be reused", JsonPersistence.reader(AdvancedStorage.class), JsonPersistence.reader(AdvancedStorage.class));
+        assertSame("Generic reader should be reused",
+            JsonPersistence.reader(JsonPersistence.mapOf(String.class, Double.class)),
+            JsonPersistence.reader(JsonPersistence.mapOf(String.class, Double.class)));
+        assertSame("Writer should be reused", JsonPersistence.writer(AdvancedStorage.class), JsonPersistence.writer(AdvancedStorage.class));
+    }
+
+    @Test
+    public void testWriteRead_RoundTrip() throws Exception {
+        AdvancedStorage storage = new AdvancedStorage(50.0, null);
+        storage.addItem(ItemConstants.WOOD, 4, 3);
+        File file = File.createTempFile("persistence", ".json");
+        file.deleteOnExit();
+
+        JsonPersistence.write(file, storage);
+        AdvancedStorage loaded = JsonPersistence.read(file, AdvancedStorage.class);
+        Map<String, Object> raw = JsonPersistence.read(file, JsonPersistence.mapOf(String.class, Object.class));
+
+        assertEquals("Capacity should survive the round trip", 50.0, loaded.getCapacity(), 0.001);
+        assertEquals("Items should survive the round trip", 4.0, loaded.getItemQuantity(ItemConstants.WOOD), 0.001);
+        assertTrue("File should hold the storage fields", raw.containsKey("items"));
+    }
+}
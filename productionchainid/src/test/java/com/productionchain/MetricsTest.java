@@ -0,0 +1,138 @@
+package com.productionchain;
+
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import com.productionchain.buildings.ProductionBuildingInstance;
+import com.productionchain.buildings.ProductionBuildingType;
+import com.productionchain.constants.BuildingConstants;
+import com.productionchain.constants.ItemConstants;
+import com.productionchain.constants.RecipeConstants;
+import com.productionchain.enginedatatypes.IngredientPair;
+import com.productionchain.enginedatatypes.IngredientsList;
+import com.productionchain.enginedatatypes.Recipe;
+import com.productionchain.mechanics.AdvancedStorage;
+import com.productionchain.mechanics.RecipeHandler;
+import com.productionchain.metrics.LatencyHistogram;
+import com.productionchain.metrics.Metrics;
+import com.productionchain.metrics.MetricsSnapshot;
+import com.productionchain.persistence.JsonPersistence;
+import com.productionchain.world.TurnEngine;
+import com.productionchain.world.World;
+import com.fasterxml.jackson.core.type.TypeReference;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Unit tests for Metrics.
+ * Checks that nothing is recorded while disabled, what a turn records, the percentiles and the output.
+ */
+public class MetricsTest {
+
+    @Before
+    public void setUp() {
+        Metrics.setEnabled(false);
+        Metrics.reset();
+    }
+
+    @After
+    public void tearDown() {
+        Metrics.setEnabled(false);
+        Metrics.reset();
+    }
+
+    @Test
+    public void testDisabled_RecordsNothing() {
+        assertEquals("No clock read while disabled", 0, Metrics.start());
+        AdvancedStorage storage = new AdvancedStorage(100.0, null);
+        storage.addItem(ItemConstants.WOOD, 5, 1);
+        storage.degradeItems();
+        Metrics.TURN.recordNanos(1000);
+
+        MetricsSnapshot snapshot = Metrics.snapshot();
+        assertEquals(0, snapshot.getCounter("storage.add"));
+        assertEquals(0, snapshot.getCounter("storage.spoiled"));
+        assertEquals(0, snapshot.getTimer("turn").getCount());
+    }
+
+    @Test
+    public void testTurn_RecordsHotPathsAndSnapshotsAtTurnEnd() {
+        ProductionBuildingType kiln = new ProductionBuildingType(BuildingConstants.BUILDING_KILN, "-", BuildingConstants.BUILDING_KILN, 1, 0,
+            new ArrayList<>(), 0, null, new RecipeHandler(2, new ArrayList<>(List.of(RecipeConstants.CATEGORY_BASIC_KILN))));
+        Recipe charcoal = new Recipe(RecipeConstants.RECIPE_CHARCOAL, RecipeConstants.CATEGORY_BASIC_KILN, "--", 1, 1,
+            new IngredientsList(new ArrayList<>(List.of(new IngredientPair(ItemConstants.WOOD, 2)))),
+            new IngredientsList(new ArrayList<>(List.of(new IngredientPair(ItemConstants.COAL, 3)))), 1.0, true);
+        World world = new World();
+        ProductionBuildingInstance building = new ProductionBuildingInstance(kiln, "Player1", 0, 0, 100);
+        building.getStorage().addItem(ItemConstants.WOOD, 4, 20);
+        building.setActiveRecipe(charcoal);
+        world.addBuilding(building);
+
+        Metrics.setEnabled(true);
+        List<MetricsSnapshot> snapshots = new ArrayList<>();
+        TurnEngine engine = new TurnEngine(world);
+        engine.setMetricsSink(snapshots::add);
+        engine.runTurns(2);
+
+        assertEquals("One snapshot per turn", 2, snapshots.size());
+        MetricsSnapshot last = snapshots.get(1);
+        assertEquals(2, last.getTurn());
+        assertEquals(2, last.getTimer("turn").getCount());
+        assertEquals("Two runs use up the wood", 2, last.getCounter("recipe.applied"));
+        assertEquals("Both runs go in as one batch", 1, last.getCounter("storage.add"));
+        assertEquals(1, last.getCounter("storage.remove"));
+        assertEquals("One degrade per storage per turn", 2, last.getTimer("storage.degrade").getCount());
+
+        building.getStorage().addItem(ItemConstants.STONE, 1, 1);
+        building.getStorage().degradeItems();
+        assertEquals(1, Metrics.snapshot().getCounter("storage.spoiled"));
+    }
+
+    @Test
+    public void testHistogram_Percentiles() {
+        Metrics.setEnabled(true);
+        LatencyHistogram timer = Metrics.timer("test.latency");
+        for (int i = 1; i <= 1000; i++) timer.recordNanos(i * 1000L);
+
+        MetricsSnapshot.TimerStats stats = timer.stats();
+        assertEquals(1000, stats.getCount());
+        assertEquals(1_000_000, stats.getMaxNanos());
+        assertEquals(500_500, stats.getMeanNanos());
+        assertEquals("Within one bucket (1/16)", 500_000, stats.getP50Nanos(), 500_000 / 16.0);
+        assertEquals(990_000, stats.getP99Nanos(), 990_000 / 16.0);
+        assertTrue(stats.getP50Nanos() <= stats.getP90Nanos() && stats.getP90Nanos() <= stats.getP99Nanos());
+    }
+
+    @Test
+    public void testSnapshot_JsonAndText() throws Exception {
+        Metrics.setEnabled(true);
+        Metrics.counter("test.events").add(3);
+        Metrics.timer("test.latency").recordNanos(2500);
+
+        MetricsSnapshot snapshot = Metrics.snapshot(7);
+        MetricsSnapshot read = JsonPersistence.reader(MetricsSnapshot.class).readValue(snapshot.toJson());
+        assertEquals(7, read.getTurn());
+        assertEquals(3, read.getCounter("test.events"));
+        assertEquals(2500, read.getTimer("test.latency").getMaxNanos());
+
+        String text = snapshot.toText();
+        assertTrue(text.contains("test.events"));
+        assertTrue(text.contains("test.latency"));
+        assertFalse("Metrics that recorded nothing are left out", text.contains("persistence.autosave"));
+    }
+
+    @Test
+    public void testJsonRead_EveryOverloadRecorded() throws Exception {
+        File file = File.createTempFile("metrics_read", ".json");
+        file.deleteOnExit();
+        JsonPersistence.write(file, List.of("a", "b"));
+        Metrics.setEnabled(true);
+
+        JsonPersistence.read(file, List.class);
+        JsonPersistence.read(file, JsonPersistence.listOf(String.class));
+        JsonPersistence.read(file, new TypeReference<List<String>>() {});
+        assertEquals(3, Metrics.snapshot().getTimer("persistence.json.read").getCount());
+    }
+}
@@ -0,0 +1,143 @@
+package com.productionchain;
+
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import com.productionchain.enginedatatypes.IngredientPair;
+import com.productionchain.enginedatatypes.IngredientsList;
+import com.productionchain.enginedatatypes.ItemRegistry;
+import com.productionchain.enginedatatypes.ProductionGraph;
+import com.productionchain.enginedatatypes.Recipe;
+import com.productionchain.enginedatatypes.RecipeRegistry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Unit tests for ProductionGraph.
+ * Checks producer/consumer lookups, the topological order, cycle detection and extending the registry's graph.
+ */
+public class ProductionGraphTest {
+
+    private Recipe chop;
+    private Recipe mine;
+    private Recipe burn;
+    private Recipe smelt;
+    private Recipe forge;
+
+    private static Recipe recipe(String name, List<IngredientPair> ingredients, List<IngredientPair> outputs) {
+        return new Recipe(name, "Graph test", "--", ingredients.size(), outputs.size(),
+            new IngredientsList(new ArrayList<>(ingredients)), new IngredientsList(new ArrayList<>(outputs)), 1, true);
+    }
+
+    private static IngredientPair pair(String item, double count) {
+        return new IngredientPair(item, count);
+    }
+
+    @Before
+    public void setUp() {
+        RecipeRegistry.clear();
+        chop  = recipe("G chop",  List.of(),                                          List.of(pair("G wood", 2)));
+        mine  = recipe("G mine",  List.of(),                                          List.of(pair("G ore", 1)));
+        burn  = recipe("G burn",  List.of(pair("G wood", 2)),                         List.of(pair("G charcoal", 1)));
+        smelt = recipe("G smelt", List.of(pair("G ore", 1), pair("G charcoal", 1)),   List.of(pair("G iron", 1)));
+        forge = recipe("G forge", List.of(pair("G iron", 2), pair("G charcoal", 1)),  List.of(pair("G tool", 1)));
+    }
+
+    @After
+    public void tearDown() {
+        RecipeRegistry.clear();
+    }
+
+    private static int id(String item) {
+        return ItemRegistry.getItemId(item);
+    }
+
+    @Test
+    public void testProducersAndConsumers() {
+        ProductionGraph graph = ProductionGraph.of(Arrays.asList(chop, mine, burn, smelt, forge));
+
+        assertEquals(Arrays.asList(burn), graph.getProducers("G charcoal"));
+        assertEquals("Consumers in recipe order", Arrays.asList(smelt, forge), graph.getConsumers("G charcoal"));
+        assertEquals(Arrays.asList(chop), graph.getProducers(id("G wood")));
+        assertTrue(graph.getConsumers("G tool").isEmpty());
+        assertTrue("Unknown item", graph.getProducers("G never seen").isEmpty());
+        assertEquals(2, graph.getConsumerCount(id("G charcoal")));
+        assertFalse(graph.isRawMaterial(id("G wood")));
+
+        try {
+            graph.getProducers("G charcoal").add(chop);
+            fail("Lookups are read only");
+        } catch (UnsupportedOperationException expected) {
+        }
+    }
+
+    @Test
+    public void testTopologicalOrder_IngredientsFirst() {
+        ProductionGraph graph = ProductionGraph.of(Arrays.asList(forge, smelt, burn, mine, chop));
+        assertFalse(graph.hasCycles());
+
+        List<Integer> order = new ArrayList<>();
+        for (int item : graph.getTopologicalOrder()) order.add(item);
+        assertEquals("Every item used by a recipe", 5, order.size());
+        for (Recipe recipe : Arrays.asList(chop, mine, burn, smelt, forge)) {
+            for (IngredientPair output : recipe.getOutputslist().getIngredientslist()) {
+                for (IngredientPair ingredient : recipe.getIngredientslist().getIngredientslist()) {
+                    assertTrue(ingredient.getItem_name() + " before " + output.getItem_name(),
+                        order.indexOf(ingredient.getItemId()) < order.indexOf(output.getItemId()));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testCycles_CharcoalLoopAndSelfLoop() {
+        // charcoal fires a kiln that turns wood + charcoal back into more charcoal and ash, ash feeds the trees
+        Recipe kiln = recipe("G kiln", List.of(pair("G wood", 4), pair("G charcoal", 1)), List.of(pair("G charcoal", 3), pair("G ash", 1)));
+        Recipe grow = recipe("G grow", List.of(pair("G ash", 1)), List.of(pair("G wood", 6)));
+        Recipe season = recipe("G season", List.of(pair("G ore", 2)), List.of(pair("G ore", 2)));
+        ProductionGraph graph = ProductionGraph.of(Arrays.asList(chop, mine, burn, smelt, forge, kiln, grow, season));
+
+        assertTrue(graph.hasCycles());
+        assertTrue(graph.isInCycle(id("G charcoal")));
+        assertTrue(graph.isInCycle(id("G ash")));
+        assertTrue("A recipe that gives back its own ingredient is a loop", graph.isInCycle(id("G ore")));
+        assertFalse(graph.isInCycle(id("G iron")));
+        assertEquals(2, graph.getCycles().size());
+
+        List<String> loop = null;
+        for (List<String> cycle : graph.getCycles()) if (cycle.contains("G charcoal")) loop = cycle;
+        assertNotNull(loop);
+        assertEquals(3, loop.size());
+        assertTrue(loop.containsAll(Arrays.asList("G wood", "G charcoal", "G ash")));
+    }
+
+    @Test
+    public void testRegistryGraph_ExtendedWhenRecipesAdded() {
+        RecipeRegistry.addRecipes(Arrays.asList(chop, burn));
+        ProductionGraph first = RecipeRegistry.getProductionGraph();
+        assertSame("Cached until the next change", first, RecipeRegistry.getProductionGraph());
+        assertTrue(first.getConsumers("G charcoal").isEmpty());
+
+        RecipeRegistry.addRecipe(mine);
+        RecipeRegistry.addRecipes(Arrays.asList(smelt, forge));
+        ProductionGraph second = RecipeRegistry.getProductionGraph();
+        assertNotSame(first, second);
+        assertEquals(5, second.getRecipeCount());
+        assertEquals(Arrays.asList(smelt, forge), second.getConsumers("G charcoal"));
+        assertTrue("The old graph is unchanged", first.getConsumers("G charcoal").isEmpty());
+
+        ProductionGraph compiled = ProductionGraph.of(RecipeRegistry.getRecipes());
+        for (int item = 0; item < compiled.getItemCount(); item++) {
+            assertEquals(compiled.getProducers(item), second.getProducers(item));
+            assertEquals(compiled.getConsumers(item), second.getConsumers(item));
+        }
+
+        RecipeRegistry.clear();
+        RecipeRegistry.addRecipe(burn);
+        ProductionGraph afterClear = RecipeRegistry.getProductionGraph();
+        assertEquals("Rebuilt from scratch after clear()", 1, afterClear.getRecipeCount());
+        assertTrue(afterClear.getProducers("G wood").isEmpty());
+    }
+}
@@ -189,4 +189,23 @@ public class RecipeHandlerTest {
         assertEquals("Should have 3 operations", 3, handler.getBaseNumOperations());
         // In a full implementation, this would allow running 3 recipes simultaneously
     }
+
+    @Test
+    public void testRecipeHandler_GetAvailableRecipes_CachedUntilRegistryChanges() {
+        RecipeHandler handler = new RecipeHandler(
+            1,
+            new ArrayList<>(List.of(RecipeConstants.CATEGORY_BASIC_MINING))
+        );
+
+        List<Recipe> first = handler.getAvailableRecipes();
+        assertSame("Unchanged registry should reuse the cached list", first, handler.getAvailableRecipes());
+
+        RecipeRegistry.addRecipe(new Recipe(RecipeConstants.RECIPE_MINE_COAL, RecipeConstants.CATEGORY_BASIC_MINING,
+            "--", 0, 1, new IngredientsList(), new IngredientsList(new ArrayList<>(List.of(new IngredientPair(ItemConstants.COAL, 5)))), 1.0, true));
+        assertEquals("New registry recipe should show up", 2, handler.getAvailableRecipes().size());
+
+        handler.setBaseRecipeCategories(new ArrayList<>(List.of(RecipeConstants.CATEGORY_BASIC_SILVICULTURE)));
+        assertEquals("New categories should drop the cached list", RecipeConstants.RECIPE_CHOP_WOOD,
+                    handler.getAvailableRecipes().get(0).getName());
+    }
 }
@@ -81,4 +81,25 @@ public class RecipeRegistryTest {
         assertTrue("Chop wood recipe should exist", RecipeRegistry.recipeExists(RecipeConstants.RECIPE_CHOP_WOOD));
         assertFalse("NonExistent recipe should not exist", RecipeRegistry.recipeExists("NonExistent"));
     }
+
+    @Test
+    public void testIndexes_FollowAddAndClear() {
+        long version = RecipeRegistry.getVersion();
+        Recipe first = new Recipe(RecipeConstants.RECIPE_MINE_STONE, RecipeConstants.CATEGORY_BASIC_MINING,
+            "--", 0, 1, new IngredientsList(), new IngredientsList(new ArrayList<>(List.of(new IngredientPair(ItemConstants.STONE, 10)))), 1.0, true);
+        Recipe duplicate = new Recipe(RecipeConstants.RECIPE_MINE_STONE, RecipeConstants.CATEGORY_BASIC_MINING,
+            "--", 0, 1, new IngredientsList(), new IngredientsList(new ArrayList<>(List.of(new IngredientPair(ItemConstants.STONE, 1)))), 1.0, true);
+        RecipeRegistry.addRecipe(first);
+        RecipeRegistry.addRecipe(duplicate);
+
+        assertTrue("Version should change on add", RecipeRegistry.getVersion() > version);
+        assertSame("Name lookup should return the first recipe added", first, RecipeRegistry.getRecipeByName(RecipeConstants.RECIPE_MINE_STONE));
+        assertEquals("Category index should hold both", 2, RecipeRegistry.getRecipesByCategory(RecipeConstants.CATEGORY_BASIC_MINING).size());
+
+        List<Recipe> snapshot = RecipeRegistry.getRecipes();
+        RecipeRegistry.clear();
+        assertEquals("Snapshot taken before the clear should not change", 2, snapshot.size());
+        assertNull("Clear should empty the name index", RecipeRegistry.getRecipeByName(RecipeConstants.RECIPE_MINE_STONE));
+        assertTrue("Clear should empty the category index", RecipeRegistry.getRecipesByCategory(RecipeConstants.CATEGORY_BASIC_MINING).isEmpty());
+    }
 }
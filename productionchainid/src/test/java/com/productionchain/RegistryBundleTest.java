@@ -0,0 +1,87 @@
+package com.productionchain;
+
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import com.productionchain.buildings.BuildingType;
+import com.productionchain.buildings.ProductionBuildingType;
+import com.productionchain.enginedatatypes.IngredientPair;
+import com.productionchain.enginedatatypes.IngredientsList;
+import com.productionchain.enginedatatypes.ItemType;
+import com.productionchain.enginedatatypes.Recipe;
+import com.productionchain.mechanics.AnimalType;
+import com.productionchain.mechanics.RecipeHandler;
+import com.productionchain.persistence.RegistryBundle;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Unit tests for RegistryBundle.
+ * Compiles a few registry entries into a bundle and looks them up from the mapped file.
+ */
+public class RegistryBundleTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private RegistryBundle bundle;
+
+    @Before
+    public void setUp() throws Exception {
+        List<ItemType> items = Arrays.asList(
+            new ItemType("Wood", "Raw", 1, 1, 20, true, true, true),
+            new ItemType("Coal", "Fuel", 1, 2, 50, true, true, true),
+            new ItemType("Água", "Raw", 1, 1, 5, false, true, true));
+        List<Recipe> recipes = Arrays.asList(
+            new Recipe("Plank", "Basic carpentry", "--", 1, 1,
+                new IngredientsList(new ArrayList<>(List.of(new IngredientPair("Wood", 1)))),
+                new IngredientsList(new ArrayList<>(List.of(new IngredientPair("Plank", 2)))), 1.0, true),
+            new Recipe("Charcoal", "Basic kiln", "--", 1, 1,
+                new IngredientsList(new ArrayList<>(List.of(new IngredientPair("Wood", 2)))),
+                new IngredientsList(new ArrayList<>(List.of(new IngredientPair("Coal", 3)))), 1.0, true),
+            new Recipe("Beam", "Basic carpentry", "--", 1, 1, new IngredientsList(), new IngredientsList(), 1.0, true));
+        List<AnimalType> animals = Arrays.asList(
+            new AnimalType("Cow", "-", 1, 2, 3, 10, new IngredientsList(), new IngredientsList(), new IngredientsList(),
+                0, 0, 0, new IngredientsList(), new IngredientsList()));
+        List<BuildingType> buildings = Arrays.asList(
+            new ProductionBuildingType("Kiln", "-", "Kiln", 1, 0, new ArrayList<>(), 0, null,
+                new RecipeHandler(2, new ArrayList<>(List.of("Basic kiln")))));
+
+        File file = folder.newFile("registries.bundle");
+        RegistryBundle.compile(file, items, recipes, animals, buildings);
+        bundle = RegistryBundle.open(file);
+    }
+
+    @Test
+    public void testLookups_ByNameAndId() {
+        assertEquals("Ids follow load order", 3, bundle.items().size());
+        assertEquals("Coal", bundle.items().getName(1));
+        assertEquals(2, bundle.items().indexOf("Água"));
+        assertEquals(-1, bundle.items().indexOf("Stone"));
+        assertNull(bundle.getItemByName("Stone"));
+        assertEquals(50.0, bundle.getItemByName("Coal").getHowLongToGoBad(), 0.001);
+
+        Recipe charcoal = bundle.getRecipeByName("Charcoal");
+        assertEquals("Basic kiln", charcoal.getCategory());
+        assertEquals(3.0, charcoal.getOutputslist().getIngredientslist().get(0).getCount(), 0.001);
+        assertSame("Decoded entries should be cached", charcoal, bundle.getRecipeByName("Charcoal"));
+
+        assertEquals("Cow", bundle.getAnimalByName("Cow").getName());
+        assertTrue("Building subtype should be kept", bundle.getBuildingByName("Kiln") instanceof ProductionBuildingType);
+    }
+
+    @Test
+    public void testLookups_ByCategory() {
+        List<Recipe> carpentry = bundle.getRecipesByCategory("Basic carpentry");
+        assertEquals(2, carpentry.size());
+        assertEquals("Category members keep load order", "Plank", carpentry.get(0).getName());
+        assertEquals("Beam", carpentry.get(1).getName());
+        assertTrue(bundle.getRecipesByCategory("Unknown").isEmpty());
+        assertEquals(2, bundle.items().getByCategory("Raw").size());
+        assertNull("Animal types have no category", bundle.animals().getCategory(0));
+    }
+}
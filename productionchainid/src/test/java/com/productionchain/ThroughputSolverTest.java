@@ -0,0 +1,147 @@
+package com.productionchain;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+import com.productionchain.buildings.BuildingType;
+import com.productionchain.buildings.ProductionBuildingType;
+import com.productionchain.enginedatatypes.IngredientPair;
+import com.productionchain.enginedatatypes.IngredientsList;
+import com.productionchain.enginedatatypes.ItemRegistry;
+import com.productionchain.enginedatatypes.ProductionGraph;
+import com.productionchain.enginedatatypes.Recipe;
+import com.productionchain.mechanics.RecipeHandler;
+import com.productionchain.planning.ThroughputPlan;
+import com.productionchain.planning.ThroughputSolver;
+import com.productionchain.world.WorldGenerator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Unit tests for ThroughputSolver.
+ * Checks building counts on a simple chain, picking the cheaper of two recipes, loops, rejected targets, and solve
+ * time on a large registry.
+ */
+public class ThroughputSolverTest {
+
+    private static final List<BuildingType> BUILDINGS = Arrays.asList(
+        building("T Hut", 1, "T forestry"),
+        building("T Mine", 1, "T mining"),
+        building("T Kiln", 2, "T kiln"));
+
+    private static final Recipe CHOP     = recipe("T chop", "T forestry", List.of(), List.of(pair("T wood", 1)));
+    private static final Recipe MINE     = recipe("T mine", "T mining", List.of(), List.of(pair("T coal", 1)));
+    private static final Recipe CHARCOAL = recipe("T charcoal", "T kiln", List.of(pair("T wood", 2)), List.of(pair("T coal", 3)));
+
+    private static BuildingType building(String name, int operations, String category) {
+        return new ProductionBuildingType(name, "-", name, 1, 0, new ArrayList<>(), 0, null,
+            new RecipeHandler(operations, new ArrayList<>(List.of(category))));
+    }
+
+    private static Recipe recipe(String name, String category, List<IngredientPair> ingredients, List<IngredientPair> outputs) {
+        return new Recipe(name, category, "--", ingredients.size(), outputs.size(),
+            new IngredientsList(new ArrayList<>(ingredients)), new IngredientsList(new ArrayList<>(outputs)), 1, true);
+    }
+
+    private static IngredientPair pair(String item, double count) {
+        return new IngredientPair(item, count);
+    }
+
+    private static ThroughputSolver solver(Recipe... recipes) {
+        return new ThroughputSolver(ProductionGraph.of(Arrays.asList(recipes)), BUILDINGS);
+    }
+
+    @Test
+    public void testChain_BuildingCountsAndInputs() {
+        ThroughputPlan plan = solver(CHOP, CHARCOAL).solve("T coal", 6);
+
+        assertEquals(2.0, plan.getRunsPerTurn("T charcoal"), 1e-9);
+        assertEquals(4.0, plan.getRunsPerTurn("T chop"), 1e-9);
+        assertEquals("Kiln runs twice per turn", Integer.valueOf(1), plan.getBuildingCounts().get("T Kiln"));
+        assertEquals(Integer.valueOf(4), plan.getBuildingCounts().get("T Hut"));
+        assertEquals(5, plan.getTotalBuildings());
+        assertTrue(plan.isFeasible());
+        assertTrue("Wood is made, nothing comes in", plan.getInputs().isEmpty());
+
+        ThroughputPlan noHuts = solver(CHARCOAL).solve("T coal", 6);
+        assertEquals(4.0, noHuts.getInputs().get("T wood"), 1e-9);
+        assertTrue(noHuts.toText().contains("T wood 4.000/turn (input)"));
+    }
+
+    @Test
+    public void testAlternatives_PicksFewerBuildings() {
+        // mining takes 1 building per coal, charcoal 1/6 kiln + 4/6 hut
+        ThroughputPlan plan = solver(CHOP, MINE, CHARCOAL).solve("T coal", 12);
+        assertEquals(0.0, plan.getRunsPerTurn("T mine"), 1e-9);
+        assertEquals(4.0, plan.getRunsPerTurn("T charcoal"), 1e-9);
+        assertEquals(2 + 8, plan.getTotalBuildings());
+
+        Recipe lowYield = recipe("T poor charcoal", "T kiln", List.of(pair("T wood", 2)),
+            List.of(new IngredientPair("T coal", 3, 0.1)));     // probability counts
+        plan = solver(CHOP, MINE, lowYield).solve("T coal", 12);
+        assertEquals("Mining wins against a 10% yield", 12.0, plan.getRunsPerTurn("T mine"), 1e-9);
+    }
+
+    @Test
+    public void testLoops_SeedStockAndShortfall() {
+        // charcoal fires the kiln that makes it: 4 wood + 1 charcoal -> 3 charcoal, net 2 per run
+        Recipe fired = recipe("T fired charcoal", "T kiln", List.of(pair("T wood", 4), pair("T charcoal", 1)), List.of(pair("T charcoal", 3)));
+        ThroughputPlan plan = solver(CHOP, fired).solve("T charcoal", 4);
+        assertTrue(plan.isFeasible());
+        assertEquals(2.0, plan.getRunsPerTurn("T fired charcoal"), 1e-6);
+        assertEquals(8.0, plan.getRunsPerTurn("T chop"), 1e-6);
+        assertTrue(plan.toText().contains("(loop)"));
+
+        // a loop that loses more than it makes can't be the source
+        Recipe dry = recipe("T dry", "T kiln", List.of(pair("T clay", 2)), List.of(pair("T clay", 1)));
+        plan = solver(dry).solve("T clay", 1);
+        assertFalse(plan.isFeasible());
+        assertEquals(1.0, plan.getShortfalls().get("T clay"), 1e-6);
+        assertEquals(0, plan.getTotalBuildings());
+    }
+
+    @Test
+    public void testInvalidTargets_Rejected() {
+        ThroughputSolver solver = solver(CHOP, CHARCOAL);
+        for (double rate : new double[] { -1, Double.NaN, Double.POSITIVE_INFINITY }) {
+            try {
+                solver.solve("T coal", rate);
+                fail("Rate " + rate + " should be rejected");
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+        try {
+            solver.solve("T misspelled coal", 1);
+            fail("Unknown item should be rejected");
+        } catch (IllegalArgumentException expected) {
+        }
+        assertEquals("A rejected name should not get an item id", -1, ItemRegistry.findItemId("T misspelled coal"));
+    }
+
+    @Test
+    public void testLargeRegistry_AnswersQuickly() {
+        WorldGenerator generator = new WorldGenerator(5);
+        generator.setItemCount(3000);
+        generator.setDepth(8);
+        generator.setFanIn(3);
+        generator.setBuildingCount(0);
+        generator.generate();
+        List<Recipe> recipes = new ArrayList<>(generator.getRecipes());
+        // a second, slower recipe for every item so the solver has to choose
+        for (Recipe recipe : generator.getRecipes()) {
+            recipes.add(new Recipe(recipe.getName() + " (slow)", recipe.getCategory(), "--", recipe.getN_ingredients(), recipe.getN_outputs(),
+                recipe.getIngredientslist(), recipe.getOutputslist(), recipe.getDuration() * 2, true));
+        }
+        ThroughputSolver solver = new ThroughputSolver(ProductionGraph.of(recipes), generator.getBuildingTypes());
+        String top = generator.getItems().get(generator.getItems().size() - 1).getName();
+
+        solver.solve(top, 10);  // warm up
+        ThroughputPlan plan = solver.solve(top, 10);
+        assertTrue(plan.isFeasible());
+        assertFalse(plan.getRecipes().isEmpty());
+        for (ThroughputPlan.RecipeRate rate : plan.getRecipes()) {
+            assertFalse("The slow alternative is never worth it", rate.getRecipe().getName().endsWith("(slow)"));
+        }
+        assertTrue("Took " + plan.getSolveNanos() / 1e6 + " ms", plan.getSolveNanos() < 500_000_000L);
+    }
+}
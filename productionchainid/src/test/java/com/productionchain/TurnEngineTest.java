@@ -0,0 +1,183 @@
+package com.productionchain;
+
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import com.productionchain.buildings.AnimalBuildingInstance;
+import com.productionchain.buildings.AnimalBuildingType;
+import com.productionchain.buildings.BuildingInstance;
+import com.productionchain.buildings.ProductionBuildingInstance;
+import com.productionchain.buildings.ProductionBuildingType;
+import com.productionchain.constants.BuildingConstants;
+import com.productionchain.constants.ItemConstants;
+import com.productionchain.constants.RecipeConstants;
+import com.productionchain.enginedatatypes.IngredientPair;
+import com.productionchain.enginedatatypes.IngredientsList;
+import com.productionchain.enginedatatypes.ItemRegistry;
+import com.productionchain.enginedatatypes.Recipe;
+import com.productionchain.mechanics.AnimalInstance;
+import com.productionchain.mechanics.AnimalType;
+import com.productionchain.mechanics.RecipeHandler;
+import com.productionchain.world.TurnEngine;
+import com.productionchain.world.TurnReport;
+import com.productionchain.world.World;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Unit tests for World and TurnEngine.
+ * Tests recipe execution, storage degradation and animal aging across turns.
+ */
+public class TurnEngineTest {
+
+    private ProductionBuildingType kiln;
+    private Recipe charcoal;
+    private World world;
+    private TurnEngine engine;
+
+    @Before
+    public void setUp() {
+        kiln = new ProductionBuildingType(BuildingConstants.BUILDING_KILN, "-", BuildingConstants.BUILDING_KILN, 1, 0,
+            new ArrayList<>(), 0, null, new RecipeHandler(2, new ArrayList<>(List.of(RecipeConstants.CATEGORY_BASIC_KILN))));
+        charcoal = new Recipe(RecipeConstants.RECIPE_CHARCOAL, RecipeConstants.CATEGORY_BASIC_KILN, "--", 1, 1,
+            new IngredientsList(new ArrayList<>(List.of(new IngredientPair(ItemConstants.WOOD, 2)))),
+            new IngredientsList(new ArrayList<>(List.of(new IngredientPair(ItemConstants.COAL, 3)))), 1.0, true);
+        world = new World();
+        engine = new TurnEngine(world);
+    }
+
+    @Test
+    public void testRunTurn_RunsRecipeUpToNumOperations() {
+        ProductionBuildingInstance building = new ProductionBuildingInstance(kiln, "Player1", 0, 0, 100);
+        building.getStorage().addItem(ItemConstants.WOOD, 10, 20);
+        building.setActiveRecipe(charcoal);
+        world.addBuilding(building);
+
+        TurnReport report = engine.runTurn();
+
+        assertEquals("Should run the recipe baseNumOperations times", 2, report.getRecipesRun());
+        assertEquals("Should consume 2 wood per run", 6.0, building.getStorage().getItemQuantity(ItemConstants.WOOD), 0.001);
+        assertEquals("Should produce 3 coal per run", 6.0, building.getStorage().getItemQuantity(ItemConstants.COAL), 0.001);
+        assertNotNull("Recipe should stay active across turns", building.getActiveRecipe());
+        assertEquals("World should advance one turn", 1, world.getTurn());
+    }
+
+    @Test
+    public void testRunTurn_StopsWhenIngredientsRunOut() {
+        ProductionBuildingInstance building = new ProductionBuildingInstance(kiln, "Player1", 0, 0, 100);
+        building.getStorage().addItem(ItemConstants.WOOD, 3, 20);
+        building.setActiveRecipe(charcoal);
+        world.addBuilding(building);
+
+        List<TurnReport> reports = engine.runTurns(2);
+
+        assertEquals("Only one run fits in the stock", 1, reports.get(0).getRecipesRun());
+        assertEquals("Nothing left to run", 0, reports.get(1).getRecipesRun());
+    }
+
+    @Test
+    public void testRunActiveRecipe_BatchesManyRuns() {
+        ProductionBuildingInstance building = new ProductionBuildingInstance(kiln, "Player1", 0, 0, 40);
+        building.getStorage().addItem(ItemConstants.WOOD, 31, 20);
+        building.setActiveRecipe(charcoal);
+
+        assertEquals("Stock allows 15 runs, space 9 (+1 per run)", 9, building.getMaxRuns(charcoal));
+        assertEquals(9, building.runActiveRecipe(100));
+        assertEquals(BuildingInstance.Stall.STORAGE_FULL, building.getLastStall());
+        assertEquals(13.0, building.getStorage().getItemQuantity(ItemConstants.WOOD), 0.001);
+        assertEquals(27.0, building.getStorage().getItemQuantity(ItemConstants.COAL), 0.001);
+        assertEquals("Outputs go in as one batch", 1, building.getStorage().getBatches(ItemRegistry.findItemId(ItemConstants.COAL)).size());
+
+        building.getStorage().setCapacity(1000);
+        assertEquals(6, building.runActiveRecipe(100));
+        assertEquals(BuildingInstance.Stall.MISSING_INGREDIENTS, building.getLastStall());
+        assertEquals(ItemConstants.WOOD, ItemRegistry.getItemName(building.getLastMissingItemId()));
+        assertEquals(1.0, building.getStorage().getItemQuantity(ItemConstants.WOOD), 0.001);
+        assertEquals(0, building.runActiveRecipe(100));
+    }
+
+    @Test
+    public void testRunTurn_DegradesStorage() {
+        ProductionBuildingInstance building = new ProductionBuildingInstance(kiln, "Player1", 0, 0, 100);
+        building.getStorage().addItem(ItemConstants.STONE, 5, 2);
+        world.addBuilding(building);
+
+        engine.runTurns(2);
+
+        assertFalse("Batch should spoil after its durability runs out", building.getStorage().hasItem(ItemConstants.STONE, 1));
+    }
+
+    @Test
+    public void testRunTurn_AgesAnimals() {
+        AnimalType cow = new AnimalType("Cow", "-", 1, 2, 3, 2, new IngredientsList(), new IngredientsList(), new IngredientsList(),
+            0, 0, 0, new IngredientsList(), new IngredientsList());
+        AnimalBuildingType barnType = new AnimalBuildingType("Barn", "-", "Barn", 1, 0, new ArrayList<>(), 0, null,
+            new RecipeHandler(), 10, 20, new ArrayList<>(List.of("Cow")));
+        AnimalBuildingInstance barn = new AnimalBuildingInstance(barnType, "Player1", 0, 0, 10);
+        AnimalInstance animal = new AnimalInstance(cow);
+        barn.addHousedAnimal(animal);
+        world.addBuilding(barn);
+
+        TurnReport report = engine.runTurn();
+        assertEquals("Should age the housed animal", 1, report.getAnimalsAged());
+        assertEquals("Animal should be one turn older", 1.0, animal.getAge(), 0.001);
+
+        engine.runTurn();
+        assertEquals("Animal past its life span should be dead", "dead", animal.getState());
+    }
+
+    @Test
+    public void testTurnReport_CountsBuildings() {
+        for (int i = 0; i < 50; i++) {
+            world.addBuilding(new ProductionBuildingInstance(kiln, "Player1", i, 0, 10));
+        }
+
+        TurnReport report = engine.runTurn();
+
+        assertEquals("Should process every building", 50, report.getBuildingsProcessed());
+        assertTrue("Total time should cover the phases",
+            report.getTotalNanos() >= report.getRecipeNanos() + report.getDegradationNanos() + report.getAnimalNanos());
+        assertSame("Engine should keep the last report", report, engine.getLastReport());
+    }
+
+    @Test
+    public void testParallelMode_MatchesSequential() {
+        World sequentialWorld = buildMixedWorld(2000);
+        World parallelWorld   = buildMixedWorld(2000);
+        TurnEngine sequential = new TurnEngine(sequentialWorld, TurnEngine.ExecutionMode.SEQUENTIAL);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        TurnEngine parallel   = new TurnEngine(parallelWorld, TurnEngine.ExecutionMode.PARALLEL, pool);
+        parallel.setChunkSize(64);
+
+        try {
+            for (int turn = 0; turn < 6; turn++) {
+                TurnReport expected = sequential.runTurn();
+                TurnReport actual   = parallel.runTurn();
+                assertEquals("Recipe runs should match on turn " + turn, expected.getRecipesRun(), actual.getRecipesRun());
+                assertEquals("Buildings should match on turn " + turn, expected.getBuildingsProcessed(), actual.getBuildingsProcessed());
+                for (int i = 0; i < sequentialWorld.size(); i++) {
+                    assertEquals("Storage of building " + i + " should match on turn " + turn,
+                        sequentialWorld.getBuildings().get(i).getStorage().toString(),
+                        parallelWorld.getBuildings().get(i).getStorage().toString());
+                }
+                assertEquals("Both worlds should be on the same turn", sequentialWorld.getTurn(), parallelWorld.getTurn());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /** Buildings with different stock levels so they run out of wood on different turns */
+    private World buildMixedWorld(int numBuildings) {
+        World mixed = new World();
+        for (int i = 0; i < numBuildings; i++) {
+            ProductionBuildingInstance building = new ProductionBuildingInstance(kiln, "Player1", i, 0, 50);
+            building.getStorage().addItem(ItemConstants.WOOD, i % 13, 3 + i % 5);
+            building.getStorage().addItem(ItemConstants.STONE, 1, 1 + i % 4);
+            building.setActiveRecipe(charcoal);
+            mixed.addBuilding(building);
+        }
+        return mixed;
+    }
+}
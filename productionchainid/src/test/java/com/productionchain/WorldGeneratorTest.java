@@ -0,0 +1,116 @@
+package com.productionchain;
+
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import com.productionchain.buildings.BuildingInstance;
+import com.productionchain.enginedatatypes.IngredientPair;
+import com.productionchain.enginedatatypes.ItemType;
+import com.productionchain.enginedatatypes.Recipe;
+import com.productionchain.enginedatatypes.RecipeRegistry;
+import com.productionchain.persistence.JsonPersistence;
+import com.productionchain.world.World;
+import com.productionchain.world.WorldGenerator;
+import com.productionchain.world.WorldSerializer;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Unit tests for WorldGenerator.
+ * Checks that a seed always gives the same world, the shape of the recipe graph and the JSON output.
+ */
+public class WorldGeneratorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @After
+    public void tearDown() {
+        RecipeRegistry.clear();
+    }
+
+    private static WorldGenerator generator(long seed) {
+        WorldGenerator generator = new WorldGenerator(seed);
+        generator.setItemCount(40);
+        generator.setDepth(3);
+        generator.setFanIn(2);
+        generator.setBuildingCount(200);
+        generator.setBatchesPerStorage(5);
+        return generator;
+    }
+
+    private static byte[] json(World world) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        WorldSerializer.save(world, out);
+        return out.toByteArray();
+    }
+
+    @Test
+    public void testGenerate_SameSeedSameWorld() throws Exception {
+        byte[] first = json(generator(7).generate());
+        byte[] second = json(generator(7).generate());
+        byte[] other = json(generator(8).generate());
+        assertArrayEquals("Same seed and settings should give the same world", first, second);
+        assertFalse("Another seed should give another world", Arrays.equals(first, other));
+    }
+
+    @Test
+    public void testGenerate_LayeredRecipeGraph() {
+        WorldGenerator generator = generator(1);
+        World world = generator.generate();
+
+        Map<String, Integer> tierOf = new HashMap<>();
+        for (ItemType item : generator.getItems()) tierOf.put(item.getName(), Integer.parseInt(item.getCategory().substring(5)));
+        assertEquals(40, generator.getItems().size());
+        assertEquals("One recipe per item", 40, generator.getRecipes().size());
+        assertEquals(4 * 2, generator.getBuildingTypes().size());
+
+        for (Recipe recipe : generator.getRecipes()) {
+            int tier = tierOf.get(recipe.getOutputslist().getIngredientslist().get(0).getItem_name());
+            if (tier == 0) {
+                assertTrue("Raw materials are gathered", recipe.getIngredientslist().getIngredientslist().isEmpty());
+                continue;
+            }
+            assertEquals("fanIn ingredients", 2, recipe.getIngredientslist().getIngredientslist().size());
+            boolean fromPreviousTier = false;
+            for (IngredientPair ingredient : recipe.getIngredientslist().getIngredientslist()) {
+                int ingredientTier = tierOf.get(ingredient.getItem_name());
+                assertTrue("Ingredients come from lower tiers", ingredientTier < tier);
+                fromPreviousTier |= ingredientTier == tier - 1;
+            }
+            assertTrue("At least one ingredient from the tier below", fromPreviousTier);
+        }
+
+        assertEquals(200, world.size());
+        for (BuildingInstance building : world.getBuildings()) {
+            assertNotNull("Buildings run a recipe", building.getActiveRecipe());
+            assertTrue("Storages are stocked", building.getStorage().getUsedCapacity() > 0);
+        }
+    }
+
+    @Test
+    public void testWriteJson_LoadsBack() throws Exception {
+        WorldGenerator generator = generator(3);
+        World world = generator.generate();
+        File directory = folder.newFolder("generated");
+        generator.writeJson(directory);
+
+        Map<String, ItemType> items = JsonPersistence.read(new File(directory, WorldGenerator.ITEMS_FILE),
+            JsonPersistence.mapOf(String.class, ItemType.class));
+        ItemType first = generator.getItems().get(0);
+        assertEquals(40, items.size());
+        assertEquals("Spoilage time should survive the round trip", first.getHowLongToGoBad(), items.get(first.getName()).getHowLongToGoBad(), 0.001);
+
+        RecipeRegistry.loadFromJson(new File(directory, WorldGenerator.RECIPES_FILE).getPath());
+        assertEquals(40, RecipeRegistry.getRecipes().size());
+
+        World loaded = WorldSerializer.loadWorld(new File(directory, WorldGenerator.WORLD_FILE));
+        assertEquals(world.size(), loaded.size());
+        assertArrayEquals(json(world), json(loaded));
+    }
+}
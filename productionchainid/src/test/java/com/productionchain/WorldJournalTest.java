@@ -0,0 +1,170 @@
+package com.productionchain;
+
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import com.productionchain.buildings.BuildingInstance;
+import com.productionchain.buildings.BuildingTypeRegistry;
+import com.productionchain.buildings.ProductionBuildingInstance;
+import com.productionchain.buildings.ProductionBuildingType;
+import com.productionchain.constants.BuildingConstants;
+import com.productionchain.constants.ItemConstants;
+import com.productionchain.constants.RecipeConstants;
+import com.productionchain.enginedatatypes.IngredientPair;
+import com.productionchain.enginedatatypes.IngredientsList;
+import com.productionchain.enginedatatypes.Recipe;
+import com.productionchain.world.TurnEngine;
+import com.productionchain.world.World;
+import com.productionchain.world.WorldJournal;
+import com.productionchain.world.WorldSerializer;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Unit tests for WorldJournal.
+ * Checks that replaying the journal on the saved world (also one reloaded from JSON) gives back the
+ * same world, and that a frame cut short by a crash is dropped.
+ */
+public class WorldJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ProductionBuildingType kiln;
+    private Recipe charcoal;
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        kiln = (ProductionBuildingType) BuildingTypeRegistry.getBuildingByName(BuildingConstants.BUILDING_KILN);  // replay resolves types by name
+        charcoal = new Recipe(RecipeConstants.RECIPE_CHARCOAL, RecipeConstants.CATEGORY_BASIC_KILN, "--", 1, 1,
+            new IngredientsList(new ArrayList<>(List.of(new IngredientPair(ItemConstants.WOOD, 2)))),
+            new IngredientsList(new ArrayList<>(List.of(new IngredientPair(ItemConstants.COAL, 3)))), 1.0, true);
+        file = new File(folder.getRoot(), "world.journal");
+    }
+
+    @Test
+    public void testReplay_RebuildsWorldFromEmptySave() throws Exception {
+        World world = new World();
+        TurnEngine engine = new TurnEngine(world);
+        try (WorldJournal journal = new WorldJournal(file, world)) {
+            ProductionBuildingInstance first = new ProductionBuildingInstance(kiln, "Player1", 0, 0, 100);
+            ProductionBuildingInstance second = new ProductionBuildingInstance(kiln, "Player2", 1, 0, 100);
+            journal.placeBuilding(first);
+            journal.placeBuilding(second);
+            journal.addItem(first, ItemConstants.WOOD, 10, 20);
+            journal.setActiveRecipe(first, charcoal);
+            journal.runTurn(engine);
+
+            journal.removeItem(first, ItemConstants.COAL, 1);
+            journal.addItem(second, ItemConstants.WOOD, 4, 2);
+            journal.runTurn(engine);
+            journal.removeBuilding(second);
+            journal.runTurn(engine);
+        }
+
+        World replayed = new World();
+        int applied = WorldJournal.replay(file, replayed, new TurnEngine(replayed));
+        assertEquals(10, applied);
+        assertEquals("Turns should be re-run", 3, replayed.getTurn());
+        assertEquals("Removed building should stay removed", 1, replayed.size());
+
+        BuildingInstance original = world.getBuildings().get(0);
+        BuildingInstance building = replayed.getBuildings().get(0);
+        assertEquals(original.getInstanceId(), building.getInstanceId());
+        assertEquals(RecipeConstants.RECIPE_CHARCOAL, building.getActiveRecipe().getName());
+        assertEquals(original.getStorage().getItemQuantity(ItemConstants.WOOD), building.getStorage().getItemQuantity(ItemConstants.WOOD), 0.001);
+        assertEquals(original.getStorage().getItemQuantity(ItemConstants.COAL), building.getStorage().getItemQuantity(ItemConstants.COAL), 0.001);
+    }
+
+    @Test
+    public void testReplay_OnWorldReloadedFromJson() throws Exception {
+        World world = new World();
+        TurnEngine engine = new TurnEngine(world);
+        ProductionBuildingInstance first = new ProductionBuildingInstance(kiln, "Player1", 0, 0, 100);
+        ProductionBuildingInstance second = new ProductionBuildingInstance(kiln, "Player2", 1, 0, 100);
+        ProductionBuildingInstance third = new ProductionBuildingInstance(kiln, "Player3", 2, 0, 100);
+        world.addBuilding(first);
+        world.addBuilding(second);
+        world.addBuilding(third);
+        world.removeBuilding(first);   // ids no longer match positions
+        File save = new File(folder.getRoot(), "world.json");
+        WorldSerializer.save(world, save);
+
+        try (WorldJournal journal = new WorldJournal(file, world)) {
+            journal.removeBuilding(second);
+            journal.addItem(third, ItemConstants.WOOD, 10, 20);
+            journal.setActiveRecipe(third, charcoal);
+            journal.runTurn(engine);
+        }
+
+        World reloaded = WorldSerializer.loadWorld(save);
+        assertEquals(2, reloaded.size());
+        assertEquals(second.getInstanceId(), reloaded.getBuildings().get(0).getInstanceId());
+        assertEquals(4, WorldJournal.replay(file, reloaded, new TurnEngine(reloaded)));
+        assertEquals(1, reloaded.size());
+
+        BuildingInstance building = reloaded.getBuildings().get(0);
+        assertEquals(third.getInstanceId(), building.getInstanceId());
+        assertEquals("Player3", building.getOwner());
+        assertEquals(third.getStorage().getItemQuantity(ItemConstants.WOOD), building.getStorage().getItemQuantity(ItemConstants.WOOD), 0.001);
+        assertEquals(third.getStorage().getItemQuantity(ItemConstants.COAL), building.getStorage().getItemQuantity(ItemConstants.COAL), 0.001);
+    }
+
+    @Test
+    public void testReplay_IgnoresTornFrameAndReopenDropsIt() throws Exception {
+        World world = new World();
+        TurnEngine engine = new TurnEngine(world);
+        try (WorldJournal journal = new WorldJournal(file, world)) {
+            journal.placeBuilding(new ProductionBuildingInstance(kiln, "Player1", 0, 0, 100));
+            journal.runTurn(engine);
+        }
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            out.write(new byte[] { 0, 0, 0, 40, 1, 2, 3 });   // crash in the middle of a frame
+        }
+
+        World replayed = new World();
+        TurnEngine replayEngine = new TurnEngine(replayed);
+        assertEquals(2, WorldJournal.replay(file, replayed, replayEngine));
+        assertEquals(1, replayed.getTurn());
+
+        try (WorldJournal journal = new WorldJournal(file, replayed)) {
+            journal.addItem(replayed.getBuildings().get(0), ItemConstants.WOOD, 5, 20);
+            journal.runTurn(replayEngine);
+        }
+        World again = new World();
+        assertEquals("Frames appended after reopening should replay", 4, WorldJournal.replay(file, again, new TurnEngine(again)));
+        assertEquals(5.0, again.getBuildings().get(0).getStorage().getItemQuantity(ItemConstants.WOOD), 0.001);
+    }
+
+    @Test
+    public void testCheckpoint_StartsOverFromSavedTurn() throws Exception {
+        World world = new World();
+        TurnEngine engine = new TurnEngine(world);
+        try (WorldJournal journal = new WorldJournal(file, world)) {
+            journal.placeBuilding(new ProductionBuildingInstance(kiln, "Player1", 0, 0, 100));
+            journal.runTurn(engine);
+            journal.commit();
+            journal.sync();
+            journal.checkpoint();
+            journal.runTurn(engine);
+        }
+
+        World older = new World();
+        try {
+            WorldJournal.replay(file, older, new TurnEngine(older));
+            fail("A journal newer than the save should not be replayed");
+        } catch (IOException expected) {
+        }
+
+        World saved = new World();
+        saved.setTurn(1);
+        assertEquals("Only the turn after the checkpoint", 1, WorldJournal.replay(file, saved, new TurnEngine(saved)));
+        assertEquals(2, saved.getTurn());
+    }
+}
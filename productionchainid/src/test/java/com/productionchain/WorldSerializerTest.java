@@ -0,0 +1,112 @@
+package com.productionchain;
+
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import com.productionchain.buildings.AnimalBuildingInstance;
+import com.productionchain.buildings.AnimalBuildingType;
+import com.productionchain.buildings.BuildingInstance;
+import com.productionchain.buildings.ProductionBuildingInstance;
+import com.productionchain.buildings.ProductionBuildingType;
+import com.productionchain.constants.BuildingConstants;
+import com.productionchain.constants.ItemConstants;
+import com.productionchain.constants.RecipeConstants;
+import com.productionchain.enginedatatypes.IngredientPair;
+import com.productionchain.enginedatatypes.IngredientsList;
+import com.productionchain.enginedatatypes.ItemRegistry;
+import com.productionchain.enginedatatypes.Recipe;
+import com.productionchain.mechanics.AnimalInstance;
+import com.productionchain.mechanics.AnimalType;
+import com.productionchain.mechanics.RecipeHandler;
+import com.productionchain.world.World;
+import com.productionchain.world.WorldSerializer;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Unit tests for WorldSerializer.
+ * Saves a small world through the streaming writer and reads it back building by building.
+ */
+public class WorldSerializerTest {
+
+    private World world;
+
+    @Before
+    public void setUp() {
+        ProductionBuildingType kiln = new ProductionBuildingType(BuildingConstants.BUILDING_KILN, "-", BuildingConstants.BUILDING_KILN, 1, 0,
+            new ArrayList<>(), 0, null, new RecipeHandler(2, new ArrayList<>(List.of(RecipeConstants.CATEGORY_BASIC_KILN))));
+        Recipe charcoal = new Recipe(RecipeConstants.RECIPE_CHARCOAL, RecipeConstants.CATEGORY_BASIC_KILN, "--", 1, 1,
+            new IngredientsList(new ArrayList<>(List.of(new IngredientPair(ItemConstants.WOOD, 2)))),
+            new IngredientsList(new ArrayList<>(List.of(new IngredientPair(ItemConstants.COAL, 3)))), 1.0, true);
+
+        ProductionBuildingInstance building = new ProductionBuildingInstance(kiln, "Player1", 4, 7, 100);
+        building.getStorage().addItem(ItemConstants.WOOD, 10, 20);
+        building.getStorage().addItem(ItemConstants.WOOD, 5, 3);
+        building.setCondition(80);
+        building.setActiveRecipe(charcoal);
+
+        AnimalType cow = new AnimalType("Cow", "-", 1, 2, 3, 10, new IngredientsList(), new IngredientsList(), new IngredientsList(),
+            0, 0, 0, new IngredientsList(), new IngredientsList());
+        AnimalBuildingType barnType = new AnimalBuildingType("Barn", "-", "Barn", 100, 0, new ArrayList<>(), 0, null,
+            new RecipeHandler(), 10, 20, new ArrayList<>(List.of("Cow")));
+        AnimalBuildingInstance barn = new AnimalBuildingInstance(barnType, "Player2", 1, 1, 50);
+        AnimalInstance calf = new AnimalInstance(cow);
+        calf.setAge(3);
+        barn.addHousedAnimal(calf);
+        barn.addHousedAnimal(new AnimalInstance(cow));
+        barn.setCleanliness(60);
+
+        world = new World();
+        world.addBuilding(building);
+        world.addBuilding(barn);
+        world.setTurn(12);
+    }
+
+    @Test
+    public void testSaveLoad_RoundTripsBuildingsStorageAndAnimals() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        WorldSerializer.save(world, out);
+
+        List<BuildingInstance> loaded = new ArrayList<>();
+        long turn = WorldSerializer.load(new ByteArrayInputStream(out.toByteArray()), loaded::add);
+
+        assertEquals("Turn should be restored", 12, turn);
+        assertEquals("Both buildings should be read", 2, loaded.size());
+
+        BuildingInstance building = loaded.get(0);
+        assertTrue("Instance class should be restored", building instanceof ProductionBuildingInstance);
+        assertEquals(BuildingConstants.BUILDING_KILN, building.gettypeName());
+        assertNotNull("Type should be resolved from the registry", building.getType());
+        assertEquals("Player1", building.getOwner());
+        assertEquals(4, building.getXcoord());
+        assertEquals(7, building.getYcoord());
+        assertEquals(80.0, building.getCondition(), 0.001);
+        assertEquals(15.0, building.getStorage().getItemQuantity(ItemConstants.WOOD), 0.001);
+        assertEquals("Batches should keep their durability", 2, building.getStorage().getBatches(ItemRegistry.getItemId(ItemConstants.WOOD)).size());
+        assertNotNull("Active recipe should be restored", building.getActiveRecipe());
+        assertEquals(RecipeConstants.RECIPE_CHARCOAL, building.getActiveRecipe().getName());
+
+        AnimalBuildingInstance barn = (AnimalBuildingInstance) loaded.get(1);
+        assertEquals(60.0, barn.getCleanliness(), 0.001);
+        assertEquals("Housed animals should be restored", 2, barn.getHousedAnimals().size());
+        assertEquals("Cow", barn.getHousedAnimals().get(0).gettypeName());
+        assertEquals(3.0, barn.getHousedAnimals().get(0).getAge(), 0.001);
+    }
+
+    @Test
+    public void testLoad_SkipsUnknownFields() throws Exception {
+        String json = "{\"version\":2,\"turn\":5,\"extra\":{\"a\":[1,2]},\"buildings\":["
+            + "{\"instanceType\":\"ProductionBuildingInstance\",\"typeName\":\"Hut\",\"owner\":\"P\",\"x\":1,\"y\":2,"
+            + "\"future\":[{\"b\":1}],\"storage\":null}]}";
+
+        World loaded = new World();
+        long turn = WorldSerializer.load(new ByteArrayInputStream(json.getBytes("UTF-8")), loaded::addBuilding);
+
+        assertEquals(5, turn);
+        assertEquals(1, loaded.size());
+        assertEquals(2, loaded.getBuildings().get(0).getYcoord());
+        assertNotNull("A missing storage should be replaced by an empty one", loaded.getBuildings().get(0).getStorage());
+    }
+}
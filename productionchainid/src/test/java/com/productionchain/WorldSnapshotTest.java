@@ -0,0 +1,120 @@
+package com.productionchain;
+
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import com.productionchain.buildings.AnimalBuildingInstance;
+import com.productionchain.buildings.AnimalBuildingType;
+import com.productionchain.buildings.BuildingInstance;
+import com.productionchain.buildings.ProductionBuildingInstance;
+import com.productionchain.buildings.ProductionBuildingType;
+import com.productionchain.constants.BuildingConstants;
+import com.productionchain.constants.ItemConstants;
+import com.productionchain.constants.RecipeConstants;
+import com.productionchain.enginedatatypes.IngredientPair;
+import com.productionchain.enginedatatypes.IngredientsList;
+import com.productionchain.enginedatatypes.Recipe;
+import com.productionchain.mechanics.AnimalInstance;
+import com.productionchain.mechanics.AnimalType;
+import com.productionchain.mechanics.RecipeHandler;
+import com.productionchain.world.World;
+import com.productionchain.world.WorldSerializer;
+import com.productionchain.world.WorldSnapshot;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Unit tests for WorldSnapshot.
+ * Round trips a small world through the binary snapshot and converts it to and from JSON.
+ */
+public class WorldSnapshotTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private World world;
+
+    @Before
+    public void setUp() {
+        ProductionBuildingType kiln = new ProductionBuildingType(BuildingConstants.BUILDING_KILN, "-", BuildingConstants.BUILDING_KILN, 1, 0,
+            new ArrayList<>(), 0, null, new RecipeHandler(2, new ArrayList<>(List.of(RecipeConstants.CATEGORY_BASIC_KILN))));
+        Recipe charcoal = new Recipe(RecipeConstants.RECIPE_CHARCOAL, RecipeConstants.CATEGORY_BASIC_KILN, "--", 1, 1,
+            new IngredientsList(new ArrayList<>(List.of(new IngredientPair(ItemConstants.WOOD, 2)))),
+            new IngredientsList(new ArrayList<>(List.of(new IngredientPair(ItemConstants.COAL, 3)))), 1.0, true);
+
+        world = new World();
+        for (int i = 0; i < 3; i++) {
+            ProductionBuildingInstance building = new ProductionBuildingInstance(kiln, "Player1", i, -i, 100);
+            building.getStorage().setAllowedItems(new ArrayList<>(Arrays.asList(ItemConstants.WOOD, ItemConstants.COAL)));
+            building.getStorage().addItem(ItemConstants.WOOD, 10 + i, 20);
+            building.getStorage().addItem(ItemConstants.WOOD, 5, 3);
+            building.getStorage().addItem(ItemConstants.COAL, 2.5, 7);
+            building.setActiveRecipe(charcoal);
+            world.addBuilding(building);
+        }
+
+        AnimalType cow = new AnimalType("Cow", "-", 1, 2, 3, 10, new IngredientsList(), new IngredientsList(), new IngredientsList(),
+            0, 0, 0, new IngredientsList(), new IngredientsList());
+        AnimalBuildingType barnType = new AnimalBuildingType("Barn", "-", "Barn", 100, 0, new ArrayList<>(), 0, null,
+            new RecipeHandler(), 10, 20, new ArrayList<>(List.of("Cow")));
+        AnimalBuildingInstance barn = new AnimalBuildingInstance(barnType, "Player2", 1, 1, 50);
+        AnimalInstance calf = new AnimalInstance(cow);
+        calf.setAge(3);
+        barn.addHousedAnimal(calf);
+        barn.setCleanliness(60);
+        world.addBuilding(barn);
+        world.setTurn(12);
+    }
+
+    @Test
+    public void testSaveLoad_RoundTripsWorld() throws Exception {
+        File file = folder.newFile("world.pcws");
+        WorldSnapshot.save(world, file);
+        World loaded = WorldSnapshot.loadWorld(file);
+
+        assertEquals("Turn should be restored", 12, loaded.getTurn());
+        assertEquals(4, loaded.size());
+        BuildingInstance building = loaded.getBuildings().get(2);
+        assertTrue(building instanceof ProductionBuildingInstance);
+        assertEquals("Player1", building.getOwner());
+        assertEquals("Negative coordinates should survive", -2, building.getYcoord());
+        assertEquals(17.0, building.getStorage().getItemQuantity(ItemConstants.WOOD), 0.001);
+        assertEquals(2.5, building.getStorage().getItemQuantity(ItemConstants.COAL), 0.001);
+        assertEquals(Arrays.asList(ItemConstants.WOOD, ItemConstants.COAL), building.getStorage().getAllowedItems());
+        assertEquals(RecipeConstants.RECIPE_CHARCOAL, building.getActiveRecipe().getName());
+        assertSame("Buildings sharing a recipe should share it after loading",
+            loaded.getBuildings().get(0).getActiveRecipe(), building.getActiveRecipe());
+
+        AnimalBuildingInstance barn = loaded.getAnimalBuildings().get(0);
+        assertEquals(60.0, barn.getCleanliness(), 0.001);
+        assertEquals(1, barn.getHousedAnimals().size());
+        assertEquals(3.0, barn.getHousedAnimals().get(0).getAge(), 0.001);
+    }
+
+    @Test
+    public void testConvert_JsonToSnapshotAndBack() throws Exception {
+        File json = folder.newFile("world.json");
+        File snapshot = folder.newFile("world.pcws");
+        File back = folder.newFile("back.json");
+        WorldSerializer.save(world, json);
+
+        WorldSnapshot.jsonToSnapshot(json, snapshot);
+        WorldSnapshot.snapshotToJson(snapshot, back);
+
+        assertTrue("Snapshot should be smaller than the JSON", snapshot.length() < json.length());
+        assertEquals("Converting both ways should give the same JSON",
+            new String(Files.readAllBytes(json.toPath()), "UTF-8"), new String(Files.readAllBytes(back.toPath()), "UTF-8"));
+    }
+
+    @Test(expected = java.io.IOException.class)
+    public void testLoad_RejectsOtherFiles() throws Exception {
+        File json = folder.newFile("world.json");
+        WorldSerializer.save(world, json);
+        WorldSnapshot.loadWorld(json);
+    }
+}